@@ -0,0 +1,16 @@
+package io.github.chyohn.terse.cluster.support;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+/**
+ * a message of the topic broadcast to the other members, see {@link ClusterBroadcaster}
+ */
+@Getter
+@Setter
+public class BroadcastRequest implements Serializable {
+    String topic;
+    String message;
+}
@@ -0,0 +1,78 @@
+package io.github.chyohn.terse.cluster.support;
+
+import io.github.chyohn.terse.cluster.Cluster;
+import io.github.chyohn.terse.cluster.broadcast.BroadcastMessageReceiver;
+import io.github.chyohn.terse.cluster.broadcast.IBroadcaster;
+import io.github.chyohn.terse.cluster.member.Member;
+import io.github.chyohn.terse.cluster.remote.client.RequestCallBack;
+import io.github.chyohn.terse.cluster.service.ServiceProcessor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 通过节点间的请求广播：广播时向其他所有在线节点发送{@link BroadcastRequest}，不等待结果，
+ * 收到请求的节点交给本节点订阅该topic的处理器。
+ * <p>
+ * 广播不经过本节点，发送方自己处理本节点的消息；发送失败和离线的节点收不到消息，不重试。
+ */
+@Slf4j
+public class ClusterBroadcaster implements IBroadcaster, ServiceProcessor<BroadcastRequest, Boolean> {
+
+    private final Cluster cluster;
+    private final Map<String, List<BroadcastMessageReceiver>> receivers = new ConcurrentHashMap<>();
+
+    public ClusterBroadcaster(Cluster cluster) {
+        this.cluster = cluster;
+    }
+
+    @Override
+    public void subscribe(String topic, BroadcastMessageReceiver receiver) {
+        receivers.computeIfAbsent(topic, t -> new CopyOnWriteArrayList<>()).add(receiver);
+    }
+
+    @Override
+    public void broadcast(String topic, String message) {
+        BroadcastRequest request = new BroadcastRequest();
+        request.setTopic(topic);
+        request.setMessage(message);
+        for (Member member : cluster.getMemberManager().allUpMembers()) {
+            if (cluster.getMemberManager().isSelf(member)) {
+                continue;
+            }
+            try {
+                cluster.getRpcClientProxy().request(member, request, new RequestCallBack<Boolean>() {
+                    @Override
+                    public void onResponse(Boolean response) {
+                    }
+
+                    @Override
+                    public void onException(Throwable e) {
+                        log.warn("broadcast {} to {} failed", topic, member.getAddress(), e);
+                    }
+                });
+            } catch (Exception e) {
+                log.warn("broadcast {} to {} failed", topic, member.getAddress(), e);
+            }
+        }
+    }
+
+    @Override
+    public Boolean process(BroadcastRequest request) {
+        List<BroadcastMessageReceiver> list = receivers.get(request.getTopic());
+        if (list == null) {
+            return false;
+        }
+        for (BroadcastMessageReceiver receiver : list) {
+            try {
+                receiver.message(request.getMessage());
+            } catch (Exception e) {
+                log.warn("receive broadcast {} failed", request.getTopic(), e);
+            }
+        }
+        return true;
+    }
+}
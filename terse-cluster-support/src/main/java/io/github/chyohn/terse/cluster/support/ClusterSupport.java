@@ -1,11 +1,21 @@
 package io.github.chyohn.terse.cluster.support;
 
+import io.github.chyohn.terse.breaker.CircuitBreaker;
+import io.github.chyohn.terse.breaker.CircuitBreakers;
 import io.github.chyohn.terse.cluster.Cluster;
+import io.github.chyohn.terse.cluster.HedgePolicy;
 import io.github.chyohn.terse.cluster.IClusterClient;
+import io.github.chyohn.terse.cluster.IHedgeMetrics;
+import io.github.chyohn.terse.cluster.IWriteBufferMetrics;
 import io.github.chyohn.terse.cluster.broadcast.IBroadcaster;
+import io.github.chyohn.terse.cluster.config.Environment;
+import io.github.chyohn.terse.cluster.event.ClusterEventListener;
 import io.github.chyohn.terse.cluster.member.Member;
+import io.github.chyohn.terse.cluster.member.event.ClusterMemberLeaveEvent;
 import io.github.chyohn.terse.cluster.remote.client.RequestCallBack;
-import io.github.chyohn.terse.cluster.remote.client.RpcClientProxy;
+import io.github.chyohn.terse.cluster.support.balance.ILoadBalancer;
+import io.github.chyohn.terse.cluster.utils.GlobalExecutor;
+import io.github.chyohn.terse.command.CancellationToken;
 import io.github.chyohn.terse.command.ICommand;
 import io.github.chyohn.terse.command.IReceiver;
 import io.github.chyohn.terse.command.IReceiverRegistry;
@@ -13,17 +23,53 @@ import io.github.chyohn.terse.command.IResult;
 import io.github.chyohn.terse.function.Callback2;
 import io.github.chyohn.terse.spi.ISpiFactory;
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
+@Slf4j
 public class ClusterSupport implements IClusterClient {
 
+    // 本节点发出的可取消请求的序号
+    private static final AtomicLong REQUEST_SEQUENCE = new AtomicLong();
+    // 节点熔断器的名称前缀，与命令类型的熔断器区分
+    private static final String MEMBER_BREAKER_PREFIX = "member:";
+    // 没有指定超时时间的请求的超时时间
+    private static final long DEFAULT_TIMEOUT_MILLIS = 30_000L;
+
+    /**
+     * 集群模式的路由方式：balanced按负载在所有节点中选择，local-first本地未饱和时在本地执行，饱和时溢出到其他节点
+     */
+    public static final String ROUTING_KEY = "cluster.routing";
+    public static final String ROUTING_BALANCED = "balanced";
+    public static final String ROUTING_LOCAL_FIRST = "local-first";
+    /**
+     * 一个命令类型在本节点执行中的命令数达到该值时溢出
+     */
+    public static final String SPILL_MAX_IN_FLIGHT_KEY = "cluster.spill.maxInFlight";
+    /**
+     * 一个命令类型在本节点的平均耗时超过该值（毫秒）时溢出，默认不按耗时溢出
+     */
+    public static final String SPILL_LATENCY_MILLIS_KEY = "cluster.spill.latencyMillis";
+    // 通告本节点负载的间隔
+    private static final long ADVERTISE_INTERVAL_MS = 1_000L;
+
     @Getter
     private final Cluster cluster = Cluster.defaultCluster();
     private final IReceiverRegistry receiverRegistry = ISpiFactory.get(IReceiverRegistry.class);
+    private final ILoadBalancer balancer = ISpiFactory.get(ILoadBalancer.class);
+    // 启用对冲的命令类型
+    private final Map<Class<?>, Hedger> hedgers = new ConcurrentHashMap<>();
+    private final ClusterBroadcaster broadcaster = new ClusterBroadcaster(cluster);
+    private volatile LocalLoad localLoad;
+    private volatile boolean localFirst;
     public ClusterSupport() {
     }
 
@@ -47,8 +93,27 @@ public class ClusterSupport implements IClusterClient {
             });
             cluster.getEnvironment().setProperties(resolved);
         }
+        Environment env = cluster.getEnvironment();
+        localFirst = ROUTING_LOCAL_FIRST.equals(env.getProperty(ROUTING_KEY, ROUTING_BALANCED));
+        localLoad = new LocalLoad(env.getProperty(SPILL_MAX_IN_FLIGHT_KEY, Integer.class, 32),
+                env.getProperty(SPILL_LATENCY_MILLIS_KEY, Long.class, 0L));
         cluster.prepare();
-        cluster.registerProcessor(CommandRequest.class, new CommandRequestProcessor());
+        GlobalExecutor.scheduleByCommon(this::advertiseLoad, ADVERTISE_INTERVAL_MS);
+        CommandRequestProcessor requestProcessor = new CommandRequestProcessor(localLoad);
+        cluster.registerProcessor(CommandRequest.class, requestProcessor);
+        cluster.registerProcessor(CommandCancelRequest.class, new CommandCancelProcessor(requestProcessor));
+        cluster.registerProcessor(BroadcastRequest.class, broadcaster);
+        cluster.addListener(new ClusterEventListener<ClusterMemberLeaveEvent>() {
+            @Override
+            public Class<ClusterMemberLeaveEvent> eventType() {
+                return ClusterMemberLeaveEvent.class;
+            }
+
+            @Override
+            public void onEvent(ClusterMemberLeaveEvent event) {
+                balancer.onLeave(event.getMember());
+            }
+        });
     }
 
     @Override
@@ -69,46 +134,290 @@ public class ClusterSupport implements IClusterClient {
         return cluster.isReady();
     }
 
-    private Member randomTarget() {
+    private Member selectTarget() {
         if (!isInit()) {
             return null;
         }
         List<Member> members = cluster.getMemberManager().allUpMembers();
-        if (members == null || members.isEmpty()) {
+        Member member = balancer.select(members);
+        if (member == null) {
             return null;
         }
-        Random random = new Random();
-        int index = random.nextInt(members.size() * 100) % members.size();
-        return members.get(index);
+        // 连接不可写或熔断器不允许请求时从其余节点中重新选择，都不允许时在本地执行
+        List<Member> candidates = null;
+        while (!cluster.getMemberManager().isSelf(member) && !available(member)) {
+            if (candidates == null) {
+                candidates = new ArrayList<>(members);
+            }
+            candidates.remove(member);
+            member = balancer.select(candidates);
+            if (member == null) {
+                return null;
+            }
+        }
+        return member;
+    }
+
+    /**
+     * 连接可写且熔断器允许请求。先检查连接，不可写时不占用熔断器半开状态的试探请求
+     */
+    private boolean available(Member member) {
+        return cluster.getRpcClientProxy().isWritable(member)
+                && (!CircuitBreakers.ENABLED || memberBreaker(member).tryAcquire());
+    }
+
+    private static CircuitBreaker memberBreaker(Member member) {
+        return CircuitBreakers.get(MEMBER_BREAKER_PREFIX + member.getAddress());
     }
 
     @Override
     public void request(ICommand command, Callback2<IResult<?>, Throwable> callable) {
-        Member member = randomTarget();
+        request(command, null, callable);
+    }
+
+    /**
+     * 本地优先：本地未饱和时在本地执行，饱和时按两次随机选择溢出到通告负载低的远程节点，
+     * 远程节点的负载不低于本节点时仍在本地执行
+     *
+     * @return null或本节点在本地执行
+     */
+    private Member spillTarget(ICommand command) {
+        if (!isInit()) {
+            return null;
+        }
+        Member self = cluster.getMemberManager().getSelf();
+        LocalLoad load = localLoad;
+        if (!load.saturated(command.getClass())) {
+            return self;
+        }
+        List<Member> candidates = new ArrayList<>();
+        for (Member member : cluster.getMemberManager().allUpMembers()) {
+            if (!cluster.getMemberManager().isSelf(member)) {
+                candidates.add(member);
+            }
+        }
+        int localTotal = load.total();
+        while (!candidates.isEmpty()) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Member member = candidates.get(random.nextInt(candidates.size()));
+            if (candidates.size() > 1) {
+                Member other = candidates.get(random.nextInt(candidates.size()));
+                if (LocalLoad.advertised(other) < LocalLoad.advertised(member)) {
+                    member = other;
+                }
+            }
+            if (LocalLoad.advertised(member) >= localTotal) {
+                return self;
+            }
+            if (available(member)) {
+                return member;
+            }
+            candidates.remove(member);
+        }
+        return self;
+    }
+
+    @Override
+    public void request(ICommand command, CancellationToken cancellation, Callback2<IResult<?>, Throwable> callable) {
+        request(command, DEFAULT_TIMEOUT_MILLIS, cancellation, callable);
+    }
+
+    @Override
+    public void request(ICommand command, long timeoutMillis, CancellationToken cancellation,
+                        Callback2<IResult<?>, Throwable> callable) {
+        Member member = localFirst ? spillTarget(command) : selectTarget();
         if (member == null || cluster.getMemberManager().isSelf(member)) {
-            IReceiver<ICommand> receiver = receiverRegistry.getAsyncReceiver(command);
-            receiver.async(command, r -> callable.apply(r, null));
-        } else {
-            RpcClientProxy clientProxy = cluster.getRpcClientProxy();
-            CommandRequest request = new CommandRequest();
-            request.setCommand(command);
-            clientProxy.request(member, request, new RequestCallBack<CommandResponse>() {
+            executeLocal(command, member, cancellation, callable);
+            return;
+        }
+        Hedger hedger = hedgers.isEmpty() ? null : hedgers.get(command.getClass());
+        if (hedger != null) {
+            new HedgedRequest(this, hedger, command, timeoutMillis, cancellation, callable).start(member);
+            return;
+        }
+        String requestId = cancellation == null ? null : nextRequestId();
+        Runnable hook = requestId == null ? null : () -> sendCancel(member, requestId);
+        send(member, command, requestId, timeoutMillis, (response, e) -> {
+            removeHook(cancellation, hook);
+            callable.apply(response == null ? null : response.getResult(), e);
+        });
+        if (hook != null) {
+            cancellation.onCancel(hook);
+        }
+    }
+
+    /**
+     * 在本地执行，本节点的负载也参与选择
+     *
+     * @param self 本节点，集群未初始化时为null
+     */
+    private void executeLocal(ICommand command, Member self, CancellationToken cancellation,
+                              Callback2<IResult<?>, Throwable> callable) {
+        IReceiver<ICommand> receiver = receiverRegistry.getAsyncReceiver(command);
+        if (self == null) {
+            receiver.async(command, cancellation, r -> callable.apply(r, null));
+            return;
+        }
+        balancer.onRequest(self);
+        LocalLoad.TypeLoad load = localLoad.start(command.getClass());
+        long start = System.nanoTime();
+        try {
+            receiver.async(command, cancellation, r -> {
+                long nanos = System.nanoTime() - start;
+                localLoad.complete(load, nanos);
+                balancer.onResponse(self, nanos, false);
+                callable.apply(r, null);
+            });
+        } catch (RuntimeException e) {
+            long nanos = System.nanoTime() - start;
+            localLoad.complete(load, nanos);
+            balancer.onResponse(self, nanos, true);
+            throw e;
+        }
+    }
+
+    /**
+     * 定期更新本节点通告的负载，随节点信息上报同步到其他节点
+     */
+    private void advertiseLoad() {
+        try {
+            Member self = cluster.getMemberManager().getSelf();
+            if (self != null) {
+                localLoad.advertise(self);
+            }
+        } catch (Throwable e) {
+            log.warn("advertise load failed", e);
+        } finally {
+            GlobalExecutor.scheduleByCommon(this::advertiseLoad, ADVERTISE_INTERVAL_MS);
+        }
+    }
+
+    String nextRequestId() {
+        return cluster.getMemberManager().getSelf().getAddress() + "-" + REQUEST_SEQUENCE.incrementAndGet();
+    }
+
+    /**
+     * 发送请求到远程节点
+     *
+     * @param requestId     需要支持取消时的请求id，否则为null
+     * @param timeoutMillis 超时时间，远程节点和等待响应都按这个时间截止，&lt;=0不超时
+     * @param callback      响应或异常回调
+     */
+    void send(Member member, ICommand command, String requestId, long timeoutMillis,
+              Callback2<CommandResponse, Throwable> callback) {
+        CommandRequest request = new CommandRequest();
+        request.setCommand(command);
+        request.setRequestId(requestId);
+        // 节点熔断器只统计请求节点的失败，命令自身的失败结果不是节点的失败
+        CircuitBreaker breaker = CircuitBreakers.ENABLED ? memberBreaker(member) : null;
+        balancer.onRequest(member);
+        long start = System.nanoTime();
+        try {
+            cluster.getRpcClientProxy().request(member, request, new RequestCallBack<CommandResponse>() {
+                @Override
+                public long timeout() {
+                    return timeoutMillis;
+                }
+
                 @Override
                 public void onResponse(CommandResponse response) {
-                    callable.apply(response.getResult(), null);
+                    onResult(member, breaker, System.nanoTime() - start, false);
+                    callback.apply(response, null);
                 }
 
                 @Override
                 public void onException(Throwable e) {
-                    callable.apply(null, e);
+                    onResult(member, breaker, System.nanoTime() - start, true);
+                    callback.apply(null, e);
                 }
             });
+        } catch (RuntimeException e) {
+            onResult(member, breaker, System.nanoTime() - start, true);
+            throw e;
+        }
+    }
+
+    private void onResult(Member member, CircuitBreaker breaker, long latencyNanos, boolean failure) {
+        balancer.onResponse(member, latencyNanos, failure);
+        if (breaker != null) {
+            breaker.onResult(latencyNanos, failure);
+        }
+    }
+
+    /**
+     * 对冲请求的目标：主请求以外的其他在线远程节点
+     *
+     * @param primary 主请求的节点
+     * @return null没有其他节点
+     */
+    Member hedgeTarget(Member primary) {
+        List<Member> candidates = new ArrayList<>();
+        for (Member member : cluster.getMemberManager().allUpMembers()) {
+            if (!member.getAddress().equals(primary.getAddress()) && !cluster.getMemberManager().isSelf(member)) {
+                candidates.add(member);
+            }
+        }
+        Member member;
+        while ((member = balancer.select(candidates)) != null) {
+            if (available(member)) {
+                return member;
+            }
+            candidates.remove(member);
+        }
+        return null;
+    }
+
+    @Override
+    public void hedgeRequests(Class<? extends ICommand> type, HedgePolicy policy) {
+        hedgers.put(type, new Hedger(type, policy));
+    }
 
+    @Override
+    public List<IHedgeMetrics> hedgeMetrics() {
+        return new ArrayList<>(hedgers.values());
+    }
+
+    @Override
+    public List<IWriteBufferMetrics> writeBufferMetrics() {
+        if (!isInit()) {
+            return Collections.emptyList();
+        }
+        List<IWriteBufferMetrics> metrics = new ArrayList<>();
+        cluster.getRpcClientProxy().writeBufferMonitors()
+                .forEach((address, monitor) -> metrics.add(new WriteBufferMetrics(address, monitor)));
+        return metrics;
+    }
+
+    private void removeHook(CancellationToken cancellation, Runnable hook) {
+        if (hook != null) {
+            cancellation.remove(hook);
+        }
+    }
+
+    /**
+     * 通知远程节点取消请求，不等待结果
+     */
+    void sendCancel(Member member, String requestId) {
+        CommandCancelRequest request = new CommandCancelRequest();
+        request.setRequestId(requestId);
+        try {
+            cluster.getRpcClientProxy().request(member, request, new RequestCallBack<Boolean>() {
+                @Override
+                public void onResponse(Boolean response) {
+                }
+
+                @Override
+                public void onException(Throwable e) {
+                    log.warn("cancel request {} on {} failed", requestId, member.getAddress(), e);
+                }
+            });
+        } catch (Exception e) {
+            log.warn("cancel request {} on {} failed", requestId, member.getAddress(), e);
         }
     }
 
     @Override
     public IBroadcaster getBroadcaster() {
-        return null;
+        return broadcaster;
     }
 }
@@ -0,0 +1,17 @@
+package io.github.chyohn.terse.cluster.support;
+
+import io.github.chyohn.terse.cluster.service.ServiceProcessor;
+
+public class CommandCancelProcessor implements ServiceProcessor<CommandCancelRequest, Boolean> {
+
+    private final CommandRequestProcessor requestProcessor;
+
+    public CommandCancelProcessor(CommandRequestProcessor requestProcessor) {
+        this.requestProcessor = requestProcessor;
+    }
+
+    @Override
+    public Boolean process(CommandCancelRequest request) {
+        return requestProcessor.cancel(request.getRequestId());
+    }
+}
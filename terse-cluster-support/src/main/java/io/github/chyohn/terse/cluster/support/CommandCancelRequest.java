@@ -0,0 +1,15 @@
+package io.github.chyohn.terse.cluster.support;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+/**
+ * cancel the {@link CommandRequest} with the same request id
+ */
+@Getter
+@Setter
+public class CommandCancelRequest implements Serializable {
+    String requestId;
+}
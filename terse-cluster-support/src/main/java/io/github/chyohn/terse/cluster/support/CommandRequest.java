@@ -10,4 +10,6 @@ import java.io.Serializable;
 @Setter
 public class CommandRequest implements Serializable {
     ICommand command;
+    // 需要支持取消时才设置，见CommandCancelRequest
+    String requestId;
 }
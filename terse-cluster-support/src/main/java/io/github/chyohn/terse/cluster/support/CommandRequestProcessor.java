@@ -1,27 +1,79 @@
 package io.github.chyohn.terse.cluster.support;
 
 import io.github.chyohn.terse.cluster.service.ServiceProcessor;
+import io.github.chyohn.terse.command.CancellationToken;
 import io.github.chyohn.terse.command.ICommand;
 import io.github.chyohn.terse.command.IReceiver;
 import io.github.chyohn.terse.command.IReceiverRegistry;
+import io.github.chyohn.terse.command.result.FailureResult;
 import io.github.chyohn.terse.spi.ISpiFactory;
 
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class CommandRequestProcessor implements ServiceProcessor<CommandRequest, CompletableFuture<CommandResponse>> {
 
     private final IReceiverRegistry receiverRegistry = ISpiFactory.get(IReceiverRegistry.class);
+    // 执行中可取消的请求
+    private final ConcurrentMap<String, CancellationToken> cancellations = new ConcurrentHashMap<>();
+    // 远程节点请求的命令也计入本节点的负载
+    private final LocalLoad localLoad;
+
+    CommandRequestProcessor(LocalLoad localLoad) {
+        this.localLoad = localLoad;
+    }
+
     @Override
     public CompletableFuture<CommandResponse> process(CommandRequest request) {
         CompletableFuture<CommandResponse> future = new CompletableFuture<>();
 
         ICommand command = request.getCommand();
+        String requestId = request.getRequestId();
+        CancellationToken cancellation = null;
+        if (requestId != null) {
+            cancellation = new CancellationToken();
+            cancellations.put(requestId, cancellation);
+        }
         IReceiver<ICommand> receiver = receiverRegistry.getAsyncReceiver(command);
-        receiver.async(command, r -> {
-            CommandResponse response = new CommandResponse();
-            response.setResult(r);
-            future.complete(response);
-        });
+        LocalLoad.TypeLoad load = localLoad.start(command.getClass());
+        long start = System.nanoTime();
+        try {
+            receiver.async(command, cancellation, r -> {
+                localLoad.complete(load, System.nanoTime() - start);
+                if (requestId != null) {
+                    cancellations.remove(requestId);
+                }
+                if (r instanceof FailureResult) {
+                    // 原始异常不能传输，按需生成异常栈
+                    ((FailureResult) r).renderStackTrace();
+                }
+                CommandResponse response = new CommandResponse();
+                response.setResult(r);
+                future.complete(response);
+            });
+        } catch (RuntimeException e) {
+            if (requestId != null) {
+                cancellations.remove(requestId);
+            }
+            localLoad.complete(load, System.nanoTime() - start);
+            throw e;
+        }
         return future;
     }
+
+    /**
+     * 取消执行中的请求
+     *
+     * @param requestId 请求id
+     * @return false请求已完成或不存在
+     */
+    boolean cancel(String requestId) {
+        CancellationToken cancellation = requestId == null ? null : cancellations.remove(requestId);
+        if (cancellation == null) {
+            return false;
+        }
+        return cancellation.cancel(new CancellationException("cancelled by requester"));
+    }
 }
@@ -0,0 +1,157 @@
+package io.github.chyohn.terse.cluster.support;
+
+import io.github.chyohn.terse.cluster.member.Member;
+import io.github.chyohn.terse.command.CancellationToken;
+import io.github.chyohn.terse.command.ICommand;
+import io.github.chyohn.terse.command.IResult;
+import io.github.chyohn.terse.function.Callback2;
+import io.github.chyohn.terse.timer.HashedWheelTimer;
+import io.github.chyohn.terse.timer.ITimeout;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 对冲的请求：先发送到一个节点，延迟内没有响应时再发送到另一个节点，使用先到的响应并取消另一个请求。
+ * 两个请求都失败时才返回失败。
+ */
+final class HedgedRequest {
+
+    private final ClusterSupport support;
+    private final Hedger hedger;
+    private final ICommand command;
+    private final long timeoutMillis;
+    private final CancellationToken cancellation;
+    private final Callback2<IResult<?>, Throwable> callable;
+
+    private final AtomicBoolean done = new AtomicBoolean();
+    // 未响应的请求数
+    private final AtomicInteger pending = new AtomicInteger(1);
+    private Member primary;
+    private String primaryId;
+    private long primaryStart;
+    private volatile Member backup;
+    private volatile String backupId;
+    private volatile long backupStart;
+    private volatile ITimeout timeout;
+    private Runnable cancelHook;
+
+    HedgedRequest(ClusterSupport support, Hedger hedger, ICommand command, long timeoutMillis,
+                  CancellationToken cancellation, Callback2<IResult<?>, Throwable> callable) {
+        this.support = support;
+        this.hedger = hedger;
+        this.command = command;
+        this.timeoutMillis = timeoutMillis;
+        this.cancellation = cancellation;
+        this.callable = callable;
+    }
+
+    void start(Member member) {
+        this.primary = member;
+        // 两个请求都需要支持取消，输掉的请求要被取消
+        this.primaryId = support.nextRequestId();
+        long delayNanos = hedger.onRequest();
+        this.primaryStart = System.nanoTime();
+        support.send(member, command, primaryId, timeoutMillis, (response, e) -> onResponse(false, response, e));
+        if (delayNanos >= 0 && !done.get()) {
+            timeout = HashedWheelTimer.commandTimer().newTimeout(t -> onDelay(), delayNanos, TimeUnit.NANOSECONDS);
+        }
+        if (cancellation != null) {
+            cancelHook = this::cancel;
+            cancellation.onCancel(cancelHook);
+            if (done.get()) {
+                // 注册前已完成
+                cancellation.remove(cancelHook);
+            }
+        }
+    }
+
+    /**
+     * 延迟到期，在时间轮的线程中只做状态检查，选择目标和发送交给{@link HashedWheelTimer#expiryExecutor()}执行
+     */
+    private void onDelay() {
+        if (!done.get()) {
+            HashedWheelTimer.expiryExecutor().execute(this::hedge);
+        }
+    }
+
+    private void hedge() {
+        if (done.get()) {
+            return;
+        }
+        // 先检查对冲比例，选择目标时会占用节点熔断器的许可
+        if (!hedger.tryHedge()) {
+            return;
+        }
+        Member target = support.hedgeTarget(primary);
+        if (target == null) {
+            hedger.cancelHedge();
+            return;
+        }
+        pending.incrementAndGet();
+        String id = support.nextRequestId();
+        backupId = id;
+        backupStart = System.nanoTime();
+        backup = target;
+        try {
+            support.send(target, command, id, timeoutMillis, (response, e) -> onResponse(true, response, e));
+        } catch (RuntimeException e) {
+            // 在到期的执行器中执行，不抛出异常，按对冲请求失败处理
+            onResponse(true, null, e);
+            return;
+        }
+        if (done.get()) {
+            // 发送前主请求已成功，成功时可能还没看到对冲请求
+            support.sendCancel(target, id);
+        }
+    }
+
+    private void onResponse(boolean fromBackup, CommandResponse response, Throwable e) {
+        if (e == null) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            // 只记录先到的响应，输掉的请求被取消，耗时没有意义
+            hedger.recordLatency(System.nanoTime() - (fromBackup ? backupStart : primaryStart));
+            if (fromBackup) {
+                hedger.onHedgeWin();
+                support.sendCancel(primary, primaryId);
+            } else if (backup != null) {
+                support.sendCancel(backup, backupId);
+            }
+            finish(response.getResult(), null);
+            return;
+        }
+        // 另一个请求还可能成功
+        if (pending.decrementAndGet() == 0 && done.compareAndSet(false, true)) {
+            finish(null, e);
+        }
+    }
+
+    private void finish(IResult<?> result, Throwable e) {
+        ITimeout t = timeout;
+        if (t != null) {
+            t.cancel();
+        }
+        if (cancelHook != null) {
+            cancellation.remove(cancelHook);
+        }
+        callable.apply(result, e);
+    }
+
+    /**
+     * 调用方取消时取消所有请求，由远程节点返回取消的结果
+     */
+    private void cancel() {
+        ITimeout t = timeout;
+        if (t != null) {
+            t.cancel();
+        }
+        support.sendCancel(primary, primaryId);
+        Member b = backup;
+        if (b != null) {
+            support.sendCancel(b, backupId);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package io.github.chyohn.terse.cluster.support;
+
+import io.github.chyohn.terse.cluster.HedgePolicy;
+import io.github.chyohn.terse.cluster.IHedgeMetrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个命令类型的请求对冲：计算对冲延迟，限制对冲请求的比例，统计对冲次数。
+ * <p>
+ * 延迟取最近响应耗时的百分位，样本不足时不对冲。
+ * 对冲比例按令牌桶限制：每个请求增加比例个令牌，每次对冲消耗一个令牌，令牌数有上限，避免集群变慢时对冲加重负载。
+ */
+final class Hedger implements IHedgeMetrics {
+
+    // 最近响应耗时的样本数
+    private static final int WINDOW = 256;
+    // 计算百分位前最少的样本数
+    private static final int MIN_SAMPLES = 20;
+    // 每增加多少个样本重新计算百分位
+    private static final int RECOMPUTE_INTERVAL = 32;
+    // 一个令牌的单位，令牌按单位的整数倍累计
+    private static final long PERMIT = 1000;
+    // 最多累计的令牌，允许短时间内连续对冲
+    private static final long MAX_PERMITS = 10 * PERMIT;
+
+    private final Class<?> type;
+    private final HedgePolicy policy;
+    private final long permitsPerRequest;
+
+    private final AtomicLongArray samples = new AtomicLongArray(WINDOW);
+    private final AtomicInteger sampleCount = new AtomicInteger();
+    private volatile long percentileNanos = -1;
+    private final AtomicLong permits = new AtomicLong();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder wins = new LongAdder();
+
+    Hedger(Class<?> type, HedgePolicy policy) {
+        this.type = type;
+        this.policy = policy;
+        this.permitsPerRequest = Math.max(1, Math.round(policy.getMaxHedgeRatio() * PERMIT));
+    }
+
+    /**
+     * 记录请求，增加对冲令牌
+     *
+     * @return 对冲延迟，-1不对冲
+     */
+    long onRequest() {
+        requests.increment();
+        permits.accumulateAndGet(permitsPerRequest, (current, add) -> Math.min(current + add, MAX_PERMITS));
+        return delayNanos();
+    }
+
+    /**
+     * @return false对冲比例已达到上限
+     */
+    boolean tryHedge() {
+        for (;;) {
+            long current = permits.get();
+            if (current < PERMIT) {
+                return false;
+            }
+            if (permits.compareAndSet(current, current - PERMIT)) {
+                hedged.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 没有对冲的目标时归还{@link #tryHedge()}消耗的令牌
+     */
+    void cancelHedge() {
+        hedged.decrement();
+        permits.accumulateAndGet(PERMIT, (current, add) -> Math.min(current + add, MAX_PERMITS));
+    }
+
+    void onHedgeWin() {
+        wins.increment();
+    }
+
+    /**
+     * 记录成功响应的耗时，多个线程并发记录时允许覆盖个别样本
+     *
+     * @param nanos 从发送到响应的耗时
+     */
+    void recordLatency(long nanos) {
+        int count = sampleCount.incrementAndGet();
+        samples.lazySet((count - 1) & (WINDOW - 1), nanos);
+        if (count >= MIN_SAMPLES && (count == MIN_SAMPLES || count % RECOMPUTE_INTERVAL == 0)) {
+            percentileNanos = percentile(Math.min(count, WINDOW));
+        }
+    }
+
+    private long percentile(int size) {
+        long[] sorted = new long[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(policy.getPercentile() / 100 * size) - 1;
+        return sorted[Math.max(0, Math.min(index, size - 1))];
+    }
+
+    long delayNanos() {
+        if (policy.getDelayNanos() > 0) {
+            return policy.getDelayNanos();
+        }
+        long p = percentileNanos;
+        return p < 0 ? -1 : Math.max(p, policy.getMinDelayNanos());
+    }
+
+    @Override
+    public Class<?> commandType() {
+        return type;
+    }
+
+    @Override
+    public long requests() {
+        return requests.sum();
+    }
+
+    @Override
+    public long hedged() {
+        return hedged.sum();
+    }
+
+    @Override
+    public long hedgeWins() {
+        return wins.sum();
+    }
+
+    @Override
+    public double delayMillis() {
+        long delay = delayNanos();
+        return delay < 0 ? -1 : delay / 1_000_000D;
+    }
+
+    @Override
+    public String toString() {
+        return "Hedger[" + type.getName() + ", requests=" + requests() + ", hedged=" + hedged()
+                + ", wins=" + hedgeWins() + ", delayMillis=" + delayMillis() + "]";
+    }
+}
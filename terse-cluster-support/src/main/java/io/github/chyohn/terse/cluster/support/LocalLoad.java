@@ -0,0 +1,120 @@
+package io.github.chyohn.terse.cluster.support;
+
+import io.github.chyohn.terse.cluster.member.Member;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本节点执行的命令负载，包括本节点提交的和远程节点请求的命令，用于本地优先路由。
+ * <p>
+ * 按命令类型统计执行中的命令数和耗时的指数加权移动平均，执行中的命令数达到上限或平均耗时超过阈值时本地已饱和，
+ * 命令溢出到其他节点执行。本节点所有执行中的命令数通过{@link Member#getExtendInfo()}通告给其他节点，
+ * 随节点信息上报定期同步，其他节点溢出时据此选择负载低的节点。
+ */
+final class LocalLoad {
+
+    /**
+     * 通告负载的extendInfo的key
+     */
+    static final String LOAD_KEY = "terse.load";
+
+    // 新样本的权重
+    private static final double ALPHA = 0.2D;
+
+    private final int maxInFlight;
+    private final long maxLatencyNanos;
+    private final ConcurrentMap<Class<?>, TypeLoad> types = new ConcurrentHashMap<>();
+    private final AtomicInteger total = new AtomicInteger();
+
+    /**
+     * @param maxInFlight     一个命令类型在本节点执行中的命令数上限
+     * @param maxLatencyMillis 一个命令类型在本节点的平均耗时阈值，小于等于0不按耗时溢出
+     */
+    LocalLoad(int maxInFlight, long maxLatencyMillis) {
+        this.maxInFlight = maxInFlight;
+        this.maxLatencyNanos = maxLatencyMillis <= 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+    }
+
+    /**
+     * 没有执行中的命令时不饱和，平均耗时超过阈值后仍能在本地执行命令更新耗时
+     *
+     * @return 命令类型在本节点是否已饱和
+     */
+    boolean saturated(Class<?> type) {
+        TypeLoad load = types.get(type);
+        if (load == null) {
+            return false;
+        }
+        int inFlight = load.inFlight.get();
+        return inFlight >= maxInFlight || (inFlight > 0 && load.ewmaNanos > maxLatencyNanos);
+    }
+
+    /**
+     * 命令开始在本节点执行
+     *
+     * @return 完成时调用{@link #complete(TypeLoad, long)}
+     */
+    TypeLoad start(Class<?> type) {
+        TypeLoad load = types.get(type);
+        if (load == null) {
+            load = types.computeIfAbsent(type, k -> new TypeLoad());
+        }
+        load.inFlight.incrementAndGet();
+        total.incrementAndGet();
+        return load;
+    }
+
+    void complete(TypeLoad load, long nanos) {
+        load.inFlight.decrementAndGet();
+        total.decrementAndGet();
+        load.record(nanos);
+    }
+
+    /**
+     * @return 本节点所有执行中的命令数
+     */
+    int total() {
+        return total.get();
+    }
+
+    /**
+     * 更新本节点通告的负载，复制后替换extendInfo，不修改可能正在序列化的原对象
+     *
+     * @param self 本节点
+     */
+    void advertise(Member self) {
+        int current = total.get();
+        Map<String, Object> info = self.getExtendInfo();
+        if (info != null && Integer.valueOf(current).equals(info.get(LOAD_KEY))) {
+            return;
+        }
+        Map<String, Object> updated = info == null ? new HashMap<>() : new HashMap<>(info);
+        updated.put(LOAD_KEY, current);
+        self.setExtendInfo(updated);
+    }
+
+    /**
+     * @return 节点通告的负载，没有通告时为0
+     */
+    static int advertised(Member member) {
+        Map<String, Object> info = member.getExtendInfo();
+        Object load = info == null ? null : info.get(LOAD_KEY);
+        return load instanceof Number ? ((Number) load).intValue() : 0;
+    }
+
+    static final class TypeLoad {
+        final AtomicInteger inFlight = new AtomicInteger();
+        // 并发记录时允许丢失个别样本
+        volatile long ewmaNanos;
+
+        void record(long nanos) {
+            long old = ewmaNanos;
+            ewmaNanos = old == 0 ? nanos : (long) (old + ALPHA * (nanos - old));
+        }
+    }
+}
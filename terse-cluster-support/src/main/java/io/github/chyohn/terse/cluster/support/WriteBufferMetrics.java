@@ -0,0 +1,48 @@
+package io.github.chyohn.terse.cluster.support;
+
+import io.github.chyohn.terse.cluster.IWriteBufferMetrics;
+import io.github.chyohn.terse.cluster.remote.channel.WriteBufferMonitor;
+
+/**
+ * 到一个远程节点的连接的写缓冲统计
+ */
+final class WriteBufferMetrics implements IWriteBufferMetrics {
+
+    private final String address;
+    private final WriteBufferMonitor monitor;
+
+    WriteBufferMetrics(String address, WriteBufferMonitor monitor) {
+        this.address = address;
+        this.monitor = monitor;
+    }
+
+    @Override
+    public String address() {
+        return address;
+    }
+
+    @Override
+    public long pendingBytes() {
+        return monitor.getPendingBytes();
+    }
+
+    @Override
+    public boolean writable() {
+        return monitor.isWritable();
+    }
+
+    @Override
+    public long highWatermarkEvents() {
+        return monitor.getHighWatermarkEvents();
+    }
+
+    @Override
+    public long lowWatermarkEvents() {
+        return monitor.getLowWatermarkEvents();
+    }
+
+    @Override
+    public long rejected() {
+        return monitor.getRejected();
+    }
+}
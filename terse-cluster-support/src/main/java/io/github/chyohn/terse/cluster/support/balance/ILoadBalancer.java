@@ -0,0 +1,44 @@
+package io.github.chyohn.terse.cluster.support.balance;
+
+import io.github.chyohn.terse.cluster.member.Member;
+import io.github.chyohn.terse.spi.SPI;
+
+import java.util.List;
+
+/**
+ * 选择执行命令的节点，跟踪各节点的负载。
+ * 通过META-INF/parallel.factories替换默认实现{@link PowerOfTwoChoicesBalancer}
+ */
+@SPI(allowMultiInstance = false)
+public interface ILoadBalancer {
+
+    /**
+     * @param members 在线节点的不可变快照，包含本节点
+     * @return 选择的节点，null没有可选的节点
+     */
+    Member select(List<Member> members);
+
+    /**
+     * 向节点发送请求，或在本节点执行
+     *
+     * @param member 节点
+     */
+    void onRequest(Member member);
+
+    /**
+     * 节点响应或请求失败
+     *
+     * @param member       节点
+     * @param latencyNanos 从发送到响应的耗时
+     * @param failure      请求失败，命令自身失败的结果不是请求失败
+     */
+    void onResponse(Member member, long latencyNanos, boolean failure);
+
+    /**
+     * 节点离开集群，清除统计
+     *
+     * @param member 节点
+     */
+    default void onLeave(Member member) {
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.chyohn.terse.cluster.support.balance;
+
+import io.github.chyohn.terse.cluster.member.Member;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 两次随机选择：随机选两个节点，选择负载低的一个。
+ * <p>
+ * 负载 = (执行中的请求数 + 1) * 耗时的指数加权移动平均，同时反映排队和节点的快慢。
+ * 还没有耗时统计的节点负载最低，新节点会先被探测。
+ * 失败的请求通常很快返回，按至少两倍平均耗时记录，避免故障节点因为"快"而吸引更多请求。
+ */
+public class PowerOfTwoChoicesBalancer implements ILoadBalancer {
+
+    // 新样本的权重
+    private static final double ALPHA = 0.3D;
+
+    private final ConcurrentMap<String, Load> loads = new ConcurrentHashMap<>();
+
+    @Override
+    public Member select(List<Member> members) {
+        int size = members.size();
+        if (size == 0) {
+            return null;
+        }
+        if (size == 1) {
+            return members.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(size);
+        // 第二个节点与第一个不同
+        int j = random.nextInt(size - 1);
+        if (j >= i) {
+            j++;
+        }
+        Member a = members.get(i);
+        Member b = members.get(j);
+        return cost(a) <= cost(b) ? a : b;
+    }
+
+    @Override
+    public void onRequest(Member member) {
+        load(member).inFlight.incrementAndGet();
+    }
+
+    @Override
+    public void onResponse(Member member, long latencyNanos, boolean failure) {
+        Load load = load(member);
+        load.inFlight.decrementAndGet();
+        load.record(failure ? Math.max(latencyNanos, 2 * load.ewmaNanos) : latencyNanos);
+    }
+
+    @Override
+    public void onLeave(Member member) {
+        loads.remove(member.getAddress());
+    }
+
+    /**
+     * @return 节点的执行中请求数，用于统计
+     */
+    public int inFlight(Member member) {
+        Load load = loads.get(member.getAddress());
+        return load == null ? 0 : load.inFlight.get();
+    }
+
+    private double cost(Member member) {
+        Load load = loads.get(member.getAddress());
+        if (load == null) {
+            return 0;
+        }
+        return (double) (Math.max(load.inFlight.get(), 0) + 1) * load.ewmaNanos;
+    }
+
+    private Load load(Member member) {
+        Load load = loads.get(member.getAddress());
+        return load != null ? load : loads.computeIfAbsent(member.getAddress(), k -> new Load());
+    }
+
+    private static final class Load {
+        final AtomicInteger inFlight = new AtomicInteger();
+        // 并发记录时允许丢失个别样本
+        volatile long ewmaNanos;
+
+        void record(long nanos) {
+            long old = ewmaNanos;
+            ewmaNanos = old == 0 ? Math.max(nanos, 1) : Math.max((long) (old + ALPHA * (nanos - old)), 1);
+        }
+    }
+}
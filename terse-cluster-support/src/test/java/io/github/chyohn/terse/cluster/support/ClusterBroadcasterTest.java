@@ -0,0 +1,35 @@
+package io.github.chyohn.terse.cluster.support;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+class ClusterBroadcasterTest {
+
+    @Test
+    void testReceiveBroadcast() {
+        ClusterBroadcaster broadcaster = new ClusterBroadcaster(null);
+        List<String> received = new ArrayList<>();
+        broadcaster.subscribe("topic", msg -> {
+            throw new IllegalStateException("bad receiver");
+        });
+        broadcaster.subscribe("topic", received::add);
+
+        // a failed receiver does not stop the others
+        Assertions.assertTrue(broadcaster.process(request("topic", "hello")));
+        Assertions.assertEquals(Collections.singletonList("hello"), received);
+        // no receiver of the topic
+        Assertions.assertFalse(broadcaster.process(request("other", "hello")));
+        Assertions.assertEquals(1, received.size());
+    }
+
+    private static BroadcastRequest request(String topic, String message) {
+        BroadcastRequest request = new BroadcastRequest();
+        request.setTopic(topic);
+        request.setMessage(message);
+        return request;
+    }
+}
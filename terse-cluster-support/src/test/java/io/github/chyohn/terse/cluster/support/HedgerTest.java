@@ -0,0 +1,60 @@
+package io.github.chyohn.terse.cluster.support;
+
+import io.github.chyohn.terse.cluster.HedgePolicy;
+import io.github.chyohn.terse.cluster.support.cal.CalculateCommand;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+class HedgerTest {
+
+    @Test
+    void testPercentileDelay() {
+        Hedger hedger = new Hedger(CalculateCommand.class, HedgePolicy.builder().percentile(95)
+                .minDelay(1, TimeUnit.MILLISECONDS).build());
+        // not enough samples
+        Assertions.assertEquals(-1, hedger.onRequest());
+        // recomputed every 32 samples
+        for (int i = 1; i <= 128; i++) {
+            hedger.recordLatency(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(122), hedger.delayNanos(), hedger.toString());
+
+        Hedger lowerBound = new Hedger(CalculateCommand.class, HedgePolicy.builder()
+                .minDelay(10, TimeUnit.MILLISECONDS).build());
+        for (int i = 0; i < 20; i++) {
+            lowerBound.recordLatency(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(10), lowerBound.delayNanos());
+
+        Hedger fixed = new Hedger(CalculateCommand.class, HedgePolicy.builder().delay(3, TimeUnit.MILLISECONDS).build());
+        Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(3), fixed.onRequest());
+    }
+
+    @Test
+    void testHedgeRatio() {
+        Hedger hedger = new Hedger(CalculateCommand.class, HedgePolicy.builder().maxHedgeRatio(0.05).build());
+        int hedged = 0;
+        for (int i = 0; i < 1000; i++) {
+            hedger.onRequest();
+            // every request is slow
+            if (hedger.tryHedge()) {
+                hedged++;
+            }
+        }
+        Assertions.assertEquals(50, hedged);
+        Assertions.assertEquals(0.05, hedger.hedgeRate(), 0.0001);
+
+        // permits accumulate up to a burst
+        Hedger idle = new Hedger(CalculateCommand.class, HedgePolicy.builder().maxHedgeRatio(0.05).build());
+        for (int i = 0; i < 1000; i++) {
+            idle.onRequest();
+        }
+        hedged = 0;
+        while (idle.tryHedge()) {
+            hedged++;
+        }
+        Assertions.assertEquals(10, hedged);
+    }
+}
@@ -0,0 +1,62 @@
+package io.github.chyohn.terse.cluster.support;
+
+import io.github.chyohn.terse.cluster.member.Member;
+import io.github.chyohn.terse.cluster.support.cal.CalculateCommand;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+class LocalLoadTest {
+
+    @Test
+    void testSaturatedByInFlight() {
+        LocalLoad load = new LocalLoad(2, 0);
+        Assertions.assertFalse(load.saturated(CalculateCommand.class));
+        LocalLoad.TypeLoad first = load.start(CalculateCommand.class);
+        load.start(CalculateCommand.class);
+        Assertions.assertTrue(load.saturated(CalculateCommand.class));
+        Assertions.assertFalse(load.saturated(String.class));
+        Assertions.assertEquals(2, load.total());
+
+        load.complete(first, TimeUnit.SECONDS.toNanos(10));
+        // no latency threshold
+        Assertions.assertFalse(load.saturated(CalculateCommand.class));
+    }
+
+    @Test
+    void testSaturatedByLatency() {
+        LocalLoad load = new LocalLoad(100, 10);
+        load.complete(load.start(CalculateCommand.class), TimeUnit.MILLISECONDS.toNanos(5));
+        Assertions.assertFalse(load.saturated(CalculateCommand.class));
+        for (int i = 0; i < 10; i++) {
+            load.complete(load.start(CalculateCommand.class), TimeUnit.MILLISECONDS.toNanos(50));
+        }
+        // idle, run locally to observe the latency again
+        Assertions.assertFalse(load.saturated(CalculateCommand.class));
+        load.start(CalculateCommand.class);
+        Assertions.assertTrue(load.saturated(CalculateCommand.class));
+    }
+
+    @Test
+    void testAdvertise() {
+        LocalLoad load = new LocalLoad(10, 0);
+        Member self = Member.of("127.0.0.1:9001");
+        Assertions.assertEquals(0, LocalLoad.advertised(self));
+        self.setExtendInfo(Collections.singletonMap("zone", "a"));
+        Map<String, Object> before = self.getExtendInfo();
+
+        load.start(CalculateCommand.class);
+        load.advertise(self);
+        Assertions.assertEquals(1, LocalLoad.advertised(self));
+        Assertions.assertEquals("a", self.getExtendInfo().get("zone"));
+        // replaced, not modified
+        Assertions.assertEquals(1, before.size());
+
+        Map<String, Object> advertised = self.getExtendInfo();
+        load.advertise(self);
+        Assertions.assertSame(advertised, self.getExtendInfo());
+    }
+}
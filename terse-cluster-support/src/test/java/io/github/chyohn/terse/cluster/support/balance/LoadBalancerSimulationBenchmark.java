@@ -0,0 +1,187 @@
+package io.github.chyohn.terse.cluster.support.balance;
+
+import io.github.chyohn.terse.cluster.member.Member;
+import io.github.chyohn.terse.cluster.member.MemberState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Member selection under heterogeneous member speeds: 4 members serve a request in 1ms on average and 1 member
+ * (e.g. on a busy host or with long GC pauses) in 2ms, each member serves one request at a time, the requests arrive
+ * at 50% of the cluster capacity. The random selection sends the slow member 90% of its capacity.
+ *
+ * {@link #main(String[])} prints the simulated latency and the share of the slow member of each balancer, then runs
+ * the benchmark of the cost of {@link ILoadBalancer#select(List)} on 16 members.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadBalancerSimulationBenchmark {
+
+    static final double[] SERVICE_MILLIS = {1, 1, 1, 1, 2};
+    static final double LOAD = 0.5;
+    static final int REQUESTS = 200_000;
+
+    @Param({"random", "p2c"})
+    String balancer;
+
+    ILoadBalancer loadBalancer;
+    List<Member> members;
+
+    @Setup
+    public void setup() {
+        loadBalancer = create(balancer);
+        members = members(16);
+        for (Member member : members) {
+            loadBalancer.onRequest(member);
+            loadBalancer.onResponse(member, ThreadLocalRandom.current().nextInt(1000, 10_000), false);
+        }
+    }
+
+    @Benchmark
+    public Member select() {
+        Member member = loadBalancer.select(members);
+        loadBalancer.onRequest(member);
+        loadBalancer.onResponse(member, 5000, false);
+        return member;
+    }
+
+    static ILoadBalancer create(String name) {
+        if ("random".equals(name)) {
+            return new RandomBalancer();
+        }
+        return new PowerOfTwoChoicesBalancer();
+    }
+
+    static List<Member> members(int size) {
+        List<Member> members = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Member member = Member.of("10.0.0." + i + ":9001");
+            member.setState(MemberState.UP);
+            members.add(member);
+        }
+        return Collections.unmodifiableList(members);
+    }
+
+    /**
+     * discrete event simulation, the time is in nanoseconds
+     *
+     * @return the latencies of all requests
+     */
+    static Result simulate(ILoadBalancer balancer, long seed) {
+        Random random = new Random(seed);
+        List<Member> members = members(SERVICE_MILLIS.length);
+        double capacity = 0;
+        for (double millis : SERVICE_MILLIS) {
+            capacity += 1000 / millis;
+        }
+        double meanInterArrivalNanos = 1e9 / (capacity * LOAD);
+        long[] free = new long[members.size()];
+        long[] latencies = new long[REQUESTS];
+        int[] counts = new int[members.size()];
+        PriorityQueue<long[]> completions = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+
+        long now = 0;
+        for (int i = 0; i < REQUESTS; i++) {
+            now += (long) exponential(random, meanInterArrivalNanos);
+            while (!completions.isEmpty() && completions.peek()[0] <= now) {
+                long[] completion = completions.poll();
+                balancer.onResponse(members.get((int) completion[1]), completion[2], false);
+            }
+            Member member = balancer.select(members);
+            int index = members.indexOf(member);
+            balancer.onRequest(member);
+            long start = Math.max(now, free[index]);
+            long finish = start + (long) exponential(random, SERVICE_MILLIS[index] * 1e6);
+            free[index] = finish;
+            latencies[i] = finish - now;
+            counts[index]++;
+            completions.add(new long[]{finish, index, finish - now});
+        }
+        return new Result(latencies, counts);
+    }
+
+    private static double exponential(Random random, double mean) {
+        return -mean * Math.log(1 - random.nextDouble());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (String name : new String[]{"random", "p2c"}) {
+            System.out.println(name + ": " + simulate(create(name), 42));
+        }
+        new Runner(new OptionsBuilder().include(LoadBalancerSimulationBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    static final class Result {
+        final long[] latencies;
+        final int[] counts;
+
+        Result(long[] latencies, int[] counts) {
+            this.latencies = latencies.clone();
+            Arrays.sort(this.latencies);
+            this.counts = counts;
+        }
+
+        double meanMillis() {
+            double sum = 0;
+            for (long latency : latencies) {
+                sum += latency;
+            }
+            return sum / latencies.length / 1e6;
+        }
+
+        double percentileMillis(double percentile) {
+            return latencies[(int) Math.ceil(percentile / 100 * latencies.length) - 1] / 1e6;
+        }
+
+        double slowShare() {
+            return (double) counts[counts.length - 1] / latencies.length;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("mean=%.2fms p50=%.2fms p99=%.2fms slowMemberShare=%.3f",
+                    meanMillis(), percentileMillis(50), percentileMillis(99), slowShare());
+        }
+    }
+
+    static final class RandomBalancer implements ILoadBalancer {
+
+        @Override
+        public Member select(List<Member> members) {
+            return members.isEmpty() ? null : members.get(ThreadLocalRandom.current().nextInt(members.size()));
+        }
+
+        @Override
+        public void onRequest(Member member) {
+        }
+
+        @Override
+        public void onResponse(Member member, long latencyNanos, boolean failure) {
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.chyohn.terse.cluster.support.balance;
+
+import io.github.chyohn.terse.cluster.member.Member;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+class PowerOfTwoChoicesBalancerTest {
+
+    @Test
+    void testSelectLessLoaded() {
+        PowerOfTwoChoicesBalancer balancer = new PowerOfTwoChoicesBalancer();
+        Assertions.assertNull(balancer.select(Collections.emptyList()));
+
+        List<Member> members = LoadBalancerSimulationBenchmark.members(2);
+        Member fast = members.get(0);
+        Member slow = members.get(1);
+        Assertions.assertSame(fast, balancer.select(Collections.singletonList(fast)));
+
+        balancer.onRequest(fast);
+        balancer.onResponse(fast, 1_000_000, false);
+        balancer.onRequest(slow);
+        balancer.onResponse(slow, 10_000_000, false);
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertSame(fast, balancer.select(members));
+        }
+
+        // queued requests on the fast member
+        for (int i = 0; i < 10; i++) {
+            balancer.onRequest(fast);
+        }
+        Assertions.assertEquals(10, balancer.inFlight(fast));
+        Assertions.assertSame(slow, balancer.select(members));
+
+        // the member without statistics is probed first
+        Member joined = LoadBalancerSimulationBenchmark.members(3).get(2);
+        Assertions.assertSame(joined, balancer.select(Arrays.asList(slow, joined)));
+
+        balancer.onLeave(fast);
+        Assertions.assertEquals(0, balancer.inFlight(fast));
+    }
+
+    @Test
+    void testFailurePenalty() {
+        PowerOfTwoChoicesBalancer balancer = new PowerOfTwoChoicesBalancer();
+        List<Member> members = LoadBalancerSimulationBenchmark.members(2);
+        for (Member member : members) {
+            balancer.onRequest(member);
+            balancer.onResponse(member, 2_000_000, false);
+        }
+        // the failing member answers fast, but is not preferred
+        for (int i = 0; i < 5; i++) {
+            balancer.onRequest(members.get(0));
+            balancer.onResponse(members.get(0), 1000, true);
+        }
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertSame(members.get(1), balancer.select(members));
+        }
+    }
+
+    @Test
+    void testSimulation() {
+        LoadBalancerSimulationBenchmark.Result random = LoadBalancerSimulationBenchmark.simulate(
+                LoadBalancerSimulationBenchmark.create("random"), 42);
+        LoadBalancerSimulationBenchmark.Result p2c = LoadBalancerSimulationBenchmark.simulate(
+                LoadBalancerSimulationBenchmark.create("p2c"), 42);
+        Assertions.assertTrue(p2c.percentileMillis(99) < random.percentileMillis(99), p2c + " vs " + random);
+        Assertions.assertTrue(p2c.slowShare() < random.slowShare(), p2c + " vs " + random);
+    }
+}
@@ -59,5 +59,10 @@ public interface Cluster extends ClusterEventPublisher, ServiceProcessor<Object,
 
     RpcClientProxy getRpcClientProxy();
 
+    /**
+     * close the server and the clients to other instances, the cluster can't be prepared again.
+     */
+    void shutdown();
+
 }
 
@@ -98,6 +98,19 @@ class DefaultCluster implements Cluster {
         memberManager.prepare();
     }
 
+    @Override
+    public void shutdown() {
+        if (!prepared.get()) {
+            return;
+        }
+        if (rpcClientProxy != null) {
+            rpcClientProxy.shutdown();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
     @Override
     public <T extends ClusterEvent> void addListener(ClusterEventListener<T> listener) {
         clusterEventPublisher.addListener(listener);
@@ -30,4 +30,10 @@ public interface ConfigConstant {
     String CLUSTER_IO_WORKER_NUM = "cluster.io.worker.num";
     int DEFAULT_CLUSTER_IO_WORKER_NUM = 4;
 
+    // 每个连接待写出字节数的高低水位，达到高水位时连接不可写，降到低水位以下时恢复
+    String CLUSTER_WRITE_BUFFER_HIGH = "cluster.write.buffer.high";
+    long DEFAULT_CLUSTER_WRITE_BUFFER_HIGH = 8L * 1024 * 1024;
+    String CLUSTER_WRITE_BUFFER_LOW = "cluster.write.buffer.low";
+    long DEFAULT_CLUSTER_WRITE_BUFFER_LOW = 4L * 1024 * 1024;
+
 }
@@ -30,6 +30,8 @@ public class MemberManager {
     protected static final String CONNECT_REFUSE_ERRMSG = "NioConnection refused";
 
     final Map<String, Member> memberOfAddress = new ConcurrentHashMap<>();
+    // 在线节点的不可变快照，成员变化时重建，选择请求节点时不再每次过滤
+    volatile List<Member> upMembers = Collections.emptyList();
     final Cluster cluster;
     @Getter
     Member self;
@@ -63,6 +65,7 @@ public class MemberManager {
     public void startUp() {
         self.setState(MemberState.UP);
         update(self);
+        refreshUpMembers();
     }
 
     private MemberDiscover createMemberDiscover(Cluster cluster) {
@@ -97,10 +100,18 @@ public class MemberManager {
         return set;
     }
 
+    /**
+     * @return 在线节点的不可变快照
+     */
     public List<Member> allUpMembers() {
-        return allMembers().stream()
+        return upMembers;
+    }
+
+    private synchronized void refreshUpMembers() {
+        List<Member> list = allMembers().stream()
                 .filter(m -> MemberState.UP.equals(m.getState()))
                 .collect(Collectors.toList());
+        upMembers = Collections.unmodifiableList(list);
     }
 
     public List<Member> allMembersWithoutSelf() {
@@ -181,6 +192,7 @@ public class MemberManager {
     }
 
     private void notifyMemberJoin(Member member) {
+        refreshUpMembers();
         if (log.isDebugEnabled()) {
             log.debug("member {} joined", member.getAddress());
         }
@@ -188,6 +200,7 @@ public class MemberManager {
     }
 
     private void notifyMemberChange(Member member) {
+        refreshUpMembers();
         if (log.isDebugEnabled()) {
             log.debug("member {} changed {}", member.getAddress(), member.getState());
         }
@@ -195,6 +208,7 @@ public class MemberManager {
     }
 
     private void notifyMemberLeave(Member member) {
+        refreshUpMembers();
         cluster.publishEvent(ClusterMemberLeaveEvent.builder().member(member).build());
     }
 
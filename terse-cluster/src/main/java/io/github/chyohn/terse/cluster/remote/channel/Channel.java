@@ -10,4 +10,18 @@ public interface Channel {
     boolean isConnected();
 
     ChannelHandler getChannelHandler();
+
+    /**
+     * @return false 待写出的字节数达到高水位，发送会抛出{@link ChannelUnwritableException}
+     */
+    default boolean isWritable() {
+        return true;
+    }
+
+    /**
+     * @return 待写出字节数的统计，不统计时为null
+     */
+    default WriteBufferMonitor getWriteBufferMonitor() {
+        return null;
+    }
 }
@@ -0,0 +1,11 @@
+package io.github.chyohn.terse.cluster.remote.channel;
+
+/**
+ * 连接待写出的字节数达到高水位，消息没有发送
+ */
+public class ChannelUnwritableException extends RuntimeException {
+
+    public ChannelUnwritableException(String message) {
+        super(message);
+    }
+}
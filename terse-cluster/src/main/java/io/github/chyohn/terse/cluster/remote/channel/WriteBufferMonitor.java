@@ -0,0 +1,97 @@
+package io.github.chyohn.terse.cluster.remote.channel;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 统计一个连接待写出的字节数，按{@link WriteWatermark}切换连接的可写状态。
+ * <p>
+ * 发送前{@link #acquire(long)}，写出或丢弃后{@link #release(long)}。
+ * 不可写时{@link #acquire(long)}立即失败，避免对端处理慢时发送方无限堆积待写出的消息。
+ */
+@Slf4j
+public final class WriteBufferMonitor {
+
+    private final Object name;
+    private final WriteWatermark watermark;
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicBoolean writable = new AtomicBoolean(true);
+    private final AtomicLong highWatermarkEvents = new AtomicLong();
+    private final AtomicLong lowWatermarkEvents = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param name      连接的名称，用于日志，连接建立前后可能不同，使用时才转为字符串
+     * @param watermark 水位
+     */
+    public WriteBufferMonitor(Object name, WriteWatermark watermark) {
+        this.name = name;
+        this.watermark = watermark;
+    }
+
+    /**
+     * 占用待写出的字节数，达到高水位时标记为不可写
+     *
+     * @param bytes 字节数
+     * @throws ChannelUnwritableException 已经不可写
+     */
+    public void acquire(long bytes) {
+        if (!writable.get()) {
+            rejected.incrementAndGet();
+            throw new ChannelUnwritableException("channel " + name + " is unwritable, pending bytes: "
+                    + pendingBytes.get() + ", high watermark: " + watermark.getHigh());
+        }
+        long pending = pendingBytes.addAndGet(bytes);
+        if (pending >= watermark.getHigh() && writable.compareAndSet(true, false)) {
+            highWatermarkEvents.incrementAndGet();
+            log.warn("channel {} is unwritable, pending bytes {} reached high watermark {}",
+                    name, pending, watermark.getHigh());
+        }
+    }
+
+    /**
+     * 释放已写出或丢弃的字节数，降到低水位以下时恢复可写
+     *
+     * @param bytes 字节数
+     */
+    public void release(long bytes) {
+        long pending = pendingBytes.addAndGet(-bytes);
+        // 和acquire并发时可能先恢复再被标记为不可写，标记的一方还有待写出的字节，写出后会再次检查
+        if (pending < watermark.getLow() && writable.compareAndSet(false, true)) {
+            lowWatermarkEvents.incrementAndGet();
+            log.info("channel {} is writable, pending bytes {} dropped below low watermark {}",
+                    name, pending, watermark.getLow());
+        }
+    }
+
+    public boolean isWritable() {
+        return writable.get();
+    }
+
+    public long getPendingBytes() {
+        return pendingBytes.get();
+    }
+
+    /**
+     * @return 达到高水位的次数
+     */
+    public long getHighWatermarkEvents() {
+        return highWatermarkEvents.get();
+    }
+
+    /**
+     * @return 降到低水位以下的次数
+     */
+    public long getLowWatermarkEvents() {
+        return lowWatermarkEvents.get();
+    }
+
+    /**
+     * @return 不可写时拒绝发送的消息数
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+}
@@ -0,0 +1,39 @@
+package io.github.chyohn.terse.cluster.remote.channel;
+
+import io.github.chyohn.terse.cluster.config.ConfigConstant;
+import io.github.chyohn.terse.cluster.config.Environment;
+import lombok.Getter;
+
+/**
+ * 连接待写出字节数的高低水位。
+ * <p>
+ * 待写出的字节数达到高水位时连接不可写，发送立即失败；降到低水位以下时恢复可写。
+ * 两个水位之间的间隔避免连接在可写和不可写之间频繁切换。
+ */
+@Getter
+public final class WriteWatermark {
+
+    public static final WriteWatermark DEFAULT = new WriteWatermark(
+            ConfigConstant.DEFAULT_CLUSTER_WRITE_BUFFER_HIGH, ConfigConstant.DEFAULT_CLUSTER_WRITE_BUFFER_LOW);
+
+    private final long high;
+    private final long low;
+
+    public WriteWatermark(long high, long low) {
+        if (low < 0 || high < low) {
+            throw new IllegalArgumentException("illegal write watermark, high: " + high + ", low: " + low);
+        }
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * @param env 配置
+     * @return 配置的水位，没有配置时使用默认值
+     */
+    public static WriteWatermark of(Environment env) {
+        return new WriteWatermark(
+                env.getProperty(ConfigConstant.CLUSTER_WRITE_BUFFER_HIGH, Long.class, DEFAULT.high),
+                env.getProperty(ConfigConstant.CLUSTER_WRITE_BUFFER_LOW, Long.class, DEFAULT.low));
+    }
+}
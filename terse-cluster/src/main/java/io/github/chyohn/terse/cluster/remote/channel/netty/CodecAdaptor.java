@@ -1,27 +1,23 @@
 package io.github.chyohn.terse.cluster.remote.channel.netty;
 
+import io.github.chyohn.terse.cluster.remote.codec.Frame;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandler;
 import io.netty.channel.ChannelOutboundHandler;
 import io.netty.handler.codec.ByteToMessageDecoder;
-import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.handler.codec.MessageToMessageEncoder;
+import io.netty.util.ReferenceCountUtil;
 
-import java.io.IOException;
-import java.nio.ByteBuffer;
+import java.util.Iterator;
 import java.util.List;
 
 /**
- * <pre>
- * |--------------------------------------------------|
- * |模数3字节|序号4字节|总序号4字节|长度4字节|body|尾部4字节|
- * |--------------------------------------------------|
- * </pre>
+ * 按{@link Frame}的格式编码和解码
  */
 public class CodecAdaptor {
 
     public static final CodecAdaptor INST = new CodecAdaptor();
-    private static final int HEADER_LENGTH = 4;
     private static final int MAX_COUNT_PER_READ = 10;
 
 
@@ -33,28 +29,47 @@ public class CodecAdaptor {
         return new ByteToObjectDecoder();
     }
 
-    private static class ObjectToByteEncoder extends MessageToByteEncoder<Object> {
+    /**
+     * 消息体前预留了头部空间时直接写入头部，否则头部写入单独的小缓冲区，和消息体组合后写出，消息体都不再复制。
+     * 编码后父类释放帧，写出的缓冲区要持有消息体的引用
+     */
+    private static class ObjectToByteEncoder extends MessageToMessageEncoder<Object> {
         @Override
-        protected void encode(ChannelHandlerContext ctx, Object msg, ByteBuf out) throws Exception {
-
-            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
-            if (msg instanceof byte[]) {
-                byte[] data = (byte[]) msg;
-                header.putInt(data.length);
-                header.rewind();
-                sendBuffer(out, header, ByteBuffer.wrap(data));
-                return;
-            } else if (msg instanceof ByteBuffer) {
-                ByteBuffer buffer = (ByteBuffer) msg;
-                header.putInt(buffer.capacity());
-                header.rewind();
-                sendBuffer(out, header, buffer);
+        protected void encode(ChannelHandlerContext ctx, Object msg, List<Object> out) throws Exception {
+
+            if (msg instanceof Frame) {
+                Frame frame = (Frame) msg;
+                if (frame.hasHeadroom()) {
+                    out.add(frame.writeHeaderInPlace().retain());
+                    return;
+                }
+                ByteBuf header = ctx.alloc().ioBuffer(Frame.HEADER_LENGTH);
+                frame.writeHeader(header);
+                if (frame.getPayload() == null) {
+                    out.add(header);
+                } else {
+                    out.add(ctx.alloc().compositeBuffer(2).addComponents(true, header, frame.getPayload().retain()));
+                }
                 return;
             }
 
             if (msg instanceof Iterable) {
-                for (Object o : (Iterable) msg) {
-                    encode(ctx, o, out);
+                // 父类只释放列表本身，逐个释放列表中的帧，编码失败时也释放剩余的帧
+                Iterator<?> it = ((Iterable<?>) msg).iterator();
+                try {
+                    while (it.hasNext()) {
+                        Object o = it.next();
+                        try {
+                            encode(ctx, o, out);
+                        } finally {
+                            ReferenceCountUtil.release(o);
+                        }
+                    }
+                } catch (Throwable e) {
+                    while (it.hasNext()) {
+                        ReferenceCountUtil.release(it.next());
+                    }
+                    throw e;
                 }
                 return;
             }
@@ -62,58 +77,34 @@ public class CodecAdaptor {
             throw new IllegalArgumentException("can't support message class type: " + msg.getClass());
         }
 
-        private void sendBuffer(ByteBuf out, ByteBuffer... buffers) {
-            for (ByteBuffer buffer : buffers) {
-                out.writeBytes(buffer);
-            }
-        }
-
     }
 
 
 
+    /**
+     * 消息体是接收缓冲区的切片，不复制，由处理帧的一方释放
+     */
     private static class ByteToObjectDecoder extends ByteToMessageDecoder {
-        private final ByteBuffer lenBuffer = ByteBuffer.allocate(HEADER_LENGTH);
-        int readLength = HEADER_LENGTH;
-        private ByteBuffer incomingBuffer = lenBuffer;
-
-        private void reset() {
-            lenBuffer.clear();
-            incomingBuffer = lenBuffer;
-            readLength = HEADER_LENGTH;
-        }
+        // 已读取头部，等待读取消息体
+        private Frame.Header header;
 
         @Override
         protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
 
-            while (in.readableBytes() >= readLength && out.size() <= MAX_COUNT_PER_READ) {
-                if (incomingBuffer == null) {
-                    // new data buffer
-                    incomingBuffer = ByteBuffer.allocate(readLength);
-                }
-
-                // read length or data
-                in.readBytes(incomingBuffer);
-                if (incomingBuffer == lenBuffer) {
-                    // get length
-                    lenBuffer.flip();
-                    readLength = lenBuffer.getInt();
-                    if (readLength < 0) {
-                        int len = readLength;
-                        reset();
-                        throw new IOException("Len error. "
-                                + "A message from with advertised length of " + len);
+            while (out.size() <= MAX_COUNT_PER_READ) {
+                if (header == null) {
+                    if (in.readableBytes() < Frame.HEADER_LENGTH) {
+                        return;
                     }
-                    incomingBuffer = null;
-                    continue;
+                    header = Frame.readHeader(in);
+                }
+                if (in.readableBytes() < header.getLength()) {
+                    return;
                 }
 
                 // complete read data
-                incomingBuffer.flip();
-                out.add(incomingBuffer);
-
-                // reset
-                reset();
+                out.add(header.toFrame(in.readRetainedSlice(header.getLength())));
+                header = null;
             }
 
         }
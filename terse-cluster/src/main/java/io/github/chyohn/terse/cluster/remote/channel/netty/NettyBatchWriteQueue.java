@@ -19,11 +19,10 @@ package io.github.chyohn.terse.cluster.remote.channel.netty;
 import io.github.chyohn.terse.cluster.utils.BatchExecutorQueue;
 import io.netty.channel.*;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Queue;
-
+/**
+ * 批量写出：每个消息带自己的promise逐个写入，一批消息只flush一次。
+ * 逐个写入时netty在写出失败或连接关闭时能释放每个帧的消息体。
+ */
 public class NettyBatchWriteQueue extends BatchExecutorQueue<NettyBatchWriteQueue.MessageTuple> {
 
     public static NettyBatchWriteQueue createWriteQueue(Channel channel) {
@@ -31,9 +30,6 @@ public class NettyBatchWriteQueue extends BatchExecutorQueue<NettyBatchWriteQueu
     }
     private final Channel channel;
 
-    private final Queue<ChannelPromise> promises = new LinkedList<>();
-    private final List<Object> messages = new ArrayList<>();
-
     private NettyBatchWriteQueue(Channel channel) {
         this.channel = channel;
     }
@@ -50,30 +46,12 @@ public class NettyBatchWriteQueue extends BatchExecutorQueue<NettyBatchWriteQueu
 
     @Override
     protected void prepare(MessageTuple item) {
-        messages.add(item.originMessage);
-        promises.add(item.channelPromise);
+        channel.write(item.originMessage, item.channelPromise);
     }
 
     @Override
     protected void flush() {
-
-        Object finalMessage = messages;
-        if (messages.size() == 1) {
-            finalMessage = messages.get(0);
-        }
-
-        channel.writeAndFlush(finalMessage).addListener(future -> {
-            ChannelPromise cp;
-            while ((cp = promises.poll()) != null) {
-                if (future.isSuccess()) {
-                    cp.setSuccess();
-                } else {
-                    cp.setFailure(future.cause());
-                }
-            }
-        });
-
-        messages.clear();
+        channel.flush();
     }
 
 
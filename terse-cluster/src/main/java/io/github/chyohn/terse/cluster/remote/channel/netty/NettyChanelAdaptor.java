@@ -1,9 +1,13 @@
 package io.github.chyohn.terse.cluster.remote.channel.netty;
 
 import io.github.chyohn.terse.cluster.remote.channel.ChannelHandler;
+import io.github.chyohn.terse.cluster.remote.channel.WriteBufferMonitor;
+import io.github.chyohn.terse.cluster.remote.channel.WriteWatermark;
+import io.github.chyohn.terse.cluster.remote.codec.Frame;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
+import io.netty.util.ReferenceCountUtil;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -13,12 +17,16 @@ public class NettyChanelAdaptor implements io.github.chyohn.terse.cluster.remote
 
     private static final ConcurrentMap<Channel, NettyChanelAdaptor> CHANNEL_MAP = new ConcurrentHashMap<>();
     static NettyChanelAdaptor getOrAddChannel(Channel ch, ChannelHandler handler) {
+        return getOrAddChannel(ch, handler, WriteWatermark.DEFAULT);
+    }
+
+    static NettyChanelAdaptor getOrAddChannel(Channel ch, ChannelHandler handler, WriteWatermark watermark) {
         if (ch == null) {
             return null;
         }
         NettyChanelAdaptor ret = CHANNEL_MAP.get(ch);
         if (ret == null) {
-            NettyChanelAdaptor nettyChannel = new NettyChanelAdaptor(ch, handler);
+            NettyChanelAdaptor nettyChannel = new NettyChanelAdaptor(ch, handler, watermark);
             if (ch.isActive()) {
                 ret = CHANNEL_MAP.putIfAbsent(ch, nettyChannel);
             }
@@ -44,19 +52,44 @@ public class NettyChanelAdaptor implements io.github.chyohn.terse.cluster.remote
     private final ChannelHandler handler;
     private volatile boolean closed = false;
     private final NettyBatchWriteQueue writeQueue;
+    // 统计批量写队列和netty的写缓冲中待写出的字节数
+    private final WriteBufferMonitor writeBufferMonitor;
 
     public NettyChanelAdaptor(Channel nettyChannel, ChannelHandler handler) {
+        this(nettyChannel, handler, WriteWatermark.DEFAULT);
+    }
+
+    public NettyChanelAdaptor(Channel nettyChannel, ChannelHandler handler, WriteWatermark watermark) {
         this.nettyChannel = nettyChannel;
         this.handler = handler;
         this.writeQueue = NettyBatchWriteQueue.createWriteQueue(nettyChannel);
-
+        this.writeBufferMonitor = new WriteBufferMonitor(nettyChannel, watermark);
     }
 
     @Override
     public void send(Object message) {
-        ChannelFuture future = writeQueue.enqueue(message).addListener(new ChannelFutureListener() {
+        long bytes = message instanceof Frame ? Frame.HEADER_LENGTH + ((Frame) message).getLength() : 0;
+        try {
+            writeBufferMonitor.acquire(bytes);
+        } catch (RuntimeException e) {
+            if (message instanceof Frame) {
+                ((Frame) message).release();
+            }
+            throw e;
+        }
+        ChannelFuture future;
+        try {
+            future = writeQueue.enqueue(message);
+        } catch (RuntimeException e) {
+            // 事件循环已关闭，没有交给netty
+            writeBufferMonitor.release(bytes);
+            ReferenceCountUtil.release(message);
+            throw e;
+        }
+        future.addListener(new ChannelFutureListener() {
             @Override
             public void operationComplete(ChannelFuture future) throws Exception {
+                writeBufferMonitor.release(bytes);
                 ChannelHandler handler = getChannelHandler();
                 if (!future.isSuccess()) {
                     Throwable t = future.cause();
@@ -89,4 +122,14 @@ public class NettyChanelAdaptor implements io.github.chyohn.terse.cluster.remote
     public ChannelHandler getChannelHandler() {
         return handler;
     }
+
+    @Override
+    public boolean isWritable() {
+        return writeBufferMonitor.isWritable();
+    }
+
+    @Override
+    public WriteBufferMonitor getWriteBufferMonitor() {
+        return writeBufferMonitor;
+    }
 }
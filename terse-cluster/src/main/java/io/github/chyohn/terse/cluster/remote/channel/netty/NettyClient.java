@@ -3,6 +3,9 @@ package io.github.chyohn.terse.cluster.remote.channel.netty;
 import io.github.chyohn.terse.cluster.remote.channel.Channel;
 import io.github.chyohn.terse.cluster.remote.channel.ChannelHandler;
 import io.github.chyohn.terse.cluster.remote.channel.Client;
+import io.github.chyohn.terse.cluster.remote.channel.WriteBufferMonitor;
+import io.github.chyohn.terse.cluster.remote.channel.WriteWatermark;
+import io.github.chyohn.terse.cluster.remote.codec.Frame;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.ChannelFuture;
@@ -19,13 +22,19 @@ public class NettyClient implements Client, ChannelHandler {
     private final InetSocketAddress address;
     private final ChannelHandler channelHandler;
     private final Bootstrap bootstrap;
+    private final WriteWatermark watermark;
 
     private volatile boolean closed = false;
     private Channel channel;
 
     public NettyClient(InetSocketAddress address, ChannelHandler channelHandler) {
+        this(address, channelHandler, WriteWatermark.DEFAULT);
+    }
+
+    public NettyClient(InetSocketAddress address, ChannelHandler channelHandler, WriteWatermark watermark) {
         this.address = address;
         this.channelHandler = channelHandler;
+        this.watermark = watermark;
         bootstrap = new Bootstrap();
     }
 
@@ -42,7 +51,7 @@ public class NettyClient implements Client, ChannelHandler {
                     protected void initChannel(SocketChannel ch) throws Exception {
                         ch.pipeline().addLast("encoder", CodecAdaptor.INST.newEncoder())
                                 .addLast("decoder", CodecAdaptor.INST.newDecoder())
-                                .addLast("handler", new NettyDuplexHandler(NettyClient.this));
+                                .addLast("handler", new NettyDuplexHandler(NettyClient.this, watermark));
                     }
                 });
 
@@ -55,7 +64,7 @@ public class NettyClient implements Client, ChannelHandler {
                 channelHandler.disconnected(NettyClient.this);
                 return;
             }
-            Channel newChannel = NettyChanelAdaptor.getOrAddChannel(future.channel(), channelHandler);
+            Channel newChannel = NettyChanelAdaptor.getOrAddChannel(future.channel(), channelHandler, watermark);
             Channel oldChanel = this.channel;
             if (oldChanel != null && !oldChanel.equals(newChannel)) {
                 oldChanel.close();
@@ -66,6 +75,13 @@ public class NettyClient implements Client, ChannelHandler {
 
     @Override
     public void send(Object message) {
+        Channel channel = this.channel;
+        if (channel == null) {
+            if (message instanceof Frame) {
+                ((Frame) message).release();
+            }
+            throw new RuntimeException("Connection is starting: " + address);
+        }
         channel.send(message);
     }
 
@@ -96,6 +112,18 @@ public class NettyClient implements Client, ChannelHandler {
         return channelHandler;
     }
 
+    @Override
+    public boolean isWritable() {
+        Channel channel = this.channel;
+        return channel != null && channel.isWritable();
+    }
+
+    @Override
+    public WriteBufferMonitor getWriteBufferMonitor() {
+        Channel channel = this.channel;
+        return channel == null ? null : channel.getWriteBufferMonitor();
+    }
+
     @Override
     public void connected(Channel channel) {
         this.channel = channel;
@@ -1,6 +1,7 @@
 package io.github.chyohn.terse.cluster.remote.channel.netty;
 
 import io.github.chyohn.terse.cluster.remote.channel.ChannelHandler;
+import io.github.chyohn.terse.cluster.remote.channel.WriteWatermark;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
@@ -12,14 +13,20 @@ import java.io.IOException;
 public class NettyDuplexHandler extends ChannelDuplexHandler {
 
     private final ChannelHandler handler;
+    private final WriteWatermark watermark;
 
     public NettyDuplexHandler(ChannelHandler handler) {
+        this(handler, WriteWatermark.DEFAULT);
+    }
+
+    public NettyDuplexHandler(ChannelHandler handler, WriteWatermark watermark) {
         this.handler = handler;
+        this.watermark = watermark;
     }
 
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
-        NettyChanelAdaptor chanelAdaptor = NettyChanelAdaptor.getOrAddChannel(ctx.channel(), handler);
+        NettyChanelAdaptor chanelAdaptor = NettyChanelAdaptor.getOrAddChannel(ctx.channel(), handler, watermark);
         handler.connected(chanelAdaptor);
     }
 
@@ -34,7 +41,7 @@ public class NettyDuplexHandler extends ChannelDuplexHandler {
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-        NettyChanelAdaptor chanelAdaptor = NettyChanelAdaptor.getOrAddChannel(ctx.channel(), handler);
+        NettyChanelAdaptor chanelAdaptor = NettyChanelAdaptor.getOrAddChannel(ctx.channel(), handler, watermark);
         handler.received(chanelAdaptor, msg);
     }
 
@@ -50,7 +57,7 @@ public class NettyDuplexHandler extends ChannelDuplexHandler {
         } else {
             log.error("handle error", cause);
         }
-        NettyChanelAdaptor chanelAdaptor = NettyChanelAdaptor.getOrAddChannel(ctx.channel(), handler);
+        NettyChanelAdaptor chanelAdaptor = NettyChanelAdaptor.getOrAddChannel(ctx.channel(), handler, watermark);
         handler.caught(chanelAdaptor, cause);
     }
 }
@@ -2,6 +2,9 @@ package io.github.chyohn.terse.cluster.remote.channel.netty;
 
 import io.github.chyohn.terse.cluster.remote.channel.Channel;
 import io.github.chyohn.terse.cluster.remote.channel.ChannelHandler;
+import io.github.chyohn.terse.cluster.remote.channel.ChannelUnwritableException;
+import io.github.chyohn.terse.cluster.remote.channel.WriteWatermark;
+import io.github.chyohn.terse.cluster.remote.codec.Frame;
 import io.github.chyohn.terse.cluster.remote.channel.Server;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.PooledByteBufAllocator;
@@ -33,10 +36,16 @@ public class NettyServer implements Server, ChannelHandler {
     private final ChannelHandler channelHandler;
 
     private final InetSocketAddress bindAddress;
+    private final WriteWatermark watermark;
 
     public NettyServer(InetSocketAddress bindAddress, ChannelHandler channelHandler) {
+        this(bindAddress, channelHandler, WriteWatermark.DEFAULT);
+    }
+
+    public NettyServer(InetSocketAddress bindAddress, ChannelHandler channelHandler, WriteWatermark watermark) {
         this.channelHandler = channelHandler;
         this.bindAddress = bindAddress;
+        this.watermark = watermark;
     }
 
     @Override
@@ -55,7 +64,7 @@ public class NettyServer implements Server, ChannelHandler {
             protected void initChannel(SocketChannel ch) throws Exception {
                 ch.pipeline().addLast("encoder", CodecAdaptor.INST.newEncoder())
                         .addLast("decoder", CodecAdaptor.INST.newDecoder())
-                        .addLast("handler", new NettyDuplexHandler(NettyServer.this))
+                        .addLast("handler", new NettyDuplexHandler(NettyServer.this, watermark))
                 ;
             }
         });
@@ -75,8 +84,21 @@ public class NettyServer implements Server, ChannelHandler {
 
     @Override
     public void send(Object message) {
-        for (Channel channel : channelSet.keySet()) {
-            channel.send(message);
+        if (!(message instanceof Frame)) {
+            throw new IllegalArgumentException("can't support message class type: " + message.getClass());
+        }
+        Frame frame = (Frame) message;
+        try {
+            for (Channel channel : channelSet.keySet()) {
+                // 每个连接发送后各自释放，不可写的连接跳过
+                try {
+                    channel.send(frame.retainedDuplicate());
+                } catch (ChannelUnwritableException e) {
+                    log.warn("skip broadcasting to unwritable channel: {}", e.getMessage());
+                }
+            }
+        } finally {
+            frame.release();
         }
     }
 
@@ -2,6 +2,13 @@ package io.github.chyohn.terse.cluster.remote.channel.nio;
 
 import io.github.chyohn.terse.cluster.remote.channel.Channel;
 import io.github.chyohn.terse.cluster.remote.channel.ChannelHandler;
+import io.github.chyohn.terse.cluster.remote.channel.WriteBufferMonitor;
+import io.github.chyohn.terse.cluster.remote.channel.WriteWatermark;
+import io.github.chyohn.terse.cluster.remote.codec.Frame;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
@@ -12,60 +19,102 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.util.Arrays;
 import java.util.Queue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * 读写都使用池化的直接内存：
+ * <ul>
+ *     <li>读取的消息体从{@link PooledByteBufAllocator}按大小分配，作为帧的消息体交给处理方，处理后释放回池中</li>
+ *     <li>发送的帧直接使用编码时池化的消息体，写出后释放，不再复制到堆内存</li>
+ *     <li>聚合写使用复用的数组，每次最多写出{@link #MAX_GATHER}个缓冲区</li>
+ * </ul>
+ * 分配器按大小分级复用内存，线程缓存的数量和大小有上限，超过块大小的消息体不会被缓存。
+ * <p>
+ * 待写出的字节数达到{@link WriteWatermark}的高水位时连接不可写，发送立即失败。
+ */
 @Slf4j
 public class NIOChannel implements Channel {
 
+    private static final ByteBufAllocator ALLOCATOR = PooledByteBufAllocator.DEFAULT;
+    private static final int MAX_GATHER = 64;
+
     private final AtomicBoolean selectable = new AtomicBoolean(true);
     private final AtomicBoolean throttled = new AtomicBoolean(false);
-    private final Queue<ByteBuffer> outgoingBuffers = new LinkedBlockingQueue<>();
-    private final ByteBuffer lenBuffer = ByteBuffer.allocate(4);
-
-    protected ByteBuffer incomingBuffer = lenBuffer;
+    private final Queue<Outgoing> outgoingBuffers = new ConcurrentLinkedQueue<>();
+    // 只在处理IO的线程中使用
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+    private final ByteBuffer headerBuffer = ByteBuffer.allocateDirect(Frame.HEADER_LENGTH);
+
+    protected ByteBuffer incomingBuffer = headerBuffer;
+    // 已读取头部，正在读取消息体
+    private Frame.Header header;
+    private ByteBuf payload;
     private volatile boolean closed = false;
 
     private final SocketChannel sock;
     private final SelectionKey sk;
     private final ChannelHandler channelHandler;
+    private final WriteBufferMonitor writeBufferMonitor;
 
-    public NIOChannel(SocketChannel sock, SelectionKey sk, ChannelHandler channelHandler) {
+    public NIOChannel(SocketChannel sock, SelectionKey sk, ChannelHandler channelHandler, WriteWatermark watermark) {
         this.sock = sock;
         this.sk = sk;
         this.channelHandler = channelHandler;
+        this.writeBufferMonitor = new WriteBufferMonitor(sock.socket(), watermark);
     }
 
     @Override
     public void send(Object message) {
-        if (message instanceof byte[]) {
-            byte[] data = (byte[]) message;
-            ByteBuffer len = ByteBuffer.allocate(4);
-            len.putInt(data.length);
-            len.flip();
-            sendBuffer(len, ByteBuffer.wrap(data));
+        if (!(message instanceof Frame)) {
+            throw new IllegalArgumentException("can't support message class type: " + message.getClass());
+        }
+        Frame frame = (Frame) message;
+        if (closed) {
+            frame.release();
             return;
-        } else if (message instanceof ByteBuffer) {
-            ByteBuffer buffer = (ByteBuffer) message;
-            ByteBuffer len = ByteBuffer.allocate(4);
-            len.putInt(buffer.capacity());
-            len.flip();
-            sendBuffer(len, buffer);
+        }
+        try {
+            writeBufferMonitor.acquire(Frame.HEADER_LENGTH + frame.getLength());
+        } catch (RuntimeException e) {
+            frame.release();
+            throw e;
+        }
+        if (frame.hasHeadroom()) {
+            sendBuffer(new Outgoing(frame.writeHeaderInPlace()), null);
             return;
         }
-        throw new IllegalArgumentException("can't support message class type: " + message.getClass());
+        ByteBuf header = ALLOCATOR.directBuffer(Frame.HEADER_LENGTH);
+        frame.writeHeader(header);
+        sendBuffer(new Outgoing(header), frame.getPayload() == null ? null : new Outgoing(frame.getPayload()));
     }
 
-    private void sendBuffer(ByteBuffer... buffers) {
+    private void sendBuffer(Outgoing header, Outgoing payload) {
         if (log.isDebugEnabled()) {
             log.debug("Add a buffer to outgoingBuffers, sk {} is valid: {}", sk, sk.isValid());
         }
+        // 头部和消息体需要连续写出
         synchronized (outgoingBuffers) {
-            outgoingBuffers.addAll(Arrays.asList(buffers));
+            outgoingBuffers.add(header);
+            if (payload != null) {
+                outgoingBuffers.add(payload);
+            }
+        }
+        if (closed) {
+            // 和close()并发时，close()可能已经释放了队列
+            releaseOutgoing();
+            return;
         }
         requestInterestOpsUpdate();
     }
 
+    private void releaseOutgoing() {
+        Outgoing outgoing;
+        while ((outgoing = outgoingBuffers.poll()) != null) {
+            outgoing.release();
+        }
+    }
+
     @Override
     public void close() {
         if (closed) {
@@ -83,6 +132,11 @@ public class NIOChannel implements Channel {
         }
 
         closeSock(sock);
+        releaseOutgoing();
+        if (payload != null) {
+            payload.release();
+            payload = null;
+        }
         channelHandler.disconnected(this);
     }
 
@@ -101,6 +155,16 @@ public class NIOChannel implements Channel {
         return channelHandler;
     }
 
+    @Override
+    public boolean isWritable() {
+        return writeBufferMonitor.isWritable();
+    }
+
+    @Override
+    public WriteBufferMonitor getWriteBufferMonitor() {
+        return writeBufferMonitor;
+    }
+
     public void doIO() throws IOException {
         if (!isSocketOpen()) {
             log.warn("trying to do i/o on a null socket ");
@@ -112,9 +176,9 @@ public class NIOChannel implements Channel {
                 handleFailedRead();
             }
             if (!incomingBuffer.hasRemaining()) {
-                if (incomingBuffer == lenBuffer) { // start of next request
+                if (incomingBuffer == headerBuffer) { // start of next request
                     incomingBuffer.flip();
-                    readLength();
+                    readHeader();
                 }
                 readPayload();
             }
@@ -133,14 +197,16 @@ public class NIOChannel implements Channel {
                 + " address = " + sock.socket().getRemoteSocketAddress());
     }
 
-    private void readLength() throws IOException {
-        // Read the length, now get the buffer
-        int len = lenBuffer.getInt();
-        if (len < 0) {
-            throw new IOException("Len error. "
-                    + "A message from " + this.getRemoteSocketAddress() + " with advertised length of " + len);
+    private void readHeader() throws IOException {
+        // Read the header, now get the buffer
+        try {
+            header = Frame.readHeader(headerBuffer);
+        } catch (IOException e) {
+            throw new IOException(e.getMessage() + " from " + this.getRemoteSocketAddress(), e);
         }
-        incomingBuffer = ByteBuffer.allocate(len);
+        int length = header.getLength();
+        payload = length == 0 ? Unpooled.EMPTY_BUFFER : ALLOCATOR.directBuffer(length, length);
+        incomingBuffer = payload.nioBuffer(0, length);
     }
 
     private void readPayload() throws IOException {
@@ -152,10 +218,12 @@ public class NIOChannel implements Channel {
         }
 
         if (!incomingBuffer.hasRemaining()) { // have we read length bytes?
-            incomingBuffer.flip();
-            channelHandler.received(this, incomingBuffer);
-            lenBuffer.clear();
-            incomingBuffer = lenBuffer;
+            Frame frame = header.toFrame(payload.writerIndex(header.getLength()));
+            headerBuffer.clear();
+            incomingBuffer = headerBuffer;
+            header = null;
+            payload = null;
+            channelHandler.received(this, frame);
         }
     }
 
@@ -164,18 +232,51 @@ public class NIOChannel implements Channel {
             return;
         }
 
-        ByteBuffer[] bufferList = new ByteBuffer[outgoingBuffers.size()];
-        // Use gathered write call. This updates the positions of the
-        // byte buffers to reflect the bytes that were written out.
-        sock.write(outgoingBuffers.toArray(bufferList));
+        int count = 0;
+        for (Outgoing outgoing : outgoingBuffers) {
+            gather[count++] = outgoing.nio;
+            if (count == MAX_GATHER) {
+                break;
+            }
+        }
+        try {
+            // Use gathered write call. This updates the positions of the
+            // byte buffers to reflect the bytes that were written out.
+            sock.write(gather, 0, count);
+        } finally {
+            Arrays.fill(gather, 0, count, null);
+        }
 
         // Remove the buffers that we have sent
-        ByteBuffer bb;
-        while ((bb = outgoingBuffers.peek()) != null) {
-            if (bb.remaining() > 0) {
+        Outgoing outgoing;
+        while ((outgoing = outgoingBuffers.peek()) != null) {
+            if (outgoing.nio.hasRemaining()) {
                 break;
             }
-            outgoingBuffers.remove();
+            // 和close()并发时，只释放自己移除的缓冲区
+            if (outgoingBuffers.remove(outgoing)) {
+                outgoing.release();
+            }
+        }
+    }
+
+    /**
+     * 待写出的缓冲区，写出后释放
+     */
+    private final class Outgoing {
+        final ByteBuf buf;
+        final ByteBuffer nio;
+        final int bytes;
+
+        Outgoing(ByteBuf buf) {
+            this.buf = buf;
+            this.nio = buf.nioBuffer();
+            this.bytes = nio.remaining();
+        }
+
+        void release() {
+            buf.release();
+            writeBufferMonitor.release(bytes);
         }
     }
 
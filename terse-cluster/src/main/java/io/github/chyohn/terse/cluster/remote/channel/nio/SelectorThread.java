@@ -2,6 +2,7 @@ package io.github.chyohn.terse.cluster.remote.channel.nio;
 
 import io.github.chyohn.terse.cluster.remote.channel.Channel;
 import io.github.chyohn.terse.cluster.remote.channel.ChannelHandler;
+import io.github.chyohn.terse.cluster.remote.channel.WriteWatermark;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
@@ -139,10 +140,11 @@ public class SelectorThread extends AbstractSelectThread {
      * Place new accepted connection onto a queue for adding. Do this so only the selector thread modifies what keys are
      * registered with the selector.
      */
-    public boolean addAcceptedConnection(SocketChannel accepted, ChannelHandler handler) {
+    public boolean addAcceptedConnection(SocketChannel accepted, ChannelHandler handler, WriteWatermark watermark) {
         AcceptInitData data = new AcceptInitData();
         data.accepted = accepted;
         data.handler = handler;
+        data.watermark = watermark;
         if (isStopped() || !acceptedQueue.offer(data)) {
             return false;
         }
@@ -153,6 +155,7 @@ public class SelectorThread extends AbstractSelectThread {
     static class AcceptInitData {
         SocketChannel accepted;
         ChannelHandler handler;
+        WriteWatermark watermark;
     }
     /**
      * Iterate over the queue of accepted connections that have been assigned to this thread but not yet placed on the
@@ -166,7 +169,7 @@ public class SelectorThread extends AbstractSelectThread {
             ChannelHandler channelHandler = data.handler;;
             try {
                 key = sc.register(selector, SelectionKey.OP_READ);
-                NIOChannel channel = new NIOChannel(sc, key, channelHandler);
+                NIOChannel channel = new NIOChannel(sc, key, channelHandler, data.watermark);
                 key.attach(channel);
                 channelHandler.connected(channel);
             } catch (IOException e) {
@@ -185,11 +188,13 @@ public class SelectorThread extends AbstractSelectThread {
     private final Map<Channel, CompletableFuture<Channel>> futureOfChannel = new ConcurrentHashMap<>();
 
 
-    public CompletableFuture<Channel> addConnectingAddress(InetSocketAddress address, ChannelHandler handler) {
+    public CompletableFuture<Channel> addConnectingAddress(InetSocketAddress address, ChannelHandler handler,
+                                                           WriteWatermark watermark) {
         CompletableFuture<Channel> future = new CompletableFuture<>();
         ChannelInitData data = new ChannelInitData();
         data.future = future;
         data.handler = handler;
+        data.watermark = watermark;
         futureOfAddress.put(address, data);
         if (isStopped() || !connectingAddressQueue.offer(address)) {
             future.cancel(true);
@@ -202,6 +207,7 @@ public class SelectorThread extends AbstractSelectThread {
     static class ChannelInitData {
         CompletableFuture<Channel> future;
         ChannelHandler handler;
+        WriteWatermark watermark;
     }
 
     private void processConnecting() {
@@ -221,7 +227,7 @@ public class SelectorThread extends AbstractSelectThread {
         try {
             sc = createSock();
             key = sc.register(selector, SelectionKey.OP_CONNECT);
-            channel = new NIOChannel(sc, key, channelHandler);
+            channel = new NIOChannel(sc, key, channelHandler, initData.watermark);
             key.attach(channel);
             futureOfChannel.put(channel, future);
             boolean immediateConnect = sc.connect(addr);
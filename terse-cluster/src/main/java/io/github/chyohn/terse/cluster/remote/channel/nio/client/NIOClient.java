@@ -3,7 +3,10 @@ package io.github.chyohn.terse.cluster.remote.channel.nio.client;
 import io.github.chyohn.terse.cluster.remote.channel.Channel;
 import io.github.chyohn.terse.cluster.remote.channel.ChannelHandler;
 import io.github.chyohn.terse.cluster.remote.channel.Client;
+import io.github.chyohn.terse.cluster.remote.channel.WriteBufferMonitor;
+import io.github.chyohn.terse.cluster.remote.channel.WriteWatermark;
 import io.github.chyohn.terse.cluster.remote.channel.nio.SelectorThread;
+import io.github.chyohn.terse.cluster.remote.codec.Frame;
 import io.github.chyohn.terse.cluster.remote.channel.nio.WorkerPool;
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -33,13 +36,19 @@ public class NIOClient implements Client, ChannelHandler {
     private final ChannelHandler channelHandler;
     private volatile boolean closed = true;
     private final InetSocketAddress address;
+    private final WriteWatermark watermark;
 
     private Channel channel;
 
     public NIOClient(InetSocketAddress address, ChannelHandler channelHandler) {
+        this(address, channelHandler, WriteWatermark.DEFAULT);
+    }
+
+    public NIOClient(InetSocketAddress address, ChannelHandler channelHandler, WriteWatermark watermark) {
         this.channelHandler = channelHandler;
 
         this.address = address;
+        this.watermark = watermark;
     }
 
     @Override
@@ -47,7 +56,7 @@ public class NIOClient implements Client, ChannelHandler {
 
         closed = false;
 
-        CompletableFuture<Channel> future = selectorThread.addConnectingAddress(address, this);
+        CompletableFuture<Channel> future = selectorThread.addConnectingAddress(address, this, watermark);
         future.whenComplete((channel, throwable) -> {
             if (throwable != null) {
                 log.error("connect error", throwable);
@@ -65,14 +74,22 @@ public class NIOClient implements Client, ChannelHandler {
     @Override
     public void send(Object message) {
         if (isClosed()) {
+            release(message);
             throw new RuntimeException("Connection refused: " + address);
         }
         if (!isConnected()) {
+            release(message);
             throw new RuntimeException("Connection is starting: " + address);
         }
         channel.send(message);
     }
 
+    private void release(Object message) {
+        if (message instanceof Frame) {
+            ((Frame) message).release();
+        }
+    }
+
     @Override
     public void close() {
 
@@ -102,6 +119,18 @@ public class NIOClient implements Client, ChannelHandler {
         return this;
     }
 
+    @Override
+    public boolean isWritable() {
+        Channel channel = this.channel;
+        return channel != null && channel.isWritable();
+    }
+
+    @Override
+    public WriteBufferMonitor getWriteBufferMonitor() {
+        Channel channel = this.channel;
+        return channel == null ? null : channel.getWriteBufferMonitor();
+    }
+
     @Override
     public void connected(Channel channel) {
         this.channel = channel;
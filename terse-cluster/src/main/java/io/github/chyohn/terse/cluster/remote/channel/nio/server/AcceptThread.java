@@ -1,6 +1,7 @@
 package io.github.chyohn.terse.cluster.remote.channel.nio.server;
 
 import io.github.chyohn.terse.cluster.remote.channel.ChannelHandler;
+import io.github.chyohn.terse.cluster.remote.channel.WriteWatermark;
 import io.github.chyohn.terse.cluster.remote.channel.nio.AbstractSelectThread;
 import io.github.chyohn.terse.cluster.remote.channel.nio.SelectorThread;
 import lombok.extern.slf4j.Slf4j;
@@ -28,13 +29,16 @@ public class AcceptThread extends AbstractSelectThread {
     private final Collection<SelectorThread> selectorThreads;
     private Iterator<SelectorThread> selectorIterator;
     private final ChannelHandler channelHandler;
+    private final WriteWatermark watermark;
 
-    public AcceptThread(String name, ServerSocketChannel ssc, Collection<SelectorThread> selectorThreads, ChannelHandler channelHandler) throws IOException {
+    public AcceptThread(String name, ServerSocketChannel ssc, Collection<SelectorThread> selectorThreads, ChannelHandler channelHandler,
+                        WriteWatermark watermark) throws IOException {
         super(name);
         this.ssc = ssc;
         this.acceptKey = ssc.register(selector, SelectionKey.OP_ACCEPT);
         this.selectorThreads = Collections.unmodifiableList(new ArrayList<>(selectorThreads));
         this.channelHandler = channelHandler;
+        this.watermark = watermark;
         selectorIterator = this.selectorThreads.iterator();
     }
 
@@ -121,7 +125,7 @@ public class AcceptThread extends AbstractSelectThread {
                 selectorIterator = selectorThreads.iterator();
             }
             SelectorThread selectorThread = selectorIterator.next();
-            if (!selectorThread.addAcceptedConnection(sc, channelHandler)) {
+            if (!selectorThread.addAcceptedConnection(sc, channelHandler, watermark)) {
                 throw new IOException("Unable to add connection to selector queue"
                     + (isStopped() ? " (shutdown in progress)" : ""));
             }
@@ -2,6 +2,9 @@ package io.github.chyohn.terse.cluster.remote.channel.nio.server;
 
 import io.github.chyohn.terse.cluster.remote.channel.Channel;
 import io.github.chyohn.terse.cluster.remote.channel.ChannelHandler;
+import io.github.chyohn.terse.cluster.remote.channel.ChannelUnwritableException;
+import io.github.chyohn.terse.cluster.remote.channel.WriteWatermark;
+import io.github.chyohn.terse.cluster.remote.codec.Frame;
 import io.github.chyohn.terse.cluster.remote.channel.Server;
 import io.github.chyohn.terse.cluster.remote.channel.nio.SelectorThread;
 import io.github.chyohn.terse.cluster.remote.channel.nio.WorkerPool;
@@ -27,6 +30,11 @@ public class NIOServer implements Server, ChannelHandler {
     private final Map<Channel, Long> channelSet = new ConcurrentHashMap<>();
 
     public NIOServer(InetSocketAddress addr, ChannelHandler channelHandler) throws IOException {
+        this(addr, channelHandler, WriteWatermark.DEFAULT);
+    }
+
+    public NIOServer(InetSocketAddress addr, ChannelHandler channelHandler, WriteWatermark watermark)
+            throws IOException {
         this.channelHandler = channelHandler;
 
         // worker thread
@@ -53,7 +61,8 @@ public class NIOServer implements Server, ChannelHandler {
             log.info("bound to port {}", serverSocketChannel.getLocalAddress());
         }
         serverSocketChannel.configureBlocking(false);
-        acceptThread = new AcceptThread("AcceptThread-" + serverSocketChannel.socket().getInetAddress(),  serverSocketChannel, selectorThreads, this);
+        acceptThread = new AcceptThread("AcceptThread-" + serverSocketChannel.socket().getInetAddress(),  serverSocketChannel, selectorThreads, this,
+                watermark);
     }
 
     public void start() {
@@ -75,8 +84,21 @@ public class NIOServer implements Server, ChannelHandler {
     
     @Override
     public void send(Object message) {
-        for (Channel channel : channelSet.keySet()) {
-            channel.send(message);
+        if (!(message instanceof Frame)) {
+            throw new IllegalArgumentException("can't support message class type: " + message.getClass());
+        }
+        Frame frame = (Frame) message;
+        try {
+            for (Channel channel : channelSet.keySet()) {
+                // 每个连接发送后各自释放，不可写的连接跳过
+                try {
+                    channel.send(frame.retainedDuplicate());
+                } catch (ChannelUnwritableException e) {
+                    log.warn("skip broadcasting to unwritable channel: {}", e.getMessage());
+                }
+            }
+        } finally {
+            frame.release();
         }
     }
 
@@ -4,6 +4,7 @@ import io.github.chyohn.terse.cluster.Cluster;
 import io.github.chyohn.terse.cluster.member.Member;
 import io.github.chyohn.terse.cluster.remote.channel.ChannelHandler;
 import io.github.chyohn.terse.cluster.remote.channel.Client;
+import io.github.chyohn.terse.cluster.remote.channel.WriteWatermark;
 import io.github.chyohn.terse.cluster.remote.channel.netty.NettyClient;
 
 import java.net.InetSocketAddress;
@@ -17,6 +18,7 @@ public class NettyNetClientFactory implements NetClientFactory {
 
     @Override
     public Client create(Member target, ChannelHandler handler) {
-        return new NettyClient(new InetSocketAddress(target.getIp(), target.getPort()), handler);
+        return new NettyClient(new InetSocketAddress(target.getIp(), target.getPort()), handler,
+                WriteWatermark.of(cluster.getEnvironment()));
     }
 }
@@ -4,6 +4,7 @@ import io.github.chyohn.terse.cluster.Cluster;
 import io.github.chyohn.terse.cluster.member.Member;
 import io.github.chyohn.terse.cluster.remote.channel.ChannelHandler;
 import io.github.chyohn.terse.cluster.remote.channel.Client;
+import io.github.chyohn.terse.cluster.remote.channel.WriteWatermark;
 import io.github.chyohn.terse.cluster.remote.channel.nio.client.NIOClient;
 import java.net.InetSocketAddress;
 
@@ -16,6 +17,7 @@ public class NioNetClientFactory implements NetClientFactory {
 
     @Override
     public Client create(Member target, ChannelHandler handler) {
-        return new NIOClient(new InetSocketAddress(target.getIp(), target.getPort()), handler);
+        return new NIOClient(new InetSocketAddress(target.getIp(), target.getPort()), handler,
+                WriteWatermark.of(cluster.getEnvironment()));
     }
 }
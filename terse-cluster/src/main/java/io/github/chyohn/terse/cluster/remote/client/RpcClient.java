@@ -1,5 +1,7 @@
 package io.github.chyohn.terse.cluster.remote.client;
 
+import io.github.chyohn.terse.cluster.remote.channel.WriteBufferMonitor;
+
 import java.io.Serializable;
 
 public interface RpcClient {
@@ -9,5 +11,16 @@ public interface RpcClient {
     void shutdown();
 
     boolean isConnected();
+
+    /**
+     * @return false 连接待写出的字节数达到高水位，请求会立即失败
+     */
+    boolean isWritable();
+
+    /**
+     * @return 连接待写出字节数的统计，未连接时为null
+     */
+    WriteBufferMonitor writeBufferMonitor();
+
     void start();
 }
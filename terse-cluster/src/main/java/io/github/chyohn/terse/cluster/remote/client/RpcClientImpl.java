@@ -1,6 +1,7 @@
 package io.github.chyohn.terse.cluster.remote.client;
 
 import io.github.chyohn.terse.cluster.remote.channel.Client;
+import io.github.chyohn.terse.cluster.remote.channel.WriteBufferMonitor;
 import io.github.chyohn.terse.cluster.remote.message.MessageChannelHandler;
 import java.io.Serializable;
 import java.util.concurrent.CompletableFuture;
@@ -19,7 +20,7 @@ public class RpcClientImpl implements RpcClient {
     @Override
     public <T extends Serializable> void request(Serializable request, RequestCallBack<T> callBack) {
 
-        CompletableFuture<Serializable> future = doRequest(request);
+        CompletableFuture<Serializable> future = doRequest(request, callBack);
 
         BiConsumer<Serializable, ? super Throwable> action = (response, throwable) -> {
             if (throwable != null) {
@@ -35,8 +36,8 @@ public class RpcClientImpl implements RpcClient {
         future.whenCompleteAsync(action, callBack.getExecutor());
     }
 
-    private CompletableFuture<Serializable> doRequest(Serializable request) {
-        return handler.send(client, request);
+    private CompletableFuture<Serializable> doRequest(Serializable request, RequestCallBack<?> callBack) {
+        return handler.send(client, request, callBack.timeout());
     }
 
     @Override
@@ -49,6 +50,16 @@ public class RpcClientImpl implements RpcClient {
         return !client.isClosed() && client.isConnected();
     }
 
+    @Override
+    public boolean isWritable() {
+        return client.isWritable();
+    }
+
+    @Override
+    public WriteBufferMonitor writeBufferMonitor() {
+        return client.getWriteBufferMonitor();
+    }
+
     @Override
     public void start() {
         client.start();
@@ -13,6 +13,7 @@ import io.github.chyohn.terse.cluster.member.MemberState;
 import io.github.chyohn.terse.cluster.remote.channel.Channel;
 import io.github.chyohn.terse.cluster.remote.channel.ChannelHandlerDelegate;
 import io.github.chyohn.terse.cluster.remote.channel.Client;
+import io.github.chyohn.terse.cluster.remote.channel.WriteBufferMonitor;
 import io.github.chyohn.terse.cluster.remote.message.MessageChannelHandler;
 import io.github.chyohn.terse.cluster.remote.message.MessageChannelHandlerImpl;
 
@@ -32,6 +33,7 @@ public class RpcClientProxy implements ClusterEventListener<ClusterEvent> {
     private final Cluster cluster;
 
     private final MessageChannelHandler handler;
+    private volatile boolean shutdown;
 
     public RpcClientProxy(Cluster cluster) {
         this.cluster = cluster;
@@ -44,6 +46,42 @@ public class RpcClientProxy implements ClusterEventListener<ClusterEvent> {
         getClient(target).request(request, callBack);
     }
 
+    /**
+     * @param target 远程节点
+     * @return true 已连接且连接可写，路由时跳过不可写的节点
+     */
+    public boolean isWritable(Member target) {
+        RpcClient client = clientMap.get(memberKey(target));
+        return client != null && client.isWritable();
+    }
+
+    /**
+     * @return 节点地址和到该节点的连接待写出字节数的统计
+     */
+    public Map<String, WriteBufferMonitor> writeBufferMonitors() {
+        Map<String, WriteBufferMonitor> monitors = new HashMap<>();
+        for (Member member : cluster.getMemberManager().allMembersWithoutSelf()) {
+            RpcClient client = clientMap.get(memberKey(member));
+            WriteBufferMonitor monitor = client == null ? null : client.writeBufferMonitor();
+            if (monitor != null) {
+                monitors.put(member.getAddress(), monitor);
+            }
+        }
+        return monitors;
+    }
+
+    /**
+     * 关闭到所有节点的连接，取消等待响应的请求，不再重连
+     */
+    public void shutdown() {
+        shutdown = true;
+        for (RpcClient client : clientMap.values()) {
+            client.shutdown();
+        }
+        clientMap.clear();
+        handler.close();
+    }
+
     private RpcClient getClient(Member target) {
         RpcClient client = clientMap.get(memberKey(target));
         if (client == null) {
@@ -99,6 +137,9 @@ public class RpcClientProxy implements ClusterEventListener<ClusterEvent> {
     }
 
     private void refresh() {
+        if (shutdown) {
+            return;
+        }
         MemberManager memberManager = cluster.getMemberManager();
         Set<Member> memberList = memberManager.allMembersWithoutSelf().stream()
                 .filter(member -> !member.equals(memberManager.getSelf()))
@@ -144,6 +185,10 @@ public class RpcClientProxy implements ClusterEventListener<ClusterEvent> {
         Client client = netClientFactory.create(member, new ChannelHandlerDelegate(handler) {
             @Override
             public void disconnected(Channel channel) {
+                if (shutdown) {
+                    super.disconnected(channel);
+                    return;
+                }
                 clientMap.remove(memberKey);
                 memberManager.onFail(member, null);
                 int count = retryCountOfMember.computeIfAbsent(memberKey, k -> 0);
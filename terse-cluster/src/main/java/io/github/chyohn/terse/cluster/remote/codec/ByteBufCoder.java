@@ -0,0 +1,65 @@
+package io.github.chyohn.terse.cluster.remote.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 使用池化的{@link ByteBuf}编码和解码消息体。
+ * <p>
+ * 编码时{@link Coder}直接写入池化的直接内存，并在前面预留帧头部的空间，传输层写入头部后直接写出，不再复制；
+ * 解码时直接从接收缓冲区的切片读取，不复制到堆内存的数组。
+ */
+public final class ByteBufCoder {
+
+    private final Coder coder;
+    private final ByteBufAllocator allocator;
+
+    public ByteBufCoder(Coder coder) {
+        this(coder, PooledByteBufAllocator.DEFAULT);
+    }
+
+    public ByteBufCoder(Coder coder, ByteBufAllocator allocator) {
+        this.coder = coder;
+        this.allocator = allocator;
+    }
+
+    public byte getId() {
+        return coder.getId();
+    }
+
+    /**
+     * @param obj 对象
+     * @return 编码后的消息体，readerIndex之前预留了帧头部的空间，由调用方负责释放
+     * @throws IOException 编码失败
+     */
+    public ByteBuf encode(Object obj) throws IOException {
+        ByteBuf buf = allocator.directBuffer();
+        buf.writerIndex(Frame.HEADER_LENGTH).readerIndex(Frame.HEADER_LENGTH);
+        try {
+            coder.encode(obj, new ByteBufOutputStream(buf));
+            return buf;
+        } catch (Throwable e) {
+            buf.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 解码后释放消息体
+     *
+     * @param buf 消息体
+     * @return 对象
+     * @throws IOException 解码失败
+     */
+    public <T> T decode(ByteBuf buf) throws IOException {
+        try (InputStream in = new ByteBufInputStream(buf, true)) {
+            return coder.decode(in);
+        }
+    }
+}
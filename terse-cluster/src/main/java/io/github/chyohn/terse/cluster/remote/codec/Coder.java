@@ -3,7 +3,10 @@ package io.github.chyohn.terse.cluster.remote.codec;
 import io.github.chyohn.terse.cluster.config.ConfigConstant;
 import io.github.chyohn.terse.cluster.config.Environment;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 public interface Coder {
 
@@ -17,8 +20,43 @@ public interface Coder {
         }
     }
 
+    /**
+     * @return 编码方式的id，写入帧头部，接收方据此判断能否解码
+     */
+    default byte getId() {
+        return 0;
+    }
+
     byte[] encode(Object obj) throws IOException;
 
     <T> T decode(byte[] data)  throws IOException;
 
+    /**
+     * 编码到输出流，默认先编码为字节数组，可以直接写入输出流的实现需要重写
+     *
+     * @param obj 对象
+     * @param out 输出流
+     * @throws IOException 编码失败
+     */
+    default void encode(Object obj, OutputStream out) throws IOException {
+        out.write(encode(obj));
+    }
+
+    /**
+     * 从输入流解码，默认先读取为字节数组，可以直接从输入流读取的实现需要重写
+     *
+     * @param in 输入流
+     * @return 对象
+     * @throws IOException 解码失败
+     */
+    default <T> T decode(InputStream in) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream(Math.max(in.available(), 32));
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            bout.write(buffer, 0, n);
+        }
+        return decode(bout.toByteArray());
+    }
+
 }
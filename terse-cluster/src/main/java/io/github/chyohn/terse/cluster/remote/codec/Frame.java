@@ -0,0 +1,274 @@
+package io.github.chyohn.terse.cluster.remote.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCounted;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 集群节点间传输的帧，固定长度的头部加上编码后的消息体。
+ * <pre>
+ * |-----------------------------------------------------------------------------------------|
+ * |魔数2字节|版本1字节|类型1字节|标志1字节|编码1字节|请求id 8字节|截止时间8字节|长度4字节|消息体|
+ * |-----------------------------------------------------------------------------------------|
+ * </pre>
+ * 接收方只读取头部就可以区分请求和响应、匹配等待的请求、丢弃超时的请求，不需要解码消息体。
+ * 截止时间是发送方的绝对时间（毫秒），0 没有截止时间，要求集群节点的时钟基本同步。
+ * <p>
+ * 消息体的所有权随帧传递：调用{@link io.github.chyohn.terse.cluster.remote.channel.Channel#send(Object)}后由连接负责释放，
+ * 包括发送失败的情况；接收时由处理帧的一方解码或丢弃后调用{@link #release()}。
+ * 帧的引用计数就是消息体的引用计数，netty在写出失败或丢弃消息时释放帧即释放消息体。
+ */
+@Getter
+public final class Frame implements ReferenceCounted {
+
+    public static final short MAGIC = (short) 0x7E5E;
+    public static final byte VERSION = 1;
+    public static final int HEADER_LENGTH = 26;
+
+    /**
+     * 帧类型
+     */
+    public static final byte TYPE_REQUEST = 1;
+    public static final byte TYPE_RESPONSE = 2;
+    // 以下类型预留，暂未使用
+    public static final byte TYPE_HEARTBEAT = 3;
+    public static final byte TYPE_CANCEL = 4;
+    public static final byte TYPE_BATCH = 5;
+
+    /**
+     * 响应标志：消息体是异常
+     */
+    public static final byte FLAG_ERROR = 1;
+    /**
+     * 响应标志：请求到达时已超过截止时间，没有处理，没有消息体
+     */
+    public static final byte FLAG_EXPIRED = 1 << 1;
+
+    private final byte type;
+    private final byte flags;
+    private final byte codec;
+    private final long requestId;
+    private final long deadline;
+    private final ByteBuf payload;
+
+    public Frame(byte type, byte flags, byte codec, long requestId, long deadline, ByteBuf payload) {
+        this.type = type;
+        this.flags = flags;
+        this.codec = codec;
+        this.requestId = requestId;
+        this.deadline = deadline;
+        this.payload = payload;
+    }
+
+    public boolean hasFlag(byte flag) {
+        return (flags & flag) != 0;
+    }
+
+    /**
+     * @return 消息体长度
+     */
+    public int getLength() {
+        return payload == null ? 0 : payload.readableBytes();
+    }
+
+    @Override
+    public int refCnt() {
+        return payload == null ? 1 : payload.refCnt();
+    }
+
+    @Override
+    public Frame retain() {
+        if (payload != null) {
+            payload.retain();
+        }
+        return this;
+    }
+
+    @Override
+    public Frame retain(int increment) {
+        if (payload != null) {
+            payload.retain(increment);
+        }
+        return this;
+    }
+
+    @Override
+    public Frame touch() {
+        if (payload != null) {
+            payload.touch();
+        }
+        return this;
+    }
+
+    @Override
+    public Frame touch(Object hint) {
+        if (payload != null) {
+            payload.touch(hint);
+        }
+        return this;
+    }
+
+    /**
+     * 释放消息体，没有解码的帧需要释放，已经释放时忽略
+     */
+    @Override
+    public boolean release() {
+        return payload != null && payload.refCnt() > 0 && payload.release();
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        return payload != null && payload.refCnt() > 0 && payload.release(decrement);
+    }
+
+    /**
+     * @return 共享消息体的新帧，用于发送给多个连接
+     */
+    public Frame retainedDuplicate() {
+        return new Frame(type, flags, codec, requestId, deadline, payload == null ? null : payload.retainedDuplicate());
+    }
+
+    /**
+     * @param now 当前时间毫秒
+     * @return true 已超过截止时间
+     */
+    public boolean isExpired(long now) {
+        return deadline > 0 && now > deadline;
+    }
+
+    /**
+     * @return true 消息体的readerIndex之前预留了头部的空间，可以直接写入头部
+     */
+    public boolean hasHeadroom() {
+        return payload != null && payload.readerIndex() >= HEADER_LENGTH;
+    }
+
+    /**
+     * 在消息体前预留的空间写入头部
+     *
+     * @return 包含头部和消息体的缓冲区，即消息体本身
+     * @see #hasHeadroom()
+     */
+    public ByteBuf writeHeaderInPlace() {
+        int start = payload.readerIndex() - HEADER_LENGTH;
+        writeHeader(payload.slice(start, HEADER_LENGTH).writerIndex(0));
+        return payload.readerIndex(start);
+    }
+
+    /**
+     * 写入头部
+     *
+     * @param buffer 可写入{@link #HEADER_LENGTH}字节
+     */
+    public void writeHeader(ByteBuf buffer) {
+        buffer.writeShort(MAGIC)
+                .writeByte(VERSION)
+                .writeByte(type)
+                .writeByte(flags)
+                .writeByte(codec)
+                .writeLong(requestId)
+                .writeLong(deadline)
+                .writeInt(getLength());
+    }
+
+    /**
+     * 写入头部
+     *
+     * @param buffer 至少有{@link #HEADER_LENGTH}字节的剩余空间
+     */
+    public void writeHeader(ByteBuffer buffer) {
+        buffer.putShort(MAGIC)
+                .put(VERSION)
+                .put(type)
+                .put(flags)
+                .put(codec)
+                .putLong(requestId)
+                .putLong(deadline)
+                .putInt(getLength());
+    }
+
+    /**
+     * @return 新分配的头部，可直接读取
+     */
+    public ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        writeHeader(header);
+        header.flip();
+        return header;
+    }
+
+    /**
+     * 头部中的消息体长度需要先于消息体读取，以便分配消息体的空间
+     */
+    public static final class Header {
+        final byte type;
+        final byte flags;
+        final byte codec;
+        final long requestId;
+        final long deadline;
+        @Getter
+        final int length;
+
+        private Header(byte type, byte flags, byte codec, long requestId, long deadline, int length) {
+            this.type = type;
+            this.flags = flags;
+            this.codec = codec;
+            this.requestId = requestId;
+            this.deadline = deadline;
+            this.length = length;
+        }
+
+        /**
+         * @param payload 长度为{@link #getLength()}的消息体
+         * @return 完整的帧
+         */
+        public Frame toFrame(ByteBuf payload) {
+            return new Frame(type, flags, codec, requestId, deadline, payload);
+        }
+    }
+
+    /**
+     * 读取头部
+     *
+     * @param buffer 至少有{@link #HEADER_LENGTH}字节可读
+     * @return 头部
+     * @throws IOException 魔数、版本或长度不正确，连接上的数据已无法解析
+     */
+    public static Header readHeader(ByteBuffer buffer) throws IOException {
+        Header header = readHeader(Unpooled.wrappedBuffer(buffer));
+        buffer.position(buffer.position() + HEADER_LENGTH);
+        return header;
+    }
+
+    /**
+     * 读取头部
+     *
+     * @param buffer 至少有{@link #HEADER_LENGTH}字节可读
+     * @return 头部
+     * @throws IOException 魔数、版本或长度不正确，连接上的数据已无法解析
+     */
+    public static Header readHeader(ByteBuf buffer) throws IOException {
+        short magic = buffer.readShort();
+        if (magic != MAGIC) {
+            throw new IOException("Magic error. A message with magic of 0x" + Integer.toHexString(magic & 0xFFFF));
+        }
+        byte version = buffer.readByte();
+        if (version != VERSION) {
+            throw new IOException("Version error. A message with unsupported version of " + version);
+        }
+        byte type = buffer.readByte();
+        byte flags = buffer.readByte();
+        byte codec = buffer.readByte();
+        long requestId = buffer.readLong();
+        long deadline = buffer.readLong();
+        int length = buffer.readInt();
+        if (length < 0) {
+            throw new IOException("Len error. A message with advertised length of " + length);
+        }
+        return new Header(type, flags, codec, requestId, deadline, length);
+    }
+}
@@ -7,23 +7,41 @@ import io.github.chyohn.terse.cluster.remote.codec.serialization.SerializationUt
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 public class HessianCoder implements Coder {
+
+    public static final byte ID = 1;
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
     @Override
     public byte[] encode(Object obj) throws IOException {
         // 序列化数据
         ByteArrayOutputStream bout = new ByteArrayOutputStream();
-        ObjectOutput oo = SerializationUtil.serialize(bout);
-        oo.writeObject(obj);
-        oo.flushBuffer();
+        encode(obj, bout);
         return bout.toByteArray();
     }
 
     @Override
     public <T> T decode(byte[] data) throws IOException {
+        return decode(new ByteArrayInputStream(data));
+    }
 
-        ByteArrayInputStream bi = new ByteArrayInputStream(data);
-        ObjectInput oi = SerializationUtil.deserialize(bi);
-        return (T)oi.readObject();
+    @Override
+    public void encode(Object obj, OutputStream out) throws IOException {
+        ObjectOutput oo = SerializationUtil.serialize(out);
+        oo.writeObject(obj);
+        oo.flushBuffer();
+    }
+
+    @Override
+    public <T> T decode(InputStream in) throws IOException {
+        ObjectInput oi = SerializationUtil.deserialize(in);
+        return (T) oi.readObject();
     }
 }
@@ -5,5 +5,21 @@ import io.github.chyohn.terse.cluster.remote.channel.ChannelHandler;
 import java.util.concurrent.CompletableFuture;
 
 public interface MessageChannelHandler extends ChannelHandler {
-    <R> CompletableFuture<R> send(Channel channel, Object msg);
+    default <R> CompletableFuture<R> send(Channel channel, Object msg) {
+        return send(channel, msg, 0);
+    }
+
+    /**
+     * @param channel       连接
+     * @param msg           请求
+     * @param timeoutMillis 请求的超时时间，作为截止时间写入帧头部，&lt;=0 没有截止时间
+     * @return 响应
+     */
+    <R> CompletableFuture<R> send(Channel channel, Object msg, long timeoutMillis);
+
+    /**
+     * 取消等待响应的请求，释放处理超时的线程，关闭后不能再发送有超时的请求
+     */
+    default void close() {
+    }
 }
@@ -2,53 +2,116 @@ package io.github.chyohn.terse.cluster.remote.message;
 
 import io.github.chyohn.terse.cluster.Cluster;
 import io.github.chyohn.terse.cluster.remote.channel.Channel;
+import io.github.chyohn.terse.cluster.remote.channel.ChannelUnwritableException;
+import io.github.chyohn.terse.cluster.remote.codec.ByteBufCoder;
 import io.github.chyohn.terse.cluster.remote.codec.Coder;
+import io.github.chyohn.terse.cluster.remote.codec.Frame;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
-import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class MessageChannelHandlerImpl implements MessageChannelHandler {
+
     private final Cluster cluster;
-    private final Coder coder;
-    private final Map<String, CompletableFuture> futureOfReqId = new ConcurrentHashMap<>();
-    private final Map<String, Channel> channelOfReqId = new ConcurrentHashMap<>();
+    private final ByteBufCoder coder;
+    // 请求id，响应从请求的连接返回，只需在连接内唯一
+    private final AtomicLong requestIdGenerator = new AtomicLong();
+    // 每个连接等待响应的请求，连接断开时只需处理该连接的请求
+    private final Map<Channel, PendingRequests> pendingOfChannel = new ConcurrentHashMap<>();
+    // 请求在截止时间仍未响应时从等待表中移除，以超时失败。第一次发送有超时的请求时创建，关闭时停止
+    private volatile Timer expireTimer;
+    private boolean closed;
 
     public MessageChannelHandlerImpl(Cluster cluster) {
         this.cluster = cluster;
-        this.coder = Coder.getInstance(cluster.getEnvironment());
+        this.coder = new ByteBufCoder(Coder.getInstance(cluster.getEnvironment()));
     }
 
 
-    public <R> CompletableFuture<R> send(Channel channel, Object msg) {
-        String uuid = UUID.randomUUID().toString();
-        Request request = new Request();
-        request.setId(uuid);
-        request.setData(msg);
-        byte[] data;
-        try {
-            data = coder.encode(request);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+    @Override
+    public <R> CompletableFuture<R> send(Channel channel, Object msg, long timeoutMillis) {
+        // 关闭后不再发送有超时的请求
+        Timer timer = timeoutMillis > 0 ? expireTimer() : null;
+        long id = requestIdGenerator.incrementAndGet();
+        long deadline = timeoutMillis > 0 ? System.currentTimeMillis() + timeoutMillis : 0;
+        Frame frame = new Frame(Frame.TYPE_REQUEST, (byte) 0, coder.getId(), id, deadline, encode(msg));
         CompletableFuture<R> future = new CompletableFuture<>();
-        this.addFuture(request.getId(), channel, future);
+        PendingRequests pending = null;
         try {
-            channel.send(data);
+            pending = this.addFuture(id, channel, future);
+            channel.send(frame);
+            if (timer != null) {
+                expireAt(timer, pending, id, future, timeoutMillis);
+            }
         } catch (Throwable e) {
-            removeFuture(request.getId());
+            if (pending == null) {
+                // 没有交给连接发送
+                frame.release();
+            }
+            removeFuture(pending, id);
+            if (channel.isClosed()) {
+                // 断开后发送的请求会重新创建等待表，这里清理掉
+                cancelPending(channel);
+            }
             throw e instanceof RuntimeException ? (RuntimeException)e : new RuntimeException(e);
         }
         return future;
     }
 
+    private void expireAt(Timer timer, PendingRequests pending, long id, CompletableFuture<?> future,
+                          long timeoutMillis) {
+        Timeout timeout = timer.newTimeout(t -> {
+            if (removeFuture(pending, id) != null) {
+                future.completeExceptionally(new TimeoutException("request[" + id + "] timeout after "
+                        + timeoutMillis + "ms"));
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        future.whenComplete((r, e) -> timeout.cancel());
+    }
+
+    private Timer expireTimer() {
+        Timer timer = expireTimer;
+        if (timer != null) {
+            return timer;
+        }
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("message channel handler is closed");
+            }
+            if (expireTimer == null) {
+                expireTimer = new HashedWheelTimer(new DefaultThreadFactory("terse-rpc-timer", true),
+                        10, TimeUnit.MILLISECONDS, 512);
+            }
+            return expireTimer;
+        }
+    }
+
+    @Override
+    public void close() {
+        Timer timer;
+        synchronized (this) {
+            closed = true;
+            timer = expireTimer;
+        }
+        if (timer != null) {
+            timer.stop();
+        }
+        for (Channel channel : pendingOfChannel.keySet()) {
+            cancelPending(channel);
+        }
+    }
+
     @Override
     public void connected(Channel channel) {
 
@@ -56,42 +119,32 @@ public class MessageChannelHandlerImpl implements MessageChannelHandler {
 
     @Override
     public void disconnected(Channel channel) {
-        Set<String> ids = new HashSet<>();
-        for (Entry<String, Channel> entry : channelOfReqId.entrySet()) {
-            if (!entry.getValue().equals(channel)) {
-                continue;
-            }
-            String id = entry.getKey();
-            ids.add(id);
-            CompletableFuture future = futureOfReqId.remove(id);
-            if (future != null) {
-                future.cancel(true);
-            }
-        }
-        if (ids.isEmpty()) {
+        cancelPending(channel);
+    }
+
+    private void cancelPending(Channel channel) {
+        PendingRequests pending = pendingOfChannel.remove(channel);
+        if (pending == null) {
             return;
         }
-        for (String id : ids) {
-            channelOfReqId.remove(id);
+        for (CompletableFuture<?> future : pending.close()) {
+            future.cancel(true);
         }
-
     }
 
     @Override
     public void received(Channel channel, Object message) {
-        ByteBuffer requestBuffer = (ByteBuffer) message;
-        Object object = null;
-        try {
-            object = coder.decode(requestBuffer.array());
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-        if (object instanceof Request) {
-            onReceiveRequest(channel, (Request) object);
-        } else if (object instanceof Response) {
-            onReceiveResponse((Response) object);
-        } else {
-            throw new RuntimeException("not support message type of " + (object == null ? null : object.getClass()));
+        Frame frame = (Frame) message;
+        switch (frame.getType()) {
+            case Frame.TYPE_REQUEST:
+                onReceiveRequest(channel, frame);
+                break;
+            case Frame.TYPE_RESPONSE:
+                onReceiveResponse(channel, frame);
+                break;
+            default:
+                frame.release();
+                log.warn("ignore frame of unsupported type {}, req id: {}", frame.getType(), frame.getRequestId());
         }
     }
 
@@ -100,73 +153,121 @@ public class MessageChannelHandlerImpl implements MessageChannelHandler {
 
     }
 
-    private void onReceiveResponse(Response res) {
-        String reqId = res.getId();
-        CompletableFuture<Object> future = removeFuture(reqId);
+    private void onReceiveResponse(Channel channel, Frame frame) {
+        long reqId = frame.getRequestId();
+        // 只根据头部匹配请求，已经没有等待的请求时不再解码消息体
+        CompletableFuture<Object> future = (CompletableFuture<Object>) removeFuture(pendingOfChannel.get(channel), reqId);
         if (future == null) {
-            log.warn("dead message for req id： {}, res: {}", reqId, res);
+            frame.release();
+            log.warn("dead message for req id： {}, flags: {}", reqId, frame.getFlags());
             return;
         }
         if (log.isDebugEnabled()) {
             log.debug("handle req[{}] future", reqId);
         }
-        if (res.getE() != null) {
-            future.completeExceptionally(res.getE());
+        if (frame.hasFlag(Frame.FLAG_EXPIRED)) {
+            future.completeExceptionally(new TimeoutException("request[" + reqId + "] expired before processed"));
+            return;
+        }
+        Object data;
+        try {
+            data = decode(frame);
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            return;
+        }
+        if (frame.hasFlag(Frame.FLAG_ERROR)) {
+            future.completeExceptionally((Throwable) data);
         } else {
-            future.complete(res.getData());
+            future.complete(data);
         }
     }
 
-    private void onReceiveRequest(Channel channel, Request request) {
-        Response response = new Response();
+    private void onReceiveRequest(Channel channel, Frame frame) {
+        long reqId = frame.getRequestId();
+        if (frame.isExpired(System.currentTimeMillis())) {
+            // 请求方已经不再等待，不解码也不处理
+            frame.release();
+            if (log.isDebugEnabled()) {
+                log.debug("drop expired req[{}]", reqId);
+            }
+            sendFrame(channel, new Frame(Frame.TYPE_RESPONSE, Frame.FLAG_EXPIRED, coder.getId(), reqId, 0, null));
+            return;
+        }
         try {
-            response.setId(request.getId());
-            Object result = cluster.process(request.getData());
+            Object result = cluster.process(decode(frame));
             if (result instanceof CompletableFuture) {
                 CompletableFuture<Object> future = (CompletableFuture<Object>) result;
                 future.whenComplete((res, throwable) -> {
                     try {
-                        response.setData(res);
-                        response.setE(throwable);
-                        byte[] data = coder.encode(response);
-                        channel.send(data);
-                    } catch (IOException e) {
-                        log.error("async response[{}] error by", response.getId(), e);
-                        handleRequestError(channel, response, e);
+                        sendResponse(channel, reqId, res, throwable);
+                    } catch (Throwable e) {
+                        log.error("async response[{}] error by", reqId, e);
+                        sendResponse(channel, reqId, null, e);
                     }
                 });
             } else {
-                response.setData(result);
-                byte[] data = coder.encode(response);
-                channel.send(data);
+                sendResponse(channel, reqId, result, null);
             }
         } catch (Throwable e) {
-            log.error("cluster handle request[{}] error by", response.getId(), e);
-            handleRequestError(channel, response, e);
+            log.error("cluster handle request[{}] error by", reqId, e);
+            sendResponse(channel, reqId, null, e);
         }
 
     }
 
-    private void handleRequestError(Channel channel, Response response, Throwable e) {
+    private void sendResponse(Channel channel, long reqId, Object data, Throwable e) {
+        byte flags = e == null ? 0 : Frame.FLAG_ERROR;
+        sendFrame(channel, new Frame(Frame.TYPE_RESPONSE, flags, coder.getId(), reqId, 0, encode(e == null ? data : e)));
+    }
+
+    private void sendFrame(Channel channel, Frame response) {
         try {
-            response.setE(e);
-            byte[] data = coder.encode(response);
-            channel.send(data);
-        } catch (IOException ex) {
-            throw new RuntimeException(ex);
+            channel.send(response);
+        } catch (ChannelUnwritableException e) {
+            // 请求方处理慢，丢弃响应，请求方在请求的截止时间超时
+            log.warn("drop response of req[{}], {}", response.getRequestId(), e.getMessage());
+        }
+    }
+
+    private ByteBuf encode(Object data) {
+        try {
+            return coder.encode(data);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Object decode(Frame frame) throws IOException {
+        if (frame.getCodec() != coder.getId()) {
+            frame.release();
+            throw new IOException("can't decode message of codec " + frame.getCodec() + ", expected " + coder.getId());
         }
+        return coder.decode(frame.getPayload());
     }
 
-    private void addFuture(String id, Channel channel, CompletableFuture future) {
+    private PendingRequests addFuture(long id, Channel channel, CompletableFuture<?> future) {
         if (log.isDebugEnabled()) {
             log.debug("add req[{}] response future", id);
         }
-        futureOfReqId.put(id, future);
-        channelOfReqId.put(id, channel);
+        PendingRequests pending = pendingOfChannel.computeIfAbsent(channel, c -> new PendingRequests());
+        if (!pending.put(id, future)) {
+            // 连接已断开
+            pendingOfChannel.remove(channel, pending);
+            throw new RuntimeException("channel is disconnected");
+        }
+        return pending;
+    }
+
+    /**
+     * @return 连接上等待响应的请求数
+     */
+    int pendingCount(Channel channel) {
+        PendingRequests pending = pendingOfChannel.get(channel);
+        return pending == null ? 0 : pending.size();
     }
 
-    private CompletableFuture removeFuture(String id) {
-        channelOfReqId.remove(id);
-        return futureOfReqId.remove(id);
+    private CompletableFuture<?> removeFuture(PendingRequests pending, long id) {
+        return pending == null ? null : pending.remove(id);
     }
 }
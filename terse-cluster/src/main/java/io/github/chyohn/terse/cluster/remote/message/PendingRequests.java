@@ -0,0 +1,139 @@
+package io.github.chyohn.terse.cluster.remote.message;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 一个连接上等待响应的请求，请求id到响应future的映射。
+ * <p>
+ * 使用long作为key的开放寻址表（线性探测），避免装箱和链表节点的分配。
+ * 同一连接上的请求和响应并发不高，直接使用对象锁。
+ * 连接断开后{@link #close()}返回所有未完成的请求，之后不能再添加请求。
+ */
+final class PendingRequests {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private CompletableFuture<?>[] futures = new CompletableFuture<?>[INITIAL_CAPACITY];
+    private int size;
+    private boolean closed;
+
+    /**
+     * @param id     请求id
+     * @param future 响应future
+     * @return false 连接已断开
+     */
+    synchronized boolean put(long id, CompletableFuture<?> future) {
+        if (closed) {
+            return false;
+        }
+        // 装载因子不超过0.5，保证探测链足够短
+        if ((size + 1) * 2 > futures.length) {
+            resize(futures.length * 2);
+        }
+        int mask = futures.length - 1;
+        int i = index(id, mask);
+        while (futures[i] != null) {
+            if (ids[i] == id) {
+                futures[i] = future;
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        ids[i] = id;
+        futures[i] = future;
+        size++;
+        return true;
+    }
+
+    /**
+     * @param id 请求id
+     * @return 响应future，null 不存在
+     */
+    synchronized CompletableFuture<?> remove(long id) {
+        int mask = futures.length - 1;
+        int i = index(id, mask);
+        while (futures[i] != null) {
+            if (ids[i] == id) {
+                CompletableFuture<?> future = futures[i];
+                delete(i, mask);
+                size--;
+                return future;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 连接断开，不再接收新的请求
+     *
+     * @return 所有未完成的请求
+     */
+    synchronized List<CompletableFuture<?>> close() {
+        closed = true;
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+        List<CompletableFuture<?>> list = new ArrayList<>(size);
+        for (int i = 0; i < futures.length; i++) {
+            if (futures[i] != null) {
+                list.add(futures[i]);
+                futures[i] = null;
+            }
+        }
+        size = 0;
+        return list;
+    }
+
+    /**
+     * 删除后把探测链上后面的元素前移，不使用删除标记，表不会因为请求的增删而退化
+     */
+    private void delete(int hole, int mask) {
+        futures[hole] = null;
+        int i = (hole + 1) & mask;
+        while (futures[i] != null) {
+            int home = index(ids[i], mask);
+            // home不在(hole, i]之间，说明元素可以移动到hole
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                ids[hole] = ids[i];
+                futures[hole] = futures[i];
+                futures[i] = null;
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldIds = ids;
+        CompletableFuture<?>[] oldFutures = futures;
+        ids = new long[capacity];
+        futures = new CompletableFuture<?>[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldFutures.length; j++) {
+            if (oldFutures[j] == null) {
+                continue;
+            }
+            int i = index(oldIds[j], mask);
+            while (futures[i] != null) {
+                i = (i + 1) & mask;
+            }
+            ids[i] = oldIds[j];
+            futures[i] = oldFutures[j];
+        }
+    }
+
+    private static int index(long id, int mask) {
+        // 请求id是连续递增的，混合高低位后再取模
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
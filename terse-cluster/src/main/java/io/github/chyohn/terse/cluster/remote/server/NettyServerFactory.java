@@ -3,6 +3,7 @@ package io.github.chyohn.terse.cluster.remote.server;
 import io.github.chyohn.terse.cluster.Cluster;
 import io.github.chyohn.terse.cluster.remote.channel.ChannelHandler;
 import io.github.chyohn.terse.cluster.remote.channel.Server;
+import io.github.chyohn.terse.cluster.remote.channel.WriteWatermark;
 import io.github.chyohn.terse.cluster.remote.channel.netty.NettyServer;
 
 import java.io.IOException;
@@ -13,6 +14,6 @@ public class NettyServerFactory extends AbstractServerFactory {
     @Override
     protected Server doCreate(Cluster cluster, InetSocketAddress address,
                               ChannelHandler handler) {
-        return new NettyServer(address, handler);
+        return new NettyServer(address, handler, WriteWatermark.of(cluster.getEnvironment()));
     }
 }
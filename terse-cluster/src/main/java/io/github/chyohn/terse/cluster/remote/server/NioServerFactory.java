@@ -3,6 +3,7 @@ package io.github.chyohn.terse.cluster.remote.server;
 import io.github.chyohn.terse.cluster.Cluster;
 import io.github.chyohn.terse.cluster.remote.channel.ChannelHandler;
 import io.github.chyohn.terse.cluster.remote.channel.Server;
+import io.github.chyohn.terse.cluster.remote.channel.WriteWatermark;
 import io.github.chyohn.terse.cluster.remote.channel.nio.server.NIOServer;
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -13,7 +14,7 @@ public class NioServerFactory extends AbstractServerFactory {
     protected Server doCreate(Cluster cluster, InetSocketAddress address,
                               ChannelHandler handler) {
         try {
-            return new NIOServer(address, handler);
+            return new NIOServer(address, handler, WriteWatermark.of(cluster.getEnvironment()));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
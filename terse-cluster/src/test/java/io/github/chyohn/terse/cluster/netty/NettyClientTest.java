@@ -2,11 +2,13 @@ package io.github.chyohn.terse.cluster.netty;
 
 import io.github.chyohn.terse.cluster.remote.channel.Channel;
 import io.github.chyohn.terse.cluster.remote.channel.ChannelHandler;
+import io.github.chyohn.terse.cluster.remote.codec.Frame;
 import io.github.chyohn.terse.cluster.remote.channel.netty.NettyClient;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import org.junit.jupiter.api.Test;
 
 import java.net.InetSocketAddress;
-import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.Random;
@@ -39,8 +41,9 @@ class NettyClientTest {
 
             @Override
             public void received(Channel channel, Object message) {
-                ByteBuffer buffer = (ByteBuffer) message;
-                String[] ss = new String(buffer.array(), StandardCharsets.UTF_8).split(";;", 2);
+                Frame frame = (Frame) message;
+                String[] ss = frame.getPayload().toString(StandardCharsets.UTF_8).split(";;", 2);
+                frame.release();
                 if (ss.length != 2) {
                     System.out.println("xxxxxx");
                     return;
@@ -70,8 +73,8 @@ class NettyClientTest {
                     String t = id + ";;" + genString(random.nextInt(1024));
                     String msg = t + ";;;" + t;
                     byte[] data = msg.getBytes(StandardCharsets.UTF_8);
-                    ByteBuffer rb = ByteBuffer.wrap(data);
-                    client.send(rb);
+                    ByteBuf rb = Unpooled.wrappedBuffer(data);
+                    client.send(new Frame(Frame.TYPE_REQUEST, (byte) 0, (byte) 0, id, 0, rb));
                     System.out.println(id + "send size: " + data.length);
                     Thread.sleep(100);
                 } catch (Exception e) {
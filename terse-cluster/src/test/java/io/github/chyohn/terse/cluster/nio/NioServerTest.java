@@ -2,11 +2,12 @@ package io.github.chyohn.terse.cluster.nio;
 
 import io.github.chyohn.terse.cluster.remote.channel.Channel;
 import io.github.chyohn.terse.cluster.remote.channel.ChannelHandler;
+import io.github.chyohn.terse.cluster.remote.codec.Frame;
 import io.github.chyohn.terse.cluster.remote.channel.nio.server.NIOServer;
+import io.netty.buffer.Unpooled;
 import org.junit.jupiter.api.Test;
 
 import java.net.InetSocketAddress;
-import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -41,9 +42,10 @@ class NioServerTest {
                     System.out.println((System.currentTimeMillis() - start) + ": " + idg.getAndIncrement());
                     return;
                 }
-                ByteBuffer requestBuffer = (ByteBuffer)message;
+                Frame frame = (Frame) message;
                 // id;;data;;;id;;data
-                String s = new String(requestBuffer.array(), StandardCharsets.UTF_8);
+                String s = frame.getPayload().toString(StandardCharsets.UTF_8);
+                frame.release();
                 String[] ss = s.split(";;;");
                 if (ss.length != 2) {
                     System.out.println("format error, not contain char comma, size: " + s.length() + " data array size: " + ss.length);
@@ -56,7 +58,7 @@ class NioServerTest {
                     System.out.println("true " + id + " t: " + Thread.currentThread().getName());
 
                     byte[] data = ss[0].getBytes(StandardCharsets.UTF_8);
-                    channel.send(data);
+                    channel.send(new Frame(Frame.TYPE_RESPONSE, (byte) 0, (byte) 0, frame.getRequestId(), 0, Unpooled.wrappedBuffer(data)));
                     System.out.println(id + " res size: " + data.length);
                 }
             }
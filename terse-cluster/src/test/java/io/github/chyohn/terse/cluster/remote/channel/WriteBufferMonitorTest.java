@@ -0,0 +1,46 @@
+package io.github.chyohn.terse.cluster.remote.channel;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class WriteBufferMonitorTest {
+
+    WriteBufferMonitor monitor = new WriteBufferMonitor("test", new WriteWatermark(100, 50));
+
+    @Test
+    void testHighWatermark() {
+        monitor.acquire(60);
+        Assertions.assertTrue(monitor.isWritable());
+        // the message crossing the high watermark is accepted, the next one is rejected
+        monitor.acquire(60);
+        Assertions.assertFalse(monitor.isWritable());
+        Assertions.assertEquals(120, monitor.getPendingBytes());
+        Assertions.assertEquals(1, monitor.getHighWatermarkEvents());
+
+        Assertions.assertThrows(ChannelUnwritableException.class, () -> monitor.acquire(1));
+        Assertions.assertEquals(1, monitor.getRejected());
+        Assertions.assertEquals(120, monitor.getPendingBytes());
+    }
+
+    @Test
+    void testLowWatermark() {
+        monitor.acquire(120);
+        // still above the low watermark
+        monitor.release(60);
+        Assertions.assertFalse(monitor.isWritable());
+        monitor.release(20);
+        Assertions.assertTrue(monitor.isWritable());
+        Assertions.assertEquals(40, monitor.getPendingBytes());
+        Assertions.assertEquals(1, monitor.getLowWatermarkEvents());
+
+        monitor.acquire(10);
+        Assertions.assertTrue(monitor.isWritable());
+        Assertions.assertEquals(1, monitor.getHighWatermarkEvents());
+    }
+
+    @Test
+    void testIllegalWatermark() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new WriteWatermark(10, 20));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new WriteWatermark(10, -1));
+    }
+}
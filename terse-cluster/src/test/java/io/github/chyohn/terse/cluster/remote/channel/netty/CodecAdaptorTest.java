@@ -0,0 +1,134 @@
+package io.github.chyohn.terse.cluster.remote.channel.netty;
+
+import io.github.chyohn.terse.cluster.remote.codec.ByteBufCoder;
+import io.github.chyohn.terse.cluster.remote.codec.Frame;
+import io.github.chyohn.terse.cluster.remote.codec.HessianCoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+class CodecAdaptorTest {
+
+    EmbeddedChannel channel = new EmbeddedChannel(CodecAdaptor.INST.newEncoder(), CodecAdaptor.INST.newDecoder());
+
+    @Test
+    void testRoundTrip() {
+        ByteBuf payload = Unpooled.directBuffer().writeBytes("hello".getBytes(StandardCharsets.UTF_8));
+        long deadline = System.currentTimeMillis() + 1000;
+        Assertions.assertTrue(channel.writeOutbound(new Frame(Frame.TYPE_REQUEST, Frame.FLAG_ERROR, (byte) 1, 42,
+                deadline, payload)));
+        ByteBuf wire = channel.readOutbound();
+        Assertions.assertEquals(Frame.HEADER_LENGTH + 5, wire.readableBytes());
+
+        Assertions.assertTrue(channel.writeInbound(wire));
+        Frame frame = channel.readInbound();
+        Assertions.assertEquals(Frame.TYPE_REQUEST, frame.getType());
+        Assertions.assertTrue(frame.hasFlag(Frame.FLAG_ERROR));
+        Assertions.assertEquals(1, frame.getCodec());
+        Assertions.assertEquals(42, frame.getRequestId());
+        Assertions.assertEquals(deadline, frame.getDeadline());
+        Assertions.assertEquals("hello", frame.getPayload().toString(StandardCharsets.UTF_8));
+
+        // the payload is a slice of the inbound buffer, which holds the outbound payload
+        frame.release();
+        Assertions.assertEquals(0, payload.refCnt());
+    }
+
+    @Test
+    void testHeaderInPlace() throws Exception {
+        ByteBufCoder coder = new ByteBufCoder(new HessianCoder());
+        ByteBuf payload = coder.encode("hello");
+        Frame frame = new Frame(Frame.TYPE_RESPONSE, (byte) 0, coder.getId(), 7, 0, payload);
+        Assertions.assertTrue(frame.hasHeadroom());
+        channel.writeOutbound(frame);
+        // the header is written into the room reserved by the coder, the payload is not copied
+        ByteBuf wire = channel.readOutbound();
+        Assertions.assertSame(payload, wire);
+
+        channel.writeInbound(wire);
+        Frame received = channel.readInbound();
+        Assertions.assertEquals(7, received.getRequestId());
+        Assertions.assertEquals("hello", coder.decode(received.getPayload()));
+        Assertions.assertEquals(0, payload.refCnt());
+    }
+
+    @Test
+    void testPartialFrames() {
+        byte[] data = new byte[1000];
+        Arrays.fill(data, (byte) 7);
+        channel.writeOutbound(new Frame(Frame.TYPE_RESPONSE, (byte) 0, (byte) 1, 1, 0, Unpooled.wrappedBuffer(data)));
+        channel.writeOutbound(new Frame(Frame.TYPE_RESPONSE, Frame.FLAG_EXPIRED, (byte) 1, 2, 0, null));
+        ByteBuf wire = Unpooled.buffer();
+        for (ByteBuf buf; (buf = channel.readOutbound()) != null; buf.release()) {
+            wire.writeBytes(buf);
+        }
+
+        // header and payload split across reads
+        channel.writeInbound(wire.readRetainedSlice(10));
+        Assertions.assertNull(channel.readInbound());
+        channel.writeInbound(wire.readRetainedSlice(500));
+        Assertions.assertNull(channel.readInbound());
+        channel.writeInbound(wire.readRetainedSlice(wire.readableBytes()));
+        wire.release();
+
+        Frame first = channel.readInbound();
+        Assertions.assertEquals(1, first.getRequestId());
+        Assertions.assertEquals(1000, first.getLength());
+        first.release();
+        Frame second = channel.readInbound();
+        Assertions.assertEquals(2, second.getRequestId());
+        Assertions.assertTrue(second.hasFlag(Frame.FLAG_EXPIRED));
+        Assertions.assertEquals(0, second.getLength());
+        second.release();
+    }
+
+    @Test
+    void testReleaseDroppedFrames() {
+        // a handler before the encoder drops the frames, as netty does on a failed write
+        EmbeddedChannel dropping = new EmbeddedChannel(CodecAdaptor.INST.newEncoder(), new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                ReferenceCountUtil.release(msg);
+                promise.setFailure(new ClosedChannelException());
+            }
+        });
+        ByteBuf payload = Unpooled.directBuffer().writeBytes(new byte[10]);
+        dropping.write(new Frame(Frame.TYPE_REQUEST, (byte) 0, (byte) 1, 1, 0, payload));
+        Assertions.assertEquals(0, payload.refCnt());
+
+        // the pipeline of a closed channel is removed, the frame is released by the channel
+        ByteBuf closedPayload = Unpooled.directBuffer().writeBytes(new byte[10]);
+        EmbeddedChannel closed = new EmbeddedChannel(CodecAdaptor.INST.newEncoder());
+        closed.close();
+        Assertions.assertFalse(closed.writeAndFlush(new Frame(Frame.TYPE_REQUEST, (byte) 0, (byte) 1, 1, 0,
+                closedPayload)).isSuccess());
+        Assertions.assertEquals(0, closedPayload.refCnt());
+
+        // the frames of a list are released after encoding
+        ByteBuf first = Unpooled.directBuffer().writeBytes(new byte[10]);
+        ByteBuf second = Unpooled.directBuffer().writeBytes(new byte[10]);
+        channel.writeOutbound(Arrays.asList(new Frame(Frame.TYPE_REQUEST, (byte) 0, (byte) 1, 1, 0, first),
+                new Frame(Frame.TYPE_REQUEST, (byte) 0, (byte) 1, 2, 0, second)));
+        for (ByteBuf buf; (buf = channel.readOutbound()) != null; ) {
+            buf.release();
+        }
+        Assertions.assertEquals(0, first.refCnt());
+        Assertions.assertEquals(0, second.refCnt());
+    }
+
+    @Test
+    void testBadMagic() {
+        ByteBuf wire = Unpooled.buffer().writeZero(Frame.HEADER_LENGTH);
+        Assertions.assertThrows(Exception.class, () -> channel.writeInbound(wire));
+    }
+}
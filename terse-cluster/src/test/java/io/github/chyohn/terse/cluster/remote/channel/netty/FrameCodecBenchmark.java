@@ -0,0 +1,75 @@
+package io.github.chyohn.terse.cluster.remote.channel.netty;
+
+import io.github.chyohn.terse.cluster.remote.codec.ByteBufCoder;
+import io.github.chyohn.terse.cluster.remote.codec.Frame;
+import io.github.chyohn.terse.cluster.remote.codec.HessianCoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode a message of {@code size} bytes into a frame, write it through the {@link CodecAdaptor} encoder, read it
+ * back through the decoder and decode the message, as a request travels between two members without the socket.
+ * <p>
+ * Run {@link #main(String[])} to add the gc profiler, {@code gc.alloc.rate.norm} is the bytes allocated per message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameCodecBenchmark {
+
+    @Param({"100", "10240", "1048576"})
+    int size;
+
+    byte[] message;
+    ByteBufCoder coder;
+    EmbeddedChannel channel;
+
+    @Setup
+    public void setup() {
+        message = new byte[size];
+        new Random(size).nextBytes(message);
+        coder = new ByteBufCoder(new HessianCoder());
+        channel = new EmbeddedChannel(CodecAdaptor.INST.newEncoder(), CodecAdaptor.INST.newDecoder());
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public Object roundTrip() throws IOException {
+        channel.writeOutbound(new Frame(Frame.TYPE_REQUEST, (byte) 0, coder.getId(), 1, 0, coder.encode(message)));
+        ByteBuf wire = channel.readOutbound();
+        channel.writeInbound(wire);
+        Frame frame = channel.readInbound();
+        return coder.decode(frame.getPayload());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FrameCodecBenchmark.class.getSimpleName()).addProfiler("gc").build())
+                .run();
+    }
+}
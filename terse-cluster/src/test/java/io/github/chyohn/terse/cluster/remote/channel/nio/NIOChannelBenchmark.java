@@ -0,0 +1,87 @@
+package io.github.chyohn.terse.cluster.remote.channel.nio;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import io.github.chyohn.terse.cluster.remote.channel.Client;
+import io.github.chyohn.terse.cluster.remote.channel.Server;
+import io.github.chyohn.terse.cluster.remote.channel.nio.client.NIOClient;
+import io.github.chyohn.terse.cluster.remote.channel.nio.server.NIOServer;
+import io.github.chyohn.terse.cluster.remote.message.MessageChannelHandlerBenchmark;
+import io.github.chyohn.terse.cluster.remote.message.MessageChannelHandlerImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Send a message of {@code size} bytes from a {@link NIOClient} to a {@link NIOServer} on the loopback interface and
+ * wait for the echo, so both ends read and write through {@link NIOChannel}.
+ * <p>
+ * Run {@link #main(String[])} to add the gc profiler, {@code gc.alloc.rate.norm} is the bytes allocated per round trip
+ * across the client, the server and their I/O threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NIOChannelBenchmark {
+
+    @Param({"100", "10240", "1048576"})
+    int size;
+
+    byte[] message;
+    MessageChannelHandlerImpl handler;
+    Server server;
+    Client client;
+
+    @Setup
+    public void setup() throws Exception {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+        message = new byte[size];
+        new Random(size).nextBytes(message);
+
+        InetSocketAddress address = new InetSocketAddress("127.0.0.1", 19201);
+        server = new NIOServer(address, new MessageChannelHandlerImpl(MessageChannelHandlerBenchmark.echoCluster()));
+        server.start();
+        handler = new MessageChannelHandlerImpl(MessageChannelHandlerBenchmark.echoCluster());
+        client = new NIOClient(address, handler);
+        client.start();
+        for (int i = 0; i < 50 && !client.isConnected(); i++) {
+            Thread.sleep(100);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public Object roundTrip() throws Exception {
+        return handler.send(client, message, 5000).get(5, TimeUnit.SECONDS);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NIOChannelBenchmark.class.getSimpleName()).addProfiler("gc").build())
+                .run();
+    }
+}
@@ -0,0 +1,154 @@
+package io.github.chyohn.terse.cluster.remote.message;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import io.github.chyohn.terse.cluster.Cluster;
+import io.github.chyohn.terse.cluster.config.DefaultEnvironment;
+import io.github.chyohn.terse.cluster.remote.channel.Channel;
+import io.github.chyohn.terse.cluster.remote.channel.ChannelHandler;
+import io.github.chyohn.terse.cluster.remote.codec.Frame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Request round trips through {@link MessageChannelHandlerImpl} over an in-memory channel: encode the request, track
+ * the pending future, write and read the frame header, decode and process it on the server handler, encode the
+ * response and complete the future.
+ * {@code otherPending} requests are left outstanding on another channel that never responds, as a slow member does.
+ * <p>
+ * {@link #reconnect()} sends one request on a new channel and disconnects it, the cost of failing the pending
+ * requests of a broken connection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageChannelHandlerBenchmark {
+
+    @Param({"0", "10000"})
+    int otherPending;
+
+    MessageChannelHandlerImpl client;
+    MessageChannelHandlerImpl server;
+    Channel clientChannel;
+
+    @Setup
+    public void setup() {
+        // the test logback.xml logs every request at debug level
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+        client = new MessageChannelHandlerImpl(echoCluster());
+        server = new MessageChannelHandlerImpl(echoCluster());
+        clientChannel = loopback(client, server);
+        Channel silent = new MemoryChannel(client, message -> {
+        });
+        for (int i = 0; i < otherPending; i++) {
+            client.send(silent, "ping");
+        }
+    }
+
+    @Benchmark
+    public Object roundTrip() {
+        return client.send(clientChannel, "ping").join();
+    }
+
+    @Benchmark
+    public void reconnect() {
+        Channel channel = new MemoryChannel(client, message -> {
+        });
+        client.send(channel, "ping");
+        client.disconnected(channel);
+    }
+
+    static Channel loopback(ChannelHandler client, ChannelHandler server) {
+        MemoryChannel[] pair = new MemoryChannel[2];
+        pair[0] = new MemoryChannel(client, message -> server.received(pair[1], transfer(message)));
+        pair[1] = new MemoryChannel(server, message -> client.received(pair[0], transfer(message)));
+        return pair[0];
+    }
+
+    /**
+     * write and read the header as the transports do
+     */
+    static Frame transfer(Object message) {
+        Frame frame = (Frame) message;
+        try {
+            return Frame.readHeader(frame.header()).toFrame(frame.getPayload());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static Cluster echoCluster() {
+        DefaultEnvironment environment = new DefaultEnvironment();
+        return (Cluster) Proxy.newProxyInstance(Cluster.class.getClassLoader(), new Class[]{Cluster.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getEnvironment":
+                            return environment;
+                        case "process":
+                            return args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    static class MemoryChannel implements Channel {
+        final ChannelHandler handler;
+        final Consumer<Object> peer;
+
+        MemoryChannel(ChannelHandler handler, Consumer<Object> peer) {
+            this.handler = handler;
+            this.peer = peer;
+        }
+
+        @Override
+        public void send(Object message) {
+            peer.accept(message);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean isClosed() {
+            return false;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public ChannelHandler getChannelHandler() {
+            return handler;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MessageChannelHandlerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,122 @@
+package io.github.chyohn.terse.cluster.remote.message;
+
+import io.github.chyohn.terse.cluster.remote.channel.Channel;
+import io.github.chyohn.terse.cluster.remote.channel.ChannelUnwritableException;
+import io.github.chyohn.terse.cluster.remote.codec.ByteBufCoder;
+import io.github.chyohn.terse.cluster.remote.codec.Frame;
+import io.github.chyohn.terse.cluster.remote.codec.HessianCoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+class MessageChannelHandlerImplTest {
+
+    MessageChannelHandlerImpl client = new MessageChannelHandlerImpl(MessageChannelHandlerBenchmark.echoCluster());
+    MessageChannelHandlerImpl server = new MessageChannelHandlerImpl(MessageChannelHandlerBenchmark.echoCluster());
+
+    @AfterEach
+    void close() {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    void testRoundTrip() throws Exception {
+        Channel channel = MessageChannelHandlerBenchmark.loopback(client, server);
+        Assertions.assertEquals("ping", client.send(channel, "ping", 1000).get(1, TimeUnit.SECONDS));
+        Assertions.assertEquals("pong", client.send(channel, "pong").get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testDropExpiredRequest() {
+        List<Frame> responses = new ArrayList<>();
+        Channel channel = new MessageChannelHandlerBenchmark.MemoryChannel(server, m -> responses.add((Frame) m));
+        // the body is not decoded
+        ByteBuf garbage = Unpooled.wrappedBuffer(new byte[]{1, 2, 3});
+        server.received(channel, new Frame(Frame.TYPE_REQUEST, (byte) 0, HessianCoder.ID, 7,
+                System.currentTimeMillis() - 1, garbage));
+
+        Assertions.assertEquals(1, responses.size());
+        Frame response = responses.get(0);
+        Assertions.assertEquals(Frame.TYPE_RESPONSE, response.getType());
+        Assertions.assertEquals(7, response.getRequestId());
+        Assertions.assertTrue(response.hasFlag(Frame.FLAG_EXPIRED));
+        Assertions.assertEquals(0, response.getLength());
+        Assertions.assertEquals(0, garbage.refCnt());
+    }
+
+    @Test
+    void testDropResponseWhenUnwritable() {
+        Channel channel = new MessageChannelHandlerBenchmark.MemoryChannel(server, m -> {
+            ((Frame) m).release();
+            throw new ChannelUnwritableException("full");
+        });
+        ByteBuf request = encode("ping");
+        server.received(channel, new Frame(Frame.TYPE_REQUEST, (byte) 0, HessianCoder.ID, 7, 0, request));
+        Assertions.assertEquals(0, request.refCnt());
+    }
+
+    @Test
+    void testExpiredResponse() {
+        List<Frame> requests = new ArrayList<>();
+        Channel channel = new MessageChannelHandlerBenchmark.MemoryChannel(client, m -> requests.add((Frame) m));
+        CompletableFuture<Object> future = client.send(channel, "ping", 1000);
+        long id = requests.get(0).getRequestId();
+        client.received(channel, new Frame(Frame.TYPE_RESPONSE, Frame.FLAG_EXPIRED, HessianCoder.ID, id, 0, null));
+
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, future::get);
+        Assertions.assertInstanceOf(TimeoutException.class, e.getCause());
+    }
+
+    @Test
+    void testTimeout() throws InterruptedException {
+        Channel channel = new MessageChannelHandlerBenchmark.MemoryChannel(client, m -> ((Frame) m).release());
+        CompletableFuture<Object> future = client.send(channel, "ping", 50);
+        Assertions.assertEquals(1, client.pendingCount(channel));
+
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(TimeoutException.class, e.getCause());
+        Assertions.assertEquals(0, client.pendingCount(channel));
+    }
+
+    @Test
+    void testDisconnected() {
+        Channel channel = new MessageChannelHandlerBenchmark.MemoryChannel(client, m -> {
+        });
+        CompletableFuture<Object> first = client.send(channel, "ping");
+        CompletableFuture<Object> second = client.send(channel, "ping");
+        client.disconnected(channel);
+        Assertions.assertTrue(first.isCancelled());
+        Assertions.assertTrue(second.isCancelled());
+    }
+
+    @Test
+    void testClose() {
+        Channel channel = new MessageChannelHandlerBenchmark.MemoryChannel(client, m -> ((Frame) m).release());
+        CompletableFuture<Object> future = client.send(channel, "ping", 10_000);
+        client.close();
+        Assertions.assertTrue(future.isCancelled());
+        Assertions.assertEquals(0, client.pendingCount(channel));
+        // the timer is stopped
+        Assertions.assertThrows(RuntimeException.class, () -> client.send(channel, "ping", 1000));
+        Assertions.assertEquals(0, client.pendingCount(channel));
+    }
+
+    private static ByteBuf encode(Object message) {
+        try {
+            return new ByteBufCoder(new HessianCoder()).encode(message);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
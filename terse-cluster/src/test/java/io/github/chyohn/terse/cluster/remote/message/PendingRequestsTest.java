@@ -0,0 +1,68 @@
+package io.github.chyohn.terse.cluster.remote.message;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+class PendingRequestsTest {
+
+    @Test
+    void testPutAndRemove() {
+        PendingRequests pending = new PendingRequests();
+        CompletableFuture<Object> first = new CompletableFuture<>();
+        CompletableFuture<Object> second = new CompletableFuture<>();
+        Assertions.assertTrue(pending.put(1, first));
+        Assertions.assertTrue(pending.put(2, second));
+        Assertions.assertEquals(2, pending.size());
+
+        Assertions.assertSame(first, pending.remove(1));
+        Assertions.assertNull(pending.remove(1));
+        Assertions.assertSame(second, pending.remove(2));
+        Assertions.assertEquals(0, pending.size());
+    }
+
+    @Test
+    void testRandomOperations() {
+        // compare with HashMap, the removals shift the probe chains
+        PendingRequests pending = new PendingRequests();
+        Map<Long, CompletableFuture<?>> expected = new HashMap<>();
+        Random random = new Random(7);
+        long next = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (expected.isEmpty() || random.nextInt(3) > 0) {
+                long id = ++next;
+                CompletableFuture<?> future = new CompletableFuture<>();
+                pending.put(id, future);
+                expected.put(id, future);
+            } else {
+                // responses arrive out of order
+                long id = next - random.nextInt((int) Math.min(next, 64));
+                Assertions.assertSame(expected.remove(id), pending.remove(id));
+            }
+            Assertions.assertEquals(expected.size(), pending.size());
+        }
+        for (Map.Entry<Long, CompletableFuture<?>> entry : expected.entrySet()) {
+            Assertions.assertSame(entry.getValue(), pending.remove(entry.getKey()));
+        }
+    }
+
+    @Test
+    void testClose() {
+        PendingRequests pending = new PendingRequests();
+        for (int i = 1; i <= 100; i++) {
+            pending.put(i, new CompletableFuture<>());
+        }
+        pending.remove(50);
+        List<CompletableFuture<?>> futures = pending.close();
+        Assertions.assertEquals(99, futures.size());
+        Assertions.assertEquals(0, pending.size());
+        // disconnected channel
+        Assertions.assertFalse(pending.put(101, new CompletableFuture<>()));
+        Assertions.assertTrue(pending.close().isEmpty());
+    }
+}
@@ -16,10 +16,17 @@
 
 package io.github.chyohn.terse;
 
+import io.github.chyohn.terse.breaker.CircuitBreakers;
+import io.github.chyohn.terse.breaker.ICircuitBreakerListener;
+import io.github.chyohn.terse.breaker.ICircuitBreakerMetrics;
+import io.github.chyohn.terse.cluster.HedgePolicy;
 import io.github.chyohn.terse.cluster.IClusterClient;
+import io.github.chyohn.terse.cluster.IHedgeMetrics;
+import io.github.chyohn.terse.cluster.IWriteBufferMetrics;
 import io.github.chyohn.terse.command.*;
 import io.github.chyohn.terse.enums.RunningWay;
 import io.github.chyohn.terse.flow.IFlowContext;
+import io.github.chyohn.terse.flow.IFlowEventLoopMetrics;
 import io.github.chyohn.terse.flow.IFlowExecutor;
 import io.github.chyohn.terse.flow.ISummaryTask;
 import io.github.chyohn.terse.command.threadpool.ThreadPoolReceiverFactory;
@@ -27,8 +34,13 @@ import io.github.chyohn.terse.spi.ISpiFactory;
 import io.github.chyohn.terse.stream.TerseConditionBuilder;
 import io.github.chyohn.terse.stream.TerseFlow;
 import io.github.chyohn.terse.stream.TerseFlowBuilder;
+import io.github.chyohn.terse.timer.HashedWheelTimer;
+import io.github.chyohn.terse.timer.ITimerMetrics;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -52,6 +64,7 @@ public abstract class Terse {
             return;
         }
         clusterClient.onInit(config);
+        commandInvoker().onClusterInit();
     }
 
     /**
@@ -125,6 +138,135 @@ public abstract class Terse {
         executor.execute(summaryTask, context, RunningWay.PARALLEL);
     }
 
+    /**
+     * execute the indicate context with {@link ISummaryTask} object, and return immediately without waiting the tasks
+     *
+     * @param summaryTask summary task
+     * @param context flow context
+     * @param <C>     type of flow context
+     * @return future completed with the context after the flow finished
+     */
+    public static <C extends IFlowContext> CompletableFuture<C> executeAsync(ISummaryTask<C> summaryTask, C context) {
+        IFlowExecutor executor = ISpiFactory.get(IFlowExecutor.class);
+        return executor.executeAsync(summaryTask, context, RunningWay.PARALLEL);
+    }
+
+    /**
+     * @return the metrics of flow event loops, empty if event loops not enabled
+     */
+    public static List<IFlowEventLoopMetrics> flowEventLoopMetrics() {
+        return ISpiFactory.get(IFlowExecutor.class).eventLoopMetrics();
+    }
+
+    /**
+     * @return the metrics of the timer which schedules the timeouts of commands and flows
+     */
+    public static ITimerMetrics commandTimerMetrics() {
+        return HashedWheelTimer.commandTimer();
+    }
+
+    /**
+     * @return the metrics of the command types executed in batches, see {@link IReceiverBuilder#onReceiveBatch}
+     */
+    public static List<IBatchMetrics> batchMetrics() {
+        return ISpiFactory.get(IReceiverRegistry.class).batchMetrics();
+    }
+
+    /**
+     * @return the metrics of the {@link ICoalescible} commands merged into in-flight executions
+     */
+    public static ICoalescingMetrics coalescingMetrics() {
+        return commandInvoker().coalescingMetrics();
+    }
+
+    /**
+     * cache the results of the command type, see {@link CachePolicy}
+     *
+     * @param type   command type
+     * @param policy cache policy
+     * @param <T>    command type
+     */
+    public static <T extends ICommand> void cacheResults(Class<T> type, CachePolicy<T> policy) {
+        commandInvoker().cacheResults(type, policy);
+    }
+
+    /**
+     * invalidate the cached result of the command, on all online nodes in cluster mode, best effort without retry
+     *
+     * @param command command
+     */
+    public static void invalidateResult(ICommand command) {
+        commandInvoker().invalidateResult(command);
+    }
+
+    /**
+     * invalidate all cached results of the command type, on all online nodes in cluster mode, best effort without retry
+     *
+     * @param type command type
+     */
+    public static void invalidateResults(Class<? extends ICommand> type) {
+        commandInvoker().invalidateResults(type);
+    }
+
+    /**
+     * @return the metrics of the command types whose results are cached
+     */
+    public static List<ICacheMetrics> cacheMetrics() {
+        return commandInvoker().cacheMetrics();
+    }
+
+    /**
+     * @return the metrics of the adaptive concurrency limits of the command types on their executors,
+     * enabled by the system property {@code terse.limiter.enabled}
+     */
+    public static List<IConcurrencyLimitMetrics> concurrencyLimitMetrics() {
+        return ISpiFactory.get(IReceiverRegistry.class).concurrencyLimitMetrics();
+    }
+
+    /**
+     * @return the metrics of the circuit breakers of the command types and cluster members,
+     * enabled by the system property {@code terse.breaker.enabled}
+     */
+    public static List<ICircuitBreakerMetrics> circuitBreakerMetrics() {
+        return CircuitBreakers.metrics();
+    }
+
+    /**
+     * @param listener the listener of the state transitions of all circuit breakers
+     */
+    public static void addCircuitBreakerListener(ICircuitBreakerListener listener) {
+        CircuitBreakers.addListener(listener);
+    }
+
+    /**
+     * hedge the cluster requests of the command type, see {@link HedgePolicy}
+     *
+     * @param type   command type
+     * @param policy hedge policy
+     */
+    public static void hedgeRequests(Class<? extends ICommand> type, HedgePolicy policy) {
+        IClusterClient clusterClient = ISpiFactory.get(IClusterClient.class, false);
+        if (clusterClient == null) {
+            throw new IllegalStateException("no cluster client found");
+        }
+        clusterClient.hedgeRequests(type, policy);
+    }
+
+    /**
+     * @return the metrics of the command types whose cluster requests are hedged
+     */
+    public static List<IHedgeMetrics> hedgeMetrics() {
+        IClusterClient clusterClient = ISpiFactory.get(IClusterClient.class, false);
+        return clusterClient == null ? Collections.emptyList() : clusterClient.hedgeMetrics();
+    }
+
+    /**
+     * @return the metrics of the outbound buffers of the connections to remote members
+     */
+    public static List<IWriteBufferMetrics> writeBufferMetrics() {
+        IClusterClient clusterClient = ISpiFactory.get(IClusterClient.class, false);
+        return clusterClient == null ? Collections.emptyList() : clusterClient.writeBufferMetrics();
+    }
 
     /**
      * @return batch invoker that can submit the commands to receiver
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.chyohn.terse.breaker;
+
+import io.github.chyohn.terse.anotations.Internal;
+import io.github.chyohn.terse.enums.CircuitState;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * a circuit breaker over a count based sliding window of the latest calls.
+ * <p>
+ * CLOSED: all calls are permitted. once the window holds at least the minimum calls, the breaker opens
+ * when the failure rate or the slow call rate reaches its threshold.
+ * <p>
+ * OPEN: all calls are rejected. the first call after the wait duration moves the breaker to HALF_OPEN.
+ * <p>
+ * HALF_OPEN: a limited count of probe calls are permitted, the others are rejected. the breaker closes when
+ * all probes succeed in time, and opens again on the first failed or slow probe. a probe that is cancelled gives its
+ * permit back by {@link #release()}, and if the probes are still not all recorded after the wait duration, the
+ * breaker opens again so that a lost probe can not keep it half open for good.
+ * <p>
+ * the window is guarded by the breaker's monitor, listeners are called outside of it.
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@Internal
+public final class CircuitBreaker implements ICircuitBreakerMetrics {
+
+    private static final byte FAILURE = 1;
+    private static final byte SLOW = 2;
+
+    private final String name;
+    private final CircuitBreakers.Config config;
+    private final long slowCallNanos;
+    private final long openNanos;
+
+    // the outcomes of the latest calls, in a ring
+    private final byte[] window;
+    private int head;
+    private int size;
+    private int failures;
+    private int slowCalls;
+
+    private volatile CircuitState state = CircuitState.CLOSED;
+    private volatile long openedAt;
+    private volatile long halfOpenedAt;
+    // permits left and probes pending in HALF_OPEN
+    private final AtomicInteger probePermits = new AtomicInteger();
+    private int probesPending;
+    private final LongAdder notPermitted = new LongAdder();
+
+    CircuitBreaker(String name, CircuitBreakers.Config config) {
+        this.name = name;
+        this.config = config;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(config.slowCallMillis);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(config.openMillis);
+        this.window = new byte[config.windowSize];
+    }
+
+    /**
+     * acquire the permission to execute a call, the permitted call must be recorded by {@link #onResult} or given
+     * back by {@link #release()}
+     *
+     * @return false if the call is rejected
+     */
+    public boolean tryAcquire() {
+        CircuitState s = state;
+        if (s == CircuitState.CLOSED) {
+            return true;
+        }
+        if (s == CircuitState.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos || !transition(CircuitState.OPEN, CircuitState.HALF_OPEN)) {
+                return rejected();
+            }
+        }
+        for (;;) {
+            int permits = probePermits.get();
+            if (permits <= 0) {
+                if (state == CircuitState.HALF_OPEN && System.nanoTime() - halfOpenedAt >= openNanos) {
+                    // the pending probes are lost
+                    transition(CircuitState.HALF_OPEN, CircuitState.OPEN);
+                }
+                return rejected();
+            }
+            if (probePermits.compareAndSet(permits, permits - 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * record the outcome of a permitted call
+     *
+     * @param durationNanos the duration of the call
+     * @param failure       true if the call failed
+     */
+    public void onResult(long durationNanos, boolean failure) {
+        byte outcome = (byte) ((failure ? FAILURE : 0) | (durationNanos >= slowCallNanos ? SLOW : 0));
+        CircuitState from;
+        CircuitState to = null;
+        synchronized (this) {
+            from = state;
+            if (from == CircuitState.CLOSED) {
+                record(outcome);
+                if (size >= config.minimumCalls && (failures * 100 >= config.failureRateThreshold * size
+                        || slowCalls * 100 >= config.slowCallRateThreshold * size)) {
+                    to = CircuitState.OPEN;
+                }
+            } else if (from == CircuitState.HALF_OPEN) {
+                if (outcome != 0) {
+                    to = CircuitState.OPEN;
+                } else if (--probesPending <= 0) {
+                    to = CircuitState.CLOSED;
+                }
+            }
+            // the call permitted before the breaker opened is ignored
+            if (to != null) {
+                enter(to);
+            }
+        }
+        if (to != null) {
+            CircuitBreakers.fire(this, from, to);
+        }
+    }
+
+    /**
+     * give back the permission of a call whose outcome will not be recorded, e.g. it was cancelled before it
+     * completed. in HALF_OPEN the probe permit is returned for another call.
+     */
+    public void release() {
+        synchronized (this) {
+            if (state == CircuitState.HALF_OPEN && probePermits.get() < probesPending) {
+                probePermits.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * reset to CLOSED and clear the window
+     */
+    public void reset() {
+        CircuitState from;
+        synchronized (this) {
+            from = state;
+            enter(CircuitState.CLOSED);
+        }
+        if (from != CircuitState.CLOSED) {
+            CircuitBreakers.fire(this, from, CircuitState.CLOSED);
+        }
+    }
+
+    private boolean rejected() {
+        notPermitted.increment();
+        return false;
+    }
+
+    private boolean transition(CircuitState from, CircuitState to) {
+        synchronized (this) {
+            if (state != from) {
+                // another thread has made the transition
+                return state == to;
+            }
+            enter(to);
+        }
+        CircuitBreakers.fire(this, from, to);
+        return true;
+    }
+
+    private void enter(CircuitState to) {
+        switch (to) {
+            case OPEN:
+                openedAt = System.nanoTime();
+                probePermits.set(0);
+                break;
+            case HALF_OPEN:
+                halfOpenedAt = System.nanoTime();
+                probesPending = config.halfOpenCalls;
+                probePermits.set(config.halfOpenCalls);
+                break;
+            default:
+                head = 0;
+                size = 0;
+                failures = 0;
+                slowCalls = 0;
+                probePermits.set(0);
+                break;
+        }
+        state = to;
+    }
+
+    private void record(byte outcome) {
+        if (size == window.length) {
+            byte evicted = window[head];
+            failures -= evicted & FAILURE;
+            slowCalls -= (evicted & SLOW) >> 1;
+        } else {
+            size++;
+        }
+        window[head] = outcome;
+        failures += outcome & FAILURE;
+        slowCalls += (outcome & SLOW) >> 1;
+        head = head + 1 == window.length ? 0 : head + 1;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public CircuitState state() {
+        return state;
+    }
+
+    @Override
+    public synchronized float failureRate() {
+        return size < config.minimumCalls ? -1 : failures * 100F / size;
+    }
+
+    @Override
+    public synchronized float slowCallRate() {
+        return size < config.minimumCalls ? -1 : slowCalls * 100F / size;
+    }
+
+    @Override
+    public synchronized int bufferedCalls() {
+        return size;
+    }
+
+    @Override
+    public long notPermittedCalls() {
+        return notPermitted.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker[" + name + ", " + state + ", failureRate=" + failureRate()
+                + ", slowCallRate=" + slowCallRate() + ", notPermitted=" + notPermittedCalls() + "]";
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.chyohn.terse.breaker;
+
+import io.github.chyohn.terse.anotations.Internal;
+import io.github.chyohn.terse.enums.CircuitState;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * the registry of circuit breakers, shared by the command invoker (one breaker per command type)
+ * and the cluster client (one breaker per member).
+ * <p>
+ * disabled by default, enabled by the system property {@value #ENABLED_KEY}. the breakers are configured by
+ * the system properties with prefix {@code terse.breaker.}: windowSize, minimumCalls, failureRateThreshold,
+ * slowCallRateThreshold, slowCallMillis, openMillis and halfOpenCalls.
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@Slf4j
+@Internal
+public final class CircuitBreakers {
+
+    public static final String ENABLED_KEY = "terse.breaker.enabled";
+    public static final boolean ENABLED = Boolean.getBoolean(ENABLED_KEY);
+
+    private static final Config DEFAULT_CONFIG = new Config(
+            Integer.getInteger("terse.breaker.windowSize", 100),
+            Integer.getInteger("terse.breaker.minimumCalls", 20),
+            Integer.getInteger("terse.breaker.failureRateThreshold", 50),
+            Integer.getInteger("terse.breaker.slowCallRateThreshold", 80),
+            Long.getLong("terse.breaker.slowCallMillis", 2000),
+            Long.getLong("terse.breaker.openMillis", 5000),
+            Integer.getInteger("terse.breaker.halfOpenCalls", 5));
+
+    private static final ConcurrentMap<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+    private static final List<ICircuitBreakerListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private CircuitBreakers() {
+    }
+
+    /**
+     * @param name the command type or the cluster member
+     * @return the breaker of the name, created with the configuration of system properties
+     */
+    public static CircuitBreaker get(String name) {
+        CircuitBreaker breaker = BREAKERS.get(name);
+        return breaker != null ? breaker : BREAKERS.computeIfAbsent(name, n -> new CircuitBreaker(n, DEFAULT_CONFIG));
+    }
+
+    /**
+     * create a breaker which is not registered, for the caller who manages its lifecycle
+     *
+     * @param name   the name
+     * @param config the configuration
+     * @return the breaker
+     */
+    public static CircuitBreaker create(String name, Config config) {
+        return new CircuitBreaker(name, config);
+    }
+
+    /**
+     * @return the metrics of all registered breakers
+     */
+    public static List<ICircuitBreakerMetrics> metrics() {
+        return new ArrayList<>(BREAKERS.values());
+    }
+
+    /**
+     * @param listener the listener of the state transitions of all breakers
+     */
+    public static void addListener(ICircuitBreakerListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(ICircuitBreakerListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    static void fire(CircuitBreaker breaker, CircuitState from, CircuitState to) {
+        if (to == CircuitState.OPEN) {
+            log.warn("circuit breaker {} transitioned from {} to {}", breaker, from, to);
+        } else {
+            log.info("circuit breaker {} transitioned from {} to {}", breaker.name(), from, to);
+        }
+        for (ICircuitBreakerListener listener : LISTENERS) {
+            try {
+                listener.onStateTransition(breaker, from, to);
+            } catch (Throwable e) {
+                log.error("circuit breaker listener {} error", listener, e);
+            }
+        }
+    }
+
+    /**
+     * the configuration of a breaker
+     */
+    public static final class Config {
+        final int windowSize;
+        final int minimumCalls;
+        final int failureRateThreshold;
+        final int slowCallRateThreshold;
+        final long slowCallMillis;
+        final long openMillis;
+        final int halfOpenCalls;
+
+        /**
+         * @param windowSize            the count of latest calls to compute the rates
+         * @param minimumCalls          the minimum calls in the window before the rates are computed
+         * @param failureRateThreshold  the failure rate percentage to open the breaker
+         * @param slowCallRateThreshold the slow call rate percentage to open the breaker
+         * @param slowCallMillis        the duration above which a call is slow
+         * @param openMillis            the duration to stay OPEN before probing
+         * @param halfOpenCalls         the count of probe calls in HALF_OPEN
+         */
+        public Config(int windowSize, int minimumCalls, int failureRateThreshold, int slowCallRateThreshold,
+                      long slowCallMillis, long openMillis, int halfOpenCalls) {
+            if (windowSize <= 0 || halfOpenCalls <= 0) {
+                throw new IllegalArgumentException("windowSize and halfOpenCalls must be positive");
+            }
+            this.windowSize = windowSize;
+            this.minimumCalls = Math.max(1, Math.min(minimumCalls, windowSize));
+            this.failureRateThreshold = failureRateThreshold;
+            this.slowCallRateThreshold = slowCallRateThreshold;
+            this.slowCallMillis = slowCallMillis;
+            this.openMillis = openMillis;
+            this.halfOpenCalls = halfOpenCalls;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.chyohn.terse.breaker;
+
+import io.github.chyohn.terse.anotations.External;
+import io.github.chyohn.terse.enums.CircuitState;
+
+/**
+ * the listener of the state transitions of circuit breakers, see {@link CircuitBreakers#addListener}.
+ * called on the thread which records the call or acquires the permission, so it should return quickly
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@External
+@FunctionalInterface
+public interface ICircuitBreakerListener {
+
+    /**
+     * @param breaker the breaker
+     * @param from    the state before
+     * @param to      the state after
+     */
+    void onStateTransition(ICircuitBreakerMetrics breaker, CircuitState from, CircuitState to);
+}
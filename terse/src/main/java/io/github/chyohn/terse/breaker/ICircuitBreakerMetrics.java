@@ -0,0 +1,59 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.chyohn.terse.breaker;
+
+import io.github.chyohn.terse.anotations.External;
+import io.github.chyohn.terse.enums.CircuitState;
+
+/**
+ * the metrics of a circuit breaker
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@External
+public interface ICircuitBreakerMetrics {
+
+    /**
+     * @return the name of the breaker, the command type or the cluster member it protects
+     */
+    String name();
+
+    /**
+     * @return the current state
+     */
+    CircuitState state();
+
+    /**
+     * @return the percentage of failed calls in the sliding window, -1 if less than the minimum calls
+     */
+    float failureRate();
+
+    /**
+     * @return the percentage of slow calls in the sliding window, -1 if less than the minimum calls
+     */
+    float slowCallRate();
+
+    /**
+     * @return the count of calls in the sliding window
+     */
+    int bufferedCalls();
+
+    /**
+     * @return the count of calls rejected because the breaker is open
+     */
+    long notPermittedCalls();
+}
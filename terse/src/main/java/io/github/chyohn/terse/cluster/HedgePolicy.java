@@ -0,0 +1,138 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.chyohn.terse.cluster;
+
+import io.github.chyohn.terse.anotations.External;
+import io.github.chyohn.terse.command.ICommand;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the policy to hedge the cluster requests of a command type, see {@link IClusterClient#hedgeRequests(Class, HedgePolicy)}.
+ * <p>
+ * if no response arrives within the hedge delay, a duplicate request is sent to another member, the first response wins
+ * and the other request is cancelled. the delay is fixed, or the percentile of the observed response times.
+ * the duplicate requests are limited to a ratio of all requests, so a slow cluster is not overloaded by hedging.
+ * <p>
+ * only commands which are safe to execute twice should be hedged.
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@External
+public final class HedgePolicy {
+
+    private final long delayNanos;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final double maxHedgeRatio;
+
+    private HedgePolicy(Builder builder) {
+        this.delayNanos = builder.delayNanos;
+        this.percentile = builder.percentile;
+        this.minDelayNanos = builder.minDelayNanos;
+        this.maxHedgeRatio = builder.maxHedgeRatio;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the fixed delay, 0 if the delay is the percentile of response times
+     */
+    public long getDelayNanos() {
+        return delayNanos;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public long getMinDelayNanos() {
+        return minDelayNanos;
+    }
+
+    public double getMaxHedgeRatio() {
+        return maxHedgeRatio;
+    }
+
+    public static final class Builder {
+
+        private long delayNanos;
+        private double percentile = 95;
+        private long minDelayNanos = TimeUnit.MILLISECONDS.toNanos(5);
+        private double maxHedgeRatio = 0.05;
+
+        private Builder() {
+        }
+
+        /**
+         * @param delay the fixed delay to send the duplicate request
+         * @param unit  the unit of delay
+         * @return this builder
+         */
+        public Builder delay(long delay, TimeUnit unit) {
+            if (delay <= 0) {
+                throw new IllegalArgumentException("delay must be positive, but " + delay);
+            }
+            this.delayNanos = unit.toNanos(delay);
+            return this;
+        }
+
+        /**
+         * @param percentile the delay is the percentile of the observed response times, default 95
+         * @return this builder
+         */
+        public Builder percentile(double percentile) {
+            if (percentile <= 0 || percentile >= 100) {
+                throw new IllegalArgumentException("percentile must be in (0, 100), but " + percentile);
+            }
+            this.delayNanos = 0;
+            this.percentile = percentile;
+            return this;
+        }
+
+        /**
+         * @param minDelay the lower bound of the percentile delay, default 5 milliseconds
+         * @param unit     the unit of minDelay
+         * @return this builder
+         */
+        public Builder minDelay(long minDelay, TimeUnit unit) {
+            if (minDelay < 0) {
+                throw new IllegalArgumentException("minDelay must not be negative, but " + minDelay);
+            }
+            this.minDelayNanos = unit.toNanos(minDelay);
+            return this;
+        }
+
+        /**
+         * @param maxHedgeRatio the max ratio of duplicate requests to all requests, default 0.05
+         * @return this builder
+         */
+        public Builder maxHedgeRatio(double maxHedgeRatio) {
+            if (maxHedgeRatio <= 0 || maxHedgeRatio > 1) {
+                throw new IllegalArgumentException("maxHedgeRatio must be in (0, 1], but " + maxHedgeRatio);
+            }
+            this.maxHedgeRatio = maxHedgeRatio;
+            return this;
+        }
+
+        public HedgePolicy build() {
+            return new HedgePolicy(this);
+        }
+    }
+}
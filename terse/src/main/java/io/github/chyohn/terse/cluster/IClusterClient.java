@@ -16,13 +16,17 @@
 
 package io.github.chyohn.terse.cluster;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import io.github.chyohn.terse.cluster.broadcast.IBroadcaster;
 import io.github.chyohn.terse.function.Callback2;
+import io.github.chyohn.terse.command.CancellationToken;
 import io.github.chyohn.terse.command.ICommand;
 import io.github.chyohn.terse.command.IResult;
 import io.github.chyohn.terse.spi.SPI;
+import org.slf4j.LoggerFactory;
 
 /**
  * 提供集群服务能力
@@ -67,9 +71,58 @@ public interface IClusterClient {
     void request(ICommand request, Callback2<IResult<?>, Throwable> callable);
 
     /**
-     * 获取广播器
+     * 从集群中获取请求结果，取消时中断本地执行或通知远程节点取消
      *
-     * @return a broadcaster
+     * @param request      请求对象
+     * @param cancellation 取消请求
+     * @param callable     请求结果回调
+     */
+    default void request(ICommand request, CancellationToken cancellation, Callback2<IResult<?>, Throwable> callable) {
+        request(request, callable);
+    }
+
+    /**
+     * 从集群中获取请求结果，远程节点执行和等待响应都以命令的超时时间截止
+     *
+     * @param request       请求对象
+     * @param timeoutMillis 命令的超时时间，&lt;=0不超时
+     * @param cancellation  取消请求
+     * @param callable      请求结果回调
+     */
+    default void request(ICommand request, long timeoutMillis, CancellationToken cancellation,
+                         Callback2<IResult<?>, Throwable> callable) {
+        request(request, cancellation, callable);
+    }
+
+    /**
+     * 对命令类型的请求启用对冲，见{@link HedgePolicy}。不支持对冲的实现忽略策略，请求不对冲
+     *
+     * @param type   命令类型
+     * @param policy 对冲策略
+     */
+    default void hedgeRequests(Class<? extends ICommand> type, HedgePolicy policy) {
+        LoggerFactory.getLogger(getClass()).warn("hedged request is not supported by {}, ignore the policy of {}",
+                getClass().getName(), type.getName());
+    }
+
+    /**
+     * @return 启用对冲的命令类型的统计
+     */
+    default List<IHedgeMetrics> hedgeMetrics() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return 到各远程节点的连接的写缓冲统计
+     */
+    default List<IWriteBufferMetrics> writeBufferMetrics() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * 获取广播器，向其他在线节点广播消息，结果缓存的失效通过它同步到其他节点
+     *
+     * @return a broadcaster, null不支持广播，缓存只在本节点失效
      */
     IBroadcaster getBroadcaster();
 
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.chyohn.terse.cluster;
+
+import io.github.chyohn.terse.anotations.External;
+
+/**
+ * the metrics of the hedged cluster requests of a command type, see {@link HedgePolicy}
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@External
+public interface IHedgeMetrics {
+
+    /**
+     * @return the command type
+     */
+    Class<?> commandType();
+
+    /**
+     * @return the count of requests sent to remote members
+     */
+    long requests();
+
+    /**
+     * @return the count of duplicate requests sent
+     */
+    long hedged();
+
+    /**
+     * @return the count of requests whose duplicate responded first
+     */
+    long hedgeWins();
+
+    /**
+     * @return the current hedge delay in milliseconds, -1 if not enough response times observed
+     */
+    double delayMillis();
+
+    /**
+     * @return the ratio of duplicate requests
+     */
+    default double hedgeRate() {
+        long requests = requests();
+        return requests == 0 ? 0 : (double) hedged() / requests;
+    }
+}
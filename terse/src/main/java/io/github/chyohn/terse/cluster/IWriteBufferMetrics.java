@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.chyohn.terse.cluster;
+
+import io.github.chyohn.terse.anotations.External;
+
+/**
+ * the metrics of the outbound buffer of the connection to a remote member.
+ * <p>
+ * When the pending bytes reach the high watermark the connection becomes unwritable, requests are routed to other
+ * members and sends to it fail fast, until the pending bytes drop below the low watermark.
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@External
+public interface IWriteBufferMetrics {
+
+    /**
+     * @return the address of the remote member
+     */
+    String address();
+
+    /**
+     * @return the bytes queued but not yet written to the socket
+     */
+    long pendingBytes();
+
+    /**
+     * @return whether the pending bytes are below the high watermark
+     */
+    boolean writable();
+
+    /**
+     * @return the count of times the pending bytes reached the high watermark
+     */
+    long highWatermarkEvents();
+
+    /**
+     * @return the count of times the pending bytes dropped below the low watermark
+     */
+    long lowWatermarkEvents();
+
+    /**
+     * @return the count of messages rejected while unwritable
+     */
+    long rejected();
+}
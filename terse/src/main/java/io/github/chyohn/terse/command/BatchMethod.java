@@ -0,0 +1,41 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.command;
+
+import java.util.List;
+
+/**
+ * the method that execute a batch of commands of the same type with one call,
+ * commands submitted concurrently are collected by the receiver and passed to the method together.
+ *
+ * @param <T> the command type
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@FunctionalInterface
+public interface BatchMethod<T extends ICommand> {
+
+    /**
+     * execute the commands. the command ids may repeat when the commands come from different flows,
+     * so the results are matched to the commands by position
+     *
+     * @param commands commands, not empty
+     * @return the results in the order of commands, the size must be the same as commands
+     * @throws Exception some exception when run commands, all commands of the batch fail
+     */
+    List<?> run(List<T> commands) throws Exception;
+}
@@ -16,7 +16,7 @@
 
 package io.github.chyohn.terse.command;
 
-import io.github.chyohn.terse.exception.CommandExecuteException;
+import io.github.chyohn.terse.exception.CommandFailureException;
 
 /**
  * the method that execute blocking command
@@ -38,7 +38,7 @@ public interface BlockingMethod<T extends ICommand> {
         try {
             return run(command);
         } catch (Exception e) {
-            throw new CommandExecuteException(e);
+            throw new CommandFailureException(e);
         }
     }
 
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.command;
+
+import io.github.chyohn.terse.anotations.External;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * the policy to cache the results of a command type, see {@link ICommandInvoker#cacheResults(Class, CachePolicy)}.
+ * <p>
+ * the results are cached by the key of the command, and evicted by the W-TinyLFU policy when the total weight
+ * exceeds {@link #getMaximumWeight()}, or expired after {@link #getTtlNanos()} since written.
+ * failures and null results are not cached.
+ *
+ * @param <T> command type
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@External
+public final class CachePolicy<T extends ICommand> {
+
+    private final Function<? super T, String> keyFunction;
+    private final long maximumWeight;
+    private final Weigher<? super T> weigher;
+    private final long ttlNanos;
+    private final long refreshAfterNanos;
+
+    private CachePolicy(Builder<T> builder) {
+        this.keyFunction = builder.keyFunction;
+        this.maximumWeight = builder.maximumWeight;
+        this.weigher = builder.weigher;
+        this.ttlNanos = builder.ttlNanos;
+        this.refreshAfterNanos = builder.refreshAfterNanos;
+    }
+
+    /**
+     * @param keyFunction the key of the result, commands with the same key share the result.
+     *                    a string so that the key can be broadcast to invalidate in cluster mode,
+     *                    must not contain the command id which differs between flows, null not cached
+     * @param <T>         command type
+     * @return the builder
+     */
+    public static <T extends ICommand> Builder<T> builder(Function<? super T, String> keyFunction) {
+        return new Builder<>(keyFunction);
+    }
+
+    public Function<? super T, String> getKeyFunction() {
+        return keyFunction;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public Weigher<? super T> getWeigher() {
+        return weigher;
+    }
+
+    public long getTtlNanos() {
+        return ttlNanos;
+    }
+
+    public long getRefreshAfterNanos() {
+        return refreshAfterNanos;
+    }
+
+    /**
+     * the weight of a cached result
+     *
+     * @param <T> command type
+     */
+    @FunctionalInterface
+    public interface Weigher<T extends ICommand> {
+
+        /**
+         * @param command the command
+         * @param value   the result
+         * @return the weight of the result, not negative
+         */
+        int weigh(T command, Object value);
+    }
+
+    public static final class Builder<T extends ICommand> {
+
+        private final Function<? super T, String> keyFunction;
+        private long maximumWeight = 10_000;
+        private Weigher<? super T> weigher;
+        private long ttlNanos = TimeUnit.MINUTES.toNanos(1);
+        private long refreshAfterNanos;
+
+        private Builder(Function<? super T, String> keyFunction) {
+            if (keyFunction == null) {
+                throw new IllegalArgumentException("keyFunction is null");
+            }
+            this.keyFunction = keyFunction;
+        }
+
+        /**
+         * @param maximumEntries the max count of results, default 10000
+         * @return this builder
+         */
+        public Builder<T> maximumEntries(long maximumEntries) {
+            this.weigher = null;
+            return maximumWeight(maximumEntries);
+        }
+
+        /**
+         * @param maximumWeight the max total weight of results, the count of results if no weigher
+         * @param weigher       the weight of each result
+         * @return this builder
+         */
+        public Builder<T> maximumWeight(long maximumWeight, Weigher<? super T> weigher) {
+            this.weigher = weigher;
+            return maximumWeight(maximumWeight);
+        }
+
+        private Builder<T> maximumWeight(long maximumWeight) {
+            if (maximumWeight <= 0) {
+                throw new IllegalArgumentException("maximumWeight must be positive, but " + maximumWeight);
+            }
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        /**
+         * @param ttl  the result expires after the time since written, default 1 minute
+         * @param unit the unit of ttl
+         * @return this builder
+         */
+        public Builder<T> ttl(long ttl, TimeUnit unit) {
+            if (ttl <= 0) {
+                throw new IllegalArgumentException("ttl must be positive, but " + ttl);
+            }
+            this.ttlNanos = unit.toNanos(ttl);
+            return this;
+        }
+
+        /**
+         * a read after the time since written returns the cached result and executes the command again in background,
+         * so the hot results are refreshed before expired. default 0, not refresh
+         *
+         * @param refreshAfter the time since written, less than ttl
+         * @param unit         the unit of refreshAfter
+         * @return this builder
+         */
+        public Builder<T> refreshAhead(long refreshAfter, TimeUnit unit) {
+            if (refreshAfter < 0) {
+                throw new IllegalArgumentException("refreshAfter must not be negative, but " + refreshAfter);
+            }
+            this.refreshAfterNanos = unit.toNanos(refreshAfter);
+            return this;
+        }
+
+        public CachePolicy<T> build() {
+            if (refreshAfterNanos >= ttlNanos) {
+                throw new IllegalArgumentException("refreshAfter must be less than ttl");
+            }
+            return new CachePolicy<>(this);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.command;
+
+import io.github.chyohn.terse.anotations.Internal;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * cancel the commands submitted by a flow execution.
+ * the invoker, receivers and cluster client register hooks to stop their queued and running work,
+ * and remove the hooks once the work completed. all hooks run once when the token is cancelled.
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@Slf4j
+@Internal
+public final class CancellationToken {
+
+    private static final AtomicReferenceFieldUpdater<CancellationToken, Throwable> REASON =
+            AtomicReferenceFieldUpdater.newUpdater(CancellationToken.class, Throwable.class, "reason");
+
+    private final Set<Runnable> hooks = ConcurrentHashMap.newKeySet();
+    private volatile Throwable reason;
+
+    /**
+     * @return true if cancelled
+     */
+    public boolean isCancelled() {
+        return reason != null;
+    }
+
+    /**
+     * @return the reason of cancellation, null if not cancelled
+     */
+    public Throwable getReason() {
+        return reason;
+    }
+
+    /**
+     * cancel and run all registered hooks
+     *
+     * @param cause the reason of cancellation
+     * @return false if already cancelled
+     */
+    public boolean cancel(Throwable cause) {
+        if (!REASON.compareAndSet(this, null, cause)) {
+            return false;
+        }
+        for (Runnable hook : hooks) {
+            runHook(hook);
+        }
+        return true;
+    }
+
+    /**
+     * register the hook to run when cancelled, run it immediately if already cancelled
+     *
+     * @param hook cancel hook
+     */
+    public void onCancel(Runnable hook) {
+        hooks.add(hook);
+        if (isCancelled()) {
+            // cancel() may have iterated before the hook was added
+            runHook(hook);
+        }
+    }
+
+    /**
+     * remove the hook after the work completed
+     *
+     * @param hook cancel hook
+     */
+    public void remove(Runnable hook) {
+        hooks.remove(hook);
+    }
+
+    private void runHook(Runnable hook) {
+        // the hook removed by the one who runs it, so it runs only once
+        if (!hooks.remove(hook)) {
+            return;
+        }
+        try {
+            hook.run();
+        } catch (Throwable e) {
+            log.error("cancel hook {} failed", hook, e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.command;
+
+import io.github.chyohn.terse.anotations.External;
+
+/**
+ * the metrics of the commands of a type executed in batches,
+ * see {@link IReceiverBuilder#onReceiveBatch(Class, BatchMethod)}
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@External
+public interface IBatchMetrics {
+
+    /**
+     * @return the command type
+     */
+    Class<?> commandType();
+
+    /**
+     * @return the count of batches executed
+     */
+    long batches();
+
+    /**
+     * @return the count of commands executed in batches
+     */
+    long commands();
+
+    /**
+     * @return the total time the commands waited for their batch to be executed
+     */
+    long waitNanos();
+
+    /**
+     * @return the max size of a batch
+     */
+    int maxBatchSize();
+
+    /**
+     * @return the average size of batches
+     */
+    default double averageBatchSize() {
+        long batches = batches();
+        return batches == 0 ? 0 : (double) commands() / batches;
+    }
+
+    /**
+     * @return the average time a command waited for its batch
+     */
+    default long averageWaitNanos() {
+        long commands = commands();
+        return commands == 0 ? 0 : waitNanos() / commands;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.command;
+
+import io.github.chyohn.terse.anotations.External;
+
+/**
+ * the metrics of the cached results of a command type, see {@link CachePolicy}
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@External
+public interface ICacheMetrics {
+
+    /**
+     * @return the command type
+     */
+    Class<?> commandType();
+
+    /**
+     * @return the count of commands whose result found in the cache
+     */
+    long hits();
+
+    /**
+     * @return the count of commands executed because the result not found or expired
+     */
+    long misses();
+
+    /**
+     * @return the count of results evicted by the size policy
+     */
+    long evictions();
+
+    /**
+     * @return the count of refreshes started ahead of expiration
+     */
+    long refreshes();
+
+    /**
+     * @return the count of cached results
+     */
+    long size();
+
+    /**
+     * @return the total weight of cached results
+     */
+    long weight();
+
+    /**
+     * @return the ratio of hits
+     */
+    default double hitRatio() {
+        long hits = hits();
+        long total = hits + misses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.command;
+
+import io.github.chyohn.terse.anotations.External;
+
+/**
+ * the command that can share an in-flight execution with the equal commands submitted concurrently.
+ * only one execution is in flight per command type and {@link #coalesceKey()}, the other commands wait for it
+ * and get the same result object, so the result should not be modified by the callers.
+ * <p>
+ * the execution is not cancelled with the flow which started it, and times out with the timeout of the first command.
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@External
+public interface ICoalescible extends ICommand {
+
+    /**
+     * @return the key of the executions to share, the command itself by default, which compares by equals.
+     * the command type is always part of the key
+     */
+    default Object coalesceKey() {
+        return this;
+    }
+}
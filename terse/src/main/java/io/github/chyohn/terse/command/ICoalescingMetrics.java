@@ -0,0 +1,53 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.command;
+
+import io.github.chyohn.terse.anotations.External;
+
+/**
+ * the metrics of the {@link ICoalescible} commands
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@External
+public interface ICoalescingMetrics {
+
+    /**
+     * @return the count of executions started, each one is shared by the commands merged into it
+     */
+    long executions();
+
+    /**
+     * @return the count of commands merged into an in-flight execution instead of executing
+     */
+    long merged();
+
+    /**
+     * @return the count of executions in flight
+     */
+    int inFlight();
+
+    /**
+     * @return the ratio of commands merged into an in-flight execution
+     */
+    default double mergeRatio() {
+        long merged = merged();
+        long total = merged + executions();
+        return total == 0 ? 0 : (double) merged / total;
+    }
+}
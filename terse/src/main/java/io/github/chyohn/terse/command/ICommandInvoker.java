@@ -24,11 +24,13 @@ import io.github.chyohn.terse.command.threadpool.CallableCommand;
 import io.github.chyohn.terse.command.threadpool.RunnableCommand;
 import io.github.chyohn.terse.spi.SPI;
 import io.github.chyohn.terse.utils.ObjectUtils;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicReference;
@@ -49,6 +51,20 @@ public interface ICommandInvoker {
 
     void asyncInvoke(List<ICommand> commands, long timeout, RunningWay runningWay, Consumer<IResult<?>> callback);
 
+    /**
+     * submit the commands, which can be cancelled by the token
+     *
+     * @param commands     commands
+     * @param timeout      timeout millis of each command, &lt;=0 no time out
+     * @param runningWay   execute type {@link RunningWay}
+     * @param cancellation cancel queued and running commands, null not cancellable
+     * @param callback     result handler
+     */
+    default void asyncInvoke(List<ICommand> commands, long timeout, RunningWay runningWay,
+                             CancellationToken cancellation, Consumer<IResult<?>> callback) {
+        asyncInvoke(commands, timeout, runningWay, callback);
+    }
+
 
     default <R> void asyncRun(List<ICommandX<R>> commands, long timeout, RunningWay runningWay, Consumer<IResult<R>> callback) {
         List<ICommand> list = new ArrayList<>(commands);
@@ -95,7 +111,7 @@ public interface ICommandInvoker {
      * block and batch execute command
      *
      * @param commands command
-     * @param callback the result handler
+     * @param callback the result handler, called in the current thread with each result as it arrives
      * @param <R>      result type
      * @param <C>      command type
      */
@@ -105,28 +121,23 @@ public interface ICommandInvoker {
             return;
         }
 
-        LinkedBlockingQueue<IResult<R>> resultQueue = new LinkedBlockingQueue<>(commands.size());
-        for (int i = 0; i < commands.size(); i++) {
-            ICommandX<R> command = commands.get(i);
-            command.setId(i);
-            RunningWay runningWay = i < commands.size() - 1 ? RunningWay.CLUSTER : RunningWay.SERIAL;
-            this.asyncRun(Collections.singletonList(command), NONE_TIMEOUT, runningWay,
-                    response -> {
-                        try {
-                            resultQueue.put(response);
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                            throw new CommandExecuteException(e);
-                        }
-                    });
+        // 结果到达时逐个在当前线程回调
+        LinkedBlockingQueue<IResult<R>> resultQueue = new LinkedBlockingQueue<>();
+        IndexedResults<R> results = new IndexedResults<>(commands, resultQueue::add);
+        int last = commands.size() - 1;
+        // 最后一个命令在当前线程执行，其余命令提交给集群或线程池
+        try {
+            this.asyncInvoke(new ArrayList<>(commands.subList(0, last)), NONE_TIMEOUT, RunningWay.CLUSTER, results);
+        } catch (Throwable e) {
+            // 提交中途失败，没有提交的命令以失败返回，最后一个命令仍在当前线程执行
+            results.failRemaining(e, last);
         }
+        this.asyncInvoke(Collections.singletonList(commands.get(last)), NONE_TIMEOUT, RunningWay.SERIAL, results);
 
         try {
-            int commandSize = commands.size();
-            while (commandSize > 0) {
+            for (int remaining = commands.size(); remaining > 0; remaining--) {
                 // 等到响应结果
                 IResult<R> result = resultQueue.take();
-                commandSize--;
                 if (callback != null) {
                     callback.accept(result);
                 }
@@ -137,6 +148,91 @@ public interface ICommandInvoker {
         }
     }
 
+    /**
+     * called once the cluster client is initialized, e.g. to subscribe to the broadcasts of the cluster
+     */
+    default void onClusterInit() {
+    }
+
+    /**
+     * @return the metrics of the {@link ICoalescible} commands, null if the invoker does not merge them
+     */
+    default ICoalescingMetrics coalescingMetrics() {
+        return null;
+    }
+
+    /**
+     * cache the results of the command type, the commands submitted in parallel, cluster or serial way
+     * return the cached result without executing. the invoker without result cache ignores the policy
+     * and executes every command
+     *
+     * @param type   command type
+     * @param policy cache policy
+     * @param <T>    command type
+     */
+    default <T extends ICommand> void cacheResults(Class<T> type, CachePolicy<T> policy) {
+        LoggerFactory.getLogger(getClass()).warn("result cache is not supported by {}, ignore the policy of {}",
+                getClass().getName(), type.getName());
+    }
+
+    /**
+     * invalidate the cached result of the command, on all online nodes in cluster mode, best effort without retry
+     *
+     * @param command command
+     */
+    default void invalidateResult(ICommand command) {
+    }
+
+    /**
+     * invalidate all cached results of the command type, on all online nodes in cluster mode, best effort without retry
+     *
+     * @param type command type
+     */
+    default void invalidateResults(Class<? extends ICommand> type) {
+    }
+
+    /**
+     * @return the metrics of the command types whose results are cached
+     */
+    default List<ICacheMetrics> cacheMetrics() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * async execute the commands, the id of each command is set to its index
+     *
+     * @param commands commands
+     * @param <R>      result type
+     * @return the future completed with the results in the order of commands, when all commands completed
+     */
+    default <R> CompletableFuture<List<IResult<R>>> invokeAll(List<? extends ICommandX<R>> commands) {
+        return invokeAll(commands, NONE_TIMEOUT, RunningWay.CLUSTER);
+    }
+
+    /**
+     * async execute the commands, the id of each command is set to its index
+     *
+     * @param commands   commands
+     * @param timeout    timeout millis of each command, &lt;=0 no time out
+     * @param runningWay execute type {@link RunningWay}
+     * @param <R>        result type
+     * @return the future completed with the results in the order of commands, when all commands completed
+     */
+    default <R> CompletableFuture<List<IResult<R>>> invokeAll(List<? extends ICommandX<R>> commands, long timeout,
+                                                              RunningWay runningWay) {
+        if (commands == null) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        IndexedResults<R> results = new IndexedResults<>(commands);
+        try {
+            this.asyncInvoke(new ArrayList<>(commands), timeout, runningWay, results);
+        } catch (Throwable e) {
+            // 提交中途失败，没有提交的命令以失败返回
+            results.failRemaining(e);
+        }
+        return results.future();
+    }
+
     /**
      * async and batch execute command
      *
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.command;
+
+import io.github.chyohn.terse.anotations.External;
+
+/**
+ * the metrics of the adaptive concurrency limit of a command type on an executor
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@External
+public interface IConcurrencyLimitMetrics {
+
+    /**
+     * @return the command type
+     */
+    Class<?> commandType();
+
+    /**
+     * @return the executor the commands submitted to
+     */
+    String executor();
+
+    /**
+     * @return the current limit of the commands submitted to the executor and not completed
+     */
+    int limit();
+
+    /**
+     * @return the count of commands submitted to the executor and not completed
+     */
+    int inFlight();
+
+    /**
+     * @return the count of commands waiting for the limit
+     */
+    int queued();
+
+    /**
+     * @return the count of commands rejected because the wait queue was full
+     */
+    long rejected();
+
+    /**
+     * @return the min latency observed, the latency without queueing
+     */
+    long minLatencyNanos();
+}
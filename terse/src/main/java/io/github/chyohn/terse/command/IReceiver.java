@@ -65,4 +65,16 @@ public interface IReceiver<C extends ICommand> {
      * @param <T>      class type of command
      */
     <T extends C> void async(T command, Consumer<IResult<?>> callback);
+
+    /**
+     * handle command asynchronously, the queued or running command is interrupted when the token cancelled
+     *
+     * @param command      command
+     * @param cancellation cancel the command
+     * @param callback     result handler
+     * @param <T>          class type of command
+     */
+    default <T extends C> void async(T command, CancellationToken cancellation, Consumer<IResult<?>> callback) {
+        async(command, callback);
+    }
 }
@@ -35,6 +35,43 @@ public interface IReceiverBuilder<C extends ICommand> {
 
     <T extends C> IReceiverBuilder<C> onReceive(Class<T> t, AsyncMethod<T> handler);
 
+    /**
+     * register the handler that returns a {@link java.util.concurrent.CompletionStage}, the result is delivered when
+     * the stage completes without blocking any thread. named differently from {@code onReceive} because a lambda is
+     * compatible with both {@link StageMethod} and {@link BlockingMethod}
+     *
+     * @param t       command type
+     * @param handler stage handler
+     * @param <T>     command type
+     * @return this builder
+     */
+    <T extends C> IReceiverBuilder<C> onReceiveStage(Class<T> t, StageMethod<T> handler);
+
+    /**
+     * collect the commands of the type submitted concurrently and execute them with one call, the batch is executed
+     * when it reaches {@code terse.batch.maxSize}(default 64) commands, or {@code terse.batch.maxWaitMillis}(default 2)
+     * passed since its first command
+     *
+     * @param t       command type
+     * @param handler batch handler
+     * @param <T>     command type
+     * @return this builder
+     */
+    <T extends C> IReceiverBuilder<C> onReceiveBatch(Class<T> t, BatchMethod<T> handler);
+
+    /**
+     * collect the commands of the type submitted concurrently and execute them with one call
+     *
+     * @param t             command type
+     * @param handler       batch handler
+     * @param maxBatchSize  the batch is executed when it reaches the size
+     * @param maxWaitMillis the batch is executed when the time passed since its first command, 0 execute at once
+     * @param <T>           command type
+     * @return this builder
+     */
+    <T extends C> IReceiverBuilder<C> onReceiveBatch(Class<T> t, BatchMethod<T> handler, int maxBatchSize,
+                                                     long maxWaitMillis);
+
     <T extends C> IReceiverBuilder<C> defaultExecutor(Executor executor);
 
     <T extends C> IReceiverBuilder<C> executor(Class<T> t, ExecutorFactory<T> executorFactory);
@@ -20,6 +20,9 @@ package io.github.chyohn.terse.command;
 import io.github.chyohn.terse.anotations.Internal;
 import io.github.chyohn.terse.spi.SPI;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * the registry of Receivers
  *
@@ -52,4 +55,19 @@ public interface IReceiverRegistry {
      * @return receiver than can execute the special command asynchronously
      */
     IReceiver<ICommand> getAsyncReceiver(ICommand request);
+
+    /**
+     * @return the metrics of the command types executed in batches
+     */
+    default List<IBatchMetrics> batchMetrics() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return the metrics of the concurrency limits of the command types on their executors,
+     * empty if {@code terse.limiter.enabled} is not true
+     */
+    default List<IConcurrencyLimitMetrics> concurrencyLimitMetrics() {
+        return Collections.emptyList();
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.command;
+
+import io.github.chyohn.terse.command.result.FailureResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * collect the results of the commands by their index, and complete the future when all results arrived.
+ * the id of each command is set to its index, so the result is put to the position of its command.
+ * each accepted result is also passed to the listener as it arrives
+ *
+ * @param <R> result type
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+final class IndexedResults<R> implements Consumer<IResult<?>> {
+
+    private final AtomicReferenceArray<IResult<R>> results;
+    private final AtomicInteger remaining;
+    private final CompletableFuture<List<IResult<R>>> future = new CompletableFuture<>();
+    private final Consumer<IResult<R>> listener;
+
+    IndexedResults(List<? extends ICommandX<R>> commands) {
+        this(commands, null);
+    }
+
+    /**
+     * @param commands commands
+     * @param listener called once with each result as it arrives, null no listener
+     */
+    IndexedResults(List<? extends ICommandX<R>> commands, Consumer<IResult<R>> listener) {
+        this.listener = listener;
+        for (int i = 0; i < commands.size(); i++) {
+            commands.get(i).setId(i);
+        }
+        this.results = new AtomicReferenceArray<>(commands.size());
+        this.remaining = new AtomicInteger(commands.size());
+        if (commands.isEmpty()) {
+            future.complete(new ArrayList<>(0));
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void accept(IResult<?> result) {
+        int index = result.getId();
+        // the result of each command is accepted once
+        if (index < 0 || index >= results.length() || !results.compareAndSet(index, null, (IResult<R>) result)) {
+            return;
+        }
+        if (listener != null) {
+            listener.accept((IResult<R>) result);
+        }
+        if (remaining.decrementAndGet() == 0) {
+            IResult<R>[] array = new IResult[results.length()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = results.get(i);
+            }
+            future.complete(Arrays.asList(array));
+        }
+    }
+
+    /**
+     * fill the slots of the commands without result by failures, when the submission failed part-way
+     *
+     * @param e the cause of failure
+     */
+    void failRemaining(Throwable e) {
+        failRemaining(e, results.length());
+    }
+
+    /**
+     * fill the slots before the end index without result by failures, the commands from the end index are
+     * still to be submitted
+     *
+     * @param e            the cause of failure
+     * @param endExclusive the end index, exclusive
+     */
+    void failRemaining(Throwable e, int endExclusive) {
+        for (int i = 0; i < endExclusive; i++) {
+            if (results.get(i) == null) {
+                accept(new FailureResult(i, e));
+            }
+        }
+    }
+
+    CompletableFuture<List<IResult<R>>> future() {
+        return future;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.command;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * a method to async execute the command with a non-blocking driver, the result is delivered when the stage completes,
+ * no thread waits for it
+ *
+ * @param <T> the command type
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@FunctionalInterface
+public interface StageMethod<T extends ICommand> {
+
+    /**
+     * start executing the command, must not block
+     *
+     * @param command command
+     * @return the stage completed with the result, or exceptionally with the failure
+     * @throws Exception some exception when start executing the command
+     */
+    CompletionStage<?> run(T command) throws Exception;
+}
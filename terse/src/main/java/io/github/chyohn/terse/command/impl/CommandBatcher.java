@@ -0,0 +1,279 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.command.impl;
+
+import io.github.chyohn.terse.command.BatchMethod;
+import io.github.chyohn.terse.command.ExecutorFactory;
+import io.github.chyohn.terse.command.IBatchMetrics;
+import io.github.chyohn.terse.command.ICommand;
+import io.github.chyohn.terse.command.IResult;
+import io.github.chyohn.terse.command.result.ResultUtils;
+import io.github.chyohn.terse.exception.CommandExecuteException;
+import io.github.chyohn.terse.timer.HashedWheelTimer;
+import io.github.chyohn.terse.timer.ITimeout;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 批量执行同一类型的命令。
+ * <p>
+ * 并发提交的命令先放入当前窗口，窗口达到最大数量，或者距第一个命令超过最长等待时间时，
+ * 在执行器中调用一次{@link BatchMethod}，再按位置把结果分发给各命令的回调。
+ * 不同流程的命令id可能相同，所以按位置而不是按id匹配结果。批量方法失败时整批命令都失败。
+ * <p>
+ * 等待时间由独立的时间轮计时，精度为{@link #TICK_MILLIS_KEY}，不占用命令超时的时间轮。
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@Slf4j
+final class CommandBatcher<T extends ICommand> implements IBatchMetrics {
+
+    static final String MAX_SIZE_KEY = "terse.batch.maxSize";
+    static final String MAX_WAIT_MILLIS_KEY = "terse.batch.maxWaitMillis";
+    static final String TICK_MILLIS_KEY = "terse.batch.tickMillis";
+    static final int DEFAULT_MAX_SIZE = Integer.getInteger(MAX_SIZE_KEY, 64);
+    static final long DEFAULT_MAX_WAIT_MILLIS = Long.getLong(MAX_WAIT_MILLIS_KEY, 2);
+
+    private final Class<T> type;
+    private final BatchMethod<T> method;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final Executor executor;
+    private final ExecutorFactory<T> executorFactory;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder commands = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    // 当前收集命令的窗口，由this保护
+    private Window<T> window;
+
+    CommandBatcher(Class<T> type, BatchMethod<T> method, int maxBatchSize, long maxWaitMillis,
+                   Executor executor, ExecutorFactory<T> executorFactory) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive, but " + maxBatchSize);
+        }
+        if (maxWaitMillis < 0) {
+            throw new IllegalArgumentException("maxWaitMillis must not be negative, but " + maxWaitMillis);
+        }
+        this.type = type;
+        this.method = method;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.executor = executor;
+        this.executorFactory = executorFactory;
+    }
+
+    /**
+     * 加入当前窗口，窗口满时立即执行
+     *
+     * @param command  命令
+     * @param callback 结果回调，{@link CommandCompletion}直接写入结果
+     */
+    void add(T command, Consumer<IResult<?>> callback) {
+        Window<T> full = null;
+        Window<T> opened = null;
+        synchronized (this) {
+            Window<T> w = window;
+            if (w == null) {
+                w = opened = window = new Window<>(maxBatchSize);
+            }
+            w.add(command, callback);
+            if (w.size() >= maxBatchSize || maxWaitNanos == 0) {
+                full = w;
+                window = null;
+            }
+        }
+        if (full != null) {
+            if (full.timeout != null) {
+                full.timeout.cancel();
+            }
+            submit(full);
+        } else if (opened != null) {
+            // 定时任务在锁外创建，窗口满时可能已被执行，expire会忽略不是当前窗口的定时
+            Window<T> w = opened;
+            ITimeout timeout = BatchTimerHolder.TIMER.newTimeout(t -> expire(w), maxWaitNanos, TimeUnit.NANOSECONDS);
+            w.timeout = timeout;
+        }
+    }
+
+    /**
+     * 同步执行单个命令，作为只有一个命令的批次
+     *
+     * @param command 命令
+     * @return 结果
+     */
+    IResult<?> sync(T command) {
+        batches.increment();
+        commands.increment();
+        try {
+            List<?> results = method.run(Collections.singletonList(command));
+            checkResults(results, 1);
+            return ResultUtils.returnData(command, results.get(0));
+        } catch (Throwable e) {
+            log.error("{}批量处理失败", command, e);
+            return ResultUtils.failure(command, e);
+        }
+    }
+
+    private void expire(Window<T> w) {
+        synchronized (this) {
+            if (window != w) {
+                return;
+            }
+            window = null;
+        }
+        submit(w);
+    }
+
+    private void submit(Window<T> w) {
+        Executor e = executorFactory != null ? executorFactory.create(w.commands.get(0)) : executor;
+        try {
+            (e != null ? e : Receiver.DEFAULT_ASYNC_EXECUTOR).execute(() -> execute(w));
+        } catch (Throwable ex) {
+            // 执行器拒绝，整批失败
+            w.fail(ex);
+        }
+    }
+
+    private void execute(Window<T> w) {
+        long now = System.nanoTime();
+        int size = w.size();
+        long wait = 0;
+        for (int i = 0; i < size; i++) {
+            wait += now - w.addNanos[i];
+        }
+        batches.increment();
+        commands.add(size);
+        waitNanos.add(wait);
+
+        List<?> results;
+        try {
+            results = method.run(w.commands);
+            checkResults(results, size);
+        } catch (Throwable e) {
+            log.error("{}批量处理失败, size={}", type.getName(), size, e);
+            w.fail(e);
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            complete(w.commands.get(i), w.callbacks.get(i), results.get(i), null);
+        }
+    }
+
+    private void checkResults(List<?> results, int size) {
+        if (results == null || results.size() != size) {
+            throw new CommandExecuteException(type.getName() + "批量处理返回" + (results == null ? 0 : results.size())
+                    + "个结果，需要" + size + "个");
+        }
+    }
+
+    private static void complete(ICommand command, Consumer<IResult<?>> callback, Object value, Throwable e) {
+        if (callback instanceof CommandCompletion) {
+            ((CommandCompletion) callback).complete(value, e);
+            return;
+        }
+        try {
+            callback.accept(e != null ? ResultUtils.failure(command, e) : ResultUtils.returnData(command, value));
+        } catch (Throwable ex) {
+            log.error("{}结果回调失败", command, ex);
+        }
+    }
+
+    @Override
+    public Class<?> commandType() {
+        return type;
+    }
+
+    @Override
+    public long batches() {
+        return batches.sum();
+    }
+
+    @Override
+    public long commands() {
+        return commands.sum();
+    }
+
+    @Override
+    public long waitNanos() {
+        return waitNanos.sum();
+    }
+
+    @Override
+    public int maxBatchSize() {
+        return maxBatchSize;
+    }
+
+    @Override
+    public String toString() {
+        return "CommandBatcher[" + type.getName() + ", batches=" + batches() + ", commands=" + commands()
+                + ", averageBatchSize=" + averageBatchSize()
+                + ", averageWait=" + TimeUnit.NANOSECONDS.toMicros(averageWaitNanos()) + "us]";
+    }
+
+    /**
+     * 一个批次的命令及其回调
+     */
+    private static final class Window<T extends ICommand> {
+        final List<T> commands;
+        final List<Consumer<IResult<?>>> callbacks;
+        long[] addNanos;
+        volatile ITimeout timeout;
+
+        Window(int maxBatchSize) {
+            // 最大数量可能很大，按需扩容
+            int capacity = Math.min(maxBatchSize, 16);
+            this.commands = new ArrayList<>(capacity);
+            this.callbacks = new ArrayList<>(capacity);
+            this.addNanos = new long[capacity];
+        }
+
+        void add(T command, Consumer<IResult<?>> callback) {
+            if (commands.size() == addNanos.length) {
+                addNanos = Arrays.copyOf(addNanos, addNanos.length << 1);
+            }
+            addNanos[commands.size()] = System.nanoTime();
+            commands.add(command);
+            callbacks.add(callback);
+        }
+
+        int size() {
+            return commands.size();
+        }
+
+        void fail(Throwable e) {
+            for (int i = 0; i < commands.size(); i++) {
+                complete(commands.get(i), callbacks.get(i), null, e);
+            }
+        }
+    }
+
+    private static final class BatchTimerHolder {
+        static final HashedWheelTimer TIMER = new HashedWheelTimer("terse-batch-timer",
+                Long.getLong(TICK_MILLIS_KEY, 1), TimeUnit.MILLISECONDS, 64);
+    }
+}
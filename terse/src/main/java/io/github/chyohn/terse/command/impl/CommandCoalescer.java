@@ -0,0 +1,170 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.command.impl;
+
+import io.github.chyohn.terse.command.ICoalescible;
+import io.github.chyohn.terse.command.ICoalescingMetrics;
+import io.github.chyohn.terse.command.IResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 合并正在执行的相同命令。
+ * <p>
+ * 每个命令类型和{@link ICoalescible#coalesceKey()}同时只有一个执行，执行中提交的相同命令只登记完成记录，
+ * 执行完成时把同一个结果写入所有完成记录，每个调用方仍按自己的命令id、超时和取消接收结果。
+ * 执行使用单独的完成记录，不属于任何一个调用方，调用方取消时不会中断其他调用方等待的执行。
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+final class CommandCoalescer implements ICoalescingMetrics {
+
+    private final ConcurrentHashMap<Key, Flight> flights = new ConcurrentHashMap<>();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder merged = new LongAdder();
+
+    /**
+     * 加入正在执行的相同命令，没有则开始新的执行
+     *
+     * @param command    命令
+     * @param remote     远程执行
+     * @param completion 调用方的完成记录
+     * @return 需要提交的执行，null已合并到正在执行的命令
+     */
+    CommandCompletion join(ICoalescible command, boolean remote, CommandCompletion completion) {
+        Key key = new Key(command.getClass(), command.coalesceKey());
+        for (;;) {
+            Flight flight = flights.get(key);
+            if (flight == null) {
+                Flight created = new Flight(key);
+                created.add(completion);
+                flight = flights.putIfAbsent(key, created);
+                if (flight == null) {
+                    executions.increment();
+                    return new CommandCompletion(command, remote, null, created);
+                }
+            }
+            if (flight.add(completion)) {
+                merged.increment();
+                return null;
+            }
+            // 执行已完成，开始新的执行
+            flights.remove(key, flight);
+        }
+    }
+
+    @Override
+    public long executions() {
+        return executions.sum();
+    }
+
+    @Override
+    public long merged() {
+        return merged.sum();
+    }
+
+    @Override
+    public int inFlight() {
+        return flights.size();
+    }
+
+    @Override
+    public String toString() {
+        return "CommandCoalescer[executions=" + executions() + ", merged=" + merged() + ", inFlight=" + inFlight() + "]";
+    }
+
+    /**
+     * 一个执行及等待它的完成记录
+     */
+    private final class Flight implements Consumer<IResult<?>> {
+
+        private final Key key;
+        // 由this保护，执行完成后置为null
+        private List<CommandCompletion> waiters = new ArrayList<>(4);
+
+        Flight(Key key) {
+            this.key = key;
+        }
+
+        synchronized boolean add(CommandCompletion completion) {
+            if (waiters == null) {
+                return false;
+            }
+            waiters.add(completion);
+            return true;
+        }
+
+        /**
+         * 执行完成，结果写入所有完成记录
+         */
+        @Override
+        public void accept(IResult<?> result) {
+            List<CommandCompletion> completions;
+            synchronized (this) {
+                completions = waiters;
+                waiters = null;
+            }
+            flights.remove(key, this);
+
+            Object value = null;
+            Throwable e = null;
+            try {
+                value = result.getValue();
+            } catch (Throwable t) {
+                e = t;
+            }
+            for (CommandCompletion completion : completions) {
+                completion.complete(value, e);
+            }
+        }
+    }
+
+    private static final class Key {
+        private final Class<?> type;
+        private final Object key;
+        private final int hash;
+
+        Key(Class<?> type, Object key) {
+            this.type = type;
+            this.key = key;
+            this.hash = 31 * type.hashCode() + Objects.hashCode(key);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return type == other.type && Objects.equals(key, other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,434 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.chyohn.terse.command.impl;
+
+import io.github.chyohn.terse.command.BlockingMethod;
+import io.github.chyohn.terse.command.CancellationToken;
+import io.github.chyohn.terse.command.ICommand;
+import io.github.chyohn.terse.command.IResult;
+import io.github.chyohn.terse.command.result.FailureResult;
+import io.github.chyohn.terse.exception.CommandExecuteException;
+import io.github.chyohn.terse.exception.CommandFailureException;
+import io.github.chyohn.terse.function.Callback2;
+import io.github.chyohn.terse.timer.HashedWheelTimer;
+import io.github.chyohn.terse.timer.ITimeout;
+import io.github.chyohn.terse.timer.ITimerTask;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 命令的完成记录，一个命令从提交到返回结果只分配这一个对象，它同时是：
+ * <ul>
+ *     <li>本地接收者的结果回调{@link Consumer}和远程请求的结果回调{@link Callback2}</li>
+ *     <li>阻塞方法在线程池中执行的任务{@link Runnable}</li>
+ *     <li>超时任务{@link ITimerTask}</li>
+ *     <li>交给调用方的结果{@link IResult}</li>
+ * </ul>
+ * 结果、超时、取消通过{@link #state}竞争，只有第一个生效。
+ * 同一次提交的命令共用一个{@link Batch}注册取消回调，不需要每个命令在{@link CancellationToken}中注册和移除。
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@Slf4j
+final class CommandCompletion implements IResult<Object>, Consumer<IResult<?>>, Callback2<IResult<?>, Throwable>,
+        Runnable, ITimerTask {
+
+    private static final int NEW = 0;
+    private static final int COMPLETED = 1;
+    private static final int CANCELLED = 2;
+    // 取消时正在中断执行线程
+    private static final int INTERRUPTING = 3;
+
+    private static final AtomicIntegerFieldUpdater<CommandCompletion> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(CommandCompletion.class, "state");
+    private static final AtomicReferenceFieldUpdater<CommandCompletion, Runnable> CANCEL_LISTENER =
+            AtomicReferenceFieldUpdater.newUpdater(CommandCompletion.class, Runnable.class, "cancelListener");
+    // 已完成或已取消，取消监听不再执行
+    private static final Runnable DONE = () -> {
+    };
+
+    private final transient ICommand command;
+    // 远程执行，用于超时信息
+    private final transient boolean remote;
+    private final transient Consumer<IResult<?>> callback;
+    private final transient Batch batch;
+    private volatile int state = NEW;
+    private volatile transient ITimeout timeout;
+    private transient long timeoutMillis;
+    // 在线程池中执行的阻塞方法
+    private transient BlockingMethod<ICommand> blockingMethod;
+    private volatile transient Thread runner;
+    // 返回CompletionStage的方法的执行阶段，取消时一并取消
+    private volatile transient Future<?> stage;
+    // 结果监听，在回调前执行，用于缓存结果和熔断统计
+    private transient BiConsumer<Object, Throwable> listener;
+    // 取消监听，用于归还熔断器的许可，完成或取消时替换为DONE，保证只执行一次
+    private volatile transient Runnable cancelListener;
+
+    // 结果，状态变为COMPLETED的线程写入，经回调传递给调用方
+    private Object value;
+    private int id;
+    private transient Throwable throwable;
+
+    CommandCompletion(ICommand command, boolean remote, Batch batch, Consumer<IResult<?>> callback) {
+        this.command = command;
+        this.remote = remote;
+        this.batch = batch;
+        this.callback = callback;
+        if (batch != null) {
+            batch.add(this);
+        }
+    }
+
+    /**
+     * 接收者的结果
+     */
+    @Override
+    public void accept(IResult<?> result) {
+        apply(result, null);
+    }
+
+    /**
+     * 远程请求的结果
+     */
+    @Override
+    public void apply(IResult<?> result, Throwable e) {
+        if (result == null) {
+            complete(null, e, command == null ? -1 : command.getId());
+            return;
+        }
+        if (result instanceof FailureResult) {
+            e = ((FailureResult) result).toException();
+        }
+        complete(result.getValue(), e, result.getId());
+    }
+
+    /**
+     * 接收者直接返回的结果，不需要再包装
+     *
+     * @param data 结果
+     * @param e    异常
+     */
+    void complete(Object data, Throwable e) {
+        complete(data, e, command.getId());
+    }
+
+    private void complete(Object data, Throwable e, int resultId) {
+        if (state != NEW || !STATE.compareAndSet(this, NEW, COMPLETED)) {
+            return;
+        }
+        this.value = data;
+        this.throwable = e;
+        this.id = resultId;
+        CANCEL_LISTENER.set(this, DONE);
+        if (listener != null) {
+            try {
+                listener.accept(data, e);
+            } catch (Throwable t) {
+                log.error("{} result listener error", command, t);
+            }
+        }
+        if (batch != null) {
+            batch.completed();
+        }
+        cancelTimeout();
+        if (callback != null) {
+            try {
+                callback.accept(this);
+            } catch (Throwable t) {
+                // 回调异常不能影响执行线程
+                log.error("{} result callback error", command, t);
+            }
+        }
+    }
+
+    /**
+     * 提交前添加，结果、超时或失败时执行一次，取消时不执行，见{@link #addCancelListener(Runnable)}
+     *
+     * @param listener 结果监听，按添加顺序执行
+     */
+    void addListener(BiConsumer<Object, Throwable> listener) {
+        this.listener = this.listener == null ? listener : this.listener.andThen(listener);
+    }
+
+    /**
+     * 提交前添加，取消时执行一次，结果、超时或失败时不执行。添加前已被取消时立即执行
+     *
+     * @param listener 取消监听
+     */
+    void addCancelListener(Runnable listener) {
+        for (;;) {
+            Runnable current = cancelListener;
+            if (current == DONE) {
+                return;
+            }
+            Runnable composed = current == null ? listener : () -> {
+                current.run();
+                listener.run();
+            };
+            if (CANCEL_LISTENER.compareAndSet(this, current, composed)) {
+                break;
+            }
+        }
+        // 添加前已被取消，取消时没有取到监听
+        if (state >= CANCELLED) {
+            runCancelListener();
+        }
+    }
+
+    private void runCancelListener() {
+        Runnable l = CANCEL_LISTENER.getAndSet(this, DONE);
+        if (l == null || l == DONE) {
+            return;
+        }
+        try {
+            l.run();
+        } catch (Throwable t) {
+            log.error("{} cancel listener error", command, t);
+        }
+    }
+
+    /**
+     * 由线程池执行阻塞方法
+     *
+     * @param method 阻塞方法
+     */
+    void setBlockingMethod(BlockingMethod<ICommand> method) {
+        this.blockingMethod = method;
+    }
+
+    /**
+     * 取消时一并取消执行阶段
+     *
+     * @param stage 执行阶段
+     */
+    void setStage(CompletionStage<?> stage) {
+        if (!(stage instanceof Future)) {
+            return;
+        }
+        this.stage = (Future<?>) stage;
+        // 设置前可能已被取消
+        if (state >= CANCELLED) {
+            cancelStage();
+        }
+    }
+
+    private void cancelStage() {
+        Future<?> s = stage;
+        if (s != null) {
+            stage = null;
+            s.cancel(true);
+        }
+    }
+
+    @Override
+    public void run() {
+        // 排队期间已超时或取消，不再执行
+        if (state != NEW) {
+            return;
+        }
+        runner = Thread.currentThread();
+        Object data = null;
+        Throwable e = null;
+        try {
+            // 先发布执行线程再检查状态，与取消时先修改状态再读取执行线程配合，保证执行中的命令一定被中断
+            if (state != NEW) {
+                return;
+            }
+            // 不经过invoke包装异常，读取结果时才包装
+            data = blockingMethod.run(command);
+        } catch (Throwable t) {
+            e = t;
+        } finally {
+            runner = null;
+        }
+        complete(data, e);
+        if (state >= CANCELLED) {
+            // 等待取消线程中断完成，清除中断标记后再把线程还给线程池
+            while (state == INTERRUPTING) {
+                Thread.yield();
+            }
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * 超时，在时间轮的线程中只做状态检查，完成和回调交给{@link HashedWheelTimer#expiryExecutor()}执行
+     */
+    @Override
+    public void run(ITimeout t) {
+        if (state != NEW) {
+            return;
+        }
+        HashedWheelTimer.expiryExecutor().execute(this::expire);
+    }
+
+    private void expire() {
+        // 超时信息只在超时时才构造
+        complete(null, new TimeoutException("Message of type " + command.getClass()
+                + " Ask timed out on " + (remote ? "remote Node" : "Local Executor")
+                + " after [" + timeoutMillis + "ms]. A typical reason for `TimeoutException` is that the "
+                + (remote ? "recipient actor" : "executor") + " didn't send a reply."));
+        // 不再需要结果，停止执行阶段，中断正在执行的阻塞方法
+        cancelStage();
+        interruptRunner();
+    }
+
+    /**
+     * 超时后中断正在执行的阻塞方法，与{@link #cancel()}一样先修改状态再读取执行线程
+     */
+    private void interruptRunner() {
+        if (runner == null || !STATE.compareAndSet(this, COMPLETED, INTERRUPTING)) {
+            return;
+        }
+        try {
+            Thread t = runner;
+            if (t != null) {
+                t.interrupt();
+            }
+        } finally {
+            state = CANCELLED;
+        }
+    }
+
+    /**
+     * 流程取消，不再回调结果，中断正在执行的阻塞方法
+     */
+    void cancel() {
+        if (state != NEW || !STATE.compareAndSet(this, NEW, INTERRUPTING)) {
+            return;
+        }
+        try {
+            Thread t = runner;
+            if (t != null) {
+                t.interrupt();
+            }
+        } finally {
+            state = CANCELLED;
+        }
+        cancelTimeout();
+        cancelStage();
+        runCancelListener();
+    }
+
+    /**
+     * 命令提交后开始计时
+     *
+     * @param timer         定时器
+     * @param timeoutMillis 超时时间，小于等于0则不超时
+     */
+    void scheduleTimeout(HashedWheelTimer timer, long timeoutMillis) {
+        if (timeoutMillis <= 0 || state != NEW) {
+            return;
+        }
+        this.timeoutMillis = timeoutMillis;
+        this.timeout = timer.newTimeout(this, timeoutMillis, TimeUnit.MILLISECONDS);
+        // 设置前可能已完成或被取消
+        if (state != NEW) {
+            cancelTimeout();
+        }
+    }
+
+    private void cancelTimeout() {
+        ITimeout t = timeout;
+        if (t != null) {
+            t.cancel();
+            timeout = null;
+        }
+    }
+
+    @Override
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public Object getValue() {
+        if (throwable != null) {
+            if (throwable instanceof CommandExecuteException) {
+                throw (CommandExecuteException) throwable;
+            }
+            throw new CommandFailureException(throwable);
+        }
+        return value;
+    }
+
+    /**
+     * 一次提交的所有命令共用的取消回调，所有命令完成后从{@link CancellationToken}中移除
+     */
+    static final class Batch implements Runnable {
+
+        private static final AtomicIntegerFieldUpdater<Batch> PENDING =
+                AtomicIntegerFieldUpdater.newUpdater(Batch.class, "pending");
+
+        private final CancellationToken cancellation;
+        private final CommandCompletion[] completions;
+        // 只由提交线程写入
+        private volatile int size;
+        // 未完成的命令数，提交期间多持有1，避免提交还未结束就被移除
+        private volatile int pending = 1;
+
+        Batch(CancellationToken cancellation, int capacity) {
+            this.cancellation = cancellation;
+            this.completions = new CommandCompletion[capacity];
+            cancellation.onCancel(this);
+        }
+
+        private void add(CommandCompletion completion) {
+            PENDING.incrementAndGet(this);
+            completions[size] = completion;
+            size = size + 1;
+            // 先发布命令再检查取消，与取消时先设置原因再读取命令数配合，保证命令一定被取消
+            if (cancellation.isCancelled()) {
+                completion.cancel();
+            }
+        }
+
+        private void completed() {
+            if (PENDING.decrementAndGet(this) == 0) {
+                cancellation.remove(this);
+            }
+        }
+
+        /**
+         * 提交结束，释放提交期间持有的计数
+         */
+        void submitted() {
+            completed();
+        }
+
+        /**
+         * 取消回调
+         */
+        @Override
+        public void run() {
+            int n = size;
+            for (int i = 0; i < n; i++) {
+                completions[i].cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.command.impl;
+
+import io.github.chyohn.terse.command.IConcurrencyLimitMetrics;
+import io.github.chyohn.terse.exception.ConcurrencyLimitException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 一个命令类型提交到一个执行器的自适应并发限制。
+ * <p>
+ * 按Vegas算法根据耗时调整限制：耗时从提交到执行器开始计算，包含执行器中的排队时间。
+ * 以观察到的最小耗时作为无排队耗时，估计排队数 = 限制 * (1 - 最小耗时 / 平均耗时)，
+ * 排队数少时增加限制，排队数多时减少限制；执行器拒绝时减少限制。
+ * 最小耗时每隔约30倍限制个样本重新探测一次，适应下游的变化。
+ * <p>
+ * 完成的命令只把耗时累加到当前窗口，不加锁；窗口满{@link #WINDOW_SAMPLES}个样本时，
+ * 获得{@link #updateLock}的一个线程汇总窗口并重新计算限制，其他线程不等待。
+ * <p>
+ * 达到限制的命令在有界队列中等待，有命令完成时按顺序提交；队列已满时抛出{@link ConcurrencyLimitException}。
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@Slf4j
+final class ConcurrencyLimiter implements IConcurrencyLimitMetrics {
+
+    static final String ENABLED_KEY = "terse.limiter.enabled";
+    static final String INITIAL_LIMIT_KEY = "terse.limiter.initialLimit";
+    static final String MIN_LIMIT_KEY = "terse.limiter.minLimit";
+    static final String MAX_LIMIT_KEY = "terse.limiter.maxLimit";
+    static final String QUEUE_SIZE_KEY = "terse.limiter.queueSize";
+
+    static final boolean ENABLED = Boolean.getBoolean(ENABLED_KEY);
+    private static final int INITIAL_LIMIT = Integer.getInteger(INITIAL_LIMIT_KEY, 20);
+    private static final int MIN_LIMIT = Integer.getInteger(MIN_LIMIT_KEY, 1);
+    private static final int MAX_LIMIT = Integer.getInteger(MAX_LIMIT_KEY, 1000);
+    private static final int QUEUE_SIZE = Integer.getInteger(QUEUE_SIZE_KEY, 100);
+    private static final int PROBE_MULTIPLIER = 30;
+    // 每个窗口的样本数，窗口满时重新计算限制
+    private static final int WINDOW_SAMPLES = 10;
+
+    private final Class<?> type;
+    private final Executor executor;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int queueSize;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final LongAdder rejected = new LongAdder();
+    private volatile int limit;
+
+    // 当前窗口的样本，完成时累加
+    private final AtomicInteger windowCount = new AtomicInteger();
+    private final LongAdder windowLatency = new LongAdder();
+    private final LongAccumulator windowMinLatency = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator windowMaxInFlight = new LongAccumulator(Math::max, 0);
+
+    // 以下由updateLock保护
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private volatile long minLatencyNanos;
+    private int samples;
+    private int nextProbe;
+
+    ConcurrencyLimiter(Class<?> type, Executor executor) {
+        this(type, executor, INITIAL_LIMIT, MIN_LIMIT, MAX_LIMIT, QUEUE_SIZE);
+    }
+
+    ConcurrencyLimiter(Class<?> type, Executor executor, int initialLimit, int minLimit, int maxLimit, int queueSize) {
+        if (minLimit <= 0 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("illegal limit range [" + minLimit + ", " + maxLimit + "]");
+        }
+        this.type = type;
+        this.executor = executor;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.queueSize = Math.max(queueSize, 0);
+        this.limit = Math.min(Math.max(initialLimit, minLimit), maxLimit);
+        this.nextProbe = PROBE_MULTIPLIER * limit;
+    }
+
+    /**
+     * 未达到限制时提交到执行器，否则排队等待
+     *
+     * @param task     任务
+     * @param onReject 排队后被执行器拒绝时的处理，立即拒绝时直接抛出异常
+     * @throws ConcurrencyLimitException 等待队列已满
+     */
+    void execute(Runnable task, Consumer<Throwable> onReject) {
+        if (queue.isEmpty() && tryAcquire()) {
+            submit(task);
+            return;
+        }
+        if (queued.incrementAndGet() > queueSize) {
+            queued.decrementAndGet();
+            rejected.increment();
+            throw new ConcurrencyLimitException("concurrency limit " + limit + " of " + type.getName()
+                    + " reached and " + queueSize + " commands waiting");
+        }
+        queue.offer(new Pending(task, onReject));
+        // 入队前可能已有命令完成
+        drain();
+    }
+
+    private boolean tryAcquire() {
+        for (;;) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void submit(Runnable task) {
+        long start = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    release(System.nanoTime() - start);
+                }
+            });
+        } catch (Throwable e) {
+            // 执行器已饱和
+            inFlight.decrementAndGet();
+            dropped();
+            throw e;
+        }
+    }
+
+    private void release(long latencyNanos) {
+        sample(latencyNanos, inFlight.getAndDecrement());
+        drain();
+    }
+
+    /**
+     * 按顺序提交等待的命令
+     */
+    private void drain() {
+        while (!queue.isEmpty() && tryAcquire()) {
+            Pending pending = queue.poll();
+            if (pending == null) {
+                inFlight.decrementAndGet();
+                // 释放后可能又有命令入队
+                continue;
+            }
+            queued.decrementAndGet();
+            try {
+                submit(pending.task);
+            } catch (Throwable e) {
+                pending.reject(e);
+            }
+        }
+    }
+
+    private void sample(long latencyNanos, int inFlight) {
+        if (latencyNanos <= 0) {
+            return;
+        }
+        windowLatency.add(latencyNanos);
+        windowMinLatency.accumulate(latencyNanos);
+        windowMaxInFlight.accumulate(inFlight);
+        if (windowCount.incrementAndGet() >= WINDOW_SAMPLES) {
+            tryUpdate();
+        }
+    }
+
+    /**
+     * 获得锁的线程汇总窗口，其他线程不等待，继续累加到下一个窗口。
+     * 释放锁后窗口又满时继续汇总，未获得锁的线程填满的窗口不会错过更新
+     */
+    private void tryUpdate() {
+        while (windowCount.get() >= WINDOW_SAMPLES && updateLock.tryLock()) {
+            try {
+                update();
+            } finally {
+                updateLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 汇总窗口并重新计算限制，和窗口的累加并发时个别样本可能计入下一个窗口
+     */
+    private void update() {
+        int count = windowCount.getAndSet(0);
+        if (count < WINDOW_SAMPLES) {
+            // 其他线程刚更新过
+            windowCount.addAndGet(count);
+            return;
+        }
+        long latencyNanos = windowLatency.sumThenReset() / count;
+        long windowMin = windowMinLatency.getThenReset();
+        int inFlight = (int) windowMaxInFlight.getThenReset();
+        samples += count;
+        if (samples >= nextProbe) {
+            // 重新探测无排队耗时
+            samples = 0;
+            nextProbe = PROBE_MULTIPLIER * limit;
+            minLatencyNanos = windowMin;
+            return;
+        }
+        if (minLatencyNanos == 0 || windowMin < minLatencyNanos) {
+            minLatencyNanos = windowMin;
+        }
+        int current = limit;
+        if (inFlight * 2 < current) {
+            // 并发远小于限制，耗时不能说明限制是否合适
+            return;
+        }
+        int log = log10(current);
+        int queueing = (int) Math.ceil(current * (1 - (double) minLatencyNanos / latencyNanos));
+        int next;
+        if (queueing <= log) {
+            next = current + 6 * log;
+        } else if (queueing < 3 * log) {
+            next = current + log;
+        } else if (queueing > 6 * log) {
+            next = current - log;
+        } else {
+            return;
+        }
+        setLimit(next);
+    }
+
+    private void dropped() {
+        updateLock.lock();
+        try {
+            int current = limit;
+            setLimit(current - log10(current));
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    private void setLimit(int next) {
+        limit = Math.min(Math.max(next, minLimit), maxLimit);
+    }
+
+    private static int log10(int limit) {
+        return Math.max(1, (int) Math.log10(limit));
+    }
+
+    @Override
+    public Class<?> commandType() {
+        return type;
+    }
+
+    @Override
+    public String executor() {
+        return executor.toString();
+    }
+
+    @Override
+    public int limit() {
+        return limit;
+    }
+
+    @Override
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public int queued() {
+        return queued.get();
+    }
+
+    @Override
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public long minLatencyNanos() {
+        return minLatencyNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrencyLimiter[" + type.getName() + ", limit=" + limit() + ", inFlight=" + inFlight()
+                + ", queued=" + queued() + ", rejected=" + rejected()
+                + ", minLatency=" + TimeUnit.NANOSECONDS.toMicros(minLatencyNanos()) + "us]";
+    }
+
+    private static final class Pending {
+        final Runnable task;
+        final Consumer<Throwable> onReject;
+
+        Pending(Runnable task, Consumer<Throwable> onReject) {
+            this.task = task;
+            this.onReject = onReject;
+        }
+
+        void reject(Throwable e) {
+            try {
+                onReject.accept(e);
+            } catch (Throwable t) {
+                log.error("reject queued command failed", t);
+            }
+        }
+    }
+}
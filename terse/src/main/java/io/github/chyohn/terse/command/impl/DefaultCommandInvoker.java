@@ -16,26 +16,27 @@
 
 package io.github.chyohn.terse.command.impl;
 
+import io.github.chyohn.terse.breaker.CircuitBreaker;
+import io.github.chyohn.terse.breaker.CircuitBreakers;
 import io.github.chyohn.terse.cluster.IClusterClient;
 import io.github.chyohn.terse.enums.RunningWay;
-import io.github.chyohn.terse.exception.CommandExecuteException;
-import io.github.chyohn.terse.function.Callback2;
+import io.github.chyohn.terse.command.CachePolicy;
+import io.github.chyohn.terse.command.CancellationToken;
+import io.github.chyohn.terse.command.ICacheMetrics;
+import io.github.chyohn.terse.command.ICoalescible;
+import io.github.chyohn.terse.command.ICoalescingMetrics;
 import io.github.chyohn.terse.command.ICommand;
 import io.github.chyohn.terse.command.IReceiver;
 import io.github.chyohn.terse.command.ICommandInvoker;
 import io.github.chyohn.terse.command.IReceiverRegistry;
 import io.github.chyohn.terse.command.IResult;
 import io.github.chyohn.terse.command.result.FailureResult;
+import io.github.chyohn.terse.exception.CircuitBreakerOpenException;
 import io.github.chyohn.terse.spi.ISpiFactory;
+import io.github.chyohn.terse.timer.HashedWheelTimer;
 import io.github.chyohn.terse.utils.ObjectUtils;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 import lombok.extern.slf4j.Slf4j;
@@ -48,41 +49,57 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 class DefaultCommandInvoker implements ICommandInvoker {
 
-    private static final int TIMEOUT_CORES = 2;//Math.max(4, SysUtils.CPU_COUNT / 2);
-    public static final ScheduledExecutorService TIMEOUT_EXECUTOR_SERVICE = Executors.newScheduledThreadPool(
-        TIMEOUT_CORES);
-
+    private final HashedWheelTimer timeoutTimer = HashedWheelTimer.commandTimer();
 
     private final IReceiverRegistry receiverRegistry = ISpiFactory.get(IReceiverRegistry.class);
     private final IClusterClient clusterClient = ISpiFactory.get(IClusterClient.class, false);
+    private final CommandCoalescer coalescer = new CommandCoalescer();
+    private final ResultCaches resultCaches = new ResultCaches(clusterClient);
 
     @Override
     public void asyncInvoke(List<ICommand> commands,
                             long timeout, RunningWay runningWay,
                             Consumer<IResult<?>> callback) {
+        asyncInvoke(commands, timeout, runningWay, null, callback);
+    }
+
+    @Override
+    public void asyncInvoke(List<ICommand> commands,
+                            long timeout, RunningWay runningWay,
+                            CancellationToken cancellation,
+                            Consumer<IResult<?>> callback) {
 
         ICommand command = null;
+        int index = 0;
         boolean serial = false;
+        CommandCompletion.Batch batch = null;
         try {
             if (ObjectUtils.isEmpty(commands)) {
                 return;
             }
-            for (int i = 0; i < commands.size(); i++) {
-                command = commands.get(i);
+            if (cancellation != null && runningWay != RunningWay.SERIAL) {
+                batch = new CommandCompletion.Batch(cancellation, commands.size());
+            }
+            for (; index < commands.size(); index++) {
+                if (cancellation != null && cancellation.isCancelled()) {
+                    // 已取消，不再提交剩余命令
+                    return;
+                }
+                command = commands.get(index);
                 if (command.getId() == 0) {
-                    command.setId(i);
+                    command.setId(index);
                 }
 
                 switch (runningWay) {
                     case CLUSTER:
-                        asyncRemote(command, timeout, callback);
+                        asyncRemote(command, timeout, cancellation, batch, callback);
                         break;
                     case PARALLEL:
-                        asyncLocal(command, timeout, callback);
+                        asyncLocal(command, timeout, cancellation, batch, callback);
                         break;
                     default:
                         serial = true;
-                        serial(command, callback);
+                        serial(command, timeout, callback);
                         break;
                 }
             }
@@ -91,144 +108,233 @@ class DefaultCommandInvoker implements ICommandInvoker {
                 throw e;
             }
             log.error("{}execute error：", commands, e);
-            doResponse(command, null, e, callback);
+            doResponse(command, e, callback);
+            // 剩余的命令没有提交，也以失败回调，调用方不会一直等待
+            for (int i = index + 1; i < commands.size(); i++) {
+                ICommand remaining = commands.get(i);
+                if (remaining.getId() == 0) {
+                    remaining.setId(i);
+                }
+                doResponse(remaining, e, callback);
+            }
+        } finally {
+            if (batch != null) {
+                batch.submitted();
+            }
         }
     }
 
-    private void asyncRemote(ICommand command, long timeoutMills, Consumer<IResult<?>> callback) {
+    private void asyncRemote(ICommand command, long timeoutMills, CancellationToken cancellation,
+                             CommandCompletion.Batch batch, Consumer<IResult<?>> callback) {
 
         if (clusterClient == null || !clusterClient.isInit()) {
             log.warn("cluster mode is closed，use parallel mode");
-            asyncLocal(command, timeoutMills, callback);
+            asyncLocal(command, timeoutMills, cancellation, batch, callback);
             return;
         }
 
-        try {
-            ResultHandlerCancellableTask task = new ResultHandlerCancellableTask(
-                (r, throwable) -> doResponse(command, r, throwable, callback));
-            clusterClient.request(command, task);
-
-            String timeoutMsg = "Message of type " + command.getClass()
-                + " Ask timed out on remote Node after [" + timeoutMills + "ms]. "
-                + " A typical reason for `TimeoutException` is that the recipient actor didn't send a reply.";
-            timeoutSchedule(task, timeoutMills, timeoutMsg);
-        } catch (Exception throwable) {
-            doResponse(command, null, throwable, callback);
+        CommandCompletion completion = new CommandCompletion(command, true, batch, callback);
+        CommandCompletion execution = prepare(command, true, timeoutMills, completion, true);
+        if (execution != null) {
+            // 合并的执行不属于任何一个调用方，不随调用方取消
+            execute(command, true, execution == completion ? cancellation : null, timeoutMills, execution);
         }
     }
 
-    private void asyncLocal(ICommand command, long timeoutMills, Consumer<IResult<?>> callback) {
-
-        try {
-            ResultHandlerCancellableTask task = new ResultHandlerCancellableTask(
-                (r, throwable) -> doResponse(command, r, throwable, callback));
-
-            IReceiver<ICommand> receiver = receiverRegistry.getAsyncReceiver(command);
-            receiver.async(command, r -> task.apply((IResult<?>) r, null));
+    private void asyncLocal(ICommand command, long timeoutMills, CancellationToken cancellation,
+                            CommandCompletion.Batch batch, Consumer<IResult<?>> callback) {
 
-            String timeoutMsg = "Message of type " + command.getClass()
-                + " Ask timed out on Local Executor after [" + timeoutMills + "ms]. "
-                + " A typical reason for `TimeoutException` is that the executor didn't send a reply.";
-            timeoutSchedule(task, timeoutMills, timeoutMsg);
-        } catch (Exception throwable) {
-            doResponse(command, null, throwable, callback);
+        CommandCompletion completion = new CommandCompletion(command, false, batch, callback);
+        CommandCompletion execution = prepare(command, false, timeoutMills, completion, true);
+        if (execution != null) {
+            execute(command, false, execution == completion ? cancellation : null, timeoutMills, execution);
         }
     }
 
-    private void serial(ICommand command, Consumer<IResult<?>> callback) {
-        IReceiver<ICommand> receiver = receiverRegistry.getSyncReceiver(command);
-        doResponse(command, receiver.sync(command), null, callback);
-    }
-
-    private void doResponse(ICommand command, IResult<?> response, Throwable throwable,
-        Consumer<IResult<?>> callback) {
-
-        if (callback == null) {
-            return;
+    private void execute(ICommand command, boolean remote, CancellationToken cancellation, long timeoutMills,
+                         CommandCompletion completion) {
+        CircuitBreaker breaker = breaker(command);
+        if (breaker != null) {
+            if (!acquire(breaker, command, completion)) {
+                return;
+            }
+            record(breaker, completion);
         }
-
-        IResult<?> result;
-        if (response != null) {
-            if (response instanceof FailureResult) {
-                throwable = new CommandExecuteException("command execute error， " + ((FailureResult) response).getValue());
+        try {
+            if (remote) {
+                clusterClient.request(command, timeoutMills, cancellation, completion);
+            } else {
+                IReceiver<ICommand> receiver = receiverRegistry.getAsyncReceiver(command);
+                receiver.async(command, cancellation, completion);
             }
-            result = new ResultWrapper<>(response.getValue(), response.getId(), throwable);
-        } else {
-            result = new ResultWrapper<>(null, command == null ? -1 : command.getId(), throwable);
+            completion.scheduleTimeout(timeoutTimer, timeoutMills);
+        } catch (Exception throwable) {
+            completion.complete(null, throwable);
         }
-
-        callback.accept(result);
     }
 
-    private void timeoutSchedule(ResultHandlerCancellableTask task, long timeoutMills, String msg) {
-        if (timeoutMills <= 0) {
-            return;
+    /**
+     * 执行前查询缓存的结果，合并到正在执行的相同命令
+     *
+     * @param coalesce 是否合并
+     * @return 需要执行的完成记录，合并时是共享的执行；null已由缓存完成或已合并
+     */
+    private CommandCompletion prepare(ICommand command, boolean remote, long timeoutMills,
+                                      CommandCompletion completion, boolean coalesce) {
+        ResultCache<ICommand> cache = resultCaches.get(command);
+        String key = cache == null ? null : cache.key(command);
+        if (key == null) {
+            // 没有key的命令不缓存
+            cache = null;
+        } else {
+            ResultCache.Node node = cache.get(key);
+            if (node != null) {
+                Object value = node.value;
+                if (cache.startRefresh(node)) {
+                    refresh(cache, key, node, command, remote, timeoutMills);
+                }
+                completion.complete(value, null);
+                return null;
+            }
         }
-        ScheduledFuture<?> future = TIMEOUT_EXECUTOR_SERVICE.schedule(() -> task.apply(null, new TimeoutException(msg)),
-            timeoutMills, TimeUnit.MILLISECONDS);
-        task.setTimeoutFuture(future);
+        if (coalesce && command instanceof ICoalescible) {
+            CommandCompletion execution = coalescer.join((ICoalescible) command, remote, completion);
+            // 调用方按自己的超时时间等待结果
+            completion.scheduleTimeout(timeoutTimer, timeoutMills);
+            if (execution == null) {
+                return null;
+            }
+            completion = execution;
+        }
+        if (cache != null) {
+            completion.addListener(cacheLoader(cache, key, command, null));
+        }
+        return completion;
     }
 
-    private static final class ResultWrapper<R> implements IResult<R> {
-
-        R r;
-        Throwable throwable;
-        int id;
+    /**
+     * 后台重新执行命令，更新缓存的结果
+     */
+    private void refresh(ResultCache<ICommand> cache, String key, ResultCache.Node node, ICommand command,
+                         boolean remote, long timeoutMills) {
+        CommandCompletion refresh = new CommandCompletion(command, remote, null, null);
+        refresh.addListener(cacheLoader(cache, key, command, node));
+        execute(command, remote, null, timeoutMills, refresh);
+    }
 
-        ResultWrapper(R r, int id, Throwable e) {
-            this.r = r;
-            this.id = id;
-            this.throwable = e;
-        }
+    private static BiConsumer<Object, Throwable> cacheLoader(ResultCache<ICommand> cache, String key,
+                                                             ICommand command, ResultCache.Node refreshing) {
+        return (value, e) -> {
+            if (e == null && value != null) {
+                cache.put(key, command, value);
+            } else if (refreshing != null) {
+                cache.refreshFailed(refreshing);
+            }
+        };
+    }
 
-        @Override
-        public int getId() {
-            return id;
-        }
+    @Override
+    public ICoalescingMetrics coalescingMetrics() {
+        return coalescer;
+    }
 
+    @Override
+    public <T extends ICommand> void cacheResults(Class<T> type, CachePolicy<T> policy) {
+        resultCaches.register(type, policy);
+    }
 
-        @Override
-        public R getValue() {
-            if (throwable != null) {
-                if (throwable instanceof CommandExecuteException) {
-                    throw (CommandExecuteException) throwable;
-                }
-                throw new CommandExecuteException(throwable);
-            }
-            return r;
-        }
+    @Override
+    public void onClusterInit() {
+        resultCaches.onClusterInit();
+    }
 
+    @Override
+    public void invalidateResult(ICommand command) {
+        resultCaches.invalidate(command);
     }
 
-    private static final class ResultHandlerCancellableTask implements Callback2<IResult<?>, Throwable> {
+    @Override
+    public void invalidateResults(Class<? extends ICommand> type) {
+        resultCaches.invalidateAll(type);
+    }
 
-        private final Callback2<IResult<?>, Throwable> callable;
-        private final AtomicBoolean finished = new AtomicBoolean(false);
-        private Future<?> timeoutFuture;
+    @Override
+    public List<ICacheMetrics> cacheMetrics() {
+        return resultCaches.metrics();
+    }
 
-        ResultHandlerCancellableTask(Callback2<IResult<?>, Throwable> callable) {
-            this.callable = callable;
+    private void serial(ICommand command, long timeoutMills, Consumer<IResult<?>> callback) {
+        CommandCompletion completion = prepare(command, false, timeoutMills,
+                new CommandCompletion(command, false, null, callback), false);
+        if (completion == null) {
+            return;
         }
-
-        public void apply(IResult<?> response, Throwable throwable) {
-            if (!finished.get() && !finished.getAndSet(true)) {
-                callable.apply(response, throwable);
-                if (timeoutFuture != null) {
-                    timeoutFuture.cancel(false);
-                    timeoutFuture = null;
-                }
+        CircuitBreaker breaker = breaker(command);
+        if (breaker != null && !acquire(breaker, command, completion)) {
+            return;
+        }
+        IReceiver<ICommand> receiver = receiverRegistry.getSyncReceiver(command);
+        if (!receiver.canSync(command)) {
+            // 只有异步方法，由异步方法完成时回调，不阻塞当前线程等待
+            if (breaker != null) {
+                record(breaker, completion);
             }
+            receiver.async(command, null, completion);
+            return;
+        }
+        if (breaker == null) {
+            completion.accept(receiver.sync(command));
+            return;
+        }
+        // 同步执行的异常直接抛给调用方，不经过完成记录，直接通知熔断器
+        long start = System.nanoTime();
+        IResult<?> result;
+        try {
+            result = receiver.sync(command);
+        } catch (Throwable e) {
+            breaker.onResult(System.nanoTime() - start, true);
+            throw e;
         }
+        breaker.onResult(System.nanoTime() - start, result instanceof FailureResult);
+        completion.accept(result);
+    }
 
+    /**
+     * @return 命令类型的熔断器，null未开启熔断
+     */
+    private static CircuitBreaker breaker(ICommand command) {
+        return CircuitBreakers.ENABLED ? CircuitBreakers.get(command.getClass().getName()) : null;
+    }
 
-        public void setTimeoutFuture(Future<?> timeoutFuture) {
-            if (finished.get()) {
-                timeoutFuture.cancel(false);
-            } else {
-                this.timeoutFuture = timeoutFuture;
-            }
+    /**
+     * 获取熔断器的许可
+     *
+     * @return false熔断器已打开，完成记录已以{@link CircuitBreakerOpenException}完成
+     */
+    private static boolean acquire(CircuitBreaker breaker, ICommand command, CommandCompletion completion) {
+        if (breaker.tryAcquire()) {
+            return true;
         }
+        completion.complete(null, new CircuitBreakerOpenException("circuit breaker of "
+                + command.getClass().getName() + " is " + breaker.state()));
+        return false;
+    }
+
+    /**
+     * 在完成记录上记录耗时和是否失败，超时也是失败；取消时没有结果，归还许可，避免半开状态的试探许可丢失
+     */
+    private static void record(CircuitBreaker breaker, CommandCompletion completion) {
+        long start = System.nanoTime();
+        completion.addListener((value, e) -> breaker.onResult(System.nanoTime() - start,
+                e != null && !(e instanceof CircuitBreakerOpenException)));
+        completion.addCancelListener(breaker::release);
     }
 
+    private void doResponse(ICommand command, Throwable throwable, Consumer<IResult<?>> callback) {
+        if (callback == null) {
+            return;
+        }
+        new CommandCompletion(command, false, null, callback).apply(null, throwable);
+    }
 
 }
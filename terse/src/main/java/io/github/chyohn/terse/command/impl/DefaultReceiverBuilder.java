@@ -17,11 +17,13 @@
 package io.github.chyohn.terse.command.impl;
 
 import io.github.chyohn.terse.command.AsyncMethod;
+import io.github.chyohn.terse.command.BatchMethod;
 import io.github.chyohn.terse.command.BlockingMethod;
 import io.github.chyohn.terse.command.ExecutorFactory;
 import io.github.chyohn.terse.command.ICommand;
 import io.github.chyohn.terse.command.IReceiver;
 import io.github.chyohn.terse.command.IReceiverBuilder;
+import io.github.chyohn.terse.command.StageMethod;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Executor;
@@ -36,6 +38,8 @@ class DefaultReceiverBuilder<C extends ICommand> implements IReceiverBuilder<C>
     private final Map<Class<? extends C>, AsyncMethod<? extends C>> asyncMethodMap = new HashMap<>();
     private Executor defaultExecutor;
     private final Map<Class<? extends C>, ExecutorFactory<? extends C>> requestExecutors = new HashMap<>();
+    private final Map<Class<? extends C>, StageMethod<? extends C>> stageMethodMap = new HashMap<>();
+    private final Map<Class<? extends C>, BatchSpec<? extends C>> batchMethodMap = new HashMap<>();
 
     @Override
     public <T extends C>  IReceiverBuilder<C> onReceive(Class<T> t, BlockingMethod<T> handler) {
@@ -57,6 +61,24 @@ class DefaultReceiverBuilder<C extends ICommand> implements IReceiverBuilder<C>
         return this;
     }
 
+    @Override
+    public <T extends C> IReceiverBuilder<C> onReceiveStage(Class<T> t, StageMethod<T> handler) {
+        stageMethodMap.put(t, handler);
+        return this;
+    }
+
+    @Override
+    public <T extends C> IReceiverBuilder<C> onReceiveBatch(Class<T> t, BatchMethod<T> handler) {
+        return onReceiveBatch(t, handler, CommandBatcher.DEFAULT_MAX_SIZE, CommandBatcher.DEFAULT_MAX_WAIT_MILLIS);
+    }
+
+    @Override
+    public <T extends C> IReceiverBuilder<C> onReceiveBatch(Class<T> t, BatchMethod<T> handler, int maxBatchSize,
+                                                            long maxWaitMillis) {
+        batchMethodMap.put(t, new BatchSpec<>(t, handler, maxBatchSize, maxWaitMillis));
+        return this;
+    }
+
     @Override
     public <T extends C> DefaultReceiverBuilder<C> defaultExecutor(Executor executor) {
         this.defaultExecutor = executor;
@@ -71,7 +93,33 @@ class DefaultReceiverBuilder<C extends ICommand> implements IReceiverBuilder<C>
 
 
     public IReceiver<C> build() {
-        return new Receiver<C>(blockingMethodMap, asyncMethodMap, defaultExecutor, requestExecutors);
+        // 执行器可能在批量方法之后设置，构建时才创建批处理器
+        Map<Class<? extends C>, CommandBatcher<? extends C>> batchers = new HashMap<>();
+        for (BatchSpec<? extends C> spec : batchMethodMap.values()) {
+            batchers.put(spec.type, spec.create(defaultExecutor, requestExecutors));
+        }
+        return new Receiver<C>(blockingMethodMap, asyncMethodMap, stageMethodMap, defaultExecutor, requestExecutors,
+                batchers);
+    }
+
+    private static final class BatchSpec<T extends ICommand> {
+        final Class<T> type;
+        final BatchMethod<T> method;
+        final int maxBatchSize;
+        final long maxWaitMillis;
+
+        BatchSpec(Class<T> type, BatchMethod<T> method, int maxBatchSize, long maxWaitMillis) {
+            this.type = type;
+            this.method = method;
+            this.maxBatchSize = maxBatchSize;
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        @SuppressWarnings("unchecked")
+        CommandBatcher<T> create(Executor executor, Map<? extends Class<?>, ? extends ExecutorFactory<?>> executors) {
+            return new CommandBatcher<>(type, method, maxBatchSize, maxWaitMillis, executor,
+                    (ExecutorFactory<T>) executors.get(type));
+        }
     }
 
 }
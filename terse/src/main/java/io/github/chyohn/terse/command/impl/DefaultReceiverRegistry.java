@@ -21,73 +21,111 @@ import io.github.chyohn.terse.spi.ISpiFactory;
 import io.github.chyohn.terse.utils.ObjectUtils;
 import io.github.chyohn.terse.command.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * 命令类型到接收者的分发表。
+ * <p>
+ * 接收者列表写时复制，每次注册生成新的{@link DispatchTable}；按命令类型缓存解析结果，
+ * 找不到接收者的类型也会缓存，避免每次都重新扫描{@link IReceiverFactoryLoader}。
+ * 注册很少发生，读取不加锁，注册时丢弃旧表中的缓存。
+ *
  * @author qiang.shao
  * @since 1.0.0
  */
 class DefaultReceiverRegistry implements IReceiverRegistry {
 
-    private final Set<IReceiver<ICommand>> receivers = new HashSet<>();
     private final Set<Class<? extends IReceiverFactory>> receiverFactoryClasses = new HashSet<>();
-    private final Set<IReceiverFactory<ICommand>> receiverFactories = new HashSet<>();
+    private volatile DispatchTable table = new DispatchTable(Collections.emptyList());
 
     @Override
     public void register(IReceiverFactory<ICommand> receiverFactory) {
-        if (!receiverFactoryClasses.add(receiverFactory.getClass())) {
-            return;
+        synchronized (this) {
+            if (!receiverFactoryClasses.add(receiverFactory.getClass())) {
+                return;
+            }
         }
         IReceiverBuilder<ICommand> builder = new DefaultReceiverBuilder<>();
         receiverFactory.buildReceiver(builder);
-        IReceiver<ICommand> receiver = builder.build();
+        register(builder.build());
+    }
+
+    /**
+     * 注册接收者，生成新的分发表
+     *
+     * @param receiver 接收者
+     */
+    synchronized void register(IReceiver<ICommand> receiver) {
+        List<IReceiver<ICommand>> receivers = new ArrayList<>(table.receivers);
         receivers.add(receiver);
+        table = new DispatchTable(Collections.unmodifiableList(receivers));
     }
 
     @Override
     public IReceiver<ICommand> getSyncReceiver(ICommand command) {
-        for (IReceiver<ICommand> receiver : receivers) {
-            if (receiver.canSync(command)) {
-                return receiver;
-            }
-        }
-
-        for (IReceiver<ICommand> receiver : receivers) {
-            if (receiver.canAsync(command)) {
-                return receiver;
-            }
-        }
-
-        if (register(command)) {
-            return getSyncReceiver(command);
+        Dispatch dispatch = dispatch(command);
+        IReceiver<ICommand> receiver = dispatch.syncReceiver != null ? dispatch.syncReceiver : dispatch.asyncReceiver;
+        if (receiver == null) {
+            throw new CommandExecuteException("no receiver can execute this command: " + command.getClass().getName());
         }
-
-        throw new CommandExecuteException("no receiver can execute this command: " + command.getClass().getName());
+        return receiver;
     }
 
     @Override
     public IReceiver<ICommand> getAsyncReceiver(ICommand command) {
+        Dispatch dispatch = dispatch(command);
+        IReceiver<ICommand> receiver = dispatch.asyncReceiver != null ? dispatch.asyncReceiver : dispatch.syncReceiver;
+        if (receiver == null) {
+            throw new CommandExecuteException(
+                    "no receiver can async execute this command: " + command.getClass().getName());
+        }
+        return receiver;
+    }
 
-        for (IReceiver<ICommand> receiver : receivers) {
-            if (receiver.canAsync(command)) {
-                return receiver;
+    @Override
+    public List<IBatchMetrics> batchMetrics() {
+        List<IBatchMetrics> metrics = new ArrayList<>();
+        for (IReceiver<ICommand> receiver : table.receivers) {
+            if (receiver instanceof Receiver) {
+                metrics.addAll(((Receiver<ICommand>) receiver).batchMetrics());
             }
         }
+        return metrics;
+    }
 
-        for (IReceiver<ICommand> receiver : receivers) {
-            if (receiver.canSync(command)) {
-                return receiver;
+    @Override
+    public List<IConcurrencyLimitMetrics> concurrencyLimitMetrics() {
+        List<IConcurrencyLimitMetrics> metrics = new ArrayList<>();
+        for (IReceiver<ICommand> receiver : table.receivers) {
+            if (receiver instanceof Receiver) {
+                metrics.addAll(((Receiver<ICommand>) receiver).concurrencyLimitMetrics());
             }
         }
+        return metrics;
+    }
 
-        if (register(command)) {
-            return getAsyncReceiver(command);
+    private Dispatch dispatch(ICommand command) {
+        Class<?> type = command.getClass();
+        DispatchTable current = table;
+        Dispatch dispatch = current.cache.get(type);
+        if (dispatch != null) {
+            return dispatch;
         }
 
-        throw new CommandExecuteException(
-                "no receiver can async execute this command: " + command.getClass().getName());
+        dispatch = current.resolve(command);
+        if (dispatch == Dispatch.NONE && register(command)) {
+            // 加载到新的接收者，在新表中解析
+            current = table;
+            dispatch = current.resolve(command);
+        }
+        // 并发注册时可能放入旧表，旧表已不再使用
+        Dispatch old = current.cache.putIfAbsent(type, dispatch);
+        return old != null ? old : dispatch;
     }
 
     /**
@@ -117,4 +155,50 @@ class DefaultReceiverRegistry implements IReceiverRegistry {
 
         return loaded;
     }
+
+    /**
+     * 某个版本的接收者列表及其解析缓存
+     */
+    private static final class DispatchTable {
+
+        final List<IReceiver<ICommand>> receivers;
+        final ConcurrentHashMap<Class<?>, Dispatch> cache = new ConcurrentHashMap<>();
+
+        DispatchTable(List<IReceiver<ICommand>> receivers) {
+            this.receivers = receivers;
+        }
+
+        Dispatch resolve(ICommand command) {
+            IReceiver<ICommand> syncReceiver = null;
+            IReceiver<ICommand> asyncReceiver = null;
+            for (IReceiver<ICommand> receiver : receivers) {
+                if (syncReceiver == null && receiver.canSync(command)) {
+                    syncReceiver = receiver;
+                }
+                if (asyncReceiver == null && receiver.canAsync(command)) {
+                    asyncReceiver = receiver;
+                }
+            }
+            if (syncReceiver == null && asyncReceiver == null) {
+                return Dispatch.NONE;
+            }
+            return new Dispatch(syncReceiver, asyncReceiver);
+        }
+    }
+
+    /**
+     * 命令类型的解析结果，{@link #NONE}没有接收者
+     */
+    private static final class Dispatch {
+
+        static final Dispatch NONE = new Dispatch(null, null);
+
+        final IReceiver<ICommand> syncReceiver;
+        final IReceiver<ICommand> asyncReceiver;
+
+        Dispatch(IReceiver<ICommand> syncReceiver, IReceiver<ICommand> asyncReceiver) {
+            this.syncReceiver = syncReceiver;
+            this.asyncReceiver = asyncReceiver;
+        }
+    }
 }
@@ -16,21 +16,33 @@
 
 package io.github.chyohn.terse.command.impl;
 
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import io.github.chyohn.terse.exception.CommandExecuteException;
 import io.github.chyohn.terse.command.result.ResultUtils;
 import io.github.chyohn.terse.command.AsyncMethod;
 import io.github.chyohn.terse.command.BlockingMethod;
+import io.github.chyohn.terse.command.CancellationToken;
 import io.github.chyohn.terse.command.ExecutorFactory;
+import io.github.chyohn.terse.command.IBatchMetrics;
+import io.github.chyohn.terse.command.IConcurrencyLimitMetrics;
 import io.github.chyohn.terse.command.ICommand;
 import io.github.chyohn.terse.command.IReceiver;
 import io.github.chyohn.terse.command.IResult;
+import io.github.chyohn.terse.command.StageMethod;
 
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
 import java.util.function.Consumer;
 import lombok.extern.slf4j.Slf4j;
 import io.github.chyohn.terse.utils.ObjectUtils;
@@ -43,24 +55,45 @@ import io.github.chyohn.terse.utils.ObjectUtils;
 @Slf4j
 class Receiver<C extends ICommand> implements IReceiver<C> {
 
+    // 与CompletableFuture.supplyAsync的默认执行器一致，公共线程池并行度不足时每个任务一个线程
+    static final Executor DEFAULT_ASYNC_EXECUTOR = ForkJoinPool.getCommonPoolParallelism() > 1
+        ? ForkJoinPool.commonPool() : r -> new Thread(r).start();
+
     private final Map<Class<? extends C>, BlockingMethod<? extends C>> blockingMethodMap;
     private final Map<Class<? extends C>, AsyncMethod<? extends C>> asyncMethodMap;
+    private final Map<Class<? extends C>, StageMethod<? extends C>> stageMethodMap;
     private final Executor defaultExecutor;
     private final Map<Class<? extends C>, ExecutorFactory<? extends C>> requestExecutors;
+    private final Map<Class<? extends C>, CommandBatcher<? extends C>> batchers;
+    // 命令类型 -> 执行器 -> 并发限制
+    private final ConcurrentHashMap<Class<?>, ConcurrentHashMap<Executor, ConcurrencyLimiter>> limiters =
+        new ConcurrentHashMap<>();
 
     Receiver(Map<Class<? extends C>, BlockingMethod<? extends C>> blockingMethodMap
         , Map<Class<? extends C>, AsyncMethod<? extends C>> asyncMethodMap
+        , Map<Class<? extends C>, StageMethod<? extends C>> stageMethodMap
         , Executor defaultExecutor
-        , Map<Class<? extends C>, ExecutorFactory<? extends C>> requestExecutors) {
+        , Map<Class<? extends C>, ExecutorFactory<? extends C>> requestExecutors
+        , Map<Class<? extends C>, CommandBatcher<? extends C>> batchers) {
 
-        if (ObjectUtils.isEmpty(blockingMethodMap) && ObjectUtils.isEmpty(asyncMethodMap)) {
+        if (ObjectUtils.isEmpty(blockingMethodMap) && ObjectUtils.isEmpty(asyncMethodMap)
+            && ObjectUtils.isEmpty(stageMethodMap) && ObjectUtils.isEmpty(batchers)) {
             throw new IllegalArgumentException("no command handler defined for this receiver");
         }
 
         this.blockingMethodMap = blockingMethodMap;
         this.asyncMethodMap = asyncMethodMap;
+        this.stageMethodMap = stageMethodMap;
         this.defaultExecutor = defaultExecutor;
         this.requestExecutors = requestExecutors;
+        this.batchers = batchers;
+    }
+
+    /**
+     * @return the metrics of the command types executed in batches
+     */
+    Collection<? extends IBatchMetrics> batchMetrics() {
+        return batchers.values();
     }
 
     @Override
@@ -70,11 +103,21 @@ class Receiver<C extends ICommand> implements IReceiver<C> {
 
     @Override
     public <T extends C> boolean canAsync(T command) {
-        return asyncMethodMap.containsKey(command.getClass());
+        Class<?> type = command.getClass();
+        return asyncMethodMap.containsKey(type) || stageMethodMap.containsKey(type) || batchers.containsKey(type);
     }
 
     @Override
     public <T extends C> IResult<?> sync(T command) {
+        CommandBatcher<T> batcher = getBatcher(command);
+        if (batcher != null) {
+            return batcher.sync(command);
+        }
+        StageMethod<T> stageMethod = getStageMethod(command);
+        if (stageMethod != null) {
+            return receiveWithStageMethod(command, stageMethod);
+        }
+
         BlockingMethod<T> method = getBlockingMethod(command);
         if (method != null) {
             return ResultUtils.returnData(command, method.invoke(command));
@@ -89,6 +132,17 @@ class Receiver<C extends ICommand> implements IReceiver<C> {
 
     @Override
     public <T extends C> void async(T command, Consumer<IResult<?>> callback) {
+        CommandBatcher<T> batcher = getBatcher(command);
+        if (batcher != null) {
+            batcher.add(command, callback);
+            return;
+        }
+        StageMethod<T> stageMethod = getStageMethod(command);
+        if (stageMethod != null) {
+            asyncWithStageMethod(command, stageMethod, callback);
+            return;
+        }
+
         AsyncMethod<T> method = getAsyncMethod(command);
         if (method != null) {
             method.invoke(command, data -> {
@@ -105,6 +159,160 @@ class Receiver<C extends ICommand> implements IReceiver<C> {
 
     }
 
+    @Override
+    public <T extends C> void async(T command, CancellationToken cancellation, Consumer<IResult<?>> callback) {
+        if (callback instanceof CommandCompletion) {
+            // 调用方的完成记录，直接写入结果，不再包装
+            asyncWithCompletion(command, (CommandCompletion) callback);
+            return;
+        }
+
+        BlockingMethod<T> blockingMethod = getBlockingMethod(command);
+        if (cancellation == null || blockingMethod == null || canAsync(command)) {
+            // 异步方法由调用方自己执行，批量命令与其他命令一起执行，都无法中断
+            async(command, callback);
+            return;
+        }
+
+        CancellableCommandTask<T> task = new CancellableCommandTask<>(command, blockingMethod, cancellation, callback);
+        cancellation.onCancel(task);
+        try {
+            execute(command, task.future, e -> {
+                cancellation.remove(task);
+                doResponse(command, null, e, callback);
+            });
+        } catch (RuntimeException e) {
+            cancellation.remove(task);
+            throw e;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends C> void asyncWithCompletion(T command, CommandCompletion completion) {
+        CommandBatcher<T> batcher = getBatcher(command);
+        if (batcher != null) {
+            batcher.add(command, completion);
+            return;
+        }
+        StageMethod<T> stageMethod = getStageMethod(command);
+        if (stageMethod != null) {
+            asyncWithStageMethod(command, stageMethod, completion);
+            return;
+        }
+
+        AsyncMethod<T> method = getAsyncMethod(command);
+        if (method != null) {
+            method.invoke(command, data -> completion.complete(data, null));
+            return;
+        }
+
+        BlockingMethod<T> blockingMethod = getBlockingMethod(command);
+        if (blockingMethod == null) {
+            throw new CommandExecuteException("没有找到" + command.getClass() + "的处理方法");
+        }
+        // 完成记录本身就是线程池任务，取消时由它中断执行线程
+        completion.setBlockingMethod((BlockingMethod<ICommand>) blockingMethod);
+        execute(command, completion, e -> completion.complete(null, e));
+    }
+
+    /**
+     * 提交到命令的执行器，开启并发限制时经过命令类型在该执行器上的限制
+     *
+     * @param command  命令
+     * @param task     任务
+     * @param onReject 排队后被执行器拒绝时的处理
+     */
+    private <T extends C> void execute(T command, Runnable task, Consumer<Throwable> onReject) {
+        ExecutorFactory<T> executorFactory = getExecutorFactory(command);
+        Executor executor = executorFactory == null ? this.defaultExecutor : executorFactory.create(command);
+        if (executor == null) {
+            executor = DEFAULT_ASYNC_EXECUTOR;
+        }
+        if (!ConcurrencyLimiter.ENABLED) {
+            executor.execute(task);
+            return;
+        }
+        getLimiter(command.getClass(), executor).execute(task, onReject);
+    }
+
+    private ConcurrencyLimiter getLimiter(Class<?> type, Executor executor) {
+        ConcurrentHashMap<Executor, ConcurrencyLimiter> byExecutor = limiters.get(type);
+        if (byExecutor == null) {
+            byExecutor = limiters.computeIfAbsent(type, t -> new ConcurrentHashMap<>());
+        }
+        ConcurrencyLimiter limiter = byExecutor.get(executor);
+        if (limiter == null) {
+            limiter = byExecutor.computeIfAbsent(executor, e -> new ConcurrencyLimiter(type, e));
+        }
+        return limiter;
+    }
+
+    /**
+     * @return the metrics of the concurrency limits of the command types on their executors
+     */
+    List<IConcurrencyLimitMetrics> concurrencyLimitMetrics() {
+        List<IConcurrencyLimitMetrics> metrics = new ArrayList<>();
+        for (ConcurrentHashMap<Executor, ConcurrencyLimiter> byExecutor : limiters.values()) {
+            metrics.addAll(byExecutor.values());
+        }
+        return metrics;
+    }
+
+    /**
+     * 执行返回{@link CompletionStage}的方法，结果在阶段完成时回调，不占用等待线程
+     */
+    private <T extends C> void asyncWithStageMethod(T command, StageMethod<T> method, Consumer<IResult<?>> callback) {
+        CompletionStage<?> stage;
+        try {
+            stage = method.run(command);
+        } catch (Throwable e) {
+            respond(command, null, e, callback);
+            return;
+        }
+        if (stage == null) {
+            respond(command, null, null, callback);
+            return;
+        }
+        if (callback instanceof CommandCompletion) {
+            // 取消时一并取消阶段
+            ((CommandCompletion) callback).setStage(stage);
+        }
+        stage.whenComplete((value, throwable) -> respond(command, value, unwrap(throwable), callback));
+    }
+
+    /**
+     * run stage method by blocking, only for the caller who needs the result synchronously,
+     * the invoker calls {@link #async} for the commands without blocking method
+     */
+    private <T extends C> IResult<?> receiveWithStageMethod(T command, StageMethod<T> method) {
+        try {
+            CompletionStage<?> stage = method.run(command);
+            return ResultUtils.returnData(command, stage == null ? null : stage.toCompletableFuture().get());
+        } catch (ExecutionException e) {
+            return ResultUtils.failure(command, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResultUtils.failure(command, e);
+        } catch (Throwable e) {
+            return ResultUtils.failure(command, e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        if (throwable instanceof CompletionException && throwable.getCause() != null) {
+            return throwable.getCause();
+        }
+        return throwable;
+    }
+
+    private void respond(ICommand command, Object value, Throwable throwable, Consumer<IResult<?>> callback) {
+        if (callback instanceof CommandCompletion) {
+            ((CommandCompletion) callback).complete(value, throwable);
+            return;
+        }
+        doResponse(command, value, throwable, callback);
+    }
+
     /**
      * run asynchronous method by blocking
      */
@@ -124,7 +332,7 @@ class Receiver<C extends ICommand> implements IReceiver<C> {
             return ResultUtils.returnData(command, responses[0]);
         } catch (Throwable e) {
             log.error("{}服务处理失败", command, e);
-            return ResultUtils.failure(command, command.getClass().getName() + "服务处理失败, " + e.getMessage());
+            return ResultUtils.failure(command, e);
         }
     }
 
@@ -136,6 +344,9 @@ class Receiver<C extends ICommand> implements IReceiver<C> {
 
         ExecutorFactory<T> executorFactory = getExecutorFactory(command);
         Executor executor = executorFactory == null ? this.defaultExecutor : executorFactory.create(command);
+        if (ConcurrencyLimiter.ENABLED) {
+            executor = task -> execute(command, task, e -> doResponse(command, null, e, callback));
+        }
 
         CompletableFuture<Object> future = executor != null ?
             CompletableFuture.supplyAsync(() -> blockingMethod.invoke(command), executor)  // 指定执行器执行
@@ -145,33 +356,57 @@ class Receiver<C extends ICommand> implements IReceiver<C> {
     }
 
     private void doResponse(ICommand command, Object value, Throwable throwable, Consumer<IResult<?>> callback) {
-        IResult<?> response = null;
-        if (throwable != null) {
-            StringWriter writer = null;
-            PrintWriter stream = null;
-            try {
-                writer = new StringWriter();
-                stream = new PrintWriter(writer);
-                throwable.printStackTrace(stream);
-                response = ResultUtils.failure(command, writer.toString());
-            } finally {
-                close(writer, stream);
-            }
-        } else {
-            response = ResultUtils.returnData(command, value);
-        }
-
+        // 失败结果保留原始异常，不在这里格式化异常栈
+        IResult<?> response = throwable != null ? ResultUtils.failure(command, throwable)
+            : ResultUtils.returnData(command, value);
         callback.accept(response);
     }
 
-    private void close(AutoCloseable... closeables) {
-        for (AutoCloseable closeable : closeables) {
-            if (closeable != null) {
-                try {
-                    closeable.close();
-                } catch (Exception e) {
-                    log.error("closeable[{}] object close error", closeable, e);
+    /**
+     * 可取消的阻塞命令：排队中取消则不再执行，执行中取消则中断执行线程
+     */
+    private final class CancellableCommandTask<T extends C> implements Runnable {
+
+        private final T command;
+        private final CancellationToken cancellation;
+        private final Consumer<IResult<?>> callback;
+        private final FutureTask<Object> future;
+
+        CancellableCommandTask(T command, BlockingMethod<T> blockingMethod, CancellationToken cancellation,
+                               Consumer<IResult<?>> callback) {
+            this.command = command;
+            this.cancellation = cancellation;
+            this.callback = callback;
+            this.future = new FutureTask<Object>(() -> blockingMethod.invoke(command)) {
+                @Override
+                protected void done() {
+                    complete(this);
                 }
+            };
+        }
+
+        /**
+         * 取消回调
+         */
+        @Override
+        public void run() {
+            future.cancel(true);
+        }
+
+        private void complete(FutureTask<Object> f) {
+            cancellation.remove(this);
+            if (f.isCancelled()) {
+                doResponse(command, null, new CancellationException("command cancelled, " + cancellation.getReason()), callback);
+                return;
+            }
+            try {
+                doResponse(command, f.get(), null, callback);
+            } catch (ExecutionException e) {
+                doResponse(command, null, e.getCause(), callback);
+            } catch (InterruptedException e) {
+                // 任务已完成，get不会阻塞
+                Thread.currentThread().interrupt();
+                doResponse(command, null, e, callback);
             }
         }
     }
@@ -186,6 +421,16 @@ class Receiver<C extends ICommand> implements IReceiver<C> {
         return (BlockingMethod<T>) blockingMethodMap.get(command.getClass());
     }
 
+    @SuppressWarnings("unchecked")
+    private <T extends C> StageMethod<T> getStageMethod(T command) {
+        return (StageMethod<T>) stageMethodMap.get(command.getClass());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends C> CommandBatcher<T> getBatcher(T command) {
+        return (CommandBatcher<T>) batchers.get(command.getClass());
+    }
+
     @SuppressWarnings("unchecked")
     private <T extends C> ExecutorFactory<T> getExecutorFactory(T command) {
         return (ExecutorFactory<T>) requestExecutors.get(command.getClass());
@@ -0,0 +1,470 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.command.impl;
+
+import io.github.chyohn.terse.command.CachePolicy;
+import io.github.chyohn.terse.command.ICacheMetrics;
+import io.github.chyohn.terse.command.ICommand;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个命令类型的结果缓存，按key分段加锁，每段独立执行W-TinyLFU淘汰。
+ * <p>
+ * 每段分为窗口区（约1%）和主区，主区又分为试用区和保护区（约80%）：
+ * <ul>
+ *     <li>新结果先进入窗口区，窗口区满时按LRU移入试用区成为候选</li>
+ *     <li>试用区的结果再次访问时晋升到保护区，保护区满时按LRU降级到试用区</li>
+ *     <li>总权重超出时比较候选和试用区最久未访问的结果的访问频率，淘汰频率低的一个</li>
+ * </ul>
+ * 访问频率由{@link FrequencySketch}估计，只访问一次的结果不会挤掉经常访问的结果。
+ * 过期在读取时检查，不单独清理，过期结果随淘汰移除。
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+final class ResultCache<T extends ICommand> implements ICacheMetrics {
+
+    private static final int MAX_SEGMENTS = 16;
+    // 每段至少的权重，权重较小时减少分段，避免每段只能容纳几个结果
+    private static final int MIN_SEGMENT_WEIGHT = 256;
+    private static final int MAX_SKETCH_SIZE = 1 << 16;
+
+    private final Class<T> type;
+    private final CachePolicy<T> policy;
+    private final Segment[] segments;
+    private final int segmentMask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+
+    ResultCache(Class<T> type, CachePolicy<T> policy) {
+        this.type = type;
+        this.policy = policy;
+        long maximumWeight = policy.getMaximumWeight();
+        int count = 1;
+        while (count < MAX_SEGMENTS && (long) count * MIN_SEGMENT_WEIGHT < maximumWeight) {
+            count <<= 1;
+        }
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment((maximumWeight + count - 1) / count, policy.getTtlNanos(), evictions);
+        }
+        this.segmentMask = count - 1;
+    }
+
+    /**
+     * @param command 命令
+     * @return 结果的key
+     */
+    String key(T command) {
+        return policy.getKeyFunction().apply(command);
+    }
+
+    /**
+     * @param key 结果的key
+     * @return 未过期的结果，null没有缓存
+     */
+    Node get(String key) {
+        int hash = hash(key);
+        Node node = segmentFor(hash).get(key, hash, System.nanoTime());
+        if (node == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return node;
+    }
+
+    /**
+     * 缓存结果，null不缓存
+     *
+     * @param key     结果的key
+     * @param command 命令
+     * @param value   结果
+     */
+    void put(String key, T command, Object value) {
+        if (value == null) {
+            return;
+        }
+        CachePolicy.Weigher<? super T> weigher = policy.getWeigher();
+        int weight = weigher == null ? 1 : weigher.weigh(command, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("negative weight " + weight + " of " + command);
+        }
+        int hash = hash(key);
+        segmentFor(hash).put(key, hash, value, weight, System.nanoTime());
+    }
+
+    /**
+     * 距写入时间超过刷新时间时，只有一个读取者开始刷新
+     *
+     * @param node 读取到的结果
+     * @return true需要由调用方重新执行命令
+     */
+    boolean startRefresh(Node node) {
+        long refreshAfter = policy.getRefreshAfterNanos();
+        if (refreshAfter <= 0 || node.refreshing != 0 || System.nanoTime() - node.writeNanos < refreshAfter
+                || !Node.REFRESHING.compareAndSet(node, 0, 1)) {
+            return false;
+        }
+        refreshes.increment();
+        return true;
+    }
+
+    /**
+     * 刷新失败，保留原结果直到过期，之后的读取可以再次刷新
+     *
+     * @param node 刷新的结果
+     */
+    void refreshFailed(Node node) {
+        node.refreshing = 0;
+    }
+
+    void invalidate(String key) {
+        int hash = hash(key);
+        segmentFor(hash).remove(key);
+    }
+
+    void invalidateAll() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[(hash >>> 16) & segmentMask];
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public Class<?> commandType() {
+        return type;
+    }
+
+    @Override
+    public long hits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long misses() {
+        return misses.sum();
+    }
+
+    @Override
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long refreshes() {
+        return refreshes.sum();
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    @Override
+    public long weight() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            weight += segment.weight();
+        }
+        return weight;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultCache[" + type.getName() + ", size=" + size() + ", weight=" + weight() + ", hits=" + hits()
+                + ", misses=" + misses() + ", evictions=" + evictions() + ", refreshes=" + refreshes()
+                + ", ttl=" + TimeUnit.NANOSECONDS.toMillis(policy.getTtlNanos()) + "ms]";
+    }
+
+    /**
+     * 缓存的结果
+     */
+    static final class Node {
+
+        private static final AtomicIntegerFieldUpdater<Node> REFRESHING =
+                AtomicIntegerFieldUpdater.newUpdater(Node.class, "refreshing");
+
+        static final int WINDOW = 0;
+        static final int PROBATION = 1;
+        static final int PROTECTED = 2;
+
+        final String key;
+        final int hash;
+        // 刷新时在段锁内更新，读取者在锁外读取
+        volatile Object value;
+        volatile long writeNanos;
+        private volatile int refreshing;
+
+        // 以下由段锁保护
+        int weight;
+        int queue;
+        Node prev;
+        Node next;
+
+        Node(String key, int hash, Object value, int weight, long writeNanos) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+            this.weight = weight;
+            this.writeNanos = writeNanos;
+        }
+    }
+
+    /**
+     * 按访问顺序排列的双向链表，头部最久未访问
+     */
+    private static final class AccessOrder {
+        Node head;
+        Node tail;
+
+        void addLast(Node node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        void remove(Node node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+        }
+
+        void moveToLast(Node node) {
+            if (tail != node) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        void clear() {
+            head = null;
+            tail = null;
+        }
+    }
+
+    private static final class Segment {
+
+        private final HashMap<String, Node> map = new HashMap<>();
+        private final FrequencySketch sketch;
+        private final AccessOrder window = new AccessOrder();
+        private final AccessOrder probation = new AccessOrder();
+        private final AccessOrder protect = new AccessOrder();
+        private final long maximumWeight;
+        private final long ttlNanos;
+        private final LongAdder evictions;
+        private final long maximumWindowWeight;
+        private final long maximumProtectedWeight;
+        private long weight;
+        private long windowWeight;
+        private long protectedWeight;
+
+        Segment(long maximumWeight, long ttlNanos, LongAdder evictions) {
+            this.maximumWeight = maximumWeight;
+            this.ttlNanos = ttlNanos;
+            this.evictions = evictions;
+            this.maximumWindowWeight = Math.max(1, maximumWeight / 100);
+            this.maximumProtectedWeight = (long) ((maximumWeight - maximumWindowWeight) * 0.8D);
+            // 有权重时结果数未知，按权重估计，限制频率统计的内存
+            this.sketch = new FrequencySketch(Math.min(maximumWeight, MAX_SKETCH_SIZE));
+        }
+
+        synchronized Node get(String key, int hash, long now) {
+            sketch.increment(hash);
+            Node node = map.get(key);
+            if (node == null) {
+                return null;
+            }
+            if (now - node.writeNanos >= ttlNanos) {
+                remove(node);
+                return null;
+            }
+            onAccess(node);
+            return node;
+        }
+
+        synchronized void put(String key, int hash, Object value, int nodeWeight, long now) {
+            sketch.increment(hash);
+            Node node = map.get(key);
+            if (nodeWeight > maximumWeight) {
+                // 超过一段的容量，不缓存
+                if (node != null) {
+                    remove(node);
+                }
+                return;
+            }
+            if (node != null) {
+                node.value = value;
+                node.writeNanos = now;
+                node.refreshing = 0;
+                addWeight(node, nodeWeight - node.weight);
+                node.weight = nodeWeight;
+                onAccess(node);
+            } else {
+                node = new Node(key, hash, value, nodeWeight, now);
+                map.put(key, node);
+                node.queue = Node.WINDOW;
+                window.addLast(node);
+                addWeight(node, nodeWeight);
+            }
+            evict();
+        }
+
+        synchronized void remove(String key) {
+            Node node = map.get(key);
+            if (node != null) {
+                remove(node);
+            }
+        }
+
+        synchronized void clear() {
+            map.clear();
+            window.clear();
+            probation.clear();
+            protect.clear();
+            weight = 0;
+            windowWeight = 0;
+            protectedWeight = 0;
+        }
+
+        synchronized int size() {
+            return map.size();
+        }
+
+        synchronized long weight() {
+            return weight;
+        }
+
+        private void onAccess(Node node) {
+            switch (node.queue) {
+                case Node.WINDOW:
+                    window.moveToLast(node);
+                    break;
+                case Node.PROBATION:
+                    // 再次访问，晋升到保护区
+                    probation.remove(node);
+                    node.queue = Node.PROTECTED;
+                    protect.addLast(node);
+                    protectedWeight += node.weight;
+                    demoteProtected();
+                    break;
+                default:
+                    protect.moveToLast(node);
+                    break;
+            }
+        }
+
+        private void demoteProtected() {
+            while (protectedWeight > maximumProtectedWeight && protect.head != null) {
+                Node node = protect.head;
+                protect.remove(node);
+                protectedWeight -= node.weight;
+                node.queue = Node.PROBATION;
+                probation.addLast(node);
+            }
+        }
+
+        private void evict() {
+            // 更新结果可能使保护区超出
+            demoteProtected();
+            // 窗口区满，最久未访问的结果成为候选
+            while (windowWeight > maximumWindowWeight && window.head != null) {
+                Node node = window.head;
+                window.remove(node);
+                windowWeight -= node.weight;
+                node.queue = Node.PROBATION;
+                probation.addLast(node);
+            }
+            while (weight > maximumWeight) {
+                Node victim = probation.head != null ? probation.head
+                        : protect.head != null ? protect.head : window.head;
+                Node candidate = probation.tail;
+                if (candidate == null || candidate == victim) {
+                    evict(victim);
+                } else if (sketch.frequency(candidate.hash) > sketch.frequency(victim.hash)) {
+                    evict(victim);
+                } else {
+                    // 候选的访问频率不高于被淘汰者，不准入
+                    evict(candidate);
+                }
+            }
+        }
+
+        private void evict(Node node) {
+            remove(node);
+            evictions.increment();
+        }
+
+        private void remove(Node node) {
+            map.remove(node.key);
+            switch (node.queue) {
+                case Node.WINDOW:
+                    window.remove(node);
+                    break;
+                case Node.PROBATION:
+                    probation.remove(node);
+                    break;
+                default:
+                    protect.remove(node);
+                    break;
+            }
+            addWeight(node, -node.weight);
+        }
+
+        private void addWeight(Node node, int delta) {
+            weight += delta;
+            if (node.queue == Node.WINDOW) {
+                windowWeight += delta;
+            } else if (node.queue == Node.PROTECTED) {
+                protectedWeight += delta;
+            }
+        }
+    }
+}
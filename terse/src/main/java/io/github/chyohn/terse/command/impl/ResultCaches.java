@@ -0,0 +1,153 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.command.impl;
+
+import io.github.chyohn.terse.cluster.IClusterClient;
+import io.github.chyohn.terse.cluster.broadcast.IBroadcaster;
+import io.github.chyohn.terse.command.CachePolicy;
+import io.github.chyohn.terse.command.ICacheMetrics;
+import io.github.chyohn.terse.command.ICommand;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按命令类型注册的结果缓存。
+ * <p>
+ * 集群模式下失效通过{@link IBroadcaster}的{@link #INVALIDATE_TOPIC}广播到所有节点，
+ * 消息为命令类型名，或者命令类型名和key以换行分隔。集群客户端没有广播能力时只失效本节点。
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@Slf4j
+final class ResultCaches {
+
+    static final String INVALIDATE_TOPIC = "terse.cache.invalidate";
+
+    private final ConcurrentHashMap<Class<?>, ResultCache<?>> caches = new ConcurrentHashMap<>();
+    private final IClusterClient clusterClient;
+    private volatile boolean subscribed;
+
+    ResultCaches(IClusterClient clusterClient) {
+        this.clusterClient = clusterClient;
+    }
+
+    <T extends ICommand> void register(Class<T> type, CachePolicy<T> policy) {
+        caches.put(type, new ResultCache<>(type, policy));
+        subscribe();
+    }
+
+    /**
+     * @param command 命令
+     * @return 命令类型的缓存，null没有缓存
+     */
+    @SuppressWarnings("unchecked")
+    ResultCache<ICommand> get(ICommand command) {
+        // 没有注册缓存时不查表
+        if (caches.isEmpty()) {
+            return null;
+        }
+        return (ResultCache<ICommand>) caches.get(command.getClass());
+    }
+
+    @SuppressWarnings("unchecked")
+    void invalidate(ICommand command) {
+        ResultCache<ICommand> cache = (ResultCache<ICommand>) caches.get(command.getClass());
+        if (cache == null) {
+            return;
+        }
+        String key = cache.key(command);
+        cache.invalidate(key);
+        broadcast(command.getClass().getName() + '\n' + key);
+    }
+
+    void invalidateAll(Class<?> type) {
+        ResultCache<?> cache = caches.get(type);
+        if (cache == null) {
+            return;
+        }
+        cache.invalidateAll();
+        broadcast(type.getName());
+    }
+
+    List<ICacheMetrics> metrics() {
+        return new ArrayList<>(caches.values());
+    }
+
+    private void broadcast(String message) {
+        IBroadcaster broadcaster = broadcaster();
+        if (broadcaster == null) {
+            return;
+        }
+        try {
+            broadcaster.broadcast(INVALIDATE_TOPIC, message);
+        } catch (Exception e) {
+            log.warn("broadcast cache invalidation {} failed", message, e);
+        }
+    }
+
+    /**
+     * 集群客户端初始化后订阅失效的广播，集群客户端没有广播能力时只失效本节点
+     */
+    void onClusterInit() {
+        if (!caches.isEmpty()) {
+            subscribe();
+        }
+    }
+
+    /**
+     * 注册缓存时和集群客户端初始化后各尝试一次，集群客户端可能在注册缓存之后才初始化
+     */
+    private void subscribe() {
+        if (subscribed) {
+            return;
+        }
+        IBroadcaster broadcaster = broadcaster();
+        if (broadcaster == null) {
+            return;
+        }
+        synchronized (this) {
+            if (subscribed) {
+                return;
+            }
+            broadcaster.subscribe(INVALIDATE_TOPIC, this::onInvalidate);
+            subscribed = true;
+        }
+    }
+
+    private IBroadcaster broadcaster() {
+        return clusterClient != null && clusterClient.isInit() ? clusterClient.getBroadcaster() : null;
+    }
+
+    private void onInvalidate(String message) {
+        int index = message.indexOf('\n');
+        String typeName = index < 0 ? message : message.substring(0, index);
+        for (ResultCache<?> cache : caches.values()) {
+            if (!cache.commandType().getName().equals(typeName)) {
+                continue;
+            }
+            if (index < 0) {
+                cache.invalidateAll();
+            } else {
+                cache.invalidate(message.substring(index + 1));
+            }
+        }
+    }
+}
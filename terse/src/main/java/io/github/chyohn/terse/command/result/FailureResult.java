@@ -17,21 +17,48 @@
 package io.github.chyohn.terse.command.result;
 
 import io.github.chyohn.terse.command.IResult;
+import io.github.chyohn.terse.exception.CommandExecuteException;
+import io.github.chyohn.terse.exception.CommandFailureException;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
 
 /**
- * failure result
+ * failure result.
+ * <p>
+ * a failure created from an exception keeps the exception type, message and the original {@link Throwable},
+ * nothing is formatted until {@link #getValue()} is called. the stack trace is rendered only by
+ * {@link #renderStackTrace()} before sending to a remote node, and only if the system property
+ * {@link #CAPTURE_STACK_KEY} is not false.
  *
  * @author qiang.shao
  * @since 1.0.0
  */
 public class FailureResult implements IResult<String> {
 
-    private final String cause;
+    // whether stack traces are captured for failures, default true
+    public static final String CAPTURE_STACK_KEY = "terse.failure.captureStack";
+    public static final boolean CAPTURE_STACK = Boolean.parseBoolean(System.getProperty(CAPTURE_STACK_KEY, "true"));
+
     private final int id;
+    private final String errorType;
+    private final String message;
+    private String stackTrace;
+    // not transported to remote node
+    private final transient Throwable throwable;
 
     public FailureResult(int id, String cause) {
-        this.cause = cause;
         this.id = id;
+        this.errorType = null;
+        this.message = cause;
+        this.throwable = null;
+    }
+
+    public FailureResult(int id, Throwable throwable) {
+        this.id = id;
+        this.errorType = throwable.getClass().getName();
+        this.message = throwable.getMessage();
+        this.throwable = throwable;
     }
 
     @Override
@@ -39,9 +66,77 @@ public class FailureResult implements IResult<String> {
         return id;
     }
 
+    /**
+     * @return the description of failure, formatted when called
+     */
     @Override
     public String getValue() {
-        return cause;
+        StringBuilder builder = new StringBuilder();
+        if (errorType != null) {
+            builder.append(errorType);
+            if (message != null) {
+                builder.append(": ");
+            }
+        }
+        if (message != null) {
+            builder.append(message);
+        }
+        if (stackTrace != null) {
+            builder.append(System.lineSeparator()).append(stackTrace);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return the class name of exception, null if the failure is not created from an exception
+     */
+    public String getErrorType() {
+        return errorType;
+    }
+
+    /**
+     * @return the message of failure
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return the original exception, null if created from message or received from remote node
+     */
+    public Throwable getThrowable() {
+        return throwable;
+    }
+
+    /**
+     * @return the stack trace rendered by {@link #renderStackTrace()}
+     */
+    public String getStackTrace() {
+        return stackTrace;
+    }
+
+    /**
+     * render the stack trace of original exception before the failure is transported to remote node,
+     * which can not receive the exception itself.
+     *
+     * @return this
+     */
+    public FailureResult renderStackTrace() {
+        if (stackTrace == null && throwable != null && CAPTURE_STACK) {
+            StringWriter writer = new StringWriter();
+            try (PrintWriter printer = new PrintWriter(writer)) {
+                throwable.printStackTrace(printer);
+            }
+            stackTrace = writer.toString();
+        }
+        return this;
+    }
+
+    /**
+     * @return the exception thrown to the result handler, message formatted lazily
+     */
+    public CommandExecuteException toException() {
+        return new CommandFailureException(this);
     }
 
 }
@@ -31,6 +31,10 @@ public class ResultUtils {
         return new FailureResult(remoteRequest.getId(), msg);
     }
 
+    public static IResult<String> failure(ICommand remoteRequest, Throwable throwable) {
+        return new FailureResult(remoteRequest.getId(), throwable);
+    }
+
 
     public static <T> IResult<T> returnData(ICommand remoteRequest, T data) {
         return new DataResult<>(remoteRequest.getId(), data);
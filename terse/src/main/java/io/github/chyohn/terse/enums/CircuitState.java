@@ -0,0 +1,42 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.chyohn.terse.enums;
+
+import io.github.chyohn.terse.anotations.External;
+
+/**
+ * the state of a circuit breaker
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@External
+public enum CircuitState {
+    /**
+     * calls are permitted, and recorded to the sliding window
+     */
+     CLOSED
+    /**
+     * calls are rejected until the wait duration passed
+     */
+    ,OPEN
+    /**
+     * a limited count of calls are permitted to probe whether the dependency recovered
+     */
+    ,HALF_OPEN
+    ;
+
+}
@@ -37,4 +37,8 @@ public class CommandExecuteException extends RuntimeException {
     public CommandExecuteException(Throwable cause) {
         super(cause);
     }
+
+    protected CommandExecuteException(String message, Throwable cause, boolean writableStackTrace) {
+        super(message, cause, true, writableStackTrace);
+    }
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.exception;
+
+import io.github.chyohn.terse.anotations.Internal;
+import io.github.chyohn.terse.command.result.FailureResult;
+
+/**
+ * the failure of a command, thrown when the result handler gets the value of a failed result.
+ * the message is formatted only when {@link #getMessage()} is called, and the stack trace is filled only if
+ * {@link FailureResult#CAPTURE_STACK} is true, so a storm of failures costs little when nobody reads them.
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@Internal
+public class CommandFailureException extends CommandExecuteException {
+
+    private final transient FailureResult failure;
+
+    /**
+     * @param cause the exception thrown by the receiver
+     */
+    public CommandFailureException(Throwable cause) {
+        super(null, cause, FailureResult.CAPTURE_STACK);
+        this.failure = null;
+    }
+
+    /**
+     * @param failure the failure returned by the receiver
+     */
+    public CommandFailureException(FailureResult failure) {
+        super(null, failure.getThrowable(), FailureResult.CAPTURE_STACK);
+        this.failure = failure;
+    }
+
+    /**
+     * @return the failure returned by receiver, null if created from an exception
+     */
+    public FailureResult getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String getMessage() {
+        if (failure != null) {
+            return "command execute error， " + failure.getValue();
+        }
+        Throwable cause = getCause();
+        return cause == null ? null : cause.toString();
+    }
+}
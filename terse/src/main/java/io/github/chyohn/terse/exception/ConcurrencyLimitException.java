@@ -0,0 +1,34 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.exception;
+
+import io.github.chyohn.terse.anotations.Internal;
+
+/**
+ * the command is rejected because the concurrency limit of its type and executor is reached and the wait queue is
+ * full, the flow can degrade on this failure instead of retrying. no stack trace, it is thrown often under overload
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@Internal
+public class ConcurrencyLimitException extends CommandExecuteException {
+
+    public ConcurrencyLimitException(String message) {
+        super(message, null, false);
+    }
+}
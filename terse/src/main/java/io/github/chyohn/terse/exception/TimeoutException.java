@@ -29,4 +29,8 @@ public class TimeoutException extends RuntimeException{
         super(message);
     }
 
+    public TimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
 }
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.flow;
+
+import io.github.chyohn.terse.anotations.External;
+
+/**
+ * the metrics of an event loop thread which schedules flows,
+ * used to size the count of event loops.
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@External
+public interface IFlowEventLoopMetrics {
+
+    /**
+     * @return the name of event loop thread
+     */
+    String name();
+
+    /**
+     * @return the count of tasks waiting in the queue of event loop
+     */
+    int queueDepth();
+
+    /**
+     * @return the count of flows owned by event loop and not finished
+     */
+    int flowCount();
+
+    /**
+     * @return the count of tasks executed by event loop
+     */
+    long completedTasks();
+
+    /**
+     * @return the nanos spent in executing tasks since event loop started
+     */
+    long busyNanos();
+
+    /**
+     * @return the nanos since event loop started
+     */
+    long uptimeNanos();
+
+    /**
+     * sample {@link #busyNanos()} and {@link #uptimeNanos()} periodically to get the utilisation of a time window.
+     *
+     * @return the ratio of busy time since event loop started, between 0 and 1
+     */
+    default double utilisation() {
+        long uptime = uptimeNanos();
+        return uptime <= 0 ? 0 : Math.min(1D, (double) busyNanos() / uptime);
+    }
+}
@@ -20,6 +20,10 @@ import io.github.chyohn.terse.anotations.Internal;
 import io.github.chyohn.terse.enums.RunningWay;
 import io.github.chyohn.terse.spi.SPI;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * the executor of flow
  *
@@ -40,4 +44,37 @@ public interface IFlowExecutor {
      */
     <C extends IFlowContext> void execute(ISummaryTask<C> summaryTask, C context, RunningWay way);
 
+    /**
+     * execute flow with indicate context without blocking the calling thread.
+     * the results of tasks are handled by the threads which complete the commands, one at a time.
+     *
+     * @param summaryTask the summary task
+     * @param context     flow context
+     * @param way         execute type {@link RunningWay}
+     * @param <C>         context
+     * @return future completed with the context after all tasks finished
+     */
+    <C extends IFlowContext> CompletableFuture<C> executeAsync(ISummaryTask<C> summaryTask, C context, RunningWay way);
+
+    /**
+     * the flows are scheduled by a fixed set of event loops when system property
+     * {@code terse.flow.eventLoops} is positive.
+     *
+     * @return the metrics of event loops, empty if event loops not enabled
+     */
+    default List<IFlowEventLoopMetrics> eventLoopMetrics() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * describe how the tasks of flow are ordered, for debugging.
+     * the ready tasks on the longest remaining path, computed from the observed latencies of previous executions,
+     * are dispatched first.
+     *
+     * @param summaryTask the summary task
+     * @return the latencies and priorities of tasks
+     */
+    default String describeSchedule(ISummaryTask<?> summaryTask) {
+        return "";
+    }
 }
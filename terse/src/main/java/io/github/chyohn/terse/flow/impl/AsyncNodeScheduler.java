@@ -0,0 +1,179 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.flow.impl;
+
+import io.github.chyohn.terse.enums.RunningWay;
+import io.github.chyohn.terse.flow.IFlowContext;
+import io.github.chyohn.terse.flow.ITaskHandler;
+import io.github.chyohn.terse.timer.HashedWheelTimer;
+import io.github.chyohn.terse.timer.ITimeout;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 流程异步执行入口方法{@link #execute()}，不阻塞任何线程。
+ * <p>
+ * 结果回调线程把结果放入无锁队列，并通过{@link #wip}计数竞争处理权：计数从0变为1的线程成为当前的调度线程，
+ * 负责消费队列直到计数归零，其他线程只放入结果后立即返回。这样同一时刻只有一个线程在处理该流程的结果，
+ * {@link ITaskHandler}对象的所有操作依然是串行的，且不需要加锁。
+ * <p>
+ * 指定了{@link FlowEventLoop}时，调度线程固定为该事件循环线程，结果回调线程只负责入队和唤醒事件循环。
+ * <p>
+ * 流程失败或超时时，取消已提交还未完成的命令。
+ *
+ * @param <C> 流程上下文
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+final class AsyncNodeScheduler<C extends IFlowContext> extends NodeScheduler {
+
+    // 超时通知的节点，超时通知最先处理
+    private static final int TIMEOUT_NODE = -1;
+
+    // 结果回调线程写入的队列
+    // 同一时刻只有持有处理权的线程消费，处理权通过wip交接
+    private final MpscQueue<CommandFinishedMessage> commandFinishedQueue = new MpscQueue<>();
+    // 调度线程按优先级处理结果，只在调度线程中访问
+    private final PriorityQueue<CommandFinishedMessage> pendingMessages = new PriorityQueue<>(MESSAGE_COMPARATOR);
+    // 未处理的通知数，大于0表示有线程正在调度
+    private final AtomicInteger wip = new AtomicInteger();
+    private final CompletableFuture<C> future = new CompletableFuture<>();
+    private final C flowContext;
+    // 拥有该流程的事件循环，null则由结果回调线程调度
+    private final FlowEventLoop eventLoop;
+
+    AsyncNodeScheduler(ExecutionPlan plan, C context, RunningWay runningWay) {
+        this(plan, context, runningWay, null);
+    }
+
+    AsyncNodeScheduler(ExecutionPlan plan, C context, RunningWay runningWay, FlowEventLoop eventLoop) {
+        super(plan, context, runningWay);
+        this.flowContext = context;
+        this.eventLoop = eventLoop;
+    }
+
+    /**
+     * 异步执行
+     *
+     * @return 所有节点执行完成时返回流程上下文
+     */
+    CompletableFuture<C> execute() {
+        if (eventLoop == null) {
+            start();
+        } else {
+            eventLoop.register(future);
+            eventLoop.execute(this::start);
+        }
+        return future;
+    }
+
+    private void start() {
+
+        // 失败或超时，取消还在执行的命令
+        future.whenComplete((c, e) -> {
+            if (e != null) {
+                cancel(e);
+            }
+        });
+
+        // 启动线程持有处理权，根节点提交期间返回的结果只入队
+        wip.set(1);
+        try {
+            // 从根节点开始执行
+            startFromRoot();
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+
+        long remainingNanos = remainingNanos();
+        if (!future.isDone() && remainingNanos != Long.MAX_VALUE) {
+            // 与命令超时共用时间轮，没有事件循环时由其他线程调度，流程的回调不在时间轮的线程中执行
+            ITimeout timeout = HashedWheelTimer.commandTimer().newTimeout(t -> {
+                if (eventLoop == null) {
+                    HashedWheelTimer.expiryExecutor().execute(this::sendTimeout);
+                } else {
+                    sendTimeout();
+                }
+            }, remainingNanos, TimeUnit.NANOSECONDS);
+            future.whenComplete((c, e) -> timeout.cancel());
+        }
+
+        drain(1);
+    }
+
+    private void sendTimeout() {
+        sendFinishedMessage(new CommandFinishedMessage(TIMEOUT_NODE, Integer.MIN_VALUE, null));
+    }
+
+    @Override
+    void sendFinishedMessage(CommandFinishedMessage message) {
+        commandFinishedQueue.offerNode(message);
+        if (wip.getAndIncrement() == 0) {
+            if (eventLoop == null) {
+                drain(1);
+            } else {
+                eventLoop.execute(() -> drain(1));
+            }
+        }
+    }
+
+    /**
+     * 消费队列直到没有新的通知
+     *
+     * @param missed 当前线程认领的通知数
+     */
+    private void drain(int missed) {
+        for (;;) {
+            CommandFinishedMessage message;
+            while ((message = commandFinishedQueue.poll()) != null) {
+                pendingMessages.offer(message);
+            }
+
+            while (!future.isDone() && (message = pendingMessages.poll()) != null) {
+                handle(message);
+            }
+
+            if (future.isDone()) {
+                // 流程已结束，丢弃之后返回的结果
+                pendingMessages.clear();
+            } else if (nodeRunningCount == 0) {
+                future.complete(flowContext);
+            }
+
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    private void handle(CommandFinishedMessage message) {
+        if (message.node == TIMEOUT_NODE) {
+            future.completeExceptionally(timeoutException());
+            return;
+        }
+        try {
+            // 处理结果
+            handleMessage(message);
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.flow.impl;
+
+import io.github.chyohn.terse.enums.RunningWay;
+import io.github.chyohn.terse.exception.CommandExecuteException;
+import io.github.chyohn.terse.flow.IFlowContext;
+import io.github.chyohn.terse.flow.ITaskHandler;
+
+import java.util.PriorityQueue;
+
+/**
+ * 流程执行入口方法{@link #execute()}，由调用线程消费队列并处理结果，
+ * {@link ITaskHandler}对象的所有操作都在调用线程中执行。
+ * <p>
+ * 结果回调线程通过无锁的{@link CompletionQueue}提交结果，调用线程取出当前所有结果后再按优先级排序处理，
+ * 避免了回调线程之间竞争同一把锁。
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+final class BlockingNodeScheduler extends NodeScheduler {
+
+    // 响应结果同步队列
+    private final CompletionQueue<CommandFinishedMessage> commandFinishedQueue;
+    // 已取出还未处理的结果，按优先级排序，只在调用线程中访问
+    private final PriorityQueue<CommandFinishedMessage> pendingMessages;
+
+    BlockingNodeScheduler(ExecutionPlan plan, IFlowContext context, RunningWay runningWay, WaitStrategy waitStrategy) {
+        super(plan, context, runningWay);
+        commandFinishedQueue = new CompletionQueue<>(waitStrategy);
+        pendingMessages = new PriorityQueue<>(Math.max(plan.size(), 16), MESSAGE_COMPARATOR);
+    }
+
+    /**
+     * 执行排序
+     */
+    void execute() {
+
+        try {
+            // 从根节点开始执行
+            startFromRoot();
+
+            // 等到所有节点执行完成
+            waitAllNodesFinish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            CommandExecuteException ex = new CommandExecuteException(e);
+            cancel(ex);
+            throw ex;
+        } catch (Throwable e) {
+            cancel(e);
+            throw e;
+        }
+    }
+
+    private void waitAllNodesFinish() throws InterruptedException {
+        while (nodeRunningCount > 0) {
+            // 整个流程共用一个截止时间
+            long remainingNanos = remainingNanos();
+            if (remainingNanos <= 0) {
+                throw timeoutException();
+            }
+            CommandFinishedMessage message = nextMessage(remainingNanos == Long.MAX_VALUE ? 0 : remainingNanos);
+            if (message == null) {
+                throw timeoutException();
+            }
+
+            // 处理结果
+            handleMessage(message);
+        }
+    }
+
+    /**
+     * 取出所有已返回的结果，返回优先级最高的一个
+     *
+     * @param timeoutNanos 没有结果时的等待时间
+     * @return null等待超时
+     */
+    private CommandFinishedMessage nextMessage(long timeoutNanos) throws InterruptedException {
+        if (pendingMessages.isEmpty()) {
+            CommandFinishedMessage message = commandFinishedQueue.take(timeoutNanos);
+            if (message == null) {
+                return null;
+            }
+            pendingMessages.offer(message);
+        }
+        CommandFinishedMessage message;
+        while ((message = commandFinishedQueue.poll()) != null) {
+            pendingMessages.offer(message);
+        }
+        return pendingMessages.poll();
+    }
+
+    @Override
+    void sendFinishedMessage(CommandFinishedMessage message) {
+        commandFinishedQueue.offerNode(message);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.flow.impl;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 结果完成队列：{@link MpscQueue}加上消费线程的等待和唤醒。
+ * <p>
+ * 生产者入队不加锁，只有消费线程已挂起时才需要唤醒；消费线程为空时按{@link WaitStrategy}等待。
+ *
+ * @param <E> 元素类型
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+final class CompletionQueue<E> {
+
+    private final MpscQueue<E> queue = new MpscQueue<>();
+    private final WaitStrategy waitStrategy;
+    // 准备挂起的消费线程
+    private volatile Thread waiter;
+
+    CompletionQueue(WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * 入队，可在任意线程中调用
+     *
+     * @param e 元素
+     */
+    void offer(E e) {
+        queue.offer(e);
+        signal();
+    }
+
+    /**
+     * 元素自身作为链表节点入队，可在任意线程中调用
+     *
+     * @param node 节点
+     */
+    void offerNode(MpscQueue.LinkedNode<E> node) {
+        queue.offerNode(node);
+        signal();
+    }
+
+    private void signal() {
+        Thread w = waiter;
+        if (w != null) {
+            LockSupport.unpark(w);
+        }
+    }
+
+    /**
+     * 只能在消费线程中调用
+     *
+     * @return null队列为空
+     */
+    E poll() {
+        return queue.poll();
+    }
+
+    /**
+     * 等待下一个元素，只能在消费线程中调用
+     *
+     * @param timeoutNanos 等待时间，小于等于0则一直等待
+     * @return null等待超时
+     * @throws InterruptedException 等待被中断
+     */
+    E take(long timeoutNanos) throws InterruptedException {
+        E e = queue.poll();
+        if (e != null) {
+            return e;
+        }
+        long deadline = timeoutNanos > 0 ? System.nanoTime() + timeoutNanos : 0;
+        if (deadline == 0 && timeoutNanos > 0) {
+            // 避开表示一直等待的0
+            deadline = 1;
+        }
+        return waitStrategy.waitFor(this, deadline);
+    }
+
+    /**
+     * 挂起直到有元素或超时
+     *
+     * @param deadline 截止时间{@link System#nanoTime()}，0则一直等待
+     * @return null等待超时
+     * @throws InterruptedException 等待被中断
+     */
+    E park(long deadline) throws InterruptedException {
+        Thread current = Thread.currentThread();
+        try {
+            for (;;) {
+                // 先发布等待线程再检查队列，与offer中先入队再读取等待线程配合，避免丢失唤醒
+                waiter = current;
+                E e = queue.poll();
+                if (e != null) {
+                    return e;
+                }
+                if (deadline == 0) {
+                    LockSupport.park(this);
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return null;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            waiter = null;
+        }
+    }
+}
@@ -18,11 +18,11 @@ class ConditionNodeExecutor implements NodeExecutor {
     }
 
     @Override
-    public List<ICommand> run(Node node, IFlowContext context) {
+    public List<ICommand> run(ExecutionState state, int node, IFlowContext context) {
 
-        IConditionTask<IFlowContext> condition = (IConditionTask<IFlowContext>) node.getTask();
+        IConditionTask<IFlowContext> condition = (IConditionTask<IFlowContext>) state.getPlan().getTask(node);
 
-        if (!condition.isTrue(context) && !removeChildren(node)) {
+        if (!condition.isTrue(context) && !state.removeChildren(node)) {
             throw new FlowConditionNotMatchException("flow can't match the condition.");
         }
 
@@ -30,24 +30,4 @@ class ConditionNodeExecutor implements NodeExecutor {
     }
 
 
-    /**
-     * remove children of node
-     *
-     * @param node the node
-     * @return true remove success, false remove failure.
-     */
-    private boolean removeChildren(Node node) {
-
-        if (node.isEndNode()) {
-            return false;
-        }
-
-        for (Node child : node.getChildren()) {
-            if (child.canRemove(node) && !removeChildren(child)) {
-                return false;
-            }
-        }
-        return true;
-    }
-
 }
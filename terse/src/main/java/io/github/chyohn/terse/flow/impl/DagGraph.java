@@ -31,6 +31,9 @@ public class DagGraph {
 
     private List<Node> root;
 
+    // all nodes in graph
+    private List<Node> nodes;
+
     // nodes size in graph
     private int size;
 
@@ -52,6 +52,7 @@ class DagGraphGenerator {
                 .filter(node -> computeAndGetNodeLevel(node) == Node.ROOT_LEVEL)
                 .collect(Collectors.toList());
         graph.setRoot(root);
+        graph.setNodes(new ArrayList<>(nodeOfTask.values()));
         graph.setSize(nodeOfTask.size());
         return graph;
     }
@@ -96,7 +97,7 @@ class DagGraphGenerator {
 
     private String buildCycleMsg(IReliableTask<IFlowContext> task, IReliableTask<IFlowContext> parent) {
 
-        StringBuilder builder = new StringBuilder("The relies of node in flow form a cycle:\n")
+        StringBuilder builder = new StringBuilder("The relies of tasks in flow form a cycle:\n")
                 .append("┌─────┐\n");
         if (!parent.equals(task)) {
             builder.append("|  ").append(task.getClass().getName()).append("\n")
@@ -17,20 +17,82 @@
 package io.github.chyohn.terse.flow.impl;
 
 import io.github.chyohn.terse.enums.RunningWay;
+import io.github.chyohn.terse.exception.CommandExecuteException;
 import io.github.chyohn.terse.flow.IFlowContext;
+import io.github.chyohn.terse.flow.IFlowEventLoopMetrics;
 import io.github.chyohn.terse.flow.IFlowExecutor;
 import io.github.chyohn.terse.flow.ISummaryTask;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
 /**
  * @author qiang.shao
  * @since 1.0.0
  */
 class DefaultFlowExecutor implements IFlowExecutor {
 
+    // 编译后的执行计划，同一个汇总任务只构建一次DAG
+    private final ExecutionPlanCache planCache = new ExecutionPlanCache(ExecutionPlanCache.DEFAULT_MAX_SIZE);
+    // 共享的流程事件循环，null则每个流程独立调度
+    private final FlowEventLoopGroup eventLoopGroup;
+    // 等待结果时的等待策略
+    private final WaitStrategy waitStrategy;
+
+    DefaultFlowExecutor() {
+        this(WaitStrategy.fromSystemProperty());
+    }
+
+    private DefaultFlowExecutor(WaitStrategy waitStrategy) {
+        this(FlowEventLoopGroup.fromSystemProperty(waitStrategy), waitStrategy);
+    }
+
+    DefaultFlowExecutor(FlowEventLoopGroup eventLoopGroup, WaitStrategy waitStrategy) {
+        this.eventLoopGroup = eventLoopGroup;
+        this.waitStrategy = waitStrategy;
+    }
+
     @Override
     public <C extends IFlowContext> void execute(ISummaryTask<C> summaryTask, C context, RunningWay way) {
-        new NodeScheduler(summaryTask, context, way).execute();
+        if (eventLoopGroup == null || eventLoopGroup.inEventLoop()) {
+            // 在事件循环线程中等待流程会阻塞该线程拥有的所有流程，由当前线程调度
+            new BlockingNodeScheduler(planCache.get(summaryTask), context, way, waitStrategy).execute();
+            return;
+        }
+
+        try {
+            executeAsync(summaryTask, context, way).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommandExecuteException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CommandExecuteException(cause);
+        }
     }
 
+    @Override
+    public <C extends IFlowContext> CompletableFuture<C> executeAsync(ISummaryTask<C> summaryTask, C context, RunningWay way) {
+        FlowEventLoop eventLoop = eventLoopGroup == null ? null : eventLoopGroup.next();
+        return new AsyncNodeScheduler<>(planCache.get(summaryTask), context, way, eventLoop).execute();
+    }
+
+    @Override
+    public String describeSchedule(ISummaryTask<?> summaryTask) {
+        return planCache.get(summaryTask).getLatencyProfile().describe();
+    }
+
+    @Override
+    public List<IFlowEventLoopMetrics> eventLoopMetrics() {
+        return eventLoopGroup == null ? Collections.emptyList() : eventLoopGroup.metrics();
+    }
 
 }
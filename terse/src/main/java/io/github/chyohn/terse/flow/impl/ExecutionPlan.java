@@ -0,0 +1,243 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.flow.impl;
+
+import io.github.chyohn.terse.flow.IFlowContext;
+import io.github.chyohn.terse.flow.IReliableTask;
+import io.github.chyohn.terse.utils.ObjectUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的流程执行计划，由{@link DagGraph}编译而来，不可变且线程安全，可被同一个流程的多次执行共享。
+ * <p>
+ * 所有节点按层级稠密编号，节点之间的关系用下标数组表示，子节点已按{@link NodeExecuteComparator}排好序，
+ * 每次执行只需要复制初始状态数组来创建{@link ExecutionState}。
+ * <p>
+ * 唯一可变的部分是{@link LatencyProfile}，记录多次执行中各节点的耗时，用于按关键路径调度。
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+final class ExecutionPlan {
+
+    // 依赖边类型：强依赖（mustRelyOnTasks和mustConditions）
+    static final byte EDGE_MUST = 0;
+    // 依赖边类型：任务弱依赖（randomRelyOnTasks）
+    static final byte EDGE_RANDOM_RELY = 1;
+    // 依赖边类型：条件弱依赖（randomConditions）
+    static final byte EDGE_RANDOM_CONDITION = 2;
+
+    private static final int[] EMPTY_CHILDREN = {};
+    private static final byte[] EMPTY_EDGES = {};
+
+    private final IReliableTask<IFlowContext>[] tasks;
+    private final NodeExecutor[] executors;
+    private final int[] levels;
+    private final int[] childrenMinLevels;
+    // 子节点下标，已排序
+    private final int[][] children;
+    // 与children对齐，父节点到子节点的依赖边类型
+    private final byte[][] childEdges;
+    // 运行时状态的初始值，见ExecutionState
+    private final int[] initialCounters;
+    private final byte[] initialFlags;
+    // 根节点下标，已排序
+    private final int[] roots;
+    // 跨执行共享的节点耗时统计
+    private final LatencyProfile latencyProfile;
+
+    @SuppressWarnings("unchecked")
+    private ExecutionPlan(List<Node> nodes, List<Node> roots) {
+        int size = nodes.size();
+        Map<Node, Integer> indexOfNode = new IdentityHashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            indexOfNode.put(nodes.get(i), i);
+        }
+
+        this.tasks = new IReliableTask[size];
+        this.executors = new NodeExecutor[size];
+        this.levels = new int[size];
+        this.childrenMinLevels = new int[size];
+        this.children = new int[size][];
+        this.childEdges = new byte[size][];
+        this.initialCounters = new int[size * ExecutionState.STRIDE];
+        this.initialFlags = new byte[size];
+
+        for (int i = 0; i < size; i++) {
+            Node node = nodes.get(i);
+            tasks[i] = node.getTask();
+            executors[i] = node.getExecutor();
+            levels[i] = node.getLevel();
+            childrenMinLevels[i] = node.getChildrenMinLevel();
+
+            List<Node> sortedChildren = new ArrayList<>(node.getChildren());
+            sortedChildren.sort(NodeExecuteComparator.getInstance());
+            if (sortedChildren.isEmpty()) {
+                children[i] = EMPTY_CHILDREN;
+                childEdges[i] = EMPTY_EDGES;
+            } else {
+                children[i] = new int[sortedChildren.size()];
+                childEdges[i] = new byte[sortedChildren.size()];
+                for (int j = 0; j < sortedChildren.size(); j++) {
+                    Node child = sortedChildren.get(j);
+                    byte edge = edgeOf(child, node);
+                    children[i][j] = indexOfNode.get(child);
+                    childEdges[i][j] = edge;
+                    countParent(indexOfNode.get(child), edge);
+                }
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (getRandomRelyCount(i) > 0) {
+                initialFlags[i] |= ExecutionState.FLAG_RANDOM_RELY_PENDING;
+            }
+            if (getRandomConditionCount(i) > 0) {
+                initialFlags[i] |= ExecutionState.FLAG_RANDOM_CONDITION_PENDING;
+            }
+        }
+
+        List<Node> sortedRoots = new ArrayList<>(roots);
+        sortedRoots.sort(NodeExecuteComparator.getInstance());
+        this.roots = sortedRoots.stream().mapToInt(indexOfNode::get).toArray();
+        this.latencyProfile = new LatencyProfile(this);
+    }
+
+    /**
+     * 编译流程执行计划
+     *
+     * @param summaryTask 汇总任务
+     * @return 执行计划
+     */
+    static ExecutionPlan compile(IReliableTask<?> summaryTask) {
+        DagGraph graph = DagGraphGenerator.generateDAGByLevel(summaryTask);
+        List<Node> nodes = new ArrayList<>(graph.getNodes());
+        // 按层级编号，执行时同一层级的节点在数组中相邻
+        nodes.sort(Comparator.comparingInt(Node::getLevel).thenComparing(NodeExecuteComparator.getInstance()));
+        return new ExecutionPlan(nodes, graph.removeRoot());
+    }
+
+    /**
+     * 父节点完成时按该顺序判断依赖类型，与{@link Node}的处理顺序保持一致
+     */
+    private static byte edgeOf(Node child, Node parent) {
+        if (ObjectUtils.contains(child.getMustConditions(), parent)
+                || ObjectUtils.contains(child.getMustRelyOnTasks(), parent)) {
+            return EDGE_MUST;
+        }
+        if (ObjectUtils.contains(child.getRandomRelyOnTasks(), parent)) {
+            return EDGE_RANDOM_RELY;
+        }
+        return EDGE_RANDOM_CONDITION;
+    }
+
+    private void countParent(int child, byte edge) {
+        switch (edge) {
+            case EDGE_MUST:
+                initialCounters[child * ExecutionState.STRIDE + ExecutionState.MUST]++;
+                break;
+            case EDGE_RANDOM_RELY:
+                initialCounters[child * ExecutionState.STRIDE + ExecutionState.RANDOM_RELY]++;
+                break;
+            default:
+                initialCounters[child * ExecutionState.STRIDE + ExecutionState.RANDOM_CONDITION]++;
+                break;
+        }
+    }
+
+    int size() {
+        return tasks.length;
+    }
+
+    IReliableTask<IFlowContext> getTask(int node) {
+        return tasks[node];
+    }
+
+    NodeExecutor getExecutor(int node) {
+        return executors[node];
+    }
+
+    int getLevel(int node) {
+        return levels[node];
+    }
+
+    int getChildrenMinLevel(int node) {
+        return childrenMinLevels[node];
+    }
+
+    int[] getChildren(int node) {
+        return children[node];
+    }
+
+    byte[] getChildEdges(int node) {
+        return childEdges[node];
+    }
+
+    int getMustParentCount(int node) {
+        return initialCounters[node * ExecutionState.STRIDE + ExecutionState.MUST];
+    }
+
+    int getRandomRelyCount(int node) {
+        return initialCounters[node * ExecutionState.STRIDE + ExecutionState.RANDOM_RELY];
+    }
+
+    int getRandomConditionCount(int node) {
+        return initialCounters[node * ExecutionState.STRIDE + ExecutionState.RANDOM_CONDITION];
+    }
+
+    int[] getInitialCounters() {
+        return initialCounters;
+    }
+
+    byte[] getInitialFlags() {
+        return initialFlags;
+    }
+
+    int[] getRoots() {
+        return roots;
+    }
+
+    LatencyProfile getLatencyProfile() {
+        return latencyProfile;
+    }
+
+    /**
+     * @param node 节点下标
+     * @return true当前节点为结束节点
+     */
+    boolean isEndNode(int node) {
+        return children[node].length == 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("ExecutionPlan[");
+        for (int i = 0; i < tasks.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(i).append(':').append(tasks[i].getClass().getSimpleName())
+                    .append('(').append(levels[i]).append("->").append(childrenMinLevels[i]).append(')');
+        }
+        return builder.append(']').toString();
+    }
+}
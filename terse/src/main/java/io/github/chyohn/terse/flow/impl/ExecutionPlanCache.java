@@ -0,0 +1,67 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.flow.impl;
+
+import io.github.chyohn.terse.flow.ISummaryTask;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按汇总任务缓存编译后的{@link ExecutionPlan}
+ * <p>
+ * 如果流程是每次请求时临时构建的，汇总任务不会重复，缓存数量达到上限后整体清空，避免无限增长。
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+final class ExecutionPlanCache {
+
+    static final int DEFAULT_MAX_SIZE = 1024;
+
+    private final ConcurrentMap<ISummaryTask<?>, ExecutionPlan> plans = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    ExecutionPlanCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 获取汇总任务的执行计划，不存在则编译并缓存
+     *
+     * @param summaryTask 汇总任务
+     * @return 执行计划
+     */
+    ExecutionPlan get(ISummaryTask<?> summaryTask) {
+        ExecutionPlan plan = plans.get(summaryTask);
+        if (plan != null) {
+            return plan;
+        }
+
+        // 编译可能失败（如存在循环依赖），失败时不缓存
+        plan = ExecutionPlan.compile(summaryTask);
+        if (plans.size() >= maxSize) {
+            plans.clear();
+        }
+        ExecutionPlan exists = plans.putIfAbsent(summaryTask, plan);
+        return exists == null ? plan : exists;
+    }
+
+    int size() {
+        return plans.size();
+    }
+}
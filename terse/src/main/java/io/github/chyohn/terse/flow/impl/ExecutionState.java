@@ -0,0 +1,197 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.flow.impl;
+
+import io.github.chyohn.terse.flow.ITaskHandler;
+
+/**
+ * 流程单次执行的运行时状态，与共享的{@link ExecutionPlan}配合使用。
+ * <p>
+ * 节点按执行计划中的下标记录状态，全部使用基本类型数组：
+ * <ul>
+ *     <li>counters：每个节点占{@link #STRIDE}个槽位，分别为未完成的强依赖数、未移除的任务弱依赖数、未移除的条件弱依赖数、未返回的命令数</li>
+ *     <li>flags：每个节点一个字节的状态位</li>
+ * </ul>
+ * 每条依赖边的处理都是O(1)且不产生对象。只在流程的调度线程中访问，不需要同步。
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+final class ExecutionState {
+
+    static final int STRIDE = 4;
+    static final int MUST = 0;
+    static final int RANDOM_RELY = 1;
+    static final int RANDOM_CONDITION = 2;
+    static final int COMMANDS = 3;
+
+    // 节点已执行或已被移除
+    static final byte FLAG_DONE = 1;
+    // 任务弱依赖还未满足
+    static final byte FLAG_RANDOM_RELY_PENDING = 1 << 1;
+    // 条件弱依赖还未满足
+    static final byte FLAG_RANDOM_CONDITION_PENDING = 1 << 2;
+    // 节点的子节点已被移除
+    static final byte FLAG_CHILDREN_REMOVED = 1 << 3;
+
+    private static final byte NOT_READY = FLAG_DONE | FLAG_RANDOM_RELY_PENDING | FLAG_RANDOM_CONDITION_PENDING;
+
+    private final ExecutionPlan plan;
+    private final int[] counters;
+    private final byte[] flags;
+    // 任务节点的结果处理对象
+    private final ITaskHandler[] handlers;
+
+    ExecutionState(ExecutionPlan plan) {
+        this.plan = plan;
+        this.counters = plan.getInitialCounters().clone();
+        this.flags = plan.getInitialFlags().clone();
+        this.handlers = new ITaskHandler[plan.size()];
+    }
+
+    ExecutionPlan getPlan() {
+        return plan;
+    }
+
+    /**
+     * 父节点执行完成，检查子节点是否可以执行
+     *
+     * @param child 子节点
+     * @param edge  父节点到子节点的依赖类型
+     * @return true子节点可以执行
+     */
+    boolean canExecute(int child, byte edge) {
+        byte flag = flags[child];
+        if ((flag & FLAG_DONE) != 0) {
+            return false;
+        }
+        switch (edge) {
+            case ExecutionPlan.EDGE_MUST:
+                counters[child * STRIDE + MUST]--;
+                break;
+            case ExecutionPlan.EDGE_RANDOM_RELY:
+                // 任意一个完成即满足
+                flag &= ~FLAG_RANDOM_RELY_PENDING;
+                break;
+            default:
+                flag &= ~FLAG_RANDOM_CONDITION_PENDING;
+                break;
+        }
+        flags[child] = flag;
+        return counters[child * STRIDE + MUST] == 0 && (flag & NOT_READY) == 0;
+    }
+
+    /**
+     * 移除节点的所有子节点，子节点不再依赖该节点的完成
+     *
+     * @param node 节点
+     * @return true移除成功，false结束节点被移除
+     */
+    boolean removeChildren(int node) {
+
+        if (plan.isEndNode(node)) {
+            return false;
+        }
+
+        flags[node] |= FLAG_CHILDREN_REMOVED;
+        int[] children = plan.getChildren(node);
+        byte[] edges = plan.getChildEdges(node);
+        for (int i = 0; i < children.length; i++) {
+            if (canRemove(children[i], edges[i]) && !removeChildren(children[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param node 节点
+     * @return true节点的子节点已被移除，节点完成时不需要再通知子节点
+     */
+    boolean isChildrenRemoved(int node) {
+        return (flags[node] & FLAG_CHILDREN_REMOVED) != 0;
+    }
+
+    /**
+     * 父节点被移除，检查子节点是否需要被移除
+     *
+     * @param child 子节点
+     * @param edge  父节点到子节点的依赖类型
+     * @return true子节点也需要被移除
+     */
+    private boolean canRemove(int child, byte edge) {
+        byte flag = flags[child];
+        if ((flag & FLAG_DONE) != 0) {
+            return false;
+        }
+        boolean remove;
+        switch (edge) {
+            case ExecutionPlan.EDGE_MUST:
+                remove = true;
+                break;
+            case ExecutionPlan.EDGE_RANDOM_RELY:
+                remove = (flag & FLAG_RANDOM_RELY_PENDING) != 0 && --counters[child * STRIDE + RANDOM_RELY] == 0;
+                break;
+            default:
+                remove = (flag & FLAG_RANDOM_CONDITION_PENDING) != 0 && --counters[child * STRIDE + RANDOM_CONDITION] == 0;
+                break;
+        }
+        if (remove) {
+            flags[child] = (byte) (flag | FLAG_DONE);
+        }
+        return remove;
+    }
+
+    /**
+     * 标记节点开始执行，之后不会再被执行或移除
+     *
+     * @param node 节点
+     */
+    void started(int node) {
+        flags[node] |= FLAG_DONE;
+    }
+
+    /**
+     * 记录任务节点提交的命令
+     *
+     * @param node         节点
+     * @param handler      结果处理对象
+     * @param commandSize  命令数
+     */
+    void commandsSubmitted(int node, ITaskHandler handler, int commandSize) {
+        handlers[node] = handler;
+        counters[node * STRIDE + COMMANDS] = commandSize;
+    }
+
+    ITaskHandler getHandler(int node) {
+        return handlers[node];
+    }
+
+    /**
+     * 节点的一个命令返回
+     *
+     * @param node 节点
+     * @return true节点的所有命令都已返回
+     */
+    boolean commandFinished(int node) {
+        int index = node * STRIDE + COMMANDS;
+        if (counters[index] > 0) {
+            counters[index]--;
+        }
+        return counters[index] == 0;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.flow.impl;
+
+import io.github.chyohn.terse.flow.IFlowEventLoopMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 流程事件循环线程，一个线程拥有多个流程实例，这些流程的结果处理都在该线程中串行执行。
+ * <p>
+ * 任意线程都可以通过{@link #execute(Runnable)}提交任务（多生产者），只有循环线程消费队列（单消费者），
+ * 队列为空时循环线程按{@link WaitStrategy}等待。
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@Slf4j
+final class FlowEventLoop implements Executor, IFlowEventLoopMetrics {
+
+    private final CompletionQueue<Runnable> taskQueue;
+    // 队列中的任务数
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger flowCount = new AtomicInteger();
+    private final Thread thread;
+    private final long startNanos;
+    // 只由循环线程写入
+    private volatile long busyNanos;
+    private volatile long completedTasks;
+
+    FlowEventLoop(String name, WaitStrategy waitStrategy) {
+        this.taskQueue = new CompletionQueue<>(waitStrategy);
+        this.thread = new Thread(this::loop, name);
+        this.thread.setDaemon(true);
+        this.startNanos = System.nanoTime();
+        this.thread.start();
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        queueDepth.incrementAndGet();
+        taskQueue.offer(task);
+    }
+
+    /**
+     * 登记由该事件循环调度的流程，流程结束后自动注销
+     *
+     * @param future 流程结果
+     */
+    void register(CompletableFuture<?> future) {
+        flowCount.incrementAndGet();
+        future.whenComplete((r, e) -> flowCount.decrementAndGet());
+    }
+
+    /**
+     * @return true当前线程为该事件循环线程
+     */
+    boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    private void loop() {
+        for (;;) {
+            Runnable task;
+            try {
+                task = taskQueue.take(0);
+            } catch (InterruptedException e) {
+                // 事件循环线程不响应中断
+                continue;
+            }
+
+            queueDepth.decrementAndGet();
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } catch (Throwable e) {
+                log.error("flow event loop task failed", e);
+            }
+            busyNanos += System.nanoTime() - start;
+            completedTasks++;
+        }
+    }
+
+    @Override
+    public String name() {
+        return thread.getName();
+    }
+
+    @Override
+    public int queueDepth() {
+        return queueDepth.get();
+    }
+
+    @Override
+    public int flowCount() {
+        return flowCount.get();
+    }
+
+    @Override
+    public long completedTasks() {
+        return completedTasks;
+    }
+
+    @Override
+    public long busyNanos() {
+        return busyNanos;
+    }
+
+    @Override
+    public long uptimeNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    @Override
+    public String toString() {
+        return name() + "[queueDepth=" + queueDepth() + ", flowCount=" + flowCount()
+                + ", utilisation=" + String.format("%.3f", utilisation()) + "]";
+    }
+}
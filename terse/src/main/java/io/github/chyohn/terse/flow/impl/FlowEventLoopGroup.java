@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.flow.impl;
+
+import io.github.chyohn.terse.flow.IFlowEventLoopMetrics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 固定数量的流程事件循环，新的流程分配给当前流程数最少的事件循环
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+final class FlowEventLoopGroup {
+
+    // 事件循环线程数，小于等于0则不使用事件循环，每个流程的结果由回调线程或调用线程处理
+    static final String EVENT_LOOPS_KEY = "terse.flow.eventLoops";
+
+    private final FlowEventLoop[] eventLoops;
+
+    FlowEventLoopGroup(int size, WaitStrategy waitStrategy) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("the size of event loops must be positive, but " + size);
+        }
+        eventLoops = new FlowEventLoop[size];
+        for (int i = 0; i < size; i++) {
+            eventLoops[i] = new FlowEventLoop("terse-flow-loop-" + i, waitStrategy);
+        }
+    }
+
+    /**
+     * 根据系统属性{@link #EVENT_LOOPS_KEY}创建
+     *
+     * @param waitStrategy 事件循环空闲时的等待策略
+     * @return null未开启事件循环
+     */
+    static FlowEventLoopGroup fromSystemProperty(WaitStrategy waitStrategy) {
+        int size = Integer.getInteger(EVENT_LOOPS_KEY, 0);
+        return size > 0 ? new FlowEventLoopGroup(size, waitStrategy) : null;
+    }
+
+    /**
+     * @return 当前流程数最少的事件循环
+     */
+    FlowEventLoop next() {
+        FlowEventLoop selected = eventLoops[0];
+        for (int i = 1; i < eventLoops.length; i++) {
+            if (eventLoops[i].flowCount() < selected.flowCount()) {
+                selected = eventLoops[i];
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * @return true当前线程为其中一个事件循环线程
+     */
+    boolean inEventLoop() {
+        for (FlowEventLoop eventLoop : eventLoops) {
+            if (eventLoop.inEventLoop()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    List<IFlowEventLoopMetrics> metrics() {
+        return Collections.unmodifiableList(Arrays.asList(eventLoops));
+    }
+}
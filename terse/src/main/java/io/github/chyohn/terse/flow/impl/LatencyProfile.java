@@ -0,0 +1,168 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.flow.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 执行计划中各节点的耗时统计，跨多次执行共享，用于计算关键路径。
+ * <p>
+ * 每个节点记录从提交命令到所有命令返回的耗时的指数加权移动平均（EWMA）。
+ * 统计按执行计划的节点记录，而不是按任务类型：通过{@link io.github.chyohn.terse.stream.TerseFlowBuilder}构建的任务
+ * 都是同一个类型，按类型统计会把不相关的任务混在一起。
+ * <p>
+ * 节点的关键路径长度 = 自身耗时 + 子节点关键路径长度的最大值，关键路径越长的节点越先调度。
+ * 没有任何统计时返回null，由调用方使用静态排序。
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+final class LatencyProfile {
+
+    // 新样本的权重
+    private static final double ALPHA = 0.2D;
+
+    private final ExecutionPlan plan;
+    private final AtomicLongArray ewmaNanos;
+    // 样本数，用于判断优先级是否需要重新计算
+    private final AtomicLong samples = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    LatencyProfile(ExecutionPlan plan) {
+        this.plan = plan;
+        this.ewmaNanos = new AtomicLongArray(plan.size());
+    }
+
+    /**
+     * 记录节点耗时，多个执行并发记录时允许丢失个别样本
+     *
+     * @param node  节点
+     * @param nanos 耗时
+     */
+    void record(int node, long nanos) {
+        long old = ewmaNanos.get(node);
+        long ewma = old == 0 ? Math.max(nanos, 1) : (long) (old + ALPHA * (nanos - old));
+        ewmaNanos.lazySet(node, Math.max(ewma, 1));
+        samples.incrementAndGet();
+    }
+
+    long getEwmaNanos(int node) {
+        return ewmaNanos.get(node);
+    }
+
+    /**
+     * @return 各节点的调度优先级，越小越优先；null还没有耗时统计
+     */
+    int[] ranks() {
+        Snapshot s = snapshot();
+        return s == null ? null : s.ranks;
+    }
+
+    /**
+     * @return 各节点的关键路径长度；null还没有耗时统计
+     */
+    long[] criticalPathNanos() {
+        Snapshot s = snapshot();
+        return s == null ? null : s.criticalPathNanos;
+    }
+
+    /**
+     * 样本数增加超过节点数（约一次完整执行）时重新计算，重新计算的开销均摊到每个样本上
+     */
+    private Snapshot snapshot() {
+        long count = samples.get();
+        if (count == 0) {
+            return null;
+        }
+        Snapshot s = snapshot;
+        if (s == null || count - s.samples >= Math.max(plan.size(), 16)) {
+            s = new Snapshot(count, compute());
+            snapshot = s;
+        }
+        return s;
+    }
+
+    private long[] compute() {
+        int size = plan.size();
+        long[] criticalPath = new long[size];
+        // 子节点的层级一定大于父节点，执行计划按层级编号，倒序遍历即可保证子节点先计算
+        for (int node = size - 1; node >= 0; node--) {
+            long maxChild = 0;
+            for (int child : plan.getChildren(node)) {
+                maxChild = Math.max(maxChild, criticalPath[child]);
+            }
+            criticalPath[node] = ewmaNanos.get(node) + maxChild;
+        }
+        return criticalPath;
+    }
+
+    /**
+     * @return 各节点的耗时和调度优先级，用于排查调度顺序
+     */
+    String describe() {
+        Snapshot s = snapshot();
+        StringBuilder builder = new StringBuilder("LatencyProfile[samples=").append(samples.get());
+        if (s == null) {
+            builder.append(", static order");
+        }
+        builder.append(']');
+        for (int i = 0; i < plan.size(); i++) {
+            builder.append("\n  ").append(i).append(':').append(plan.getTask(i).getClass().getSimpleName())
+                    .append(" level=").append(plan.getLevel(i))
+                    .append(" ewma=").append(TimeUnit.NANOSECONDS.toMicros(ewmaNanos.get(i))).append("us");
+            if (s != null) {
+                builder.append(" criticalPath=").append(TimeUnit.NANOSECONDS.toMicros(s.criticalPathNanos[i])).append("us")
+                        .append(" rank=").append(s.ranks[i]);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static final class Snapshot {
+        final long samples;
+        final long[] criticalPathNanos;
+        final int[] ranks;
+
+        Snapshot(long samples, long[] criticalPathNanos) {
+            this.samples = samples;
+            this.criticalPathNanos = criticalPathNanos;
+            this.ranks = rank(criticalPathNanos);
+        }
+
+        /**
+         * 关键路径越长排名越靠前，相同时保持执行计划中的静态顺序
+         */
+        private static int[] rank(long[] criticalPathNanos) {
+            Integer[] order = new Integer[criticalPathNanos.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (n1, n2) -> {
+                int comp = Long.compare(criticalPathNanos[n2], criticalPathNanos[n1]);
+                return comp != 0 ? comp : Integer.compare(n1, n2);
+            });
+            int[] ranks = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                ranks[order[i]] = i;
+            }
+            return ranks;
+        }
+    }
+}
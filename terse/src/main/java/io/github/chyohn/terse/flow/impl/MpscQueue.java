@@ -0,0 +1,110 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.flow.impl;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 无锁的多生产者单消费者队列。
+ * <p>
+ * 生产者只通过一次{@link AtomicReference#getAndSet(Object)}交换队尾，不会失败重试；
+ * 消费者只读写队头，不需要任何原子操作。{@link #poll()}和{@link #isEmpty()}同一时刻只能由一个线程调用，
+ * 消费线程发生切换时，需要由调用方保证切换前后的happens-before关系。
+ *
+ * @param <E> 元素类型
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+final class MpscQueue<E> {
+
+    // 生产者竞争的队尾
+    private final AtomicReference<LinkedNode<E>> tail;
+    // 消费者持有的队头，是已被消费的节点
+    private LinkedNode<E> head;
+
+    MpscQueue() {
+        LinkedNode<E> stub = new LinkedNode<>(null);
+        this.head = stub;
+        this.tail = new AtomicReference<>(stub);
+    }
+
+    /**
+     * 入队，可在任意线程中调用
+     *
+     * @param e 元素，不能为null
+     */
+    void offer(E e) {
+        if (e == null) {
+            throw new NullPointerException("element is null");
+        }
+        offerNode(new LinkedNode<>(e));
+    }
+
+    /**
+     * 元素自身作为链表节点入队，不再分配节点，可在任意线程中调用。每个节点只能入队一次
+     *
+     * @param node 节点，值不能为null
+     */
+    void offerNode(LinkedNode<E> node) {
+        LinkedNode<E> prev = tail.getAndSet(node);
+        // 交换队尾后再链接，链接前消费者会看到短暂的断链
+        prev.next = node;
+    }
+
+    /**
+     * 出队，只能在消费线程中调用
+     *
+     * @return null队列为空
+     */
+    E poll() {
+        LinkedNode<E> next = head.next;
+        if (next == null) {
+            if (head == tail.get()) {
+                return null;
+            }
+            // 生产者已交换队尾但还未链接，等待链接完成
+            while ((next = head.next) == null) {
+                Thread.yield();
+            }
+        }
+        E value = next.value;
+        next.value = null;
+        head = next;
+        return value;
+    }
+
+    /**
+     * 只能在消费线程中调用
+     *
+     * @return true队列为空
+     */
+    boolean isEmpty() {
+        return head == tail.get();
+    }
+
+    /**
+     * 链表节点，元素可以继承该类作为侵入式节点
+     */
+    static class LinkedNode<E> {
+        E value;
+        private volatile LinkedNode<E> next;
+
+        LinkedNode(E value) {
+            this.value = value;
+        }
+    }
+}
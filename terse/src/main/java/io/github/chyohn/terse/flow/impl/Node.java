@@ -16,11 +16,8 @@
 
 package io.github.chyohn.terse.flow.impl;
 
-import io.github.chyohn.terse.command.ICommand;
-import io.github.chyohn.terse.command.IResult;
 import io.github.chyohn.terse.flow.IFlowContext;
 import io.github.chyohn.terse.flow.IReliableTask;
-import io.github.chyohn.terse.utils.ObjectUtils;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -31,6 +28,8 @@ import java.util.Set;
 import java.util.stream.IntStream;
 
 /**
+ * DAG图的节点，只在编译{@link ExecutionPlan}时使用，运行时状态见{@link ExecutionState}
+ *
  * @author qiang.shao
  * @since 1.0.0
  */
@@ -44,15 +43,12 @@ class Node {
     private Set<Node> parents; // 上层节点为父节点
     private final List<Node> children = new ArrayList<>(); // 下层节点为子节点
     private int childrenMinLevel = -1;
-    private boolean removed;
     private Set<Node> mustRelyOnTasks;
     private Set<Node> randomRelyOnTasks;
     private Set<Node> mustConditions;
     private Set<Node> randomConditions;
     @Setter
     private NodeExecutor executor;
-    @Setter
-    private NodeExecuteInfo executeInfo;
 
 
     public Node(IReliableTask<IFlowContext> task) {
@@ -102,101 +98,6 @@ class Node {
         }
     }
 
-    /**
-     * 执行节点
-     *
-     * @param context 流程上下文
-     * @return 异步命令，null则不需要发起异步请求
-     */
-    public List<ICommand> execute(IFlowContext context) {
-        clean();
-        return executor.run(this, context);
-    }
-
-    /**
-     * 如果结果发起的是异步命令，当异步命令响应后通过该接口处理响应结果
-     *
-     * @param result 命令结果
-     * @return true finished node
-     */
-    public boolean handleResult(IResult<?> result) {
-        return executor.handleResult(this, result);
-    }
-
-
-    public boolean canExecute(Node parent) {
-        if (removed) {
-            return false;
-        }
-        parentFinished(parent);
-        return ObjectUtils.isEmpty(mustRelyOnTasks) && randomRelyOnTasks == null
-                && ObjectUtils.isEmpty(mustConditions) && randomConditions == null;
-    }
-
-    private void parentFinished(Node parent) {
-        if (parents == null || !parents.remove(parent)) {
-            // parents中没有该节点，不需要处理后续
-            return;
-        }
-        if (mustConditions != null && mustConditions.remove(parent)) {
-            return;
-        }
-        if (mustRelyOnTasks != null && mustRelyOnTasks.remove(parent)) {
-            return;
-        }
-
-        // 任意一个完成，则移除其他任意节点
-        if (ObjectUtils.contains(randomRelyOnTasks, parent)) {
-            randomRelyOnTasks = null;
-            return;
-        }
-        if (ObjectUtils.contains(randomConditions, parent)) {
-            randomConditions = null;
-        }
-    }
-
-
-    /**
-     * 父节点被移除，检查当前节点是否需要被移除
-     *
-     * @param parent 被移除的父节点
-     * @return true当前节点也需要被移除
-     */
-    public boolean canRemove(Node parent) {
-        if (!removed && removeParent(parent)) {
-            clean();
-            return true;
-        }
-        return false;
-    }
-
-    /**
-     * 父节点被移除，检查当前节点是否需要被移除
-     *
-     * @param parent 被移除的父节点
-     * @return true当前节点也需要被移除
-     */
-    private boolean removeParent(Node parent) {
-        if (parents == null || !parents.remove(parent)) {
-            // parents中没有该节点，不需要处理后续
-            return false;
-        }
-        if (mustConditions != null && mustConditions.remove(parent)) {
-            return true;
-        }
-        if (mustRelyOnTasks != null && mustRelyOnTasks.remove(parent)) {
-            return true;
-        }
-
-        if (randomConditions != null && randomConditions.remove(parent)) {
-            return randomConditions.isEmpty();
-        }
-        if (randomRelyOnTasks != null && randomRelyOnTasks.remove(parent)) {
-            return randomRelyOnTasks.isEmpty();
-        }
-        return false;
-    }
-
     public int getChildrenMinLevel() { // 获取子节点中的最小层级数
         if (childrenMinLevel >= 0) {
             return childrenMinLevel;
@@ -206,25 +107,6 @@ class Node {
                 : children.stream().flatMapToInt(a -> IntStream.of(a.level)).min().getAsInt();
     }
 
-    /**
-     * @return true当前节点为结束节点
-     */
-    public boolean isEndNode() {
-        return children.isEmpty();
-    }
-
-    /**
-     * 清理节点
-     */
-    private void clean() {
-        removed = true;
-        parents = null;
-        mustRelyOnTasks = null;
-        randomRelyOnTasks = null;
-        mustConditions = null;
-        randomConditions = null;
-    }
-
     @Override
     public String toString() {
         return task.getClass().getSimpleName() + "(" + level + "->" + getChildrenMinLevel() + ")";
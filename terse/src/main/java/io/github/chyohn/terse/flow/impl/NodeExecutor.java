@@ -13,7 +13,15 @@ import java.util.List;
  */
 interface NodeExecutor {
 
-    List<ICommand> run(Node node, IFlowContext context);
+    /**
+     * 执行节点
+     *
+     * @param state   流程运行时状态
+     * @param node    节点下标
+     * @param context 流程上下文
+     * @return 异步命令，null则不需要发起异步请求
+     */
+    List<ICommand> run(ExecutionState state, int node, IFlowContext context);
 
     boolean accept(Node node);
 
@@ -21,7 +29,7 @@ interface NodeExecutor {
      *
      * @return true finished node
      */
-    default boolean handleResult(Node node, IResult<?> result) {
+    default boolean handleResult(ExecutionState state, int node, IResult<?> result) {
         return true;
     }
 }
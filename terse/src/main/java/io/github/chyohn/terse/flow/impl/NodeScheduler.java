@@ -16,26 +16,25 @@
 
 package io.github.chyohn.terse.flow.impl;
 
+import io.github.chyohn.terse.command.CancellationToken;
 import io.github.chyohn.terse.command.ICommand;
 import io.github.chyohn.terse.command.ICommandInvoker;
 import io.github.chyohn.terse.command.IResult;
 import io.github.chyohn.terse.enums.RunningWay;
-import io.github.chyohn.terse.exception.CommandExecuteException;
 import io.github.chyohn.terse.exception.TimeoutException;
 import io.github.chyohn.terse.flow.IFlowContext;
 import io.github.chyohn.terse.flow.IReliableTask;
 import io.github.chyohn.terse.spi.ISpiFactory;
 import io.github.chyohn.terse.utils.ObjectUtils;
 import io.github.chyohn.terse.flow.ITaskHandler;
-import lombok.extern.slf4j.Slf4j;
 
-import java.util.*;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
- * 流程执行入口方法{@link #execute()}
+ * 节点调度
  * <ol>
  * <li>维护各个执行节点的执行顺序。节点满足下面的任意条件就可立即执行
  *  <ul>
@@ -43,116 +42,193 @@ import java.util.concurrent.TimeUnit;
  *      <li>节点的所有依赖节点都执行完成 </li>
  *  </ul>
  * </li>
- * <li>保证每个节点的处理不存在多线程竞争。 由于结果从不同的线程返回来，为了避免多线程竞争，则使用了一个队列来存放结果，
- *  并由execute()方法的执行线程来消费队列并处理结果。这样一来，{@link ITaskHandler}对象的所有操作都在同一个线程中执行，避免了线程同步操作。
+ * <li>保证每个节点的处理不存在多线程竞争。 由于结果从不同的线程返回来，为了避免多线程竞争，结果先放入队列，
+ *  再由同一时刻唯一的调度线程消费队列并处理结果。这样一来，{@link ITaskHandler}对象的所有操作都是串行的，避免了线程同步操作。
+ *  <ul>
+ *      <li>{@link BlockingNodeScheduler}: 由调用线程等待并处理结果</li>
+ *      <li>{@link AsyncNodeScheduler}: 由结果回调线程串行处理结果，不阻塞任何线程</li>
+ *  </ul>
+ * </li>
+ * <li>{@link IFlowContext#timeout()}大于0时作为整个流程的截止时间，每个命令的超时时间不超过剩余时间。
+ *  流程超时或失败时通过{@link CancellationToken}取消已提交的命令。
+ * </li>
+ * <li>同时就绪的节点按关键路径调度。{@link LatencyProfile}有耗时统计时，关键路径越长的节点越先执行、其结果越先处理；
+ *  没有统计或通过系统属性{@link #CRITICAL_PATH_KEY}关闭时，使用执行计划中的静态顺序。
  * </li>
  * </ol>
  *
  * @author qiang.shao
  * @since 1.0.0
  */
-@Slf4j
-final class NodeScheduler {
+abstract class NodeScheduler {
+
+    // 是否按关键路径调度，默认开启
+    static final String CRITICAL_PATH_KEY = "terse.flow.criticalPath";
+    private static final boolean CRITICAL_PATH_ENABLED = Boolean.parseBoolean(System.getProperty(CRITICAL_PATH_KEY, "true"));
 
-    // 响应结果同步队列
-    private final BlockingQueue<CommandFinishedMessage> commandFinishedQueue;
+    // 按优先级处理结果，值越小越优先
+    static final Comparator<CommandFinishedMessage> MESSAGE_COMPARATOR = Comparator.comparingInt(msg -> msg.priority);
 
     private final ICommandInvoker commandInvoker;
-    private final IFlowContext context;
+    final IFlowContext context;
     private final RunningWay runningWay;
     // 记录正在运行的节点数据
-    private int nodeRunningCount = 0;
-    private DagGraph dagGraph;
+    int nodeRunningCount = 0;
+    final ExecutionPlan plan;
+    private final ExecutionState state;
+    private final LatencyProfile latencyProfile;
+    // 关键路径排名，null则使用静态顺序
+    private final int[] ranks;
+    // 节点提交命令的时间
+    private final long[] startNanos;
+    // 流程截止时间，0则没有截止时间
+    private final long deadlineNanos;
+    // 取消本次执行提交的命令
+    private final CancellationToken cancellation = new CancellationToken();
 
-    NodeScheduler(IReliableTask<?> summaryTask, IFlowContext context, RunningWay runningWay) {
+    NodeScheduler(ExecutionPlan plan, IFlowContext context, RunningWay runningWay) {
         this.context = context;
         this.runningWay = runningWay;
         commandInvoker = ISpiFactory.get(ICommandInvoker.class);
-        // 构建DAG图
-        dagGraph = DagGraphGenerator.generateDAGByLevel(summaryTask);
+        // 共享的执行计划，只创建本次执行的运行时状态
+        this.plan = plan;
+        this.state = new ExecutionState(plan);
+        this.latencyProfile = plan.getLatencyProfile();
+        this.ranks = CRITICAL_PATH_ENABLED ? latencyProfile.ranks() : null;
+        this.startNanos = new long[plan.size()];
+        this.deadlineNanos = context.timeout() > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(context.timeout()) : 0;
+    }
 
-        // 创建任务结果优先处理队列
-        int queueSize = dagGraph.getSize() > Integer.MAX_VALUE>>2 ? Integer.MAX_VALUE : Math.max(dagGraph.getSize()<<2, 512);
-        commandFinishedQueue = new PriorityBlockingQueue<>(queueSize, Comparator.comparingInt(msg -> msg.node.getChildrenMinLevel()));
+    /**
+     * @return 距截止时间的纳秒数，{@link Long#MAX_VALUE}没有截止时间
+     */
+    long remainingNanos() {
+        return deadlineNanos == 0 ? Long.MAX_VALUE : deadlineNanos - System.nanoTime();
     }
 
     /**
-     * 执行排序
+     * 流程超时或失败，取消已提交还未完成的命令
+     *
+     * @param reason 原因
      */
-    void execute() {
+    void cancel(Throwable reason) {
+        cancellation.cancel(reason);
+    }
 
-        // 从根节点开始执行
-        startFromRoot();
+    TimeoutException timeoutException() {
+        return timeoutException(null);
+    }
 
-        try {
-            // 等到所有节点执行完成
-            waitAllNodesFinish();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new CommandExecuteException(e);
-        }
+    private TimeoutException timeoutException(Throwable cause) {
+        return new TimeoutException("执行节点超时, timeout: " + context.timeout(), cause);
     }
 
-    private void startFromRoot() {
-        // 移除root节点的引用，以便GC能处理
-        List<Node> roots = dagGraph.removeRoot();
-        // 对节点的执行顺序做排序
-        roots.sort(NodeExecuteComparator.getInstance());
-        for (Node root : roots) {
+    void startFromRoot() {
+        // 根节点在执行计划中已按静态顺序排好序
+        int[] roots = plan.getRoots();
+        if (ranks != null) {
+            roots = sortByRank(roots.clone(), roots.length);
+        }
+        for (int root : roots) {
             runNode(root);
         }
     }
 
-    private void waitAllNodesFinish() throws InterruptedException {
-        CommandFinishedMessage message = null;
-        while (nodeRunningCount > 0) {
-            if (context.timeout() > 0) {
-                message = commandFinishedQueue.poll(context.timeout(), TimeUnit.MILLISECONDS);
-            } else {
-                message = commandFinishedQueue.take();
-            }
-
-            if (message == null) {
-                throw new TimeoutException("执行节点超时, timeout: " + context.timeout());
-            }
-
-            // 处理结果
-            Node node = message.node;
-            IResult<?> result = message.result;
-            if (node.handleResult(result)) {
-                nodeFinished(node);
-                nodeRunningCount--;
+    /**
+     * 处理节点的命令结果
+     *
+     * @param message 命令结果
+     */
+    void handleMessage(CommandFinishedMessage message) {
+        int node = message.node;
+        boolean finished;
+        try {
+            finished = plan.getExecutor(node).handleResult(state, node, message.result);
+        } catch (RuntimeException e) {
+            // 命令的超时时间是流程的剩余时间，命令超时即流程超时
+            if (remainingNanos() <= 0) {
+                throw timeoutException(e);
             }
+            throw e;
+        }
+        if (finished) {
+            latencyProfile.record(node, System.nanoTime() - startNanos[node]);
+            nodeFinished(node);
+            nodeRunningCount--;
         }
     }
 
-
     /**
      * 节点执行完成
      *
      * @param finishedNode 已完成节点
      */
-    private void nodeFinished(Node finishedNode) {
+    private void nodeFinished(int finishedNode) {
+
+        if (state.isChildrenRemoved(finishedNode)) {
+            // 条件不满足，子节点已不再依赖该节点
+            return;
+        }
+
+        // 子节点在执行计划中已排好序
+        int[] children = plan.getChildren(finishedNode);
+        byte[] edges = plan.getChildEdges(finishedNode);
 
-        List<Node> children = finishedNode.getChildren();
-        children.sort(NodeExecuteComparator.getInstance());
+        if (ranks == null) {
+            // 执行下一个节点
+            for (int i = 0; i < children.length; i++) {
+                if (state.canExecute(children[i], edges[i])) {
+                    runNode(children[i]);
+                }
+            }
+            return;
+        }
 
-        // 执行下一个节点
-        for (Node child : children) {
-            if (child.canExecute(finishedNode)) {
-                runNode(child);
+        // 先找出所有就绪的子节点，再按关键路径执行
+        int[] ready = new int[children.length];
+        int readyCount = 0;
+        for (int i = 0; i < children.length; i++) {
+            if (state.canExecute(children[i], edges[i])) {
+                ready[readyCount++] = children[i];
             }
         }
+        sortByRank(ready, readyCount);
+        for (int i = 0; i < readyCount; i++) {
+            runNode(ready[i]);
+        }
+    }
+
+    /**
+     * 按关键路径排名排序节点
+     *
+     * @param nodes 节点
+     * @param count 需要排序的节点数
+     * @return 排序后的节点
+     */
+    private int[] sortByRank(int[] nodes, int count) {
+        if (count < 2) {
+            return nodes;
+        }
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = ((long) ranks[nodes[i]] << 32) | nodes[i];
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < count; i++) {
+            nodes[i] = (int) keys[i];
+        }
+        return nodes;
     }
 
 
     /**
      * 执行节点
      */
-    private void runNode(Node node) {
+    private void runNode(int node) {
 
         // 执行节点
-        List<ICommand> commands = node.execute(context);
+        state.started(node);
+        List<ICommand> commands = plan.getExecutor(node).run(state, node, context);
         if (ObjectUtils.isEmpty(commands)) {
             nodeFinished(node);
             return;
@@ -160,34 +236,51 @@ final class NodeScheduler {
 
         // 提交节点的异步命令
         this.nodeRunningCount++;
-        IReliableTask<IFlowContext> reliableNode = node.getTask();
-        commandInvoker.asyncInvoke(commands, reliableNode.getTimeout(), this.runningWay,
-                res -> sendFinishedMessage(node, res));
+        IReliableTask<IFlowContext> reliableNode = plan.getTask(node);
+        long timeout = commandTimeout(reliableNode.getTimeout());
+        int priority = ranks == null ? plan.getChildrenMinLevel(node) : ranks[node];
+        startNanos[node] = System.nanoTime();
+        commandInvoker.asyncInvoke(commands, timeout, this.runningWay, cancellation,
+                res -> sendFinishedMessage(new CommandFinishedMessage(node, priority, res)));
     }
 
     /**
-     * 结果获取完成发送完成通知
+     * @param taskTimeout 任务的超时时间
+     * @return 任务超时时间和流程剩余时间中较小的一个
      */
-    private void sendFinishedMessage(Node node, IResult<?> result) {
-        try {
-            commandFinishedQueue.put(new CommandFinishedMessage(node, result));
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException(e);
+    private long commandTimeout(long taskTimeout) {
+        if (deadlineNanos == 0) {
+            return taskTimeout;
         }
+        long remaining = TimeUnit.NANOSECONDS.toMillis(remainingNanos());
+        if (remaining <= 0) {
+            throw timeoutException();
+        }
+        return taskTimeout > 0 ? Math.min(taskTimeout, remaining) : remaining;
     }
 
     /**
-     * 用于同步队列存储节点的响应结果
+     * 结果获取完成发送完成通知，可能在任意线程中调用
+     *
+     * @param message 命令结果
+     */
+    abstract void sendFinishedMessage(CommandFinishedMessage message);
+
+    /**
+     * 用于同步队列存储节点的响应结果，自身即是队列的链表节点，每个结果只分配这一个对象
      */
-    private static final class CommandFinishedMessage {
+    static final class CommandFinishedMessage extends MpscQueue.LinkedNode<CommandFinishedMessage> {
 
         final IResult<?> result;
-        final Node node;
+        final int node;
+        final int priority;
 
-        CommandFinishedMessage(Node node, IResult<?> result) {
+        CommandFinishedMessage(int node, int priority, IResult<?> result) {
+            super(null);
+            this.value = this;
             this.result = result;
             this.node = node;
+            this.priority = priority;
         }
     }
 
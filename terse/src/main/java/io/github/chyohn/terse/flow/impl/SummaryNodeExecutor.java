@@ -18,8 +18,8 @@ class SummaryNodeExecutor implements NodeExecutor{
     }
 
     @Override
-    public List<ICommand> run(Node node, IFlowContext context) {
-        ISummaryTask<IFlowContext> summaryTask = (ISummaryTask<IFlowContext>)node.getTask();
+    public List<ICommand> run(ExecutionState state, int node, IFlowContext context) {
+        ISummaryTask<IFlowContext> summaryTask = (ISummaryTask<IFlowContext>) state.getPlan().getTask(node);
         summaryTask.summary(context);
         return null;
     }
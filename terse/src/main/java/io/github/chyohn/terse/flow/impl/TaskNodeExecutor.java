@@ -21,8 +21,8 @@ class TaskNodeExecutor implements NodeExecutor{
     }
 
     @Override
-    public List<ICommand> run(Node node, IFlowContext context) {
-        ITask<IFlowContext> task = (ITask<IFlowContext>)node.getTask();
+    public List<ICommand> run(ExecutionState state, int node, IFlowContext context) {
+        ITask<IFlowContext> task = (ITask<IFlowContext>) state.getPlan().getTask(node);
         ITaskHandler handler = task.createTaskHandler(context);
         if (handler == null) {
             return null;
@@ -33,21 +33,19 @@ class TaskNodeExecutor implements NodeExecutor{
             return null;
         }
 
-        NodeExecuteInfo executeInfo = new NodeExecuteInfo(handler, commands.size());
-        node.setExecuteInfo(executeInfo);
+        state.commandsSubmitted(node, handler, commands.size());
         return commands;
     }
 
     @Override
-    public boolean handleResult(Node node, IResult<?> result) {
-        NodeExecuteInfo executeInfo = node.getExecuteInfo();
-        if (result == null && executeInfo == null) {
+    public boolean handleResult(ExecutionState state, int node, IResult<?> result) {
+        ITaskHandler handler = state.getHandler(node);
+        if (result == null && handler == null) {
             return true;
         }
 
-        executeInfo.incrFinish();
-        boolean finished = executeInfo.isAllFinished();
-        executeInfo.handler.handleResult(result, finished);
+        boolean finished = state.commandFinished(node);
+        handler.handleResult(result, finished);
         return finished;
     }
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.chyohn.terse.flow.impl;
+
+/**
+ * {@link CompletionQueue}为空时消费线程的等待策略，通过系统属性{@link #WAIT_STRATEGY_KEY}配置，默认{@link #BLOCK}
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+enum WaitStrategy {
+
+    /**
+     * 立即挂起，由生产者唤醒。不占用CPU，但每次唤醒都有线程切换的开销
+     */
+    BLOCK {
+        @Override
+        <E> E waitFor(CompletionQueue<E> queue, long deadline) throws InterruptedException {
+            return queue.park(deadline);
+        }
+    },
+
+    /**
+     * 先自旋再挂起。结果间隔很短时可避免线程切换，等待较久时不会一直占用CPU
+     */
+    SPIN_THEN_PARK {
+        @Override
+        <E> E waitFor(CompletionQueue<E> queue, long deadline) throws InterruptedException {
+            for (int i = 0; i < SPIN_TRIES; i++) {
+                E e = queue.poll();
+                if (e != null) {
+                    return e;
+                }
+            }
+            for (int i = 0; i < YIELD_TRIES; i++) {
+                Thread.yield();
+                E e = queue.poll();
+                if (e != null) {
+                    return e;
+                }
+            }
+            return queue.park(deadline);
+        }
+    },
+
+    /**
+     * 一直让出CPU直到有结果，延迟最低，但等待期间会一直占用CPU，只适合核数充足的场景
+     */
+    YIELD {
+        @Override
+        <E> E waitFor(CompletionQueue<E> queue, long deadline) throws InterruptedException {
+            for (;;) {
+                Thread.yield();
+                E e = queue.poll();
+                if (e != null) {
+                    return e;
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                if (deadline != 0 && deadline - System.nanoTime() <= 0) {
+                    return null;
+                }
+            }
+        }
+    };
+
+    static final String WAIT_STRATEGY_KEY = "terse.flow.waitStrategy";
+
+    private static final int SPIN_TRIES = 1 << 10;
+    private static final int YIELD_TRIES = 1 << 4;
+
+    /**
+     * 等待队列中的元素
+     *
+     * @param queue    队列
+     * @param deadline 截止时间{@link System#nanoTime()}，0则一直等待
+     * @param <E>      元素类型
+     * @return null等待超时
+     * @throws InterruptedException 等待被中断
+     */
+    abstract <E> E waitFor(CompletionQueue<E> queue, long deadline) throws InterruptedException;
+
+    static WaitStrategy fromSystemProperty() {
+        return valueOf(System.getProperty(WAIT_STRATEGY_KEY, BLOCK.name()).trim().toUpperCase());
+    }
+}
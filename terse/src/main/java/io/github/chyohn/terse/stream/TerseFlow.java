@@ -22,6 +22,8 @@ import io.github.chyohn.terse.flow.IFlowExecutor;
 import io.github.chyohn.terse.flow.ISummaryTask;
 import io.github.chyohn.terse.spi.ISpiFactory;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * define a flow
  *
@@ -61,4 +63,15 @@ public class TerseFlow<C extends IFlowContext> {
         IFlowExecutor executor = ISpiFactory.get(IFlowExecutor.class);
         executor.execute(summaryTask, context, RunningWay.SERIAL);
     }
+
+    /**
+     * execute the flow with parallel, and return immediately without waiting the tasks
+     *
+     * @param context flow context
+     * @return future completed with the context after the flow finished
+     */
+    public CompletableFuture<C> executeAsync(C context) {
+        IFlowExecutor executor = ISpiFactory.get(IFlowExecutor.class);
+        return executor.executeAsync(summaryTask, context, RunningWay.PARALLEL);
+    }
 }
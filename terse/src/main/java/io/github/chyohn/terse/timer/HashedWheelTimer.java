@@ -0,0 +1,362 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.chyohn.terse.timer;
+
+import io.github.chyohn.terse.anotations.Internal;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * a hashed timing wheel for the timeouts of commands and flows.
+ * <p>
+ * adding a timeout links it to a lock-free intrusive queue, cancelling it is a single CAS on its state,
+ * so both are O(1), never contend on a lock and allocate nothing but the timeout itself.
+ * a single worker thread moves the new timeouts into the buckets of the wheel and runs the expired ones at every tick,
+ * the cancelled ones are unlinked when the worker passes their bucket. a timeout expires at the first tick after
+ * its deadline, so the precision is the duration of a tick.
+ * <p>
+ * the expired tasks run on the worker thread and must be short, the long work and the user callbacks should be handed
+ * over to another thread, e.g. {@link #expiryExecutor()}.
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@Slf4j
+@Internal
+public final class HashedWheelTimer implements ITimerMetrics {
+
+    // the tick duration of the command timer in milliseconds
+    public static final String TICK_MILLIS_KEY = "terse.timer.tickMillis";
+    // the bucket count of the command timer, rounded up to the power of two
+    public static final String WHEEL_SIZE_KEY = "terse.timer.wheelSize";
+
+    // limit the transferred timeouts per tick, so a burst of new timeouts never delays the expiring
+    private static final int MAX_TRANSFER_PER_TICK = 100_000;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    // the intrusive queue of new timeouts, producers swap the tail and the worker thread consumes from the head
+    private final AtomicReference<Timeout> newTimeoutsTail;
+    private Timeout newTimeoutsHead;
+    private final AtomicLong pendingTimeouts = new AtomicLong();
+    private final LongAdder expiredTimeouts = new LongAdder();
+    private final LongAdder cancelledCount = new LongAdder();
+    private final Thread worker;
+    private final long startNanos;
+    // the ticks passed, only accessed by the worker thread
+    private long tick;
+    private volatile boolean stopped;
+
+    /**
+     * @param name         the name of worker thread
+     * @param tickDuration the duration between two ticks
+     * @param unit         the unit of tickDuration
+     * @param wheelSize    the count of buckets, rounded up to the power of two
+     */
+    public HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int wheelSize) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive, but " + tickDuration);
+        }
+        if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+            throw new IllegalArgumentException("wheelSize must be in (0, 2^30], but " + wheelSize);
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        Timeout stub = new Timeout(this, null, 0);
+        this.newTimeoutsHead = stub;
+        this.newTimeoutsTail = new AtomicReference<>(stub);
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * the timer shared by all command and flow timeouts, configured by the system properties
+     * {@link #TICK_MILLIS_KEY}(default 10) and {@link #WHEEL_SIZE_KEY}(default 512)
+     *
+     * @return the shared timer
+     */
+    public static HashedWheelTimer commandTimer() {
+        return CommandTimerHolder.TIMER;
+    }
+
+    /**
+     * the executor to run the work of an expired timeout that calls user code, such as completing a command or
+     * failing a flow, so that a slow callback never delays the other timeouts of the shared timer.
+     * the same as the default executor of {@link java.util.concurrent.CompletableFuture}'s async methods.
+     *
+     * @return the executor
+     */
+    public static Executor expiryExecutor() {
+        return CommandTimerHolder.EXPIRY_EXECUTOR;
+    }
+
+    /**
+     * schedule the task to run once after the delay
+     *
+     * @param task  the task
+     * @param delay the delay
+     * @param unit  the unit of delay
+     * @return the handle to cancel the task
+     */
+    public ITimeout newTimeout(ITimerTask task, long delay, TimeUnit unit) {
+        if (stopped) {
+            throw new IllegalStateException("timer " + worker.getName() + " is stopped");
+        }
+        long deadline = System.nanoTime() - startNanos + unit.toNanos(Math.max(delay, 0));
+        if (deadline < 0) {
+            // overflow
+            deadline = Long.MAX_VALUE;
+        }
+        Timeout timeout = new Timeout(this, task, deadline);
+        pendingTimeouts.incrementAndGet();
+        Timeout prev = newTimeoutsTail.getAndSet(timeout);
+        prev.nextNew = timeout;
+        return timeout;
+    }
+
+    /**
+     * stop the worker thread, the pending timeouts never run
+     */
+    public void stop() {
+        stopped = true;
+        LockSupport.unpark(worker);
+    }
+
+    private void run() {
+        while (!stopped) {
+            long now = waitForNextTick();
+            if (stopped) {
+                break;
+            }
+            transferTimeoutsToBuckets();
+            wheel[(int) (tick & mask)].expireTimeouts(now);
+            tick++;
+        }
+    }
+
+    /**
+     * @return the nanos since the timer started
+     */
+    private long waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        for (;;) {
+            long now = System.nanoTime() - startNanos;
+            long sleepNanos = deadline - now;
+            if (sleepNanos <= 0 || stopped) {
+                return now;
+            }
+            LockSupport.parkNanos(this, sleepNanos);
+        }
+    }
+
+    private void transferTimeoutsToBuckets() {
+        for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+            // a producer swapped the tail but not linked yet is transferred at the next tick
+            Timeout timeout = newTimeoutsHead.nextNew;
+            if (timeout == null) {
+                break;
+            }
+            newTimeoutsHead = timeout;
+            if (timeout.state != Timeout.ST_INIT) {
+                continue;
+            }
+            long calculated = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            // the deadline already passed, expire at the current tick
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    @Override
+    public long pendingTimeouts() {
+        return pendingTimeouts.get();
+    }
+
+    @Override
+    public long expiredTimeouts() {
+        return expiredTimeouts.sum();
+    }
+
+    @Override
+    public long cancelledTimeouts() {
+        return cancelledCount.sum();
+    }
+
+    @Override
+    public long tickNanos() {
+        return tickNanos;
+    }
+
+    @Override
+    public int wheelSize() {
+        return wheel.length;
+    }
+
+    @Override
+    public String toString() {
+        return worker.getName() + "[pending=" + pendingTimeouts() + ", expired=" + expiredTimeouts()
+                + ", cancelled=" + cancelledTimeouts() + ", tick=" + TimeUnit.NANOSECONDS.toMillis(tickNanos)
+                + "ms, wheelSize=" + wheel.length + "]";
+    }
+
+    private static final class CommandTimerHolder {
+        static final HashedWheelTimer TIMER = new HashedWheelTimer("terse-timer",
+                Long.getLong(TICK_MILLIS_KEY, 10), TimeUnit.MILLISECONDS, Integer.getInteger(WHEEL_SIZE_KEY, 512));
+        // a thread per task when the common pool can not run tasks in parallel
+        static final Executor EXPIRY_EXECUTOR = ForkJoinPool.getCommonPoolParallelism() > 1
+                ? ForkJoinPool.commonPool() : r -> new Thread(r).start();
+    }
+
+    private static final class Timeout implements ITimeout {
+
+        static final int ST_INIT = 0;
+        static final int ST_CANCELLED = 1;
+        static final int ST_EXPIRED = 2;
+
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        final HashedWheelTimer timer;
+        // released when cancelled, the cancelled timeout stays in its bucket until the worker passes
+        ITimerTask task;
+        final long deadline;
+        volatile int state = ST_INIT;
+        volatile Timeout nextNew;
+
+        // the fields below only accessed by the worker thread
+        long remainingRounds;
+        Timeout prev;
+        Timeout next;
+
+        Timeout(HashedWheelTimer timer, ITimerTask task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            timer.pendingTimeouts.decrementAndGet();
+            timer.cancelledCount.increment();
+            task = null;
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state == ST_CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state == ST_EXPIRED;
+        }
+
+        void expire() {
+            if (!STATE.compareAndSet(this, ST_INIT, ST_EXPIRED)) {
+                return;
+            }
+            timer.pendingTimeouts.decrementAndGet();
+            timer.expiredTimeouts.increment();
+            try {
+                task.run(this);
+            } catch (Throwable e) {
+                log.warn("timeout task {} failed", task, e);
+            }
+        }
+    }
+
+    /**
+     * the doubly linked timeouts of a slot, only accessed by the worker thread
+     */
+    private static final class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expireTimeouts(long now) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    if (timeout.deadline <= now) {
+                        timeout.expire();
+                    } else {
+                        // never happen, the timeout placed into a wrong slot
+                        log.error("timeout deadline {} is after now {}", timeout.deadline, now);
+                    }
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.chyohn.terse.timer;
+
+import io.github.chyohn.terse.anotations.External;
+
+/**
+ * the metrics of a timer which schedules timeouts
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@External
+public interface ITimerMetrics {
+
+    /**
+     * @return the count of timeouts neither expired nor cancelled
+     */
+    long pendingTimeouts();
+
+    /**
+     * @return the count of timeouts expired since the timer started
+     */
+    long expiredTimeouts();
+
+    /**
+     * @return the count of timeouts cancelled since the timer started
+     */
+    long cancelledTimeouts();
+
+    /**
+     * @return the duration between two ticks, the precision of timeouts
+     */
+    long tickNanos();
+
+    /**
+     * @return the count of buckets of the wheel
+     */
+    int wheelSize();
+}
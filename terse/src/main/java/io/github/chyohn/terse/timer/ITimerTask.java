@@ -0,0 +1,36 @@
+/*
+ * Copyright 2012-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.chyohn.terse.timer;
+
+import io.github.chyohn.terse.anotations.Internal;
+
+/**
+ * the task run by {@link HashedWheelTimer} when the timeout expires
+ *
+ * @author qiang.shao
+ * @since 1.0.0
+ */
+@Internal
+@FunctionalInterface
+public interface ITimerTask {
+
+    /**
+     * run on the worker thread of timer, must be short
+     *
+     * @param timeout the handle returned when scheduled
+     */
+    void run(ITimeout timeout);
+}
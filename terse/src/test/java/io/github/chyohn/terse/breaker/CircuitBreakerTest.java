@@ -0,0 +1,146 @@
+package io.github.chyohn.terse.breaker;
+
+import io.github.chyohn.terse.enums.CircuitState;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class CircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(200);
+
+    // window 10, minimum 5 calls, open at 50% failures or 60% slow calls, slow above 100ms, open 100ms, 2 probes
+    private static CircuitBreaker breaker() {
+        return CircuitBreakers.create("test", new CircuitBreakers.Config(10, 5, 50, 60, 100, 100, 2));
+    }
+
+    @Test
+    void testOpenOnFailureRate() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertTrue(breaker.tryAcquire());
+            breaker.onResult(FAST, true);
+        }
+        // less than the minimum calls
+        Assertions.assertEquals(CircuitState.CLOSED, breaker.state());
+        Assertions.assertEquals(-1, breaker.failureRate());
+
+        breaker.onResult(FAST, false);
+        Assertions.assertEquals(CircuitState.OPEN, breaker.state());
+        Assertions.assertFalse(breaker.tryAcquire());
+        Assertions.assertEquals(1, breaker.notPermittedCalls());
+    }
+
+    @Test
+    void testSlidingWindow() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 6; i++) {
+            breaker.onResult(FAST, false);
+        }
+        for (int i = 0; i < 4; i++) {
+            breaker.onResult(FAST, true);
+        }
+        Assertions.assertEquals(40, breaker.failureRate());
+        // the failures slide out of the window
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertEquals(CircuitState.CLOSED, breaker.state());
+            breaker.onResult(FAST, false);
+        }
+        Assertions.assertEquals(CircuitState.CLOSED, breaker.state());
+        Assertions.assertEquals(10, breaker.bufferedCalls());
+        Assertions.assertEquals(0, breaker.failureRate());
+        for (int i = 0; i < 4; i++) {
+            breaker.onResult(FAST, true);
+        }
+        Assertions.assertEquals(40, breaker.failureRate());
+        Assertions.assertEquals(CircuitState.CLOSED, breaker.state());
+    }
+
+    @Test
+    void testOpenOnSlowCallRate() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 2; i++) {
+            breaker.onResult(FAST, false);
+        }
+        for (int i = 0; i < 2; i++) {
+            breaker.onResult(SLOW, false);
+        }
+        Assertions.assertEquals(CircuitState.CLOSED, breaker.state());
+        breaker.onResult(SLOW, false);
+        Assertions.assertEquals(60, breaker.slowCallRate());
+        Assertions.assertEquals(CircuitState.OPEN, breaker.state());
+    }
+
+    @Test
+    void testHalfOpen() throws InterruptedException {
+        List<CircuitState> transitions = new ArrayList<>();
+        ICircuitBreakerListener listener = (b, from, to) -> {
+            if (b.name().equals("test")) {
+                transitions.add(to);
+            }
+        };
+        CircuitBreakers.addListener(listener);
+        try {
+            CircuitBreaker breaker = breaker();
+            for (int i = 0; i < 5; i++) {
+                breaker.onResult(FAST, true);
+            }
+            Assertions.assertEquals(CircuitState.OPEN, breaker.state());
+
+            Thread.sleep(150);
+            // two probes permitted
+            Assertions.assertTrue(breaker.tryAcquire());
+            Assertions.assertEquals(CircuitState.HALF_OPEN, breaker.state());
+            Assertions.assertTrue(breaker.tryAcquire());
+            Assertions.assertFalse(breaker.tryAcquire());
+            // a slow probe opens again
+            breaker.onResult(SLOW, false);
+            Assertions.assertEquals(CircuitState.OPEN, breaker.state());
+            Assertions.assertFalse(breaker.tryAcquire());
+
+            Thread.sleep(150);
+            Assertions.assertTrue(breaker.tryAcquire());
+            Assertions.assertTrue(breaker.tryAcquire());
+            breaker.onResult(FAST, false);
+            Assertions.assertEquals(CircuitState.HALF_OPEN, breaker.state());
+            breaker.onResult(FAST, false);
+            Assertions.assertEquals(CircuitState.CLOSED, breaker.state());
+            Assertions.assertEquals(0, breaker.bufferedCalls());
+            Assertions.assertTrue(breaker.tryAcquire());
+
+            Assertions.assertEquals(Arrays.asList(CircuitState.OPEN, CircuitState.HALF_OPEN,
+                    CircuitState.OPEN, CircuitState.HALF_OPEN, CircuitState.CLOSED), transitions);
+        } finally {
+            CircuitBreakers.removeListener(listener);
+        }
+    }
+
+    @Test
+    void testReleaseAndLostProbes() throws InterruptedException {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 5; i++) {
+            breaker.onResult(FAST, true);
+        }
+        Thread.sleep(150);
+        Assertions.assertTrue(breaker.tryAcquire());
+        Assertions.assertTrue(breaker.tryAcquire());
+        Assertions.assertFalse(breaker.tryAcquire());
+        // a cancelled probe gives its permit back
+        breaker.release();
+        Assertions.assertTrue(breaker.tryAcquire());
+        Assertions.assertEquals(CircuitState.HALF_OPEN, breaker.state());
+
+        // the probes are never recorded, the breaker opens again after the wait duration
+        Thread.sleep(150);
+        Assertions.assertFalse(breaker.tryAcquire());
+        Assertions.assertEquals(CircuitState.OPEN, breaker.state());
+        Thread.sleep(150);
+        Assertions.assertTrue(breaker.tryAcquire());
+        Assertions.assertEquals(CircuitState.HALF_OPEN, breaker.state());
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.chyohn.terse.command;
+
+import io.github.chyohn.terse.Terse;
+import io.github.chyohn.terse.enums.RunningWay;
+import io.github.chyohn.terse.exception.CommandExecuteException;
+import lombok.Data;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public class BatchReceiverTest {
+
+    static final List<Integer> BATCH_SIZES = new CopyOnWriteArrayList<>();
+
+    static {
+        Terse.registerReceiverFactory(new LoadUserReceiverFactory());
+    }
+
+    @Test
+    void testCommandsExecutedInBatches() throws Exception {
+        List<ICommand> commands = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            LoadUserCommand command = new LoadUserCommand();
+            command.id = i;
+            command.userId = i * 10;
+            commands.add(command);
+        }
+        Map<Integer, Object> results = new ConcurrentHashMap<>();
+        CountDownLatch latch = new CountDownLatch(commands.size());
+        Terse.commandInvoker().asyncInvoke(commands, 1000, RunningWay.PARALLEL, r -> {
+            results.put(r.getId(), r.getValue());
+            latch.countDown();
+        });
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 20; i++) {
+            Assertions.assertEquals("user-" + i * 10, results.get(i));
+        }
+        // 20 commands with max batch size 8
+        Assertions.assertTrue(BATCH_SIZES.size() <= 20, BATCH_SIZES.toString());
+        Assertions.assertTrue(BATCH_SIZES.stream().allMatch(s -> s <= 8), BATCH_SIZES.toString());
+
+        IBatchMetrics metrics = Terse.batchMetrics().stream()
+                .filter(m -> m.commandType() == LoadUserCommand.class).findFirst().orElse(null);
+        Assertions.assertNotNull(metrics);
+        Assertions.assertTrue(metrics.commands() >= 20, metrics.toString());
+        Assertions.assertTrue(metrics.averageBatchSize() > 1, metrics.toString());
+        Assertions.assertEquals(8, metrics.maxBatchSize());
+    }
+
+    @Test
+    void testSyncAndFailure() {
+        LoadUserCommand command = new LoadUserCommand();
+        command.userId = 7;
+        Assertions.assertEquals("user-7", Terse.commandInvoker().run(command));
+
+        command.userId = -1;
+        Assertions.assertThrows(CommandExecuteException.class, () -> Terse.commandInvoker().run(command));
+    }
+
+    static class LoadUserReceiverFactory implements IReceiverFactory<LoadUserCommand> {
+        @Override
+        public void buildReceiver(IReceiverBuilder<LoadUserCommand> builder) {
+            builder.onReceiveBatch(LoadUserCommand.class, commands -> {
+                BATCH_SIZES.add(commands.size());
+                if (commands.stream().anyMatch(c -> c.userId < 0)) {
+                    throw new IllegalArgumentException("invalid user id");
+                }
+                return commands.stream().map(c -> "user-" + c.userId).collect(Collectors.toList());
+            }, 8, 20);
+        }
+    }
+
+    @Data
+    public static class LoadUserCommand implements ICommandX<String> {
+        int id;
+        int userId;
+    }
+}
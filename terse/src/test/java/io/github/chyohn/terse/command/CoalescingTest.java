@@ -0,0 +1,74 @@
+package io.github.chyohn.terse.command;
+
+import io.github.chyohn.terse.Terse;
+import io.github.chyohn.terse.enums.RunningWay;
+import lombok.Data;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CoalescingTest {
+
+    static final AtomicInteger EXECUTIONS = new AtomicInteger();
+
+    static {
+        Terse.registerReceiverFactory(new ConfigReceiverFactory());
+    }
+
+    @Test
+    void testEqualCommandsShareExecution() throws Exception {
+        ICoalescingMetrics metrics = Terse.coalescingMetrics();
+        long merged = metrics.merged();
+        int executions = EXECUTIONS.get();
+
+        List<ConfigCommand> commands = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ConfigCommand command = new ConfigCommand();
+            command.tenant = i < 8 ? "a" : "b";
+            commands.add(command);
+        }
+        List<IResult<String>> results = Terse.commandInvoker()
+                .invokeAll(commands, 2000, RunningWay.PARALLEL).get(5, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 10; i++) {
+            // every caller gets the shared result with its own id
+            Assertions.assertEquals(i, results.get(i).getId());
+            Assertions.assertEquals(i < 8 ? "config-a" : "config-b", results.get(i).getValue());
+        }
+        Assertions.assertEquals(2, EXECUTIONS.get() - executions);
+        Assertions.assertEquals(8, metrics.merged() - merged);
+        Assertions.assertEquals(0, metrics.inFlight());
+
+        // the finished execution is not reused
+        ConfigCommand command = new ConfigCommand();
+        command.tenant = "a";
+        Assertions.assertEquals("config-a", Terse.commandInvoker().run(command));
+        Assertions.assertEquals(3, EXECUTIONS.get() - executions);
+    }
+
+    static class ConfigReceiverFactory implements IReceiverFactory<ConfigCommand> {
+        @Override
+        public void buildReceiver(IReceiverBuilder<ConfigCommand> builder) {
+            builder.onReceive(ConfigCommand.class, c -> {
+                EXECUTIONS.incrementAndGet();
+                Thread.sleep(200);
+                return "config-" + c.tenant;
+            });
+        }
+    }
+
+    @Data
+    public static class ConfigCommand implements ICommandX<String>, ICoalescible {
+        int id;
+        String tenant;
+
+        @Override
+        public Object coalesceKey() {
+            return tenant;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package io.github.chyohn.terse.command;
+
+import io.github.chyohn.terse.Terse;
+import io.github.chyohn.terse.command.result.FailureResult;
+import io.github.chyohn.terse.enums.RunningWay;
+import io.github.chyohn.terse.exception.CommandExecuteException;
+import lombok.Data;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CommandCacheTest {
+
+    static final AtomicInteger EXECUTIONS = new AtomicInteger();
+
+    static {
+        Terse.registerReceiverFactory(new ProfileReceiverFactory());
+        // the key of a bad user fails the submission
+        Terse.cacheResults(ProfileCommand.class, CachePolicy.<ProfileCommand>builder(c -> {
+                    if ("bad".equals(c.user)) {
+                        throw new IllegalStateException("bad user");
+                    }
+                    return c.user;
+                })
+                .maximumEntries(1000)
+                .ttl(1, TimeUnit.MINUTES)
+                .build());
+    }
+
+    @Test
+    void testRepeatedCommandsHitCache() throws Exception {
+        int executions = EXECUTIONS.get();
+        Assertions.assertEquals("profile-u1", Terse.commandInvoker().run(command("u1")));
+
+        List<ProfileCommand> commands = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            commands.add(command("u1"));
+        }
+        List<IResult<String>> results = Terse.commandInvoker()
+                .invokeAll(commands, 1000, RunningWay.PARALLEL).get(5, TimeUnit.SECONDS);
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertEquals(i, results.get(i).getId());
+            Assertions.assertEquals("profile-u1", results.get(i).getValue());
+        }
+        Assertions.assertEquals(1, EXECUTIONS.get() - executions);
+
+        ICacheMetrics metrics = Terse.cacheMetrics().stream()
+                .filter(m -> m.commandType() == ProfileCommand.class).findFirst().orElse(null);
+        Assertions.assertNotNull(metrics);
+        Assertions.assertTrue(metrics.hits() >= 10, metrics.toString());
+
+        Terse.invalidateResult(command("u1"));
+        Assertions.assertEquals("profile-u1", Terse.commandInvoker().run(command("u1")));
+        Assertions.assertEquals(2, EXECUTIONS.get() - executions);
+    }
+
+    @Test
+    void testFailureNotCached() {
+        int executions = EXECUTIONS.get();
+        Assertions.assertThrows(RuntimeException.class, () -> Terse.commandInvoker().run(command(null)));
+        Assertions.assertThrows(RuntimeException.class, () -> Terse.commandInvoker().run(command(null)));
+        Assertions.assertEquals(2, EXECUTIONS.get() - executions);
+    }
+
+    @Test
+    void testSubmissionFailure() throws Exception {
+        // the commands after the failed one are not submitted but still get a result
+        List<IResult<String>> results = Terse.commandInvoker()
+                .invokeAll(Arrays.asList(command("u4"), command("bad"), command("u5")), 1000, RunningWay.PARALLEL)
+                .get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals("profile-u4", results.get(0).getValue());
+        Assertions.assertThrows(CommandExecuteException.class, results.get(1)::getValue);
+        Assertions.assertThrows(CommandExecuteException.class, results.get(2)::getValue);
+
+        // the results are streamed to the callback one by one
+        List<IResult<String>> streamed = new ArrayList<>();
+        Terse.commandInvoker().run(Arrays.asList(command("bad"), command("u6"), command("u7")), streamed::add);
+        Assertions.assertEquals(3, streamed.size());
+        Assertions.assertEquals(3, streamed.stream().mapToInt(IResult::getId).distinct().count());
+        Assertions.assertEquals("profile-u7", streamed.get(2).getValue());
+    }
+
+    @Test
+    void testClusterSubmissionThrows() {
+        // the cluster submission throws before the last command runs in the current thread
+        ICommandInvoker invoker = (commands, timeout, runningWay, callback) -> {
+            if (runningWay == RunningWay.CLUSTER) {
+                throw new IllegalStateException("cluster unavailable");
+            }
+            Terse.commandInvoker().asyncInvoke(commands, timeout, runningWay, callback);
+        };
+        List<IResult<String>> streamed = new ArrayList<>();
+        invoker.run(Arrays.asList(command("u8"), command("u9"), command("u10")), streamed::add);
+        Assertions.assertEquals(3, streamed.size());
+        for (int i = 0; i < 2; i++) {
+            Assertions.assertEquals(i, streamed.get(i).getId());
+            Assertions.assertInstanceOf(FailureResult.class, streamed.get(i));
+        }
+        // the real result of the last command is delivered
+        Assertions.assertEquals(2, streamed.get(2).getId());
+        Assertions.assertEquals("profile-u10", streamed.get(2).getValue());
+    }
+
+    private static ProfileCommand command(String user) {
+        ProfileCommand command = new ProfileCommand();
+        command.user = user;
+        return command;
+    }
+
+    static class ProfileReceiverFactory implements IReceiverFactory<ProfileCommand> {
+        @Override
+        public void buildReceiver(IReceiverBuilder<ProfileCommand> builder) {
+            builder.onReceive(ProfileCommand.class, c -> {
+                EXECUTIONS.incrementAndGet();
+                if (c.user == null) {
+                    throw new IllegalArgumentException("user is null");
+                }
+                return "profile-" + c.user;
+            });
+        }
+    }
+
+    @Data
+    public static class ProfileCommand implements ICommandX<String> {
+        int id;
+        String user;
+    }
+}
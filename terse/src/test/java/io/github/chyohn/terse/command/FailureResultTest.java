@@ -0,0 +1,72 @@
+package io.github.chyohn.terse.command;
+
+import io.github.chyohn.terse.Terse;
+import io.github.chyohn.terse.command.result.FailureResult;
+import io.github.chyohn.terse.enums.RunningWay;
+import io.github.chyohn.terse.exception.CommandExecuteException;
+import io.github.chyohn.terse.exception.CommandFailureException;
+import lombok.Data;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class FailureResultTest {
+
+    static {
+        Terse.registerReceiverFactory(new FailReceiverFactory());
+    }
+
+    @Test
+    void testFailureKeepsThrowable() throws Exception {
+        FailCommand command = new FailCommand();
+        command.reason = "downstream unavailable";
+        CompletableFuture<IResult<?>> future = new CompletableFuture<>();
+        Terse.commandInvoker().asyncInvoke(Collections.singletonList(command), 1000, RunningWay.PARALLEL,
+                future::complete);
+
+        IResult<?> result = future.get(5, TimeUnit.SECONDS);
+        CommandExecuteException e = Assertions.assertThrows(CommandExecuteException.class, result::getValue);
+        // the original exception is the cause, not a stringified stack trace
+        Assertions.assertInstanceOf(IllegalStateException.class, e.getCause());
+        Assertions.assertEquals(IllegalStateException.class.getName() + ": downstream unavailable", e.getMessage());
+    }
+
+    @Test
+    void testRenderStackTrace() {
+        IllegalStateException cause = new IllegalStateException("downstream unavailable");
+        FailureResult failure = new FailureResult(1, cause);
+        Assertions.assertEquals(IllegalStateException.class.getName(), failure.getErrorType());
+        Assertions.assertEquals("downstream unavailable", failure.getMessage());
+        Assertions.assertSame(cause, failure.getThrowable());
+        // rendered only before transported
+        Assertions.assertNull(failure.getStackTrace());
+        Assertions.assertEquals(IllegalStateException.class.getName() + ": downstream unavailable", failure.getValue());
+
+        failure.renderStackTrace();
+        Assertions.assertTrue(failure.getStackTrace().contains("testRenderStackTrace"));
+        Assertions.assertTrue(failure.getValue().contains("testRenderStackTrace"));
+
+        CommandFailureException e = (CommandFailureException) failure.toException();
+        Assertions.assertSame(failure, e.getFailure());
+        Assertions.assertSame(cause, e.getCause());
+        Assertions.assertTrue(e.getMessage().startsWith("command execute error， " + IllegalStateException.class.getName()));
+    }
+
+    static class FailReceiverFactory implements IReceiverFactory<FailCommand> {
+        @Override
+        public void buildReceiver(IReceiverBuilder<FailCommand> builder) {
+            builder.onReceive(FailCommand.class, c -> {
+                throw new IllegalStateException(c.reason);
+            });
+        }
+    }
+
+    @Data
+    public static class FailCommand implements ICommand {
+        int id;
+        String reason;
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.chyohn.terse.command;
+
+import io.github.chyohn.terse.Terse;
+import io.github.chyohn.terse.enums.RunningWay;
+import io.github.chyohn.terse.exception.CommandExecuteException;
+import lombok.Data;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class StageReceiverTest {
+
+    // simulate the threads of an async driver
+    static final ScheduledExecutorService DRIVER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "async-driver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        Terse.registerReceiverFactory(new QueryReceiverFactory());
+    }
+
+    @Test
+    void testInvokeAll() throws Exception {
+        List<QueryCommand> commands = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            QueryCommand command = new QueryCommand();
+            command.key = "k" + i;
+            commands.add(command);
+        }
+        CompletableFuture<List<IResult<String>>> future = Terse.commandInvoker().invokeAll(commands);
+        // the handlers are waiting for the driver, no thread is blocked
+        Assertions.assertFalse(future.isDone());
+
+        List<IResult<String>> results = future.get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(100, results.size());
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(i, results.get(i).getId());
+            Assertions.assertEquals("v-k" + i, results.get(i).getValue());
+        }
+    }
+
+    @Test
+    void testFailureAndSerial() throws Exception {
+        QueryCommand fail = new QueryCommand();
+        fail.key = null;
+        List<IResult<String>> results = Terse.commandInvoker()
+                .invokeAll(Collections.singletonList(fail), 1000, RunningWay.SERIAL).get(5, TimeUnit.SECONDS);
+        CommandExecuteException e = Assertions.assertThrows(CommandExecuteException.class, results.get(0)::getValue);
+        Assertions.assertInstanceOf(IllegalArgumentException.class, e.getCause());
+
+        QueryCommand command = new QueryCommand();
+        command.key = "serial";
+        Assertions.assertEquals("v-serial", Terse.commandInvoker().run(command));
+    }
+
+    @Test
+    void testTimeoutCancelsStage() throws Exception {
+        QueryCommand command = new QueryCommand();
+        command.key = "slow";
+        command.delayMillis = 2000;
+        List<IResult<String>> results = Terse.commandInvoker()
+                .invokeAll(Collections.singletonList(command), 100, RunningWay.PARALLEL).get(5, TimeUnit.SECONDS);
+        Assertions.assertThrows(CommandExecuteException.class, results.get(0)::getValue);
+        // the stage is cancelled after the timeout result delivered
+        for (int i = 0; i < 100 && !command.stage.isCancelled(); i++) {
+            Thread.sleep(10);
+        }
+        Assertions.assertTrue(command.stage.isCancelled());
+    }
+
+    static class QueryReceiverFactory implements IReceiverFactory<QueryCommand> {
+        @Override
+        public void buildReceiver(IReceiverBuilder<QueryCommand> builder) {
+            builder.onReceiveStage(QueryCommand.class, c -> {
+                if (c.key == null) {
+                    throw new IllegalArgumentException("key is null");
+                }
+                CompletableFuture<String> stage = new CompletableFuture<>();
+                c.stage = stage;
+                DRIVER.schedule(() -> stage.complete("v-" + c.key), c.delayMillis, TimeUnit.MILLISECONDS);
+                return stage;
+            });
+        }
+    }
+
+    @Data
+    public static class QueryCommand implements ICommandX<String> {
+        int id;
+        String key;
+        long delayMillis = 50;
+        transient CompletableFuture<String> stage;
+    }
+}
@@ -0,0 +1,144 @@
+package io.github.chyohn.terse.command.impl;
+
+import io.github.chyohn.terse.NoRely;
+import io.github.chyohn.terse.Terse;
+import io.github.chyohn.terse.command.CancellationToken;
+import io.github.chyohn.terse.command.ICommand;
+import io.github.chyohn.terse.command.ICommandInvoker;
+import io.github.chyohn.terse.command.IResult;
+import io.github.chyohn.terse.enums.RunningWay;
+import io.github.chyohn.terse.flow.IFlowContext;
+import io.github.chyohn.terse.flow.ISummaryTask;
+import io.github.chyohn.terse.flow.ITask;
+import io.github.chyohn.terse.flow.ITaskHandler;
+import lombok.Data;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Allocation of the command completion path for a node fanning out 1000 commands. The receiver runs the commands on
+ * the calling thread, so {@code gc.alloc.rate.norm} is the garbage of submitting, completing and handling the results
+ * rather than of a thread pool.
+ *
+ * Run {@link #main(String[])} with the test classpath, it adds the gc profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandFanOutBenchmark {
+
+    static final int COMMANDS = 1000;
+    static final Executor DIRECT = Runnable::run;
+
+    ICommandInvoker invoker;
+    List<ICommand> commands;
+    ISummaryTask<Context> summary;
+    int sum;
+    final Consumer<IResult<?>> callback = r -> sum += (Integer) r.getValue();
+
+    @Setup
+    public void setup() {
+        Terse.withReceiverBuilder(builder -> builder.onReceive(FanOutCommand.class, c -> c.value, c -> DIRECT));
+        invoker = Terse.commandInvoker();
+        commands = new ArrayList<>(COMMANDS);
+        for (int i = 0; i < COMMANDS; i++) {
+            FanOutCommand command = new FanOutCommand();
+            command.setId(i + 1);
+            // cached Integer, the boxing is not part of the completion path
+            command.value = i & 127;
+            commands.add(command);
+        }
+        summary = new Summary(Collections.singletonList(new FanOutTask(commands)));
+    }
+
+    @Benchmark
+    public int invoke() {
+        sum = 0;
+        invoker.asyncInvoke(commands, 1000, RunningWay.PARALLEL, new CancellationToken(), callback);
+        return sum;
+    }
+
+    @Benchmark
+    public int flow() {
+        Context context = new Context();
+        Terse.execute(summary, context);
+        return context.sum;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CommandFanOutBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class).build()).run();
+    }
+
+    @Data
+    public static class FanOutCommand implements ICommand {
+        int id;
+        int value;
+    }
+
+    static class Context implements IFlowContext {
+        int sum;
+    }
+
+    static class FanOutTask implements ITask<Context>, NoRely<Context> {
+        final List<ICommand> commands;
+
+        FanOutTask(List<ICommand> commands) {
+            this.commands = commands;
+        }
+
+        @Override
+        public ITaskHandler createTaskHandler(Context context) {
+            return new ITaskHandler() {
+                @Override
+                public List<ICommand> getCommand() {
+                    return commands;
+                }
+
+                @Override
+                public void handleResult(IResult<?> result, boolean finished) {
+                    context.sum += (Integer) result.getValue();
+                }
+            };
+        }
+    }
+
+    static class Summary implements ISummaryTask<Context>, NoRely<Context> {
+        final List<ITask<Context>> relies;
+
+        Summary(List<ITask<Context>> relies) {
+            this.relies = relies;
+        }
+
+        @Override
+        public void summary(Context context) {
+        }
+
+        @Override
+        public List<ITask<Context>> mustRelyOnTasks() {
+            return relies;
+        }
+    }
+}
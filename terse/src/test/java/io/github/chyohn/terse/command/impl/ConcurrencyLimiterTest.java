@@ -0,0 +1,123 @@
+package io.github.chyohn.terse.command.impl;
+
+import io.github.chyohn.terse.exception.ConcurrencyLimitException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ConcurrencyLimiterTest {
+
+    @Test
+    void testQueueAndReject() throws Exception {
+        ExecutorService pool = Executors.newCachedThreadPool();
+        try {
+            ConcurrencyLimiter limiter = new ConcurrencyLimiter(String.class, pool, 2, 1, 10, 1);
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(3);
+            Runnable task = () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            };
+            limiter.execute(task, e -> {
+            });
+            limiter.execute(task, e -> {
+            });
+            // waits for a running command to complete
+            limiter.execute(task, e -> {
+            });
+            Assertions.assertEquals(2, limiter.inFlight());
+            Assertions.assertEquals(1, limiter.queued());
+            // the queue is full, fail fast
+            Assertions.assertThrows(ConcurrencyLimitException.class, () -> limiter.execute(task, e -> {
+            }));
+            Assertions.assertEquals(1, limiter.rejected());
+
+            release.countDown();
+            Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 100 && limiter.inFlight() > 0; i++) {
+                Thread.sleep(10);
+            }
+            Assertions.assertEquals(0, limiter.inFlight());
+            Assertions.assertEquals(0, limiter.queued());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testQueuedCommandRejectedByExecutor() {
+        AtomicReference<Throwable> rejected = new AtomicReference<>();
+        ConcurrencyLimiter[] holder = new ConcurrencyLimiter[1];
+        // the executor accepts the first task only
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(String.class, new Executor() {
+            int count;
+
+            @Override
+            public void execute(Runnable command) {
+                if (count++ > 0) {
+                    throw new RejectedExecutionException("saturated");
+                }
+                // run the queued command inside the first one
+                holder[0].execute(() -> {
+                }, rejected::set);
+                command.run();
+            }
+        }, 1, 1, 10, 10);
+        holder[0] = limiter;
+        limiter.execute(() -> {
+        }, e -> {
+        });
+        Assertions.assertInstanceOf(RejectedExecutionException.class, rejected.get());
+        Assertions.assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void testLimitDecreasesWhenLatencyGrows() throws Exception {
+        ExecutorService pool = Executors.newCachedThreadPool();
+        try {
+            ConcurrencyLimiter limiter = new ConcurrencyLimiter(String.class, pool, 20, 1, 100, 100);
+            // the latency without queueing
+            CountDownLatch first = new CountDownLatch(1);
+            limiter.execute(() -> sleep(1, first), e -> {
+            });
+            Assertions.assertTrue(first.await(5, TimeUnit.SECONDS));
+            Thread.sleep(20);
+
+            CountDownLatch slow = new CountDownLatch(20);
+            for (int i = 0; i < 20; i++) {
+                limiter.execute(() -> sleep(50, slow), e -> {
+                });
+            }
+            Assertions.assertTrue(slow.await(10, TimeUnit.SECONDS));
+            // the latch is counted down in the task, before the limiter records the sample
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while ((limiter.inFlight() > 0 || limiter.limit() >= 20) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            Assertions.assertEquals(0, limiter.inFlight());
+            Assertions.assertTrue(limiter.limit() < 20, limiter.toString());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void sleep(long millis, CountDownLatch latch) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        latch.countDown();
+    }
+}
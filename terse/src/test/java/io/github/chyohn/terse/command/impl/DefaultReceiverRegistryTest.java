@@ -0,0 +1,64 @@
+package io.github.chyohn.terse.command.impl;
+
+import io.github.chyohn.terse.command.ICommand;
+import io.github.chyohn.terse.command.IReceiver;
+import io.github.chyohn.terse.exception.CommandExecuteException;
+import lombok.Data;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class DefaultReceiverRegistryTest {
+
+    @Test
+    void testRegisterAfterMiss() {
+        DefaultReceiverRegistry registry = new DefaultReceiverRegistry();
+        Assertions.assertThrows(CommandExecuteException.class, () -> registry.getAsyncReceiver(new CommandA()));
+        // the cached miss is dropped when a receiver registered
+        IReceiver<ICommand> receiver = new DefaultReceiverBuilder<ICommand>().onReceive(CommandA.class, c -> 1).build();
+        registry.register(receiver);
+        Assertions.assertSame(receiver, registry.getAsyncReceiver(new CommandA()));
+        Assertions.assertSame(receiver, registry.getSyncReceiver(new CommandA()));
+        Assertions.assertThrows(CommandExecuteException.class, () -> registry.getSyncReceiver(new CommandB()));
+    }
+
+    @Test
+    void testConcurrentRegister() throws InterruptedException {
+        DefaultReceiverRegistry registry = new DefaultReceiverRegistry();
+        IReceiver<ICommand> receiverA = new DefaultReceiverBuilder<ICommand>().onReceive(CommandA.class, c -> 1).build();
+        IReceiver<ICommand> receiverB = new DefaultReceiverBuilder<ICommand>().onReceive(CommandB.class, c -> 1).build();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (IReceiver<ICommand> receiver : new IReceiver[]{receiverA, receiverB}) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                registry.register(receiver);
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertSame(receiverA, registry.getAsyncReceiver(new CommandA()));
+        Assertions.assertSame(receiverB, registry.getAsyncReceiver(new CommandB()));
+    }
+
+    @Data
+    public static class CommandA implements ICommand {
+        int id;
+    }
+
+    @Data
+    public static class CommandB implements ICommand {
+        int id;
+    }
+}
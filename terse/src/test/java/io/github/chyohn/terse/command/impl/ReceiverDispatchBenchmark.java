@@ -0,0 +1,100 @@
+package io.github.chyohn.terse.command.impl;
+
+import io.github.chyohn.terse.command.ICommand;
+import io.github.chyohn.terse.command.IReceiver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receiver lookup with 10, 100 and 1000 command types, each handled by its own receiver.
+ * {@link #linearScan()} is the lookup used before the dispatch table: probe every receiver in a {@link HashSet}.
+ * The command types are proxy classes defined in distinct class loaders.
+ *
+ * Run {@link #main(String[])} with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReceiverDispatchBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int types;
+
+    ICommand[] commands;
+    DefaultReceiverRegistry registry;
+    Set<IReceiver<ICommand>> receivers;
+    int next;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        commands = new ICommand[types];
+        registry = new DefaultReceiverRegistry();
+        receivers = new HashSet<>();
+        ClassLoader parent = ICommand.class.getClassLoader();
+        for (int i = 0; i < types; i++) {
+            // a proxy class per class loader, so every command has its own type
+            ClassLoader loader = new ClassLoader(parent) {
+            };
+            int id = i;
+            commands[i] = (ICommand) Proxy.newProxyInstance(loader, new Class<?>[]{ICommand.class},
+                    (proxy, method, args) -> "getId".equals(method.getName()) ? id : null);
+            IReceiver<ICommand> receiver = new DefaultReceiverBuilder<ICommand>()
+                    .onReceive((Class<ICommand>) commands[i].getClass(), c -> c)
+                    .build();
+            registry.register(receiver);
+            receivers.add(receiver);
+        }
+    }
+
+    private ICommand nextCommand() {
+        int i = next;
+        next = i + 1 == types ? 0 : i + 1;
+        return commands[i];
+    }
+
+    @Benchmark
+    public IReceiver<ICommand> dispatchTable() {
+        return registry.getAsyncReceiver(nextCommand());
+    }
+
+    @Benchmark
+    public IReceiver<ICommand> linearScan() {
+        ICommand command = nextCommand();
+        for (IReceiver<ICommand> receiver : receivers) {
+            if (receiver.canAsync(command)) {
+                return receiver;
+            }
+        }
+        for (IReceiver<ICommand> receiver : receivers) {
+            if (receiver.canSync(command)) {
+                return receiver;
+            }
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ReceiverDispatchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
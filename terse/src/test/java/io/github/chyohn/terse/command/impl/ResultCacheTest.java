@@ -0,0 +1,99 @@
+package io.github.chyohn.terse.command.impl;
+
+import io.github.chyohn.terse.command.CachePolicy;
+import io.github.chyohn.terse.command.ICommand;
+import lombok.Data;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class ResultCacheTest {
+
+    @Test
+    void testFrequentResultsSurviveScan() {
+        ResultCache<KeyCommand> cache = new ResultCache<>(KeyCommand.class,
+                CachePolicy.<KeyCommand>builder(c -> c.key).maximumEntries(100).build());
+        // hot keys read many times
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                String key = "hot" + i;
+                if (cache.get(key) == null) {
+                    cache.put(key, command(key), key);
+                }
+            }
+        }
+        // a scan of keys read only once
+        for (int i = 0; i < 1000; i++) {
+            String key = "scan" + i;
+            if (cache.get(key) == null) {
+                cache.put(key, command(key), key);
+            }
+        }
+        Assertions.assertTrue(cache.size() <= 100, cache.toString());
+        int hot = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.get("hot" + i) != null) {
+                hot++;
+            }
+        }
+        Assertions.assertTrue(hot >= 45, "hot keys kept: " + hot + ", " + cache);
+        Assertions.assertTrue(cache.evictions() >= 950, cache.toString());
+    }
+
+    @Test
+    void testWeightAndTtl() throws InterruptedException {
+        ResultCache<KeyCommand> cache = new ResultCache<>(KeyCommand.class,
+                CachePolicy.<KeyCommand>builder(c -> c.key)
+                        .maximumWeight(10, (c, v) -> ((String) v).length())
+                        .ttl(50, TimeUnit.MILLISECONDS)
+                        .build());
+        cache.put("a", command("a"), "12345");
+        cache.put("b", command("b"), "12345");
+        Assertions.assertEquals(10, cache.weight());
+        // larger than the capacity, not cached
+        cache.put("c", command("c"), "12345678901");
+        Assertions.assertNull(cache.get("c"));
+        Assertions.assertEquals("12345", cache.get("a").value);
+
+        Thread.sleep(60);
+        Assertions.assertNull(cache.get("a"));
+        Assertions.assertEquals(1, cache.size());
+
+        cache.put("d", command("d"), "1");
+        cache.invalidate("d");
+        Assertions.assertNull(cache.get("d"));
+    }
+
+    @Test
+    void testRefreshAhead() throws InterruptedException {
+        ResultCache<KeyCommand> cache = new ResultCache<>(KeyCommand.class,
+                CachePolicy.<KeyCommand>builder(c -> c.key)
+                        .ttl(10, TimeUnit.SECONDS)
+                        .refreshAhead(20, TimeUnit.MILLISECONDS)
+                        .build());
+        cache.put("a", command("a"), "v1");
+        ResultCache.Node node = cache.get("a");
+        Assertions.assertFalse(cache.startRefresh(node));
+
+        Thread.sleep(30);
+        Assertions.assertTrue(cache.startRefresh(node));
+        // only one reader refreshes
+        Assertions.assertFalse(cache.startRefresh(node));
+        cache.put("a", command("a"), "v2");
+        Assertions.assertEquals("v2", cache.get("a").value);
+        Assertions.assertEquals(1, cache.refreshes());
+    }
+
+    private static KeyCommand command(String key) {
+        KeyCommand command = new KeyCommand();
+        command.key = key;
+        return command;
+    }
+
+    @Data
+    static class KeyCommand implements ICommand {
+        int id;
+        String key;
+    }
+}
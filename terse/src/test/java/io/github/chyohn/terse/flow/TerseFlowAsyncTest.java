@@ -0,0 +1,85 @@
+package io.github.chyohn.terse.flow;
+
+import io.github.chyohn.terse.Terse;
+import io.github.chyohn.terse.example.cal.CalculateCommand;
+import io.github.chyohn.terse.example.cal.Op;
+import io.github.chyohn.terse.exception.FlowConditionNotMatchException;
+import io.github.chyohn.terse.stream.TerseFlow;
+import io.github.chyohn.terse.stream.TerseFlowBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * H1 = A + B
+ * H2 = C - D
+ * H3 = E/H2 WHEN H2 != 0
+ * H4 = H1 * H3
+ */
+public class TerseFlowAsyncTest {
+
+    TerseFlowBuilder<Context> h1 = Terse.<Context>flow().runCommand(c -> new CalculateCommand(c.getA(), Op.ADD, c.getB()), Context::setH1);
+    TerseFlowBuilder<Context> h2 = Terse.<Context>flow().runCommand(c -> new CalculateCommand(c.getC(), Op.SUBTRACT, c.getD()), Context::setH2);
+    TerseFlow<Context> flow = Terse.<Context>flow()
+            .mustCondition(Terse.<Context>condition(c -> c.getH2() != 0).mustRelyOn(h2))
+            .runCommand(c -> new CalculateCommand(c.getE(), Op.DIVIDE, c.getH2()), Context::setH3)
+            .then()
+            .mustRelyOn(h1)
+            .runCommand(c -> new CalculateCommand(c.getH1(), Op.MULTIPLY, c.getH3()), Context::setH4)
+            .build(context -> {
+            });
+
+    @Test
+    void testExecuteAsync() throws Exception {
+        Context c = context(1, 2, 4, 2, 6);
+        Context result = flow.executeAsync(c).get(5, TimeUnit.SECONDS);
+        Assertions.assertSame(c, result);
+        Assertions.assertEquals(9, c.getH4());
+    }
+
+    @Test
+    void testExecuteAsyncFailed() {
+        CompletableFuture<Context> future = flow.executeAsync(context(1, 2, 3, 3, 6));
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(FlowConditionNotMatchException.class, e.getCause());
+    }
+
+    @Test
+    void testManyFlowsInFlight() throws Exception {
+        TerseFlow<Context> callableFlow = Terse.<Context>flow()
+                .callable("", c -> c.getA() + c.getB(), Context::setH1)
+                .callable("", c -> c.getC() - c.getD(), Context::setH2)
+                .then()
+                .callable("", c -> c.getE() / c.getH2(), Context::setH3)
+                .then()
+                .callable("", c -> c.getH1() * c.getH3(), Context::setH4)
+                .build(context -> {
+                });
+        List<Context> contexts = new ArrayList<>();
+        List<CompletableFuture<Context>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Context c = context(i, 1, i + 2, i, 2 * (i + 2));
+            contexts.add(c);
+            futures.add(callableFlow.executeAsync(c));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        for (int i = 0; i < contexts.size(); i++) {
+            Assertions.assertEquals((i + 1) * (i + 2), contexts.get(i).getH4());
+        }
+    }
+
+    private static Context context(int a, int b, int c, int d, int e) {
+        Context context = new Context();
+        context.setA(a);
+        context.setB(b);
+        context.setC(c);
+        context.setD(d);
+        context.setE(e);
+        return context;
+    }
+}
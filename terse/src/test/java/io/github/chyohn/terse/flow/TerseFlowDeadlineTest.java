@@ -0,0 +1,89 @@
+package io.github.chyohn.terse.flow;
+
+import io.github.chyohn.terse.Terse;
+import io.github.chyohn.terse.exception.TimeoutException;
+import io.github.chyohn.terse.stream.TerseFlow;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * the timeout of context is the deadline of whole flow, and the running commands are interrupted when time out
+ */
+public class TerseFlowDeadlineTest {
+
+    TerseFlow<DeadlineContext> flow = Terse.<DeadlineContext>flow()
+            .callable("", DeadlineContext::sleep, (c, v) -> {
+            })
+            .then()
+            .callable("", DeadlineContext::sleep, (c, v) -> {
+            })
+            .then()
+            .callable("", DeadlineContext::sleep, (c, v) -> {
+            })
+            .build(c -> {
+            });
+
+    @Test
+    void testDeadline() throws InterruptedException {
+        DeadlineContext context = new DeadlineContext(500, 300);
+        long start = System.currentTimeMillis();
+        Assertions.assertThrows(TimeoutException.class, () -> flow.execute(context));
+        // every stage is shorter than the timeout, but the whole flow is not
+        Assertions.assertTrue(System.currentTimeMillis() - start < 900);
+        // the running stage is interrupted
+        Assertions.assertTrue(context.interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testDeadlineAsync() throws InterruptedException {
+        DeadlineContext context = new DeadlineContext(500, 300);
+        AtomicReference<String> completedOn = new AtomicReference<>();
+        CompletableFuture<DeadlineContext> future = flow.executeAsync(context)
+                .whenComplete((c, t) -> completedOn.set(Thread.currentThread().getName()));
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class,
+                () -> future.get(5, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(TimeoutException.class, e.getCause());
+        Assertions.assertTrue(context.interrupted.await(5, TimeUnit.SECONDS));
+        // the callbacks never run on the shared timer thread
+        Assertions.assertNotEquals("terse-timer", completedOn.get());
+    }
+
+    @Test
+    void testInDeadline() {
+        DeadlineContext context = new DeadlineContext(2000, 10);
+        flow.execute(context);
+        Assertions.assertEquals(1, context.interrupted.getCount());
+    }
+
+    static class DeadlineContext implements IFlowContext {
+        final long timeout;
+        final long sleepMillis;
+        final CountDownLatch interrupted = new CountDownLatch(1);
+
+        DeadlineContext(long timeout, long sleepMillis) {
+            this.timeout = timeout;
+            this.sleepMillis = sleepMillis;
+        }
+
+        @Override
+        public long timeout() {
+            return timeout;
+        }
+
+        boolean sleep() {
+            try {
+                Thread.sleep(sleepMillis);
+                return true;
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                return false;
+            }
+        }
+    }
+}
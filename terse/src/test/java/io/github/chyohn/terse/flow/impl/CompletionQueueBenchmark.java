@@ -0,0 +1,137 @@
+package io.github.chyohn.terse.flow.impl;
+
+import io.github.chyohn.terse.flow.impl.NodeScheduler.CommandFinishedMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Completion throughput of the scheduler thread while 4, 16 or 64 threads complete commands at the same time.
+ * {@link #priorityBlockingQueue()} is the queue used before {@link CompletionQueue}, the others drain the lock-free
+ * queue and sort on the consumer side with the indicated {@link WaitStrategy}.
+ *
+ * Run {@link #main(String[])} with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompletionQueueBenchmark {
+
+    static final int MESSAGES = 1 << 16;
+
+    @Param({"4", "16", "64"})
+    int producers;
+
+    ExecutorService producerPool;
+    CommandFinishedMessage[] messages;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        producerPool = Executors.newFixedThreadPool(producers);
+        messages = new CommandFinishedMessage[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            messages[i] = new CommandFinishedMessage(i, i % 32, null);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        producerPool.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public int priorityBlockingQueue() throws InterruptedException {
+        PriorityBlockingQueue<CommandFinishedMessage> queue = new PriorityBlockingQueue<>(512, NodeScheduler.MESSAGE_COMPARATOR);
+        produce(queue::put);
+        int sum = 0;
+        for (int i = 0; i < MESSAGES; i++) {
+            sum += queue.take().priority;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public int block() throws InterruptedException {
+        return consume(WaitStrategy.BLOCK);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public int spinThenPark() throws InterruptedException {
+        return consume(WaitStrategy.SPIN_THEN_PARK);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public int yield() throws InterruptedException {
+        return consume(WaitStrategy.YIELD);
+    }
+
+    private int consume(WaitStrategy waitStrategy) throws InterruptedException {
+        CompletionQueue<CommandFinishedMessage> queue = new CompletionQueue<>(waitStrategy);
+        PriorityQueue<CommandFinishedMessage> pending = new PriorityQueue<>(NodeScheduler.MESSAGE_COMPARATOR);
+        produce(queue::offer);
+        int sum = 0;
+        for (int i = 0; i < MESSAGES; i++) {
+            if (pending.isEmpty()) {
+                pending.offer(queue.take(0));
+            }
+            CommandFinishedMessage message;
+            while ((message = queue.poll()) != null) {
+                pending.offer(message);
+            }
+            sum += pending.poll().priority;
+        }
+        return sum;
+    }
+
+    private void produce(Consumer<CommandFinishedMessage> queue) {
+        CountDownLatch start = new CountDownLatch(1);
+        int perProducer = MESSAGES / producers;
+        for (int p = 0; p < producers; p++) {
+            int from = p * perProducer;
+            producerPool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = from; i < from + perProducer; i++) {
+                    queue.accept(messages[i]);
+                }
+            });
+        }
+        start.countDown();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CompletionQueueBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,46 @@
+package io.github.chyohn.terse.flow.impl;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class CompletionQueueTest {
+
+    @Test
+    void testMultiProducer() throws InterruptedException {
+        for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+            int producers = 8;
+            int perProducer = 10000;
+            CompletionQueue<Integer> queue = new CompletionQueue<>(waitStrategy);
+            ExecutorService pool = Executors.newFixedThreadPool(producers);
+            for (int p = 0; p < producers; p++) {
+                pool.execute(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        queue.offer(i);
+                    }
+                });
+            }
+
+            long sum = 0;
+            for (int i = 0; i < producers * perProducer; i++) {
+                Integer value = queue.take(TimeUnit.SECONDS.toNanos(5));
+                Assertions.assertNotNull(value, waitStrategy.name());
+                sum += value;
+            }
+            pool.shutdown();
+            Assertions.assertEquals((long) producers * perProducer * (perProducer - 1) / 2, sum, waitStrategy.name());
+            Assertions.assertNull(queue.poll());
+        }
+    }
+
+    @Test
+    void testTimeout() throws InterruptedException {
+        for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+            CompletionQueue<Integer> queue = new CompletionQueue<>(waitStrategy);
+            Assertions.assertNull(queue.take(TimeUnit.MILLISECONDS.toNanos(10)), waitStrategy.name());
+        }
+    }
+}
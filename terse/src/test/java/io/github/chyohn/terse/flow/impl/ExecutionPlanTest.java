@@ -0,0 +1,131 @@
+package io.github.chyohn.terse.flow.impl;
+
+import io.github.chyohn.terse.NoRely;
+import io.github.chyohn.terse.flow.IFlowContext;
+import io.github.chyohn.terse.flow.ISummaryTask;
+import io.github.chyohn.terse.flow.ITask;
+import io.github.chyohn.terse.flow.ITaskHandler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ExecutionPlanTest {
+
+    @Test
+    void testCompile() {
+        // task1 -> task2 \
+        //                 |-> summary
+        // task3 ---------/
+        Task task1 = new Task(null);
+        Task task2 = new Task(Collections.singletonList(task1));
+        Task task3 = new Task(null);
+        Summary summary = new Summary(Arrays.asList(task2, task3));
+
+        ExecutionPlan plan = ExecutionPlan.compile(summary);
+        Assertions.assertEquals(4, plan.size());
+        Assertions.assertEquals(2, plan.getRoots().length);
+        for (int root : plan.getRoots()) {
+            Assertions.assertEquals(Node.ROOT_LEVEL, plan.getLevel(root));
+        }
+        // task1 has child on level 1, so it should be scheduled before task3
+        Assertions.assertSame(task1, plan.getTask(plan.getRoots()[0]));
+
+        int end = plan.size() - 1;
+        Assertions.assertSame(summary, plan.getTask(end));
+        Assertions.assertTrue(plan.isEndNode(end));
+        Assertions.assertEquals(2, plan.getMustParentCount(end));
+    }
+
+    @Test
+    void testCache() {
+        Summary summary = new Summary(Collections.singletonList(new Task(null)));
+        ExecutionPlanCache cache = new ExecutionPlanCache(1);
+        ExecutionPlan plan = cache.get(summary);
+        Assertions.assertSame(plan, cache.get(summary));
+
+        // exceed the max size, the cache should be cleared
+        cache.get(new Summary(null));
+        Assertions.assertEquals(1, cache.size());
+        Assertions.assertNotSame(plan, cache.get(summary));
+    }
+
+    @Test
+    void testCriticalPath() {
+        // task1 -> task2 \
+        //                 |-> summary
+        // task3 ---------/
+        Task task1 = new Task(null);
+        Task task2 = new Task(Collections.singletonList(task1));
+        Task task3 = new Task(null);
+        ExecutionPlan plan = ExecutionPlan.compile(new Summary(Arrays.asList(task2, task3)));
+        LatencyProfile profile = plan.getLatencyProfile();
+        // no latency observed, use the static order
+        Assertions.assertNull(profile.ranks());
+
+        int node1 = indexOf(plan, task1);
+        int node2 = indexOf(plan, task2);
+        int node3 = indexOf(plan, task3);
+        profile.record(node1, 10);
+        profile.record(node2, 10);
+        profile.record(node3, 100);
+
+        long[] criticalPath = profile.criticalPathNanos();
+        Assertions.assertEquals(20, criticalPath[node1]);
+        Assertions.assertEquals(100, criticalPath[node3]);
+        // task3 is on the critical path, it should be scheduled before task1
+        int[] ranks = profile.ranks();
+        Assertions.assertTrue(ranks[node3] < ranks[node1]);
+        Assertions.assertTrue(profile.describe().contains("rank="));
+    }
+
+    private static int indexOf(ExecutionPlan plan, Object task) {
+        for (int i = 0; i < plan.size(); i++) {
+            if (plan.getTask(i) == task) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("task not in plan");
+    }
+
+    static class MyContext implements IFlowContext {
+
+    }
+
+    static class Task implements ITask<MyContext>, NoRely<MyContext> {
+        final List<ITask<MyContext>> relies;
+
+        Task(List<ITask<MyContext>> relies) {
+            this.relies = relies;
+        }
+
+        @Override
+        public ITaskHandler createTaskHandler(MyContext context) {
+            return null;
+        }
+
+        @Override
+        public List<ITask<MyContext>> mustRelyOnTasks() {
+            return relies;
+        }
+    }
+
+    static class Summary implements ISummaryTask<MyContext>, NoRely<MyContext> {
+        final List<ITask<MyContext>> relies;
+
+        Summary(List<ITask<MyContext>> relies) {
+            this.relies = relies;
+        }
+
+        @Override
+        public void summary(MyContext context) {
+        }
+
+        @Override
+        public List<ITask<MyContext>> mustRelyOnTasks() {
+            return relies;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package io.github.chyohn.terse.flow.impl;
+
+import io.github.chyohn.terse.flow.IConditionTask;
+import io.github.chyohn.terse.flow.IFlowContext;
+import io.github.chyohn.terse.flow.IReliableTask;
+import io.github.chyohn.terse.flow.ISummaryTask;
+import io.github.chyohn.terse.flow.ITask;
+import io.github.chyohn.terse.flow.ITaskHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the readiness bookkeeping of {@link ExecutionState} with the HashSet based bookkeeping
+ * that {@link Node} used before. Both walk the same layered graph, every node relies on two nodes of
+ * the previous layer and on any of another two.
+ *
+ * Run {@link #main(String[])} with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutionStateBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    int nodes;
+
+    ExecutionPlan plan;
+    int[] readyQueue;
+
+    @Setup(Level.Trial)
+    public void setupPlan() {
+        plan = ExecutionPlan.compile(buildGraph(nodes));
+        readyQueue = new int[plan.size()];
+    }
+
+    @State(Scope.Thread)
+    public static class LegacyGraph {
+        List<LegacyNode> roots;
+
+        @Setup(Level.Invocation)
+        public void setup(ExecutionStateBenchmark benchmark) {
+            roots = buildLegacyGraph(benchmark.plan);
+        }
+    }
+
+    @Benchmark
+    public int executionState() {
+        ExecutionState state = new ExecutionState(plan);
+        int head = 0;
+        int tail = 0;
+        for (int root : plan.getRoots()) {
+            state.started(root);
+            readyQueue[tail++] = root;
+        }
+        while (head < tail) {
+            int node = readyQueue[head++];
+            int[] children = plan.getChildren(node);
+            byte[] edges = plan.getChildEdges(node);
+            for (int i = 0; i < children.length; i++) {
+                if (state.canExecute(children[i], edges[i])) {
+                    state.started(children[i]);
+                    readyQueue[tail++] = children[i];
+                }
+            }
+        }
+        return tail;
+    }
+
+    @Benchmark
+    public int nodeBookkeeping(LegacyGraph graph) {
+        ArrayDeque<LegacyNode> ready = new ArrayDeque<>();
+        for (LegacyNode root : graph.roots) {
+            root.clean();
+            ready.add(root);
+        }
+        int executed = 0;
+        while (!ready.isEmpty()) {
+            LegacyNode node = ready.poll();
+            executed++;
+            for (LegacyNode child : node.children) {
+                if (child.canExecute(node)) {
+                    child.clean();
+                    ready.add(child);
+                }
+            }
+        }
+        return executed;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ExecutionStateBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    static ISummaryTask<IFlowContext> buildGraph(int size) {
+        int width = Math.max(2, (int) Math.sqrt(size));
+        List<BenchTask> previous = new ArrayList<>();
+        List<BenchTask> current = new ArrayList<>();
+        for (int i = 0; i < size - 1; i++) {
+            if (current.size() == width) {
+                previous = current;
+                current = new ArrayList<>();
+            }
+            BenchTask task = new BenchTask();
+            if (!previous.isEmpty()) {
+                int k = current.size();
+                addDistinct(task.must, previous.get(k % previous.size()), previous.get((k + 1) % previous.size()));
+                addDistinct(task.random, previous.get((k + 2) % previous.size()), previous.get((k + 3) % previous.size()));
+                task.random.removeAll(task.must);
+            }
+            current.add(task);
+        }
+        // the last layer may be partial, so rely on the previous layer too to keep every node in graph
+        BenchSummary summary = new BenchSummary();
+        summary.must.addAll(previous);
+        summary.must.addAll(current);
+        return summary;
+    }
+
+    private static void addDistinct(List<ITask<IFlowContext>> list, BenchTask t1, BenchTask t2) {
+        list.add(t1);
+        if (t1 != t2) {
+            list.add(t2);
+        }
+    }
+
+    static List<LegacyNode> buildLegacyGraph(ExecutionPlan plan) {
+        LegacyNode[] legacyNodes = new LegacyNode[plan.size()];
+        for (int i = 0; i < legacyNodes.length; i++) {
+            legacyNodes[i] = new LegacyNode();
+        }
+        for (int i = 0; i < legacyNodes.length; i++) {
+            int[] children = plan.getChildren(i);
+            byte[] edges = plan.getChildEdges(i);
+            for (int j = 0; j < children.length; j++) {
+                LegacyNode child = legacyNodes[children[j]];
+                if (edges[j] == ExecutionPlan.EDGE_MUST) {
+                    child.addMustRelyOnTasks(legacyNodes[i]);
+                } else {
+                    child.addRandomRelyOnTasks(legacyNodes[i]);
+                }
+            }
+        }
+        List<LegacyNode> roots = new ArrayList<>();
+        for (int root : plan.getRoots()) {
+            roots.add(legacyNodes[root]);
+        }
+        return roots;
+    }
+
+    /**
+     * the readiness bookkeeping which {@link Node} did before {@link ExecutionState}
+     */
+    static class LegacyNode {
+        private Set<LegacyNode> parents;
+        private final List<LegacyNode> children = new ArrayList<>();
+        private boolean removed;
+        private Set<LegacyNode> mustRelyOnTasks;
+        private Set<LegacyNode> randomRelyOnTasks;
+
+        void addMustRelyOnTasks(LegacyNode parent) {
+            if (mustRelyOnTasks == null) {
+                mustRelyOnTasks = new HashSet<>();
+            }
+            mustRelyOnTasks.add(parent);
+            addParent(parent);
+        }
+
+        void addRandomRelyOnTasks(LegacyNode parent) {
+            if (randomRelyOnTasks == null) {
+                randomRelyOnTasks = new HashSet<>();
+            }
+            randomRelyOnTasks.add(parent);
+            addParent(parent);
+        }
+
+        private void addParent(LegacyNode parent) {
+            if (parents == null) {
+                parents = new HashSet<>();
+            }
+            if (parents.add(parent)) {
+                parent.children.add(this);
+            }
+        }
+
+        boolean canExecute(LegacyNode parent) {
+            if (removed) {
+                return false;
+            }
+            if (parents != null && parents.remove(parent)) {
+                if (mustRelyOnTasks == null || !mustRelyOnTasks.remove(parent)) {
+                    if (randomRelyOnTasks != null && randomRelyOnTasks.contains(parent)) {
+                        randomRelyOnTasks = null;
+                    }
+                }
+            }
+            return (mustRelyOnTasks == null || mustRelyOnTasks.isEmpty()) && randomRelyOnTasks == null;
+        }
+
+        void clean() {
+            removed = true;
+            parents = null;
+            mustRelyOnTasks = null;
+            randomRelyOnTasks = null;
+        }
+    }
+
+    static class BenchTask extends BenchReliable implements ITask<IFlowContext> {
+        @Override
+        public ITaskHandler createTaskHandler(IFlowContext context) {
+            return null;
+        }
+    }
+
+    static class BenchSummary extends BenchReliable implements ISummaryTask<IFlowContext> {
+        @Override
+        public void summary(IFlowContext context) {
+        }
+    }
+
+    static class BenchReliable implements IReliableTask<IFlowContext> {
+        final List<ITask<IFlowContext>> must = new ArrayList<>();
+        final List<ITask<IFlowContext>> random = new ArrayList<>();
+
+        @Override
+        public List<ITask<IFlowContext>> mustRelyOnTasks() {
+            return must;
+        }
+
+        @Override
+        public List<ITask<IFlowContext>> randomRelyOnTasks() {
+            return random;
+        }
+
+        @Override
+        public List<IConditionTask<IFlowContext>> mustConditions() {
+            return null;
+        }
+
+        @Override
+        public List<IConditionTask<IFlowContext>> randomConditions() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.chyohn.terse.flow.impl;
+
+import io.github.chyohn.terse.NoRely;
+import io.github.chyohn.terse.enums.RunningWay;
+import io.github.chyohn.terse.flow.IFlowContext;
+import io.github.chyohn.terse.flow.IFlowEventLoopMetrics;
+import io.github.chyohn.terse.flow.ISummaryTask;
+import io.github.chyohn.terse.flow.ITask;
+import io.github.chyohn.terse.flow.ITaskHandler;
+import io.github.chyohn.terse.flow.factory.TaskHandlerFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class FlowEventLoopTest {
+
+    @Test
+    void testFlowsShareEventLoops() throws Exception {
+        DefaultFlowExecutor executor = new DefaultFlowExecutor(new FlowEventLoopGroup(2, WaitStrategy.BLOCK), WaitStrategy.BLOCK);
+        // task1 -> task2 \
+        //                 |-> summary
+        // task3 ---------/
+        Task task1 = new Task(null);
+        Task task2 = new Task(Collections.singletonList(task1));
+        Task task3 = new Task(null);
+        Summary summary = new Summary(Arrays.asList(task2, task3));
+
+        List<Context> contexts = new ArrayList<>();
+        List<CompletableFuture<Context>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Context context = new Context();
+            contexts.add(context);
+            futures.add(executor.executeAsync(summary, context, RunningWay.PARALLEL));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        for (Context context : contexts) {
+            // all handler callbacks of a flow are on the owning event loop
+            Assertions.assertEquals(1, context.handlerThreads.size(), context.handlerThreads.toString());
+            Assertions.assertTrue(context.handlerThreads.iterator().next().startsWith("terse-flow-loop-"));
+            Assertions.assertEquals(3, context.handled);
+        }
+
+        Context context = new Context();
+        executor.execute(summary, context, RunningWay.PARALLEL);
+        Assertions.assertEquals(3, context.handled);
+
+        List<IFlowEventLoopMetrics> metrics = executor.eventLoopMetrics();
+        Assertions.assertEquals(2, metrics.size());
+        for (IFlowEventLoopMetrics metric : metrics) {
+            Assertions.assertTrue(metric.completedTasks() > 0, metric.toString());
+            Assertions.assertTrue(metric.utilisation() >= 0 && metric.utilisation() <= 1, metric.toString());
+            Assertions.assertTrue(metric.queueDepth() >= 0, metric.toString());
+        }
+    }
+
+    static class Context implements IFlowContext {
+        final Set<String> handlerThreads = ConcurrentHashMap.newKeySet();
+        int handled;
+    }
+
+    static class Task implements ITask<Context>, NoRely<Context> {
+        final List<ITask<Context>> relies;
+
+        Task(List<ITask<Context>> relies) {
+            this.relies = relies;
+        }
+
+        @Override
+        public ITaskHandler createTaskHandler(Context context) {
+            return TaskHandlerFactory.newTaskHandler("", () -> 1, v -> {
+                context.handlerThreads.add(Thread.currentThread().getName());
+                context.handled += v;
+            });
+        }
+
+        @Override
+        public List<ITask<Context>> mustRelyOnTasks() {
+            return relies;
+        }
+    }
+
+    static class Summary implements ISummaryTask<Context>, NoRely<Context> {
+        final List<ITask<Context>> relies;
+
+        Summary(List<ITask<Context>> relies) {
+            this.relies = relies;
+        }
+
+        @Override
+        public void summary(Context context) {
+        }
+
+        @Override
+        public List<ITask<Context>> mustRelyOnTasks() {
+            return relies;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.chyohn.terse.timer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedule and cancel throughput of command timeouts from 4 threads, the common case of a command completing before
+ * its timeout. {@link #scheduledExecutor()} is the two-thread executor used before {@link HashedWheelTimer}.
+ *
+ * Run {@link #main(String[])} with the test classpath, add {@code -prof gc} to compare the allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class HashedWheelTimerBenchmark {
+
+    static final Runnable TASK = () -> {
+    };
+    static final ITimerTask TIMER_TASK = t -> {
+    };
+
+    ScheduledExecutorService scheduledExecutor;
+    HashedWheelTimer timer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        scheduledExecutor = Executors.newScheduledThreadPool(2);
+        timer = new HashedWheelTimer("benchmark-timer", 10, TimeUnit.MILLISECONDS, 512);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scheduledExecutor.shutdownNow();
+        timer.stop();
+    }
+
+    @Benchmark
+    public boolean scheduledExecutor() {
+        ScheduledFuture<?> future = scheduledExecutor.schedule(TASK, 3000, TimeUnit.MILLISECONDS);
+        return future.cancel(false);
+    }
+
+    @Benchmark
+    public boolean hashedWheelTimer() {
+        ITimeout timeout = timer.newTimeout(TIMER_TASK, 3000, TimeUnit.MILLISECONDS);
+        return timeout.cancel();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(HashedWheelTimerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
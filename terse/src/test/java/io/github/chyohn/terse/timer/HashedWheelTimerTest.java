@@ -0,0 +1,64 @@
+package io.github.chyohn.terse.timer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HashedWheelTimerTest {
+
+    // one round of the wheel is 40ms
+    HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 4);
+
+    @AfterEach
+    void stop() {
+        timer.stop();
+    }
+
+    @Test
+    void testExpire() throws InterruptedException {
+        Assertions.assertEquals(4, timer.wheelSize());
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        // longer than one round
+        ITimeout timeout = timer.newTimeout(t -> latch.countDown(), 100, TimeUnit.MILLISECONDS);
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assertions.assertTrue(elapsed >= 100, "expired after " + elapsed + "ms");
+        Assertions.assertTrue(timeout.isExpired());
+        Assertions.assertFalse(timeout.cancel());
+        Assertions.assertEquals(1, timer.expiredTimeouts());
+        Assertions.assertEquals(0, timer.pendingTimeouts());
+    }
+
+    @Test
+    void testCancel() throws InterruptedException {
+        AtomicInteger ran = new AtomicInteger();
+        for (int i = 0; i < 1000; i++) {
+            ITimeout timeout = timer.newTimeout(t -> ran.incrementAndGet(), 20 + i % 50, TimeUnit.MILLISECONDS);
+            if (i % 2 == 0) {
+                Assertions.assertTrue(timeout.cancel());
+                Assertions.assertTrue(timeout.isCancelled());
+            }
+        }
+        Assertions.assertEquals(500, timer.pendingTimeouts());
+        Assertions.assertEquals(500, timer.cancelledTimeouts());
+
+        CountDownLatch latch = new CountDownLatch(1);
+        timer.newTimeout(t -> latch.countDown(), 200, TimeUnit.MILLISECONDS);
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(500, ran.get());
+        Assertions.assertEquals(501, timer.expiredTimeouts());
+        Assertions.assertEquals(0, timer.pendingTimeouts());
+    }
+
+    @Test
+    void testStop() {
+        timer.stop();
+        Assertions.assertThrows(IllegalStateException.class, () -> timer.newTimeout(t -> {
+        }, 1, TimeUnit.MILLISECONDS));
+    }
+}